@@ -0,0 +1,115 @@
+package com.bank.bench;
+
+import com.bank.exception.InsufficientFundsException;
+import com.bank.model.Money;
+import com.bank.service.AsyncBankService;
+import com.bank.service.AsyncServiceConfig;
+import com.bank.service.BankService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operations per second one caller thread gets from the blocking {@link BankService} versus the
+ * {@link AsyncBankService} facade. Each invocation issues {@value #IN_FLIGHT} operations: the
+ * blocking variants one after the other, the async ones all at once before joining them.
+ * Run with -t 1 to compare per-thread throughput, or more threads to see the bounded executor
+ * saturate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class AsyncBankServiceBenchmark {
+
+    private static final int IN_FLIGHT = 64;
+    private static final Money AMOUNT = Money.parse("1.00");
+
+    @Param({"1000"})
+    public int accounts;
+
+    @Param({"10"})
+    public int maxConcurrency;
+
+    // Virtual threads are only used on Java 21+; otherwise both settings run on a fixed pool.
+    @Param({"true", "false"})
+    public boolean virtualThreads;
+
+    private BankService bankService;
+    private AsyncBankService asyncBankService;
+    private int[] accountIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        accountIds = BenchmarkDatabase.start(accounts, 0, maxConcurrency);
+        bankService = new BankService();
+        AsyncServiceConfig config = new AsyncServiceConfig();
+        config.setVirtualThreads(virtualThreads);
+        config.setMaxConcurrency(maxConcurrency);
+        asyncBankService = new AsyncBankService(bankService, config);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        asyncBankService.close();
+        bankService.shutdown();
+        BenchmarkDatabase.stop();
+    }
+
+    private int randomAccount() {
+        return accountIds[ThreadLocalRandom.current().nextInt(accountIds.length)];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(IN_FLIGHT)
+    public void blockingDeposit() {
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            bankService.deposit(randomAccount(), AMOUNT);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(IN_FLIGHT)
+    public void asyncDeposit() {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[IN_FLIGHT];
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            futures[i] = asyncBankService.deposit(randomAccount(), AMOUNT);
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(IN_FLIGHT)
+    public void blockingTransfer() throws InsufficientFundsException {
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            bankService.transfer(randomAccount(), randomAccount(), AMOUNT);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(IN_FLIGHT)
+    public void asyncTransfer() {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[IN_FLIGHT];
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            futures[i] = asyncBankService.transfer(randomAccount(), randomAccount(), AMOUNT);
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+}
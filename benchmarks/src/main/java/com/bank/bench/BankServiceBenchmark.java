@@ -0,0 +1,79 @@
+package com.bank.bench;
+
+import com.bank.exception.InsufficientFundsException;
+import com.bank.model.Money;
+import com.bank.service.BankService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end cost of the customer-facing write paths, including fraud checks and the ledger insert.
+ * Accounts are picked uniformly at random, so contention falls as {@code accounts} grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class BankServiceBenchmark {
+
+    private static final Money AMOUNT = Money.parse("1.00");
+
+    @Param({"100", "1000"})
+    public int accounts;
+
+    @Param({"100"})
+    public int historySize;
+
+    private BankService bankService;
+    private int[] accountIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        accountIds = BenchmarkDatabase.start(accounts, historySize, 32);
+        bankService = new BankService();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkDatabase.stop();
+    }
+
+    private int randomAccount() {
+        return accountIds[ThreadLocalRandom.current().nextInt(accountIds.length)];
+    }
+
+    @Benchmark
+    public Object deposit() {
+        return bankService.deposit(randomAccount(), AMOUNT);
+    }
+
+    @Benchmark
+    public Object withdraw() throws InsufficientFundsException {
+        return bankService.withdraw(randomAccount(), AMOUNT);
+    }
+
+    @Benchmark
+    public void transfer() throws InsufficientFundsException {
+        int from = randomAccount();
+        int to = randomAccount();
+        if (from != to) {
+            bankService.transfer(from, to, AMOUNT);
+        }
+    }
+}
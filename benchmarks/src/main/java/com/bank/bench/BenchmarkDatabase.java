@@ -0,0 +1,100 @@
+package com.bank.bench;
+
+import com.bank.dao.AccountDAO;
+import com.bank.dao.DatabaseConnector;
+import com.bank.dao.PoolConfig;
+import com.bank.model.Account;
+import com.bank.model.Money;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Seeds a fresh embedded H2 database (MySQL mode) for one benchmark trial.
+ * Set -Dbank.db.url to benchmark against a real server instead.
+ */
+final class BenchmarkDatabase {
+
+    private static final String[] TYPES = {"DEPOSIT", "WITHDRAWAL", "TRANSFER_IN", "TRANSFER_OUT"};
+    private static final long HISTORY_SPAN_MILLIS = 30L * 24 * 60 * 60 * 1000;
+
+    private static PrintStream console;
+
+    private BenchmarkDatabase() {}
+
+    /**
+     * Starts a new database with {@code accounts} accounts, each holding {@code historySize} past
+     * transactions spread over the last 30 days (outside the fraud velocity window).
+     *
+     * @return the ids of the created accounts
+     */
+    static int[] start(int accounts, int historySize, int poolSize) throws SQLException {
+        return start(accounts, historySize, poolSize, new PoolConfig().getStatementCacheSize());
+    }
+
+    /**
+     * Same as {@link #start(int, int, int)}, with {@code statementCacheSize} prepared statements
+     * cached per connection (0 disables the cache).
+     */
+    static int[] start(int accounts, int historySize, int poolSize, int statementCacheSize) throws SQLException {
+        // The services log every operation; keep that out of the measurements.
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        if (System.getProperty("bank.db.url") == null) {
+            PoolConfig config = new PoolConfig();
+            config.setUrl("jdbc:h2:mem:bench_" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+            config.setUser("sa");
+            config.setPassword("");
+            config.setMaxSize(poolSize);
+            config.setStatementCacheSize(statementCacheSize);
+            DatabaseConnector.configure(config);
+        }
+        DatabaseConnector.initializeDatabase();
+
+        AccountDAO accountDAO = new AccountDAO();
+        int[] ids = new int[accounts];
+        for (int i = 0; i < accounts; i++) {
+            ids[i] = accountDAO.createAccount(new Account("Bench " + i, "Checking", Money.parse("1000000.00")));
+        }
+        seedHistory(ids, historySize);
+        accountDAO.backfillTransactionAggregates();
+        return ids;
+    }
+
+    private static void seedHistory(int[] ids, int historySize) throws SQLException {
+        String sql = "INSERT INTO Transactions (accountId, transactionType, amount, isFlagged, transactionTime) VALUES (?, ?, ?, FALSE, ?)";
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long now = System.currentTimeMillis();
+
+        try (Connection conn = DatabaseConnector.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            conn.setAutoCommit(false);
+            for (int id : ids) {
+                for (int i = 0; i < historySize; i++) {
+                    pstmt.setInt(1, id);
+                    pstmt.setString(2, TYPES[random.nextInt(TYPES.length)]);
+                    pstmt.setBigDecimal(3, BigDecimal.valueOf(random.nextInt(1, 50_000), 2));
+                    // Older than the velocity window, so seeded history does not trip the frequency rule.
+                    pstmt.setTimestamp(4, new Timestamp(now - 10 * 60 * 1000 - random.nextLong(HISTORY_SPAN_MILLIS)));
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+            conn.commit();
+        }
+    }
+
+    static void stop() {
+        DatabaseConnector.shutdown();
+        if (console != null) {
+            System.setOut(console);
+        }
+    }
+}
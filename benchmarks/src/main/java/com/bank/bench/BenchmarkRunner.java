@@ -0,0 +1,32 @@
+package com.bank.bench;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks once per thread count and writes one JSON result file per run
+ * ({@code results-t<threads>.json}), so runs can be compared with any JMH result viewer or diffed by script.
+ *
+ * Usage: {@code BenchmarkRunner [threadCounts] [includeRegex]}, e.g. {@code BenchmarkRunner 1,4,16 BankService}.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String[] threadCounts = (args.length > 0 ? args[0] : "1,4,16").split(",");
+        String include = args.length > 1 ? args[1] : "com\\.bank\\.bench\\..*";
+
+        for (String threadCount : threadCounts) {
+            int threads = Integer.parseInt(threadCount.trim());
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(threads)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("results-t" + threads + ".json")
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.bank.bench;
+
+import com.bank.dao.memory.InMemoryStorage;
+import com.bank.feed.ChangeFeedConfig;
+import com.bank.feed.LedgerEvent;
+import com.bank.feed.LedgerEventPublisher;
+import com.bank.feed.OverflowPolicy;
+import com.bank.model.Money;
+import com.bank.model.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Events per second the change feed fans out to every one of {@code subscribers} subscribers.
+ * Each invocation publishes {@value #EVENTS} events and waits until all subscribers have received
+ * the last one, so deliveries per second are the score times the subscriber count. Subscribers
+ * use {@link OverflowPolicy#BLOCK}, so a full buffer slows the publisher instead of losing events.
+ * No database is involved; the ledger is only read by subscribers that catch up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class ChangeFeedBenchmark {
+
+    private static final int EVENTS = 1_000;
+    private static final Money AMOUNT = Money.parse("1.00");
+
+    @Param({"1", "16", "128"})
+    public int subscribers;
+
+    @Param({"1", "4"})
+    public int deliveryThreads;
+
+    @Param({"1024"})
+    public int bufferCapacity;
+
+    private LedgerEventPublisher publisher;
+    private CountingSubscriber[] counting;
+    private int nextTransactionId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ChangeFeedConfig config = new ChangeFeedConfig();
+        config.setDeliveryThreads(deliveryThreads);
+        config.setBlockTimeoutMillis(60_000);
+        publisher = new LedgerEventPublisher(new InMemoryStorage().transactions(), config);
+        counting = new CountingSubscriber[subscribers];
+        for (int i = 0; i < subscribers; i++) {
+            counting[i] = new CountingSubscriber(bufferCapacity);
+            publisher.subscribe(counting[i], LedgerEventPublisher.FROM_NOW, bufferCapacity, OverflowPolicy.BLOCK);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        publisher.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public void fanOut() {
+        for (int i = 0; i < EVENTS; i++) {
+            Transaction transaction = new Transaction(1, "DEPOSIT", AMOUNT);
+            transaction.setTransactionId(++nextTransactionId);
+            publisher.publish(publisher.begin(), transaction);
+        }
+        for (CountingSubscriber subscriber : counting) {
+            while (subscriber.lastSequence < nextTransactionId) {
+                Thread.yield();
+            }
+        }
+    }
+
+    /** Requests a buffer's worth up front and tops it up each time half of it has been consumed. */
+    static final class CountingSubscriber implements Flow.Subscriber<LedgerEvent> {
+        private final int batch;
+        private Flow.Subscription subscription;
+        private int untilRequest;
+        volatile long lastSequence;
+
+        CountingSubscriber(int bufferCapacity) {
+            this.batch = Math.max(1, bufferCapacity / 2);
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            untilRequest = batch;
+            subscription.request(batch * 2L);
+        }
+
+        @Override
+        public void onNext(LedgerEvent event) {
+            lastSequence = event.getSequence();
+            if (--untilRequest == 0) {
+                untilRequest = batch;
+                subscription.request(batch);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            throwable.printStackTrace();
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.bank.bench;
+
+import com.bank.dao.AccountDAO;
+import com.bank.model.Account;
+import com.bank.model.Money;
+import com.bank.model.Transaction;
+import com.bank.service.FraudDetectionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link FraudDetectionService#checkForFraud} on its own, after the per-account state has
+ * been warmed up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class FraudDetectionBenchmark {
+
+    private static final Money AMOUNT = Money.parse("25.00");
+
+    @Param({"1000"})
+    public int accounts;
+
+    @Param({"100", "1000"})
+    public int historySize;
+
+    private FraudDetectionService fraudDetectionService;
+    private Account[] loadedAccounts;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        int[] ids = BenchmarkDatabase.start(accounts, historySize, 32);
+        AccountDAO accountDAO = new AccountDAO();
+        loadedAccounts = new Account[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            loadedAccounts[i] = accountDAO.findAccountById(ids[i]).orElseThrow();
+        }
+        fraudDetectionService = new FraudDetectionService();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkDatabase.stop();
+    }
+
+    @Benchmark
+    public Transaction checkForFraud() {
+        Account account = loadedAccounts[ThreadLocalRandom.current().nextInt(loadedAccounts.length)];
+        return fraudDetectionService.checkForFraud(account, new Transaction(account.getAccountId(), "DEPOSIT", AMOUNT));
+    }
+}
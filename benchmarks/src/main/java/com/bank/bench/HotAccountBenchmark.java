@@ -0,0 +1,77 @@
+package com.bank.bench;
+
+import com.bank.dao.AccountDAO;
+import com.bank.model.Account;
+import com.bank.model.Money;
+import com.bank.model.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Credits per second into a single account from {@value #THREADS} threads at once, as a merchant
+ * account sees them. With {@code slots=0} every credit waits for the account's row (and its daily
+ * rollup row); with balance slots the credits spread over that many rows, and the periodic
+ * compaction folds them back. Needs as many cores as threads for the scaling to show.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Threads(HotAccountBenchmark.THREADS)
+@Fork(1)
+public class HotAccountBenchmark {
+
+    static final int THREADS = 8;
+    private static final Money AMOUNT = Money.parse("1.00");
+
+    @Param({"0", "4", "16"})
+    public int slots;
+
+    private AccountDAO accountDAO;
+    private int hotAccountId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        hotAccountId = BenchmarkDatabase.start(1, 0, THREADS * 2)[0];
+        accountDAO = new AccountDAO();
+        if (slots > 0) {
+            accountDAO.setBalanceSlots(hotAccountId, slots);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkDatabase.stop();
+    }
+
+    /** Each thread's copy of the account, kept current by its own credits as the service cache would be. */
+    @State(Scope.Thread)
+    public static class Caller {
+        Account account;
+
+        @Setup(Level.Trial)
+        public void setUp(HotAccountBenchmark benchmark) {
+            account = benchmark.accountDAO.findAccountById(benchmark.hotAccountId).orElseThrow();
+        }
+    }
+
+    @Benchmark
+    public Object credit(Caller caller) {
+        return accountDAO.applyCredit(caller.account, AMOUNT, new Transaction(hotAccountId, "DEPOSIT", AMOUNT));
+    }
+}
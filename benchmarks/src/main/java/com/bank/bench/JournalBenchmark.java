@@ -0,0 +1,99 @@
+package com.bank.bench;
+
+import com.bank.dao.TransactionDAO;
+import com.bank.dao.journal.JournaledTransactionRepository;
+import com.bank.dao.journal.LedgerJournal;
+import com.bank.model.Money;
+import com.bank.model.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Durable ledger inserts per second through the {@link LedgerJournal}, with and without group
+ * commit; run at several thread counts to see forces being shared. {@code journaledInsertWithId}
+ * also waits for the applier's batched insert, to return the transactionId. {@code directInsert}
+ * is the autocommit insert the journal replaces (against embedded H2 it never waits for a disk,
+ * so compare it only when benchmarking a real server via -Dbank.db.url).
+ *
+ * Segments go to a temporary directory, or to -Dbank.bench.walDir to measure a specific disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class JournalBenchmark {
+
+    private static final Money AMOUNT = Money.parse("1.00");
+
+    @Param({"true", "false"})
+    public boolean groupCommit;
+
+    @Param({"0"})
+    public long commitWindowMicros;
+
+    private Path directory;
+    private LedgerJournal journal;
+    private JournaledTransactionRepository journaled;
+    private TransactionDAO transactionDAO;
+    private int[] accountIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        accountIds = BenchmarkDatabase.start(10, 0, 32);
+        String walDir = System.getProperty("bank.bench.walDir");
+        directory = walDir == null ? Files.createTempDirectory("ledger-wal") : Files.createTempDirectory(Paths.get(walDir), "ledger-wal");
+        journal = LedgerJournal.open(directory, groupCommit, commitWindowMicros);
+        transactionDAO = new TransactionDAO();
+        journaled = new JournaledTransactionRepository(journal, transactionDAO);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        journal.close();
+        BenchmarkDatabase.stop();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private Transaction newTransaction() {
+        return new Transaction(accountIds[ThreadLocalRandom.current().nextInt(accountIds.length)], "DEPOSIT", AMOUNT);
+    }
+
+    @Benchmark
+    public long journaledInsert() {
+        return journaled.journal(newTransaction());
+    }
+
+    @Benchmark
+    public int journaledInsertWithId() {
+        return journaled.createTransaction(newTransaction());
+    }
+
+    @Benchmark
+    public int directInsert() {
+        return transactionDAO.createTransaction(newTransaction());
+    }
+}
@@ -0,0 +1,147 @@
+package com.bank.bench;
+
+import com.bank.dao.DatabaseConnector;
+import com.bank.dao.TransactionDAO;
+import com.bank.model.Money;
+import com.bank.model.Transaction;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * History reads, which are dominated by row mapping in {@link TransactionDAO} for busy accounts.
+ * The {@code rows} counter reports rows/s. {@code legacyFindTransactionsByAccountId} is the
+ * baseline: the {@code SELECT *} query with by-name column lookups that the DAO used before
+ * explicit column lists and positional mappers; run with {@code statementCacheSize=0} for the
+ * baseline without the pool's statement cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class TransactionDAOBenchmark {
+
+    @Param({"10"})
+    public int accounts;
+
+    @Param({"1000", "10000"})
+    public int historySize;
+
+    @Param({"0", "64"})
+    public int statementCacheSize;
+
+    private TransactionDAO transactionDAO;
+    private int[] accountIds;
+
+    /** Rows read, reported by JMH as a rate next to ops/s. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Rows {
+        public long rows;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rows = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        accountIds = BenchmarkDatabase.start(accounts, historySize, 32, statementCacheSize);
+        transactionDAO = new TransactionDAO();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkDatabase.stop();
+    }
+
+    private int randomAccount() {
+        return accountIds[ThreadLocalRandom.current().nextInt(accountIds.length)];
+    }
+
+    @Benchmark
+    public Object findTransactionsByAccountId(Rows rows) {
+        List<Transaction> transactions = transactionDAO.findTransactionsByAccountId(randomAccount());
+        rows.rows += transactions.size();
+        return transactions;
+    }
+
+    @Benchmark
+    public Object legacyFindTransactionsByAccountId(Rows rows) throws SQLException {
+        List<Transaction> transactions = new ArrayList<>();
+        try (Connection conn = DatabaseConnector.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM Transactions WHERE accountId = ? ORDER BY transactionTime DESC, transactionId DESC")) {
+            pstmt.setInt(1, randomAccount());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Transaction transaction = new Transaction();
+                    transaction.setTransactionId(rs.getInt("transactionId"));
+                    transaction.setAccountId(rs.getInt("accountId"));
+                    transaction.setTransactionType(rs.getString("transactionType"));
+                    transaction.setAmount(Money.of(rs.getBigDecimal("amount")));
+                    transaction.setFlagged(rs.getBoolean("isFlagged"));
+                    transaction.setReasonForFlag(rs.getString("reasonForFlag"));
+                    transaction.setTransactionTime(rs.getTimestamp("transactionTime"));
+                    transaction.setLinkedTransactionId(rs.getInt("linkedTransactionId"));
+                    transactions.add(transaction);
+                }
+            }
+        }
+        rows.rows += transactions.size();
+        return transactions;
+    }
+
+    @Benchmark
+    public long streamTransactionsByAccountId(Blackhole blackhole, Rows rows) {
+        long count = transactionDAO.streamTransactionsByAccountId(randomAccount(), blackhole::consume);
+        rows.rows += count;
+        return count;
+    }
+
+    @Benchmark
+    public Object findFirstPage(Rows rows) {
+        Object page = transactionDAO.findTransactionsPage(randomAccount(), null, 50);
+        rows.rows += 50;
+        return page;
+    }
+
+    /** Full rows of the last week, only to count them: what a fraud rule did without projections. */
+    @Benchmark
+    public int recentCountFromRows() {
+        return transactionDAO.findTransactionsByAccountIdSince(randomAccount(), lastWeek()).size();
+    }
+
+    @Benchmark
+    public int recentCountProjection() {
+        return transactionDAO.countTransactionsByAccountIdSince(randomAccount(), lastWeek());
+    }
+
+    private static Timestamp lastWeek() {
+        return new Timestamp(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(7));
+    }
+}
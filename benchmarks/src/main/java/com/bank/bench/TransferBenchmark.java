@@ -0,0 +1,130 @@
+package com.bank.bench;
+
+import com.bank.dao.AccountDAO;
+import com.bank.exception.InsufficientFundsException;
+import com.bank.model.Money;
+import com.bank.service.BankService;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Contention benchmark for {@link BankService#transfer}: half of the threads move money from A to B
+ * while the other half move it from B to A, which is the classic deadlock pattern for transfers that
+ * lock rows in argument order. Besides transfers per second it reports, per iteration, the
+ * deadlocks the database reported and the retries they caused, and the transfers refused for
+ * insufficient funds. The trial fails if the two balances no longer add up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class TransferBenchmark {
+
+    static final int THREADS_PER_DIRECTION = 4;
+    private static final Money INITIAL_BALANCE = Money.parse("1000000.00");
+    private static final Money AMOUNT = Money.parse("1.00");
+
+    private BankService bankService;
+    private int accountA;
+    private int accountB;
+    // Claimed by the one thread that reports the process-wide deadlock and retry counts.
+    private final AtomicBoolean reporterClaimed = new AtomicBoolean();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        int[] ids = BenchmarkDatabase.start(2, 0, THREADS_PER_DIRECTION * 2 + 2);
+        accountA = ids[0];
+        accountB = ids[1];
+        bankService = new BankService();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Money total = bankService.getAccount(accountA).orElseThrow().getBalance()
+                .plus(bankService.getAccount(accountB).orElseThrow().getBalance());
+        bankService.shutdown();
+        BenchmarkDatabase.stop();
+        if (!total.equals(INITIAL_BALANCE.times(2))) {
+            throw new IllegalStateException("Money was not conserved: the accounts hold " + total);
+        }
+    }
+
+    /**
+     * Per-thread counters, summed over the threads by JMH. AccountDAO only counts deadlocks and
+     * retries for the whole process, so one thread reports their growth over the iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Contention {
+        public long insufficientFunds;
+        public long deadlocks;
+        public long retries;
+
+        private boolean reporter;
+        private long deadlocksBefore;
+        private long retriesBefore;
+
+        @Setup(Level.Trial)
+        public void claim(TransferBenchmark benchmark) {
+            reporter = benchmark.reporterClaimed.compareAndSet(false, true);
+        }
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            insufficientFunds = 0;
+            deadlocks = 0;
+            retries = 0;
+            deadlocksBefore = AccountDAO.getTransferDeadlockCount();
+            retriesBefore = AccountDAO.getTransferRetryCount();
+        }
+
+        @TearDown(Level.Iteration)
+        public void collect() {
+            if (reporter) {
+                deadlocks = AccountDAO.getTransferDeadlockCount() - deadlocksBefore;
+                retries = AccountDAO.getTransferRetryCount() - retriesBefore;
+            }
+        }
+    }
+
+    @Benchmark
+    @Group("opposing")
+    @GroupThreads(THREADS_PER_DIRECTION)
+    public boolean aToB(Contention contention) {
+        return transfer(accountA, accountB, contention);
+    }
+
+    @Benchmark
+    @Group("opposing")
+    @GroupThreads(THREADS_PER_DIRECTION)
+    public boolean bToA(Contention contention) {
+        return transfer(accountB, accountA, contention);
+    }
+
+    private boolean transfer(int from, int to, Contention contention) {
+        try {
+            return bankService.transfer(from, to, AMOUNT);
+        } catch (InsufficientFundsException e) {
+            contention.insufficientFunds++;
+            return false;
+        }
+    }
+}
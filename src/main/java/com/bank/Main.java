@@ -2,24 +2,64 @@
 
 package com.bank;
 
+import com.bank.bench.LoadGenerator;
+import com.bank.bench.LoadGeneratorConfig;
 import com.bank.dao.DatabaseConnector;
+import com.bank.dao.archive.TransactionArchive;
+import com.bank.dao.archive.TransactionArchiver;
+import com.bank.dao.memory.InMemoryStorage;
 import com.bank.exception.InsufficientFundsException;
+import com.bank.export.StatementExportConfig;
+import com.bank.export.StatementExporter;
+import com.bank.metrics.Metrics;
+import com.bank.metrics.MetricsReporter;
 import com.bank.model.Account;
-import com.bank.model.Transaction;
+import com.bank.model.Money;
 import com.bank.service.BankService;
 
-import java.math.BigDecimal;
-import java.util.List;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.Optional;
 import java.util.Scanner;
 
 public class Main {
 
-    private static final BankService bankService = new BankService();
+    // Set when running with -Dbank.storage=memory instead of against the database.
+    private static final InMemoryStorage memoryStorage = createMemoryStorage();
+    private static final BankService bankService = memoryStorage == null
+            ? new BankService()
+            : new BankService(memoryStorage.accounts(), memoryStorage.transactions());
     private static final Scanner scanner = new Scanner(System.in);
+    // Periodic metrics dump, enabled with -Dbank.metrics.dumpIntervalSeconds.
+    private static final Optional<MetricsReporter> metricsReporter = MetricsReporter.fromSystemProperties(Main::metricsText);
 
+    /**
+     * Starts the interactive menu, or with {@code load [--name=value ...]} runs the load generator
+     * once (see {@link LoadGeneratorConfig#fromArgs}) against the configured storage and exits.
+     * {@code export --dir=... [--name=value ...]} exports statements (see {@link StatementExportConfig#fromArgs}).
+     * {@code archive} moves old transactions into the archive configured by {@code -Dbank.archive.*}.
+     */
     public static void main(String[] args) {
-        DatabaseConnector.initializeDatabase();
+        if (memoryStorage == null) {
+            DatabaseConnector.initializeDatabase();
+        }
+        if (args.length > 0 && "load".equals(args[0])) {
+            runLoadGenerator(LoadGeneratorConfig.fromArgs(Arrays.copyOfRange(args, 1, args.length)));
+            shutdown();
+            return;
+        }
+        if (args.length > 0 && "export".equals(args[0])) {
+            runStatementExport(StatementExportConfig.fromArgs(Arrays.copyOfRange(args, 1, args.length)));
+            shutdown();
+            return;
+        }
+        if (args.length > 0 && "archive".equals(args[0])) {
+            runArchiver();
+            shutdown();
+            return;
+        }
 
         while (true) {
             printMenu();
@@ -46,10 +86,11 @@ public class Main {
                     viewTransactionHistory();
                     break;
                 case 7:
-                    runFraudScenarios();
+                    runLoadGenerator();
                     break;
                 case 8:
                     System.out.println("Thank you for using the Bank Management System. Goodbye!");
+                    shutdown();
                     return;
                 default:
                     System.out.println("Invalid choice. Please try again.");
@@ -57,6 +98,40 @@ public class Main {
         }
     }
 
+    // -Dbank.storage.dir makes the in-memory ledger durable (snapshot plus replay log in that directory).
+    private static InMemoryStorage createMemoryStorage() {
+        if (!"memory".equalsIgnoreCase(System.getProperty("bank.storage"))) {
+            return null;
+        }
+        String directory = System.getProperty("bank.storage.dir");
+        if (directory == null) {
+            return new InMemoryStorage();
+        }
+        try {
+            return InMemoryStorage.open(Paths.get(directory));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not open ledger storage in " + directory, e);
+        }
+    }
+
+    private static String metricsText() {
+        return memoryStorage == null ? Metrics.toText() + DatabaseConnector.getPoolMetrics().toText() : Metrics.toText();
+    }
+
+    private static void shutdown() {
+        bankService.shutdown();
+        metricsReporter.ifPresent(MetricsReporter::close);
+        if (memoryStorage == null) {
+            DatabaseConnector.shutdown();
+            return;
+        }
+        try {
+            memoryStorage.close();
+        } catch (IOException e) {
+            System.err.println("Error closing ledger storage: " + e.getMessage());
+        }
+    }
+
     private static void printMenu() {
         System.out.println("\n--- Bank Management System ---");
         System.out.println("1. Create New Account");
@@ -65,7 +140,7 @@ public class Main {
         System.out.println("4. Transfer Funds");
         System.out.println("5. View Account Details");
         System.out.println("6. View Transaction History");
-        System.out.println("7. Run Fraud Detection Scenarios");
+        System.out.println("7. Run Load Generator");
         System.out.println("8. Exit");
         System.out.print("Enter your choice: ");
     }
@@ -76,7 +151,7 @@ public class Main {
         System.out.print("Enter Account Type (e.g., Savings, Checking): ");
         String type = scanner.nextLine();
         System.out.print("Enter Initial Deposit Amount: ");
-        BigDecimal initialDeposit = scanner.nextBigDecimal();
+        Money initialDeposit = Money.of(scanner.nextBigDecimal());
         scanner.nextLine();
 
         Account account = bankService.createAccount(name, type, initialDeposit);
@@ -87,7 +162,7 @@ public class Main {
         System.out.print("Enter Account ID: ");
         int accountId = scanner.nextInt();
         System.out.print("Enter Deposit Amount: ");
-        BigDecimal amount = scanner.nextBigDecimal();
+        Money amount = Money.of(scanner.nextBigDecimal());
         scanner.nextLine();
 
         bankService.deposit(accountId, amount);
@@ -97,7 +172,7 @@ public class Main {
         System.out.print("Enter Account ID: ");
         int accountId = scanner.nextInt();
         System.out.print("Enter Withdrawal Amount: ");
-        BigDecimal amount = scanner.nextBigDecimal();
+        Money amount = Money.of(scanner.nextBigDecimal());
         scanner.nextLine();
 
         try {
@@ -113,7 +188,7 @@ public class Main {
         System.out.print("Enter Destination Account ID: ");
         int toId = scanner.nextInt();
         System.out.print("Enter Transfer Amount: ");
-        BigDecimal amount = scanner.nextBigDecimal();
+        Money amount = Money.of(scanner.nextBigDecimal());
         scanner.nextLine();
 
         try {
@@ -141,35 +216,85 @@ public class Main {
         int accountId = scanner.nextInt();
         scanner.nextLine();
 
-        List<Transaction> transactions = bankService.getTransactionHistory(accountId);
-        if (transactions.isEmpty()) {
+        System.out.println("--- Transaction History for Account " + accountId + " ---");
+        long count = bankService.streamTransactionHistory(accountId, System.out::println);
+        if (count == 0) {
             System.out.println("No transactions found for this account.");
-        } else {
-            System.out.println("--- Transaction History for Account " + accountId + " ---");
-            transactions.forEach(System.out::println);
-        }
-    }
-
-    private static void runFraudScenarios() {
-        System.out.println("\n--- Running Fraud Detection Scenarios ---");
-        System.out.println("\n[SCENARIO 1: High Frequency]");
-        Account fraudAccount1 = bankService.createAccount("Fraudster One", "Checking", new BigDecimal("1000.00"));
-        int accountId1 = fraudAccount1.getAccountId();
-        System.out.println("Created new account for frequency test: ID " + accountId1);
-        System.out.println("Performing 11 small deposits quickly...");
-        for (int i = 0; i < 11; i++) {
-            System.out.print("Transaction " + (i + 1) + ": ");
-            bankService.deposit(accountId1, new BigDecimal("1.00"));
-        }
-        System.out.println("Check the transaction history for flagged transactions.");
-
-        System.out.println("\n[SCENARIO 2: Anomalous Amount]");
-        Account fraudAccount2 = bankService.createAccount("Fraudster Two", "Savings", new BigDecimal("100.00"));
-        int accountId2 = fraudAccount2.getAccountId();
-        System.out.println("Created new account for amount test: ID " + accountId2);
-        bankService.deposit(accountId2, new BigDecimal("150.00"));
-        System.out.println("Performing a very large deposit that breaks the pattern...");
-        bankService.deposit(accountId2, new BigDecimal("5000.00"));
-        System.out.println("Check the transaction history for flagged transactions.");
+        }
+    }
+
+    private static void runLoadGenerator() {
+        LoadGeneratorConfig config = new LoadGeneratorConfig();
+        System.out.print("Number of accounts [" + config.getAccounts() + "]: ");
+        config.setAccounts(readInt(config.getAccounts()));
+        System.out.print("Threads [" + config.getThreads() + "]: ");
+        config.setThreads(readInt(config.getThreads()));
+        System.out.print("Duration in seconds [" + config.getDurationSeconds() + "]: ");
+        config.setDurationSeconds(readInt(config.getDurationSeconds()));
+        System.out.print("Target rate in ops/s, 0 for as fast as possible [" + config.getTargetRate() + "]: ");
+        config.setTargetRate(readInt(config.getTargetRate()));
+        runLoadGenerator(config);
+    }
+
+    private static void runLoadGenerator(LoadGeneratorConfig config) {
+        System.out.println("Running load generator: " + config);
+        try {
+            LoadGenerator.Report report = new LoadGenerator(bankService, config).run();
+            System.out.print(report.toText());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Load generator interrupted.");
+        }
+    }
+
+    private static void runStatementExport(StatementExportConfig config) {
+        if (memoryStorage != null) {
+            System.err.println("Statement export reads the Transactions table and is not available with -Dbank.storage=memory.");
+            return;
+        }
+        if (DatabaseConnector.isSharded()) {
+            System.err.println("Statement export splits one database's account range and is not available with -Dbank.shard.count yet.");
+            return;
+        }
+        System.out.println("Exporting statements: " + config);
+        try {
+            StatementExporter.Report report = new StatementExporter(config).export();
+            System.out.println("Export complete: " + report);
+        } catch (IOException | SQLException e) {
+            System.err.println("Error exporting statements: " + e.getMessage());
+            System.err.println("Run the same command again to resume from the last checkpoint.");
+        }
+    }
+
+    private static void runArchiver() {
+        if (memoryStorage != null) {
+            System.err.println("Archiving moves rows out of the Transactions table and is not available with -Dbank.storage=memory.");
+            return;
+        }
+        if (DatabaseConnector.isSharded()) {
+            System.err.println("Archiving keys segments by one database's transaction ids and is not available with -Dbank.shard.count yet.");
+            return;
+        }
+        TransactionArchive archive = TransactionArchive.getDefault();
+        if (archive == null) {
+            System.err.println("Set -Dbank.archive.dir to the directory that should hold the archive.");
+            return;
+        }
+        System.out.println("Archiving transactions: " + archive.getConfig());
+        try {
+            TransactionArchiver.Report report = new TransactionArchiver(archive).archive();
+            System.out.println("Archiving complete: " + report);
+        } catch (IOException | SQLException e) {
+            System.err.println("Error archiving transactions: " + e.getMessage());
+            System.err.println("Run the same command again to continue; rows are only deleted once their segment is on disk.");
+        }
+    }
+
+    // An empty line keeps the default.
+    private static int readInt(int defaultValue) {
+        String line = scanner.nextLine().trim();
+        return line.isEmpty() ? defaultValue : Integer.parseInt(line);
     }
 }
@@ -0,0 +1,357 @@
+// File: src/main/java/com/bank/bench/LoadGenerator.java
+
+package com.bank.bench;
+
+import com.bank.dao.InfoLog;
+import com.bank.exception.InsufficientFundsException;
+import com.bank.metrics.LatencyHistogram;
+import com.bank.model.Money;
+import com.bank.model.TransactionPage;
+import com.bank.service.BankService;
+import com.bank.service.FraudDetectionService;
+import com.bank.service.FraudRule;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a mixed workload of deposits, withdrawals, transfers and history reads through a
+ * {@link BankService}, whichever storage it runs on.
+ *
+ * <p>It creates its own accounts and picks them with a Zipf distribution, so a few accounts are
+ * hot. In closed-loop mode every thread issues operations back to back. With a target rate it runs
+ * open loop: operation <i>n</i> is due at start + n / rate, and its latency is measured from that
+ * due time, not from when a thread got round to it. A stall therefore shows up in the latency of
+ * every operation that should have started during it, instead of being hidden by the generator
+ * slowing down (coordinated omission). The time the operation itself took is reported separately
+ * as service time.
+ */
+public class LoadGenerator {
+
+    /** The kinds of operation the generator issues. */
+    public enum Operation { DEPOSIT, WITHDRAW, TRANSFER, HISTORY }
+
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final long FRAUD_DRAIN_TIMEOUT_MILLIS = 30_000;
+
+    private final BankService bankService;
+    private final LoadGeneratorConfig config;
+
+    public LoadGenerator(BankService bankService, LoadGeneratorConfig config) {
+        if (config.getAccounts() < 2) {
+            throw new IllegalArgumentException("At least two accounts are needed for transfers.");
+        }
+        if (config.getThreads() < 1 || config.getDurationSeconds() < 1 || config.getTargetRate() < 0) {
+            throw new IllegalArgumentException("Threads and duration must be positive and the rate must not be negative.");
+        }
+        this.bankService = bankService;
+        this.config = config;
+    }
+
+    /**
+     * Creates the accounts, runs the workload for the configured duration and waits for any
+     * asynchronous fraud scoring to finish. The services' per-operation messages are turned off
+     * with {@link InfoLog#setQuiet} while it runs; errors still go to standard error.
+     */
+    public Report run() throws InterruptedException {
+        boolean quiet = InfoLog.setQuiet(true);
+        try {
+            return runWorkload();
+        } finally {
+            InfoLog.setQuiet(quiet);
+        }
+    }
+
+    private Report runWorkload() throws InterruptedException {
+        int[] accountIds = createAccounts();
+        ZipfDistribution popularity = new ZipfDistribution(accountIds.length, config.getSkew());
+
+        LatencyHistogram[] responseTimes = new LatencyHistogram[OPERATIONS.length];
+        for (Operation operation : OPERATIONS) {
+            responseTimes[operation.ordinal()] = new LatencyHistogram("load." + operation.name().toLowerCase(Locale.ROOT));
+        }
+        LatencyHistogram serviceTime = new LatencyHistogram("load.service");
+        AtomicLongArray errors = new AtomicLongArray(OPERATIONS.length);
+        AtomicLongArray insufficientFunds = new AtomicLongArray(OPERATIONS.length);
+        AtomicLong sequence = new AtomicLong();
+        AtomicInteger workerIndex = new AtomicInteger();
+        long[] fraudFlagsBefore = fraudRuleHits();
+
+        ExecutorService executor = newExecutor();
+        boolean virtual = isVirtual(executor);
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(config.getDurationSeconds());
+        for (int t = 0; t < config.getThreads(); t++) {
+            executor.execute(() -> {
+                SplittableRandom random = new SplittableRandom(config.getSeed() * 31 + workerIndex.getAndIncrement());
+                while (true) {
+                    long due;
+                    if (config.isOpenLoop()) {
+                        due = start + (long) (sequence.getAndIncrement() * 1e9 / config.getTargetRate());
+                        if (due >= deadline) {
+                            return;
+                        }
+                        long delay;
+                        while ((delay = due - System.nanoTime()) > 0) {
+                            LockSupport.parkNanos(delay);
+                        }
+                    } else {
+                        due = System.nanoTime();
+                        if (due >= deadline) {
+                            return;
+                        }
+                    }
+                    long serviceStart = System.nanoTime();
+                    Operation operation = pickOperation(random);
+                    try {
+                        if (!execute(operation, random, accountIds, popularity)) {
+                            errors.incrementAndGet(operation.ordinal());
+                        }
+                    } catch (InsufficientFundsException e) {
+                        insufficientFunds.incrementAndGet(operation.ordinal());
+                    } catch (RuntimeException e) {
+                        errors.incrementAndGet(operation.ordinal());
+                    }
+                    long end = System.nanoTime();
+                    responseTimes[operation.ordinal()].record(end - due);
+                    serviceTime.record(end - serviceStart);
+                }
+            });
+        }
+        executor.shutdown();
+        long graceSeconds = config.getDurationSeconds() + 60;
+        if (!executor.awaitTermination(graceSeconds, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        bankService.awaitFraudScoring(FRAUD_DRAIN_TIMEOUT_MILLIS);
+
+        LatencyHistogram.Snapshot[] snapshots = new LatencyHistogram.Snapshot[OPERATIONS.length];
+        long[] errorCounts = new long[OPERATIONS.length];
+        long[] insufficientCounts = new long[OPERATIONS.length];
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            snapshots[i] = responseTimes[i].snapshot();
+            errorCounts[i] = errors.get(i);
+            insufficientCounts[i] = insufficientFunds.get(i);
+        }
+        long[] fraudFlags = fraudRuleHits();
+        for (int i = 0; i < fraudFlags.length; i++) {
+            fraudFlags[i] -= fraudFlagsBefore[i];
+        }
+        return new Report(config, virtual, popularity.topShare(), elapsedNanos, snapshots, serviceTime.snapshot(), errorCounts, insufficientCounts, fraudFlags);
+    }
+
+    private static long[] fraudRuleHits() {
+        long[] hits = new long[FraudRule.values().length];
+        for (FraudRule rule : FraudRule.values()) {
+            hits[rule.ordinal()] = FraudDetectionService.getRuleHits(rule);
+        }
+        return hits;
+    }
+
+    // Hot Zipf ranks are shuffled over the accounts so the hottest account is not simply the first one created.
+    private int[] createAccounts() {
+        List<Integer> ids = new ArrayList<>(config.getAccounts());
+        for (int i = 0; i < config.getAccounts(); i++) {
+            ids.add(bankService.createAccount("Load " + i, i % 2 == 0 ? "Checking" : "Savings", config.getInitialBalance()).getAccountId());
+        }
+        Collections.shuffle(ids, new Random(config.getSeed()));
+        int[] accountIds = new int[ids.size()];
+        for (int i = 0; i < accountIds.length; i++) {
+            accountIds[i] = ids.get(i);
+        }
+        return accountIds;
+    }
+
+    private Operation pickOperation(SplittableRandom random) {
+        int roll = random.nextInt(config.getTotalWeight());
+        if ((roll -= config.getDepositWeight()) < 0) {
+            return Operation.DEPOSIT;
+        }
+        if ((roll -= config.getWithdrawWeight()) < 0) {
+            return Operation.WITHDRAW;
+        }
+        if (roll - config.getTransferWeight() < 0) {
+            return Operation.TRANSFER;
+        }
+        return Operation.HISTORY;
+    }
+
+    /** @return false if the service reported a failure */
+    private boolean execute(Operation operation, SplittableRandom random, int[] accountIds, ZipfDistribution popularity) throws InsufficientFundsException {
+        int accountId = accountIds[popularity.sample(random)];
+        switch (operation) {
+            case DEPOSIT:
+                return bankService.deposit(accountId, randomAmount(random)).isPresent();
+            case WITHDRAW:
+                return bankService.withdraw(accountId, randomAmount(random)).isPresent();
+            case TRANSFER:
+                int toIndex = popularity.sample(random);
+                int toId = accountIds[toIndex];
+                if (toId == accountId) {
+                    toId = accountIds[(toIndex + 1) % accountIds.length];
+                }
+                return bankService.transfer(accountId, toId, randomAmount(random));
+            default:
+                TransactionPage page = bankService.getTransactionHistoryPage(accountId, null, config.getHistoryPageSize());
+                return page != null;
+        }
+    }
+
+    private Money randomAmount(SplittableRandom random) {
+        return Money.ofMinor(1 + random.nextLong(config.getMaxAmount().getMinorUnits()));
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() is looked up reflectively because the build targets Java 11.
+    private ExecutorService newExecutor() {
+        if (config.isVirtualThreads()) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                // Not available before Java 21: fall back to platform threads.
+            }
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(config.getThreads(), r -> {
+            Thread t = new Thread(r, "load-generator-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private static boolean isVirtual(ExecutorService executor) {
+        return executor.getClass().getName().contains("ThreadPerTaskExecutor");
+    }
+
+    /**
+     * The outcome of one run. Latencies are response times: in open-loop mode they are measured
+     * from when each operation was due.
+     */
+    public static final class Report {
+        private final LoadGeneratorConfig config;
+        private final boolean virtualThreads;
+        private final double hottestAccountShare;
+        private final long elapsedNanos;
+        private final LatencyHistogram.Snapshot[] latencies;
+        private final LatencyHistogram.Snapshot serviceTime;
+        private final long[] errors;
+        private final long[] insufficientFunds;
+        private final long[] fraudFlags;
+
+        private Report(LoadGeneratorConfig config, boolean virtualThreads, double hottestAccountShare, long elapsedNanos,
+                       LatencyHistogram.Snapshot[] latencies, LatencyHistogram.Snapshot serviceTime, long[] errors, long[] insufficientFunds,
+                       long[] fraudFlags) {
+            this.config = config;
+            this.virtualThreads = virtualThreads;
+            this.hottestAccountShare = hottestAccountShare;
+            this.elapsedNanos = elapsedNanos;
+            this.latencies = latencies;
+            this.serviceTime = serviceTime;
+            this.errors = errors;
+            this.insufficientFunds = insufficientFunds;
+            this.fraudFlags = fraudFlags;
+        }
+
+        // --- Getters ---
+        public LatencyHistogram.Snapshot getLatency(Operation operation) { return latencies[operation.ordinal()]; }
+        public LatencyHistogram.Snapshot getServiceTime() { return serviceTime; }
+        public long getErrors(Operation operation) { return errors[operation.ordinal()]; }
+        public long getInsufficientFunds(Operation operation) { return insufficientFunds[operation.ordinal()]; }
+        /** Transactions flagged by {@code rule} during the run. */
+        public long getFraudFlags(FraudRule rule) { return fraudFlags[rule.ordinal()]; }
+        public double getElapsedSeconds() { return elapsedNanos / 1e9; }
+        public boolean isVirtualThreads() { return virtualThreads; }
+
+        public long getOperations() {
+            long total = 0;
+            for (LatencyHistogram.Snapshot latency : latencies) {
+                total += latency.getCount();
+            }
+            return total;
+        }
+
+        public long getTotalErrors() {
+            long total = 0;
+            for (long count : errors) {
+                total += count;
+            }
+            return total;
+        }
+
+        public long getTotalInsufficientFunds() {
+            long total = 0;
+            for (long count : insufficientFunds) {
+                total += count;
+            }
+            return total;
+        }
+
+        public long getTotalFraudFlags() {
+            long total = 0;
+            for (long count : fraudFlags) {
+                total += count;
+            }
+            return total;
+        }
+
+        public double getThroughput() {
+            return getOperations() / getElapsedSeconds();
+        }
+
+        public String toText() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("--- Load Generator Report ---\n");
+            sb.append(String.format(Locale.ROOT, "mode:               %s%n",
+                    config.isOpenLoop() ? "open loop at " + config.getTargetRate() + " ops/s" : "closed loop"));
+            sb.append(String.format(Locale.ROOT, "threads:            %d (%s)%n", config.getThreads(), virtualThreads ? "virtual" : "platform"));
+            sb.append(String.format(Locale.ROOT, "accounts:           %d (skew %.2f, hottest account %.1f%% of picks)%n",
+                    config.getAccounts(), config.getSkew(), hottestAccountShare * 100));
+            sb.append(String.format(Locale.ROOT, "mix:                %s (deposit,withdraw,transfer,history)%n", config.getMix()));
+            sb.append(String.format(Locale.ROOT, "duration (s):       %.2f%n", getElapsedSeconds()));
+            sb.append(String.format(Locale.ROOT, "operations:         %d%n", getOperations()));
+            sb.append(String.format(Locale.ROOT, "throughput (ops/s): %.1f%n", getThroughput()));
+            sb.append(String.format(Locale.ROOT, "%-10s %10s %8s %8s %10s %10s %10s %10s%n",
+                    "operation", "count", "errors", "no-funds", "p50(us)", "p99(us)", "p999(us)", "max(us)"));
+            for (Operation operation : OPERATIONS) {
+                appendRow(sb, operation.name().toLowerCase(Locale.ROOT), latencies[operation.ordinal()],
+                        errors[operation.ordinal()], insufficientFunds[operation.ordinal()]);
+            }
+            if (config.isOpenLoop()) {
+                appendRow(sb, "service", serviceTime, getTotalErrors(), getTotalInsufficientFunds());
+            }
+            sb.append(String.format(Locale.ROOT, "errors:             %d%n", getTotalErrors()));
+            sb.append(String.format(Locale.ROOT, "insufficient funds: %d%n", getTotalInsufficientFunds()));
+            sb.append(String.format(Locale.ROOT, "fraud flagged:      %d", getTotalFraudFlags()));
+            String separator = " (";
+            for (FraudRule rule : FraudRule.values()) {
+                if (fraudFlags[rule.ordinal()] > 0) {
+                    sb.append(separator).append(rule.getKey()).append(' ').append(fraudFlags[rule.ordinal()]);
+                    separator = ", ";
+                }
+            }
+            sb.append(separator.equals(", ") ? ")" : "").append(String.format(Locale.ROOT, "%n"));
+            return sb.toString();
+        }
+
+        private static void appendRow(StringBuilder sb, String label, LatencyHistogram.Snapshot latency, long errors, long insufficientFunds) {
+            sb.append(String.format(Locale.ROOT, "%-10s %10d %8d %8d %10.1f %10.1f %10.1f %10.1f%n", label, latency.getCount(), errors, insufficientFunds,
+                    latency.getP50Nanos() / 1e3, latency.getP99Nanos() / 1e3, latency.getP999Nanos() / 1e3, latency.getMaxNanos() / 1e3));
+        }
+
+        @Override
+        public String toString() {
+            return "LoadReport{" + "operations=" + getOperations() + ", throughput=" + String.format(Locale.ROOT, "%.1f", getThroughput()) + ", errors=" + getTotalErrors() + ", insufficientFunds=" + getTotalInsufficientFunds() + ", fraudFlagged=" + getTotalFraudFlags() + '}';
+        }
+    }
+}
@@ -0,0 +1,128 @@
+// File: src/main/java/com/bank/bench/LoadGeneratorConfig.java
+
+package com.bank.bench;
+
+import com.bank.model.Money;
+
+/**
+ * Settings for {@link LoadGenerator}. On the command line each one is given as
+ * {@code --name=value}, e.g. {@code load --accounts=10000 --threads=64 --skew=1.1 --rate=5000}.
+ */
+public class LoadGeneratorConfig {
+    private int accounts = 1_000;
+    private int threads = 16;
+    private boolean virtualThreads = true;
+    private int depositWeight = 40;
+    private int withdrawWeight = 30;
+    private int transferWeight = 25;
+    private int historyWeight = 5;
+    private double skew = 0.99;
+    private int durationSeconds = 30;
+    private int targetRate = 0;
+    private Money initialBalance = Money.parse("1000.00");
+    private Money maxAmount = Money.parse("100.00");
+    private int historyPageSize = 20;
+    private long seed = 42;
+
+    public LoadGeneratorConfig() {}
+
+    /**
+     * Parses {@code --accounts}, {@code --threads}, {@code --virtualThreads}, {@code --mix}
+     * (deposit,withdraw,transfer,history weights, e.g. 40,30,25,5), {@code --skew} (Zipf exponent,
+     * 0 = uniform), {@code --duration} (seconds), {@code --rate} (operations per second, 0 = closed
+     * loop), {@code --initialBalance}, {@code --maxAmount}, {@code --historyPageSize} and {@code --seed}.
+     */
+    public static LoadGeneratorConfig fromArgs(String[] args) {
+        LoadGeneratorConfig config = new LoadGeneratorConfig();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            String name = arg.substring(2, eq);
+            String value = arg.substring(eq + 1);
+            switch (name) {
+                case "accounts": config.setAccounts(Integer.parseInt(value)); break;
+                case "threads": config.setThreads(Integer.parseInt(value)); break;
+                case "virtualThreads": config.setVirtualThreads(Boolean.parseBoolean(value)); break;
+                case "mix": config.setMix(value); break;
+                case "skew": config.setSkew(Double.parseDouble(value)); break;
+                case "duration": config.setDurationSeconds(Integer.parseInt(value)); break;
+                case "rate": config.setTargetRate(Integer.parseInt(value)); break;
+                case "initialBalance": config.setInitialBalance(Money.parse(value)); break;
+                case "maxAmount": config.setMaxAmount(Money.parse(value)); break;
+                case "historyPageSize": config.setHistoryPageSize(Integer.parseInt(value)); break;
+                case "seed": config.setSeed(Long.parseLong(value)); break;
+                default: throw new IllegalArgumentException("Unknown load generator option: --" + name);
+            }
+        }
+        return config;
+    }
+
+    /** Sets the operation weights from "deposit,withdraw,transfer,history", e.g. "40,30,25,5". */
+    public void setMix(String mix) {
+        String[] parts = mix.split(",");
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Mix needs four weights (deposit,withdraw,transfer,history): " + mix);
+        }
+        depositWeight = Integer.parseInt(parts[0].trim());
+        withdrawWeight = Integer.parseInt(parts[1].trim());
+        transferWeight = Integer.parseInt(parts[2].trim());
+        historyWeight = Integer.parseInt(parts[3].trim());
+        if (depositWeight < 0 || withdrawWeight < 0 || transferWeight < 0 || historyWeight < 0 || getTotalWeight() == 0) {
+            throw new IllegalArgumentException("Mix weights must be non-negative and not all zero: " + mix);
+        }
+    }
+
+    public String getMix() {
+        return depositWeight + "," + withdrawWeight + "," + transferWeight + "," + historyWeight;
+    }
+
+    int getTotalWeight() {
+        return depositWeight + withdrawWeight + transferWeight + historyWeight;
+    }
+
+    /** True when operations are issued on a fixed schedule instead of back to back. */
+    public boolean isOpenLoop() {
+        return targetRate > 0;
+    }
+
+    // --- Getters and Setters ---
+    public int getAccounts() { return accounts; }
+    public void setAccounts(int accounts) { this.accounts = accounts; }
+    public int getThreads() { return threads; }
+    public void setThreads(int threads) { this.threads = threads; }
+    /** Use virtual threads when the JDK has them (Java 21+); platform threads otherwise. */
+    public boolean isVirtualThreads() { return virtualThreads; }
+    public void setVirtualThreads(boolean virtualThreads) { this.virtualThreads = virtualThreads; }
+    public int getDepositWeight() { return depositWeight; }
+    public void setDepositWeight(int depositWeight) { this.depositWeight = depositWeight; }
+    public int getWithdrawWeight() { return withdrawWeight; }
+    public void setWithdrawWeight(int withdrawWeight) { this.withdrawWeight = withdrawWeight; }
+    public int getTransferWeight() { return transferWeight; }
+    public void setTransferWeight(int transferWeight) { this.transferWeight = transferWeight; }
+    public int getHistoryWeight() { return historyWeight; }
+    public void setHistoryWeight(int historyWeight) { this.historyWeight = historyWeight; }
+    /** Zipf exponent of account popularity; 0 picks accounts uniformly. */
+    public double getSkew() { return skew; }
+    public void setSkew(double skew) { this.skew = skew; }
+    public int getDurationSeconds() { return durationSeconds; }
+    public void setDurationSeconds(int durationSeconds) { this.durationSeconds = durationSeconds; }
+    /** Operations per second across all threads; 0 runs closed loop, as fast as the threads can go. */
+    public int getTargetRate() { return targetRate; }
+    public void setTargetRate(int targetRate) { this.targetRate = targetRate; }
+    public Money getInitialBalance() { return initialBalance; }
+    public void setInitialBalance(Money initialBalance) { this.initialBalance = initialBalance; }
+    /** Amounts are drawn uniformly from 0.01 to this value. */
+    public Money getMaxAmount() { return maxAmount; }
+    public void setMaxAmount(Money maxAmount) { this.maxAmount = maxAmount; }
+    public int getHistoryPageSize() { return historyPageSize; }
+    public void setHistoryPageSize(int historyPageSize) { this.historyPageSize = historyPageSize; }
+    public long getSeed() { return seed; }
+    public void setSeed(long seed) { this.seed = seed; }
+
+    @Override
+    public String toString() {
+        return "LoadGeneratorConfig{" + "accounts=" + accounts + ", threads=" + threads + ", virtualThreads=" + virtualThreads + ", mix=" + getMix() + ", skew=" + skew + ", durationSeconds=" + durationSeconds + ", targetRate=" + targetRate + ", initialBalance=" + initialBalance + ", maxAmount=" + maxAmount + ", historyPageSize=" + historyPageSize + ", seed=" + seed + '}';
+    }
+}
@@ -0,0 +1,282 @@
+// File: src/main/java/com/bank/dao/AccountCache.java
+
+package com.bank.dao;
+
+import com.bank.model.Account;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashSet;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntFunction;
+
+/**
+ * Bounded read-through cache of accounts in front of {@link AccountDAO#findAccountById}.
+ *
+ * <ul>
+ *   <li>Eviction approximates LRU with CLOCK, capped at {@code maxSize} entries: a hit only sets
+ *       its entry's referenced bit, so lookups never take a lock and hits on the same hot account
+ *       don't contend. Over capacity, entries are swept in the order they were added; a referenced
+ *       one has its bit cleared and goes to the back, the first unreferenced one is evicted.
+ *       Entries also expire {@code ttlMillis} after they were loaded or written.</li>
+ *   <li>Concurrent misses for the same id share one database query (single flight).</li>
+ *   <li>Writers push the row they just committed with {@link #put}. Entries carry the row's
+ *       {@code version}, and an older version never replaces a newer one, so write-throughs and
+ *       loads that finish out of order cannot leave a stale balance behind.</li>
+ * </ul>
+ *
+ * Callers always get their own copy of the cached account.
+ */
+public class AccountCache {
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final IntFunction<Optional<Account>> loader;
+    private final ConcurrentHashMap<Integer, Entry> entries = new ConcurrentHashMap<>();
+    // The CLOCK: ids in the order their entries were added. It may still hold ids invalidated since,
+    // or hold one twice; those are skipped by the sweep and dropped by compactClock().
+    private final ReentrantLock clockLock = new ReentrantLock();
+    private final ArrayDeque<Integer> clock = new ArrayDeque<>();
+    private final ConcurrentHashMap<Integer, CompletableFuture<Optional<Account>>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong sharedLoads = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    public AccountCache(int maxSize, long ttlMillis, IntFunction<Optional<Account>> loader) {
+        if (maxSize < 1 || ttlMillis <= 0) {
+            throw new IllegalArgumentException("Cache size and TTL must be positive.");
+        }
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.loader = loader;
+    }
+
+    public Optional<Account> get(int accountId) {
+        Account cached = lookup(accountId);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return Optional.of(new Account(cached));
+        }
+        misses.incrementAndGet();
+
+        CompletableFuture<Optional<Account>> mine = new CompletableFuture<>();
+        CompletableFuture<Optional<Account>> existing = inFlight.putIfAbsent(accountId, mine);
+        if (existing != null) {
+            sharedLoads.incrementAndGet();
+            return await(existing).map(Account::new);
+        }
+
+        Optional<Account> loaded;
+        try {
+            loads.incrementAndGet();
+            loaded = loader.apply(accountId);
+        } catch (RuntimeException e) {
+            inFlight.remove(accountId, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+        // An invalidate() during the load removes our in-flight marker; the result may then be stale.
+        if (inFlight.remove(accountId, mine)) {
+            loaded.ifPresent(this::install);
+        }
+        mine.complete(loaded);
+        return loaded.map(Account::new);
+    }
+
+    /** The cached account, without loading it on a miss or counting towards the hit rate. */
+    public Optional<Account> getIfPresent(int accountId) {
+        Account cached = lookup(accountId);
+        return cached == null ? Optional.empty() : Optional.of(new Account(cached));
+    }
+
+    /**
+     * Write-through: records the committed state of an account. Ignored if the cache already holds
+     * a newer version.
+     */
+    public void put(Account account) {
+        // A load racing with this write may have read the row before it changed; don't let it install.
+        inFlight.remove(account.getAccountId());
+        install(new Account(account));
+    }
+
+    public void invalidate(int accountId) {
+        inFlight.remove(accountId);
+        entries.remove(accountId);
+    }
+
+    public void invalidateAll() {
+        inFlight.clear();
+        clockLock.lock();
+        try {
+            entries.clear();
+            clock.clear();
+        } finally {
+            clockLock.unlock();
+        }
+    }
+
+    private Account lookup(int accountId) {
+        Entry entry = entries.get(accountId);
+        if (entry == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() - entry.storedAt > ttlMillis) {
+            if (entries.remove(accountId, entry)) {
+                expirations.incrementAndGet();
+            }
+            return null;
+        }
+        // Only written when it changes, so a hot entry's line is not dirtied on every hit.
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        return entry.account;
+    }
+
+    private void install(Account account) {
+        int accountId = account.getAccountId();
+        boolean[] added = new boolean[1];
+        entries.compute(accountId, (id, current) -> {
+            if (current != null && current.account.getVersion() > account.getVersion()) {
+                return current;
+            }
+            added[0] = current == null;
+            // A write-through of a cached account counts as a use; a new entry has to earn its bit.
+            return new Entry(account, System.currentTimeMillis(), current != null);
+        });
+        if (!added[0] && entries.size() <= maxSize) {
+            return;
+        }
+        clockLock.lock();
+        try {
+            if (added[0]) {
+                clock.addLast(accountId);
+            }
+            evictOverCapacity();
+            if (clock.size() > 2 * maxSize) {
+                compactClock();
+            }
+        } finally {
+            clockLock.unlock();
+        }
+    }
+
+    // Caller holds clockLock.
+    private void evictOverCapacity() {
+        // Every entry is visited at most twice: once to clear its bit, once to evict it.
+        int budget = 2 * clock.size();
+        while (entries.size() > maxSize && budget-- > 0) {
+            Integer accountId = clock.pollFirst();
+            if (accountId == null) {
+                return;
+            }
+            Entry entry = entries.get(accountId);
+            if (entry == null) {
+                continue; // invalidated or expired since it was added
+            }
+            if (entry.referenced) {
+                entry.referenced = false;
+                clock.addLast(accountId);
+            } else if (entries.remove(accountId, entry)) {
+                evictions.incrementAndGet();
+            } else {
+                clock.addLast(accountId); // replaced meanwhile: keep it on the clock
+            }
+        }
+    }
+
+    // Caller holds clockLock. Drops ids no longer cached and repeats, keeping the order.
+    private void compactClock() {
+        LinkedHashSet<Integer> live = new LinkedHashSet<>();
+        for (Integer accountId : clock) {
+            if (entries.containsKey(accountId)) {
+                live.add(accountId);
+            }
+        }
+        clock.clear();
+        clock.addAll(live);
+    }
+
+    private static Optional<Account> await(CompletableFuture<Optional<Account>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for account load.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public Stats getStats() {
+        return new Stats(hits.get(), misses.get(), loads.get(), sharedLoads.get(), evictions.get(), expirations.get(), size());
+    }
+
+    private static final class Entry {
+        private final Account account;
+        private final long storedAt;
+        // Set by a hit, cleared by the eviction sweep.
+        private volatile boolean referenced;
+
+        private Entry(Account account, long storedAt, boolean referenced) {
+            this.account = account;
+            this.storedAt = storedAt;
+            this.referenced = referenced;
+        }
+    }
+
+    /** Point-in-time snapshot of the cache counters. */
+    public static final class Stats {
+        private final long hits;
+        private final long misses;
+        private final long loads;
+        private final long sharedLoads;
+        private final long evictions;
+        private final long expirations;
+        private final int size;
+
+        private Stats(long hits, long misses, long loads, long sharedLoads, long evictions, long expirations, int size) {
+            this.hits = hits;
+            this.misses = misses;
+            this.loads = loads;
+            this.sharedLoads = sharedLoads;
+            this.evictions = evictions;
+            this.expirations = expirations;
+            this.size = size;
+        }
+
+        // --- Getters ---
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        /** Database queries issued for misses. */
+        public long getLoads() { return loads; }
+        /** Misses that waited for another thread's in-flight load instead of querying. */
+        public long getSharedLoads() { return sharedLoads; }
+        public long getEvictions() { return evictions; }
+        public long getExpirations() { return expirations; }
+        public int getSize() { return size; }
+
+        public double getHitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return "CacheStats{" + "hits=" + hits + ", misses=" + misses + ", loads=" + loads + ", sharedLoads=" + sharedLoads + ", evictions=" + evictions + ", expirations=" + expirations + ", size=" + size + '}';
+        }
+    }
+}
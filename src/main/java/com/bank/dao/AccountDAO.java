@@ -2,25 +2,118 @@
 
 package com.bank.dao;
 
+import com.bank.dao.shard.AccountIdAllocator;
+import com.bank.exception.InsufficientFundsException;
+import com.bank.metrics.Metrics;
+import com.bank.metrics.QueryMetrics;
 import com.bank.model.Account;
+import com.bank.model.ConsistencyToken;
+import com.bank.model.DailyRollup;
+import com.bank.model.Money;
+import com.bank.model.Transaction;
 
 import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 
-public class AccountDAO {
+public class AccountDAO implements AccountRepository {
 
+    // Applies a balance delta and, for unflagged transactions, folds the amount into the running
+    // aggregates. MySQL evaluates single-table SET clauses left to right against already-updated
+    // columns, so the M2 and average terms come before the count and sum they read.
+    private static final String APPLY_DELTA_WITH_AGGREGATES_SQL = "UPDATE Accounts SET " +
+            "amountM2 = amountM2 + CASE WHEN transactionCount > 0 " +
+            "THEN (CAST(? AS DOUBLE) - CAST(transactionSum AS DOUBLE) / transactionCount) * (CAST(? AS DOUBLE) - CAST(transactionSum AS DOUBLE) / transactionCount) * transactionCount / (transactionCount + 1) " +
+            "ELSE 0 END, " +
+            "avgTransactionAmount = ROUND((transactionSum + ?) / (transactionCount + 1), 2), " +
+            "transactionCount = transactionCount + 1, " +
+            "transactionSum = transactionSum + ?, " +
+            "balance = balance + ?, " +
+            "version = version + 1 " +
+            "WHERE accountId = ?";
+    private static final String APPLY_DELTA_SQL = "UPDATE Accounts SET balance = balance + ?, version = version + 1 WHERE accountId = ?";
+    private static final String DEBIT_GUARD = " AND balance >= ?";
+    // Hot accounts must be folded before their row is changed (see BalanceSlotDAO).
+    private static final String NOT_HOT = " AND balanceSlots = 0";
+    // Inverse of the aggregate part of APPLY_DELTA_WITH_AGGREGATES_SQL, with the same column order.
+    private static final String UNFOLD_AGGREGATES_SQL = "UPDATE Accounts SET " +
+            "amountM2 = CASE WHEN transactionCount > 1 " +
+            "THEN GREATEST(0, amountM2 - (CAST(? AS DOUBLE) - CAST(transactionSum AS DOUBLE) / transactionCount) * (CAST(? AS DOUBLE) - (CAST(transactionSum AS DOUBLE) - CAST(? AS DOUBLE)) / (transactionCount - 1))) " +
+            "ELSE 0 END, " +
+            "avgTransactionAmount = CASE WHEN transactionCount > 1 THEN ROUND((transactionSum - ?) / (transactionCount - 1), 2) ELSE 0 END, " +
+            "transactionSum = CASE WHEN transactionCount > 1 THEN transactionSum - ? ELSE 0 END, " +
+            "transactionCount = transactionCount - 1, " +
+            "version = version + 1 " +
+            "WHERE accountId = ? AND transactionCount > 0";
+    private static final String FLAG_TRANSACTION_SQL = "UPDATE Transactions SET isFlagged = TRUE, reasonForFlag = ? WHERE transactionId = ? AND isFlagged = FALSE";
+    // Read by position in mapAccount.
+    private static final String ACCOUNT_COLUMNS = "accountId, customerName, accountType, balance, avgTransactionAmount, " +
+            "transactionCount, transactionSum, amountM2, version, createdAt, balanceSlots";
+    // Balance and version held in the slots of a hot account, read in the same statement as its row
+    // so that a fold in between cannot make the two disagree.
+    private static final String SLOT_TOTALS = "CASE WHEN balanceSlots > 0 THEN (SELECT SUM(s.balance) FROM AccountBalanceSlots s WHERE s.accountId = a.accountId) END, " +
+            "CASE WHEN balanceSlots > 0 THEN (SELECT SUM(s.version) FROM AccountBalanceSlots s WHERE s.accountId = a.accountId) END";
+    private static final String UPDATE_ACCOUNT_SQL = "UPDATE Accounts SET balance = ?, avgTransactionAmount = ?, transactionCount = ?, transactionSum = ?, amountM2 = ?, version = version + 1 WHERE accountId = ?";
+
+    private static final int MAX_TRANSFER_ATTEMPTS = 3;
+    private static final AtomicLong TRANSFER_DEADLOCKS = new AtomicLong();
+    private static final AtomicLong TRANSFER_RETRIES = new AtomicLong();
+
+    // Each covers one public operation end to end, including the connection acquire.
+    private static final QueryMetrics CREATE_ACCOUNT_QUERY = Metrics.query("account.create");
+    private static final QueryMetrics FIND_ACCOUNT_QUERY = Metrics.query("account.findById");
+    private static final QueryMetrics UPDATE_ACCOUNT_QUERY = Metrics.query("account.update");
+    private static final QueryMetrics APPLY_BATCH_QUERY = Metrics.query("account.applyBatch");
+    private static final QueryMetrics FLAG_TRANSACTIONS_QUERY = Metrics.query("account.flagTransactions");
+    private static final QueryMetrics BACKFILL_QUERY = Metrics.query("account.backfillAggregates");
+    private static final QueryMetrics APPLY_DELTA_QUERY = Metrics.query("account.applyDelta");
+    private static final QueryMetrics TRANSFER_QUERY = Metrics.query("account.transfer");
+    private static final QueryMetrics SET_SLOTS_QUERY = Metrics.query("account.setBalanceSlots");
+    private static final QueryMetrics COMPACT_QUERY = Metrics.query("account.compactSlots");
+
+    private final TransactionDAO transactionDAO = new TransactionDAO();
+    private final DailyRollupDAO dailyRollupDAO = new DailyRollupDAO();
+    private final BalanceSlotDAO balanceSlots = new BalanceSlotDAO(dailyRollupDAO);
+    private final CrossShardTransfer crossShardTransfer = new CrossShardTransfer(this, transactionDAO, dailyRollupDAO);
+
+    /**
+     * Inserts the account with the next AUTO_INCREMENT id or, when sharded, with the next id from
+     * the shared {@link AccountIdAllocator} on the shard that id maps to.
+     */
+    @Override
     public int createAccount(Account account) {
-        String sql = "INSERT INTO Accounts (customerName, accountType, balance, avgTransactionAmount) VALUES (?, ?, ?, ?)";
+        AccountIdAllocator allocator = DatabaseConnector.getAccountIdAllocator();
+        if (allocator != null) {
+            return createShardedAccount(allocator, account);
+        }
+        String sql = "INSERT INTO Accounts (customerName, accountType, balance, avgTransactionAmount, transactionCount, transactionSum, amountM2) VALUES (?, ?, ?, ?, ?, ?, ?)";
         int generatedAccountId = -1;
+        long started = System.nanoTime();
 
         try (Connection conn = DatabaseConnector.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             pstmt.setString(1, account.getCustomerName());
             pstmt.setString(2, account.getAccountType());
-            pstmt.setBigDecimal(3, account.getBalance());
-            pstmt.setBigDecimal(4, account.getAvgTransactionAmount());
+            pstmt.setBigDecimal(3, account.getBalance().toBigDecimal());
+            pstmt.setBigDecimal(4, account.getAvgTransactionAmount().toBigDecimal());
+            pstmt.setLong(5, account.getTransactionCount());
+            pstmt.setBigDecimal(6, account.getTransactionSum().toBigDecimal());
+            pstmt.setDouble(7, account.getAmountM2());
 
             int affectedRows = pstmt.executeUpdate();
 
@@ -29,61 +122,764 @@ public class AccountDAO {
                     if (generatedKeys.next()) {
                         generatedAccountId = generatedKeys.getInt(1);
                         account.setAccountId(generatedAccountId);
-                        System.out.println("Successfully created new account with ID: " + generatedAccountId);
+                        InfoLog.println("Successfully created new account with ID: " + generatedAccountId);
                     }
                 }
             }
+            CREATE_ACCOUNT_QUERY.recordSince(started, affectedRows);
         } catch (SQLException e) {
+            CREATE_ACCOUNT_QUERY.recordError();
             System.err.println("Error creating account: " + e.getMessage());
             e.printStackTrace();
         }
         return generatedAccountId;
     }
 
-    public Optional<Account> findAccountById(int accountId) {
-        String sql = "SELECT * FROM Accounts WHERE accountId = ?";
+    private int createShardedAccount(AccountIdAllocator allocator, Account account) {
+        String sql = "INSERT INTO Accounts (accountId, customerName, accountType, balance, avgTransactionAmount, transactionCount, transactionSum, amountM2) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        long started = System.nanoTime();
 
-        try (Connection conn = DatabaseConnector.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try {
+            int accountId = allocator.nextId();
+            try (Connection conn = DatabaseConnector.getConnection(accountId);
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-            pstmt.setInt(1, accountId);
+                pstmt.setInt(1, accountId);
+                pstmt.setString(2, account.getCustomerName());
+                pstmt.setString(3, account.getAccountType());
+                pstmt.setBigDecimal(4, account.getBalance().toBigDecimal());
+                pstmt.setBigDecimal(5, account.getAvgTransactionAmount().toBigDecimal());
+                pstmt.setLong(6, account.getTransactionCount());
+                pstmt.setBigDecimal(7, account.getTransactionSum().toBigDecimal());
+                pstmt.setDouble(8, account.getAmountM2());
 
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    Account account = new Account();
-                    account.setAccountId(rs.getInt("accountId"));
-                    account.setCustomerName(rs.getString("customerName"));
-                    account.setAccountType(rs.getString("accountType"));
-                    account.setBalance(rs.getBigDecimal("balance"));
-                    account.setAvgTransactionAmount(rs.getBigDecimal("avgTransactionAmount"));
-                    account.setCreatedAt(rs.getTimestamp("createdAt"));
-                    return Optional.of(account);
+                int affectedRows = pstmt.executeUpdate();
+                CREATE_ACCOUNT_QUERY.recordSince(started, affectedRows);
+                if (affectedRows > 0) {
+                    account.setAccountId(accountId);
+                    InfoLog.println("Successfully created new account with ID: " + accountId + " on shard " + DatabaseConnector.shardOf(accountId));
+                    return accountId;
                 }
             }
         } catch (SQLException e) {
+            CREATE_ACCOUNT_QUERY.recordError();
+            System.err.println("Error creating account: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return -1;
+    }
+
+    /** Reads the primary: writers and the account cache build on the result. */
+    @Override
+    public Optional<Account> findAccountById(int accountId) {
+        long started = System.nanoTime();
+        try (Connection conn = DatabaseConnector.getConnection(accountId)) {
+            Optional<Account> account = findAccountById(conn, accountId);
+            FIND_ACCOUNT_QUERY.recordSince(started, account.isPresent() ? 1 : 0);
+            return account;
+        } catch (SQLException e) {
+            FIND_ACCOUNT_QUERY.recordError();
             System.err.println("Error finding account by ID: " + e.getMessage());
             e.printStackTrace();
         }
         return Optional.empty();
     }
 
-    public boolean updateAccount(Account account) {
-        String sql = "UPDATE Accounts SET balance = ?, avgTransactionAmount = ? WHERE accountId = ?";
+    /** Reads a replica when one has caught up with {@code token}, else the primary. */
+    @Override
+    public Optional<Account> findAccountById(int accountId, ConsistencyToken token) {
+        long started = System.nanoTime();
+        try (Connection conn = DatabaseConnector.getReadConnection(accountId, token.getVersion(accountId))) {
+            Optional<Account> account = findAccountById(conn, accountId);
+            FIND_ACCOUNT_QUERY.recordSince(started, account.isPresent() ? 1 : 0);
+            return account;
+        } catch (SQLException e) {
+            FIND_ACCOUNT_QUERY.recordError();
+            System.err.println("Error finding account by ID: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return Optional.empty();
+    }
 
-        try (Connection conn = DatabaseConnector.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    /** The account with the balance and version of its slots added in, if it is hot. */
+    Optional<Account> findAccountById(Connection conn, int accountId) throws SQLException {
+        String sql = "SELECT " + ACCOUNT_COLUMNS + ", " + SLOT_TOTALS + " FROM Accounts a WHERE accountId = ?";
+        return Queries.first(conn, sql, pstmt -> pstmt.setInt(1, accountId), rs -> {
+            Account account = mapAccount(rs);
+            account.setBalance(account.getBalance().plus(toMoney(rs.getBigDecimal(12))));
+            account.setVersion(account.getVersion() + rs.getLong(13));
+            return account;
+        });
+    }
 
-            pstmt.setBigDecimal(1, account.getBalance());
-            pstmt.setBigDecimal(2, account.getAvgTransactionAmount());
-            pstmt.setInt(3, account.getAccountId());
+    private static Account mapAccount(ResultSet rs) throws SQLException {
+        Account account = new Account();
+        account.setAccountId(rs.getInt(1));
+        account.setCustomerName(rs.getString(2));
+        account.setAccountType(rs.getString(3));
+        account.setBalance(toMoney(rs.getBigDecimal(4)));
+        account.setAvgTransactionAmount(toMoney(rs.getBigDecimal(5)));
+        account.setTransactionCount(rs.getLong(6));
+        account.setTransactionSum(toMoney(rs.getBigDecimal(7)));
+        account.setAmountM2(rs.getDouble(8));
+        account.setVersion(rs.getLong(9));
+        account.setCreatedAt(rs.getTimestamp(10));
+        account.setBalanceSlots(rs.getInt(11));
+        return account;
+    }
 
-            int affectedRows = pstmt.executeUpdate();
+    // DECIMAL columns become Money here and only here; a NULL (e.g. a legacy avgTransactionAmount) reads as zero.
+    private static Money toMoney(BigDecimal value) {
+        return value == null ? Money.ZERO : Money.of(value);
+    }
+
+    /** Overwrites the balance and aggregates; a hot account is folded first, so they replace all of its slots too. */
+    @Override
+    public boolean updateAccount(Account account) {
+        long started = System.nanoTime();
+        try (Connection conn = DatabaseConnector.getConnection(account.getAccountId())) {
+            int affectedRows;
+            try (PreparedStatement pstmt = conn.prepareStatement(UPDATE_ACCOUNT_SQL + NOT_HOT)) {
+                bindAccountUpdate(pstmt, account);
+                affectedRows = pstmt.executeUpdate();
+            }
+            if (affectedRows == 0) {
+                conn.setAutoCommit(false);
+                try {
+                    Optional<Account> locked = lockAccount(conn, account.getAccountId());
+                    if (locked.isPresent() && locked.get().getBalanceSlots() > 0) {
+                        try (PreparedStatement pstmt = conn.prepareStatement(UPDATE_ACCOUNT_SQL)) {
+                            bindAccountUpdate(pstmt, account);
+                            affectedRows = pstmt.executeUpdate();
+                        }
+                    }
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            }
+            UPDATE_ACCOUNT_QUERY.recordSince(started, affectedRows);
             return affectedRows > 0;
 
         } catch (SQLException e) {
+            UPDATE_ACCOUNT_QUERY.recordError();
             System.err.println("Error updating account: " + e.getMessage());
             e.printStackTrace();
             return false;
         }
     }
+
+    private static void bindAccountUpdate(PreparedStatement pstmt, Account account) throws SQLException {
+        pstmt.setBigDecimal(1, account.getBalance().toBigDecimal());
+        pstmt.setBigDecimal(2, account.getAvgTransactionAmount().toBigDecimal());
+        pstmt.setLong(3, account.getTransactionCount());
+        pstmt.setBigDecimal(4, account.getTransactionSum().toBigDecimal());
+        pstmt.setDouble(5, account.getAmountM2());
+        pstmt.setInt(6, account.getAccountId());
+    }
+
+    /**
+     * Runs a bulk unit of work against a set of accounts in one database transaction. The account
+     * rows are loaded and locked up front (in ascending id order), {@code work} mutates them in
+     * memory and returns the ledger rows to record, and then every touched account is written back
+     * with a single JDBC batch and the ledger rows are inserted with multi-row INSERTs. When sharded,
+     * all accounts must be on one shard (see {@link #partitionOf}).
+     *
+     * @return true if the unit of work was committed
+     */
+    @Override
+    public boolean applyBatch(Collection<Integer> accountIds, BatchWork work) {
+        if (accountIds.isEmpty()) {
+            return true;
+        }
+        List<Integer> ids = new ArrayList<>(new TreeSet<>(accountIds));
+        Set<Integer> shards = DatabaseConnector.groupByShard(ids).keySet();
+        if (shards.size() > 1) {
+            APPLY_BATCH_QUERY.recordError();
+            System.err.println("Error applying batch: its accounts are spread over shards " + shards + ".");
+            return false;
+        }
+        StringBuilder sql = new StringBuilder("SELECT " + ACCOUNT_COLUMNS + " FROM Accounts WHERE accountId IN (");
+        for (int i = 0; i < ids.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(") ORDER BY accountId FOR UPDATE");
+        long started = System.nanoTime();
+
+        try (Connection conn = DatabaseConnector.getConnection(ids.get(0))) {
+            conn.setAutoCommit(false);
+            try {
+                Map<Integer, Account> accounts = new HashMap<>();
+                for (Account account : Queries.list(conn, sql.toString(), pstmt -> {
+                    for (int i = 0; i < ids.size(); i++) {
+                        pstmt.setInt(i + 1, ids.get(i));
+                    }
+                }, AccountDAO::mapAccount)) {
+                    // The rows below are written whole, so hot accounts are folded into them first.
+                    if (account.getBalanceSlots() > 0) {
+                        balanceSlots.fold(conn, account);
+                    }
+                    accounts.put(account.getAccountId(), account);
+                }
+
+                List<Transaction> transactions = work.apply(accounts);
+
+                Set<Integer> touched = new TreeSet<>();
+                for (Transaction transaction : transactions) {
+                    touched.add(transaction.getAccountId());
+                }
+                try (PreparedStatement pstmt = conn.prepareStatement(UPDATE_ACCOUNT_SQL)) {
+                    for (Integer id : touched) {
+                        bindAccountUpdate(pstmt, accounts.get(id));
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                }
+                transactionDAO.createTransactions(conn, transactions);
+                // The rows are locked, so each UPDATE above moved the version by exactly one.
+                Map<Integer, Money> balances = new HashMap<>();
+                for (Integer id : touched) {
+                    Account account = accounts.get(id);
+                    account.setVersion(account.getVersion() + 1);
+                    balances.put(id, account.getBalance());
+                }
+                dailyRollupDAO.addToRollups(conn, transactions, balances);
+                conn.commit();
+                APPLY_BATCH_QUERY.recordSince(started, touched.size() + transactions.size());
+                InfoLog.println("Applied batch of " + transactions.size() + " transactions across " + touched.size() + " accounts.");
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            APPLY_BATCH_QUERY.recordError();
+            System.err.println("Error applying batch: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Flags the given transactions and reverses their aggregate contribution in one database
+     * transaction. Rows are processed in account id order so concurrent callers lock accounts in
+     * the same order as transfers do.
+     *
+     * @return the number of transactions newly flagged, or -1 on error
+     */
+    @Override
+    public int flagTransactions(List<Transaction> transactions) {
+        Map<Integer, List<Transaction>> byShard = new TreeMap<>();
+        for (Transaction transaction : transactions) {
+            byShard.computeIfAbsent(DatabaseConnector.shardOf(transaction.getAccountId()), shard -> new ArrayList<>()).add(transaction);
+        }
+        int flagged = 0;
+        // One database transaction per shard; flagging skips rows already flagged, so a retry after
+        // a partial failure is safe.
+        for (Map.Entry<Integer, List<Transaction>> shard : byShard.entrySet()) {
+            int shardFlagged = flagTransactions(shard.getKey(), shard.getValue());
+            if (shardFlagged < 0) {
+                return -1;
+            }
+            flagged += shardFlagged;
+        }
+        return flagged;
+    }
+
+    private int flagTransactions(int shard, List<Transaction> transactions) {
+        List<Transaction> ordered = new ArrayList<>(transactions);
+        ordered.sort(Comparator.comparingInt(Transaction::getAccountId));
+        long started = System.nanoTime();
+
+        try (Connection conn = DatabaseConnector.getShardConnection(shard)) {
+            conn.setAutoCommit(false);
+            int flagged = 0;
+            try (PreparedStatement flag = conn.prepareStatement(FLAG_TRANSACTION_SQL);
+                 PreparedStatement unfold = conn.prepareStatement(UNFOLD_AGGREGATES_SQL)) {
+                int lockedAccountId = -1;
+                for (Transaction transaction : ordered) {
+                    // Locking folds a hot account, so a credit still in its slots reaches the
+                    // aggregates before it is taken out of them again.
+                    if (transaction.getAccountId() != lockedAccountId) {
+                        lockedAccountId = transaction.getAccountId();
+                        lockAccount(conn, lockedAccountId);
+                    }
+                    flag.setString(1, transaction.getReasonForFlag());
+                    flag.setInt(2, transaction.getTransactionId());
+                    if (flag.executeUpdate() == 0) {
+                        continue; // already flagged, or no such row
+                    }
+                    double amount = transaction.getAmount().toDouble();
+                    unfold.setDouble(1, amount);
+                    unfold.setDouble(2, amount);
+                    unfold.setDouble(3, amount);
+                    unfold.setBigDecimal(4, transaction.getAmount().toBigDecimal());
+                    unfold.setBigDecimal(5, transaction.getAmount().toBigDecimal());
+                    unfold.setInt(6, transaction.getAccountId());
+                    unfold.executeUpdate();
+                    dailyRollupDAO.addFlagged(conn, transaction);
+                    flagged++;
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            FLAG_TRANSACTIONS_QUERY.recordSince(started, flagged);
+            return flagged;
+        } catch (SQLException e) {
+            FLAG_TRANSACTIONS_QUERY.recordError();
+            System.err.println("Error flagging transactions: " + e.getMessage());
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * One-time backfill of the running aggregates from the ledger, for accounts created before
+     * the aggregate columns existed. Reads each account's unflagged history in a single grouped
+     * scan and writes count, sum, average and Welford M2 back in one batch.
+     *
+     * @return the number of accounts updated, or -1 on error
+     */
+    @Override
+    public int backfillTransactionAggregates() {
+        int updated = 0;
+        for (int shard = 0; shard < DatabaseConnector.getShardCount(); shard++) {
+            int shardUpdated = backfillTransactionAggregates(shard);
+            if (shardUpdated < 0) {
+                return -1;
+            }
+            updated += shardUpdated;
+        }
+        return updated;
+    }
+
+    private int backfillTransactionAggregates(int shard) {
+        // Credits still in balance slots are added by the fold that empties them.
+        String selectSql = "SELECT accountId, COUNT(*) AS cnt, SUM(amount) AS total, SUM(amount * amount) AS totalSq " +
+                "FROM Transactions WHERE isFlagged = FALSE AND transactionId NOT IN (SELECT transactionId FROM SlotCredits) GROUP BY accountId";
+        String updateSql = "UPDATE Accounts SET transactionCount = ?, transactionSum = ?, avgTransactionAmount = ?, amountM2 = ? WHERE accountId = ?";
+        long started = System.nanoTime();
+
+        try (Connection conn = DatabaseConnector.getShardConnection(shard)) {
+            conn.setAutoCommit(false);
+            int updated = 0;
+            try (PreparedStatement select = conn.prepareStatement(selectSql);
+                 PreparedStatement update = conn.prepareStatement(updateSql);
+                 ResultSet rs = select.executeQuery()) {
+
+                while (rs.next()) {
+                    long count = rs.getLong("cnt");
+                    Money total = toMoney(rs.getBigDecimal("total"));
+                    BigDecimal totalSq = rs.getBigDecimal("totalSq");
+                    BigDecimal exactTotal = total.toBigDecimal();
+                    // M2 = sum(x^2) - sum(x)^2 / n, i.e. the sum of squared deviations from the mean.
+                    double m2 = totalSq.subtract(exactTotal.multiply(exactTotal).divide(BigDecimal.valueOf(count), 10, RoundingMode.HALF_UP)).doubleValue();
+
+                    update.setLong(1, count);
+                    update.setBigDecimal(2, exactTotal);
+                    update.setBigDecimal(3, Money.average(total, count).toBigDecimal());
+                    update.setDouble(4, Math.max(0.0, m2));
+                    update.setInt(5, rs.getInt("accountId"));
+                    update.addBatch();
+                    updated++;
+                }
+                update.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            BACKFILL_QUERY.recordSince(started, updated);
+            InfoLog.println("Backfilled transaction aggregates for " + updated + " accounts.");
+            return updated;
+        } catch (SQLException e) {
+            BACKFILL_QUERY.recordError();
+            System.err.println("Error backfilling transaction aggregates: " + e.getMessage());
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    @Override
+    public List<DailyRollup> findDailyRollups(int accountId, LocalDate from, LocalDate to) {
+        return dailyRollupDAO.findDailyRollups(accountId, from, to);
+    }
+
+    @Override
+    public Optional<DailyRollup> findNearestDailyRollup(int accountId, LocalDate date) {
+        return dailyRollupDAO.findNearestDailyRollup(accountId, date);
+    }
+
+    @Override
+    public int rebuildDailyRollups() {
+        return dailyRollupDAO.rebuildDailyRollups();
+    }
+
+    /** The account's shard; 0 when not sharded. */
+    @Override
+    public int partitionOf(int accountId) {
+        return DatabaseConnector.shardOf(accountId);
+    }
+
+    /**
+     * Completes (or, if the destination account is gone, refunds) every cross-shard transfer that
+     * debited its source but was not finished, e.g. because the process died in between.
+     *
+     * @param minAgeMillis only transfers started at least this long ago, so running transfers are left alone
+     * @return the number of transfers finished
+     */
+    public int recoverTransfers(long minAgeMillis) {
+        return crossShardTransfer.recover(minAgeMillis);
+    }
+
+    /**
+     * Credits an account and records the transaction in one database transaction. The balance is
+     * changed in SQL ({@code balance = balance + ?}), so concurrent credits never overwrite each
+     * other; a hot account, as far as {@code account} knows, is credited in one of its balance
+     * slots instead. On success the account's balance and aggregates are refreshed from the updated row.
+     *
+     * @return the new balance, or empty if the account does not exist or the write failed
+     */
+    @Override
+    public Optional<Money> applyCredit(Account account, Money amount, Transaction transaction) {
+        try {
+            return applyDelta(account, amount, amount, transaction);
+        } catch (InsufficientFundsException e) {
+            // Unreachable: credits are never guarded.
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Debits an account and records the transaction in one database transaction. The update only
+     * matches while {@code balance >= amount}, so the overdraft check and the write are a single
+     * atomic step in the database.
+     *
+     * @return the new balance, or empty if the account does not exist or the write failed
+     * @throws InsufficientFundsException if the balance no longer covers the amount
+     */
+    @Override
+    public Optional<Money> applyDebit(Account account, Money amount, Transaction transaction) throws InsufficientFundsException {
+        return applyDelta(account, amount.negate(), amount, transaction);
+    }
+
+    private Optional<Money> applyDelta(Account account, Money delta, Money amount, Transaction transaction) throws InsufficientFundsException {
+        boolean guarded = delta.signum() < 0;
+        long started = System.nanoTime();
+
+        try (Connection conn = DatabaseConnector.getConnection(account.getAccountId())) {
+            conn.setAutoCommit(false);
+            try {
+                if (!guarded && account.getBalanceSlots() > 0
+                        && balanceSlots.credit(conn, account.getAccountId(), account.getBalanceSlots(), amount)) {
+                    transactionDAO.createTransaction(conn, transaction);
+                    balanceSlots.addPending(conn, transaction);
+                    Optional<Account> updated = findAccountById(conn, account.getAccountId());
+                    conn.commit();
+                    APPLY_DELTA_QUERY.recordSince(started, 3);
+
+                    updated.ifPresent(row -> copyBalanceAndAggregates(row, account));
+                    return updated.map(Account::getBalance);
+                }
+
+                int affectedRows = updateBalance(conn, account.getAccountId(), delta, amount, !transaction.isFlagged(), guarded);
+
+                if (affectedRows == 0) {
+                    conn.rollback();
+                    APPLY_DELTA_QUERY.recordSince(started, 0);
+                    Optional<Account> current = findAccountById(conn, account.getAccountId());
+                    if (current.isPresent() && guarded) {
+                        throw new InsufficientFundsException("Insufficient funds for withdrawal. Current balance: " + current.get().getBalance());
+                    }
+                    System.err.println("Balance update failed: Account not found with ID " + account.getAccountId());
+                    return Optional.empty();
+                }
+
+                Optional<Account> updated = findAccountById(conn, account.getAccountId());
+                transactionDAO.createTransaction(conn, transaction);
+                if (updated.isPresent()) {
+                    dailyRollupDAO.addToRollups(conn, Collections.singletonList(transaction), Collections.singletonMap(account.getAccountId(), updated.get().getBalance()));
+                }
+                conn.commit();
+                APPLY_DELTA_QUERY.recordSince(started, affectedRows + 1);
+
+                updated.ifPresent(row -> copyBalanceAndAggregates(row, account));
+                return updated.map(Account::getBalance);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            APPLY_DELTA_QUERY.recordError();
+            System.err.println("Error applying balance change: " + e.getMessage());
+            e.printStackTrace();
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Applies a balance delta on the caller's connection; a hot account is locked and folded first.
+     *
+     * @return 0 if the account does not exist or, when guarded, does not cover the amount
+     */
+    int updateBalance(Connection conn, int accountId, Money delta, Money amount, boolean withAggregates, boolean guarded) throws SQLException {
+        int affectedRows = updateBalance(conn, accountId, delta, amount, withAggregates, guarded, NOT_HOT);
+        if (affectedRows > 0) {
+            return affectedRows;
+        }
+        Optional<Account> locked = lockAccount(conn, accountId);
+        if (locked.isEmpty() || locked.get().getBalanceSlots() == 0) {
+            return 0;
+        }
+        return updateBalance(conn, accountId, delta, amount, withAggregates, guarded, "");
+    }
+
+    private int updateBalance(Connection conn, int accountId, Money delta, Money amount, boolean withAggregates, boolean guarded, String condition) throws SQLException {
+        String sql = (withAggregates ? APPLY_DELTA_WITH_AGGREGATES_SQL : APPLY_DELTA_SQL) + condition + (guarded ? DEBIT_GUARD : "");
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int i = 1;
+            if (withAggregates) {
+                pstmt.setDouble(i++, amount.toDouble());
+                pstmt.setDouble(i++, amount.toDouble());
+                pstmt.setBigDecimal(i++, amount.toBigDecimal());
+                pstmt.setBigDecimal(i++, amount.toBigDecimal());
+            }
+            pstmt.setBigDecimal(i++, delta.toBigDecimal());
+            pstmt.setInt(i++, accountId);
+            if (guarded) {
+                pstmt.setBigDecimal(i, amount.toBigDecimal());
+            }
+            return pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Moves money between two accounts in a single database transaction: both rows are locked in
+     * ascending id order (so opposing transfers cannot deadlock each other), the source balance is
+     * checked, both balances are updated and both legs are written as linked ledger rows. The
+     * transaction is retried a bounded number of times if the database still reports a deadlock or
+     * lock timeout. Accounts on different shards are handled by {@link CrossShardTransfer} instead.
+     *
+     * @return the new source balance, or empty if an account does not exist or the write failed
+     * @throws InsufficientFundsException if the source balance does not cover the amount
+     */
+    @Override
+    public Optional<Money> transfer(Account from, Account to, Money amount, Transaction debit, Transaction credit) throws InsufficientFundsException {
+        if (DatabaseConnector.shardOf(from.getAccountId()) != DatabaseConnector.shardOf(to.getAccountId())) {
+            return crossShardTransfer.transfer(from, to, amount, debit, credit);
+        }
+        long started = System.nanoTime();
+        for (int attempt = 1; ; attempt++) {
+            try (Connection conn = DatabaseConnector.getConnection(from.getAccountId())) {
+                conn.setAutoCommit(false);
+                try {
+                    Optional<Account> lockedFrom;
+                    Optional<Account> lockedTo;
+                    boolean creditSlot = to.getBalanceSlots() > 0;
+                    if (creditSlot && from.getAccountId() < to.getAccountId()) {
+                        // A hot destination takes the credit in one of its slots, so its row is not locked.
+                        // The slot is still taken in the destination's place in id order: a fold of the
+                        // destination locks its row and then all its slots.
+                        lockedFrom = lockAccount(conn, from.getAccountId());
+                        creditSlot = lockedFrom.isPresent() && balanceSlots.credit(conn, to.getAccountId(), to.getBalanceSlots(), amount);
+                        lockedTo = creditSlot ? Optional.of(to) : lockAccount(conn, to.getAccountId());
+                    } else if (creditSlot) {
+                        creditSlot = balanceSlots.credit(conn, to.getAccountId(), to.getBalanceSlots(), amount);
+                        lockedTo = creditSlot ? Optional.of(to) : lockAccount(conn, to.getAccountId());
+                        lockedFrom = lockAccount(conn, from.getAccountId());
+                    } else if (from.getAccountId() < to.getAccountId()) {
+                        lockedFrom = lockAccount(conn, from.getAccountId());
+                        lockedTo = lockAccount(conn, to.getAccountId());
+                    } else {
+                        lockedTo = lockAccount(conn, to.getAccountId());
+                        lockedFrom = lockAccount(conn, from.getAccountId());
+                    }
+                    if (lockedFrom.isEmpty() || lockedTo.isEmpty()) {
+                        conn.rollback();
+                        TRANSFER_QUERY.recordSince(started, 0);
+                        System.err.println("Transfer failed: One or both accounts not found.");
+                        return Optional.empty();
+                    }
+                    if (lockedFrom.get().getBalance().isLessThan(amount)) {
+                        conn.rollback();
+                        TRANSFER_QUERY.recordSince(started, 0);
+                        throw new InsufficientFundsException("Insufficient funds for transfer. Current balance: " + lockedFrom.get().getBalance());
+                    }
+
+                    updateBalance(conn, from.getAccountId(), amount.negate(), amount, !debit.isFlagged(), false);
+                    if (!creditSlot) {
+                        updateBalance(conn, to.getAccountId(), amount, amount, !credit.isFlagged(), false);
+                    }
+                    transactionDAO.createLinkedTransactions(conn, debit, credit);
+                    if (creditSlot) {
+                        balanceSlots.addPending(conn, credit);
+                    }
+
+                    Optional<Account> updatedFrom = findAccountById(conn, from.getAccountId());
+                    Optional<Account> updatedTo = findAccountById(conn, to.getAccountId());
+                    if (updatedFrom.isPresent() && updatedTo.isPresent()) {
+                        Map<Integer, Money> balances = new HashMap<>();
+                        balances.put(from.getAccountId(), updatedFrom.get().getBalance());
+                        balances.put(to.getAccountId(), updatedTo.get().getBalance());
+                        dailyRollupDAO.addToRollups(conn, creditSlot ? Collections.singletonList(debit) : Arrays.asList(debit, credit), balances);
+                    }
+                    conn.commit();
+                    TRANSFER_QUERY.recordSince(started, 4);
+
+                    updatedFrom.ifPresent(row -> copyBalanceAndAggregates(row, from));
+                    updatedTo.ifPresent(row -> copyBalanceAndAggregates(row, to));
+                    return updatedFrom.map(Account::getBalance);
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            } catch (SQLException e) {
+                if (isDeadlockOrLockTimeout(e)) {
+                    TRANSFER_DEADLOCKS.incrementAndGet();
+                    if (attempt < MAX_TRANSFER_ATTEMPTS) {
+                        TRANSFER_RETRIES.incrementAndGet();
+                        continue;
+                    }
+                }
+                TRANSFER_QUERY.recordError();
+                System.err.println("Error transferring funds: " + e.getMessage());
+                e.printStackTrace();
+                return Optional.empty();
+            }
+        }
+    }
+
+    /** Locks the account's row for the caller's transaction and folds it if it is hot, so the balance read is all of it. */
+    Optional<Account> lockAccount(Connection conn, int accountId) throws SQLException {
+        Optional<Account> account = lockRow(conn, accountId);
+        if (account.isPresent() && account.get().getBalanceSlots() > 0) {
+            balanceSlots.fold(conn, account.get());
+        }
+        return account;
+    }
+
+    private static Optional<Account> lockRow(Connection conn, int accountId) throws SQLException {
+        String sql = "SELECT " + ACCOUNT_COLUMNS + " FROM Accounts WHERE accountId = ? FOR UPDATE";
+        return Queries.first(conn, sql, pstmt -> pstmt.setInt(1, accountId), AccountDAO::mapAccount);
+    }
+
+    /**
+     * Makes an account hot with {@code slots} balance slots, changes its number of slots, or with 0
+     * makes it an ordinary account again. Its slots are folded first, so no balance is lost.
+     *
+     * @return false if the account does not exist or the write failed
+     */
+    @Override
+    public boolean setBalanceSlots(int accountId, int slots) {
+        if (slots < 0) {
+            throw new IllegalArgumentException("Balance slots must not be negative: " + slots);
+        }
+        long started = System.nanoTime();
+        try (Connection conn = DatabaseConnector.getConnection(accountId)) {
+            conn.setAutoCommit(false);
+            try {
+                if (lockAccount(conn, accountId).isEmpty()) {
+                    conn.rollback();
+                    SET_SLOTS_QUERY.recordSince(started, 0);
+                    System.err.println("Setting balance slots failed: Account not found with ID " + accountId);
+                    return false;
+                }
+                balanceSlots.resize(conn, accountId, slots);
+                conn.commit();
+                SET_SLOTS_QUERY.recordSince(started, slots + 1);
+                InfoLog.println(slots > 0
+                        ? "Account " + accountId + " now spreads credits over " + slots + " balance slots."
+                        : "Account " + accountId + " no longer uses balance slots.");
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            SET_SLOTS_QUERY.recordError();
+            System.err.println("Error setting balance slots: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Folds the slots of every hot account back into its row, one account per database
+     * transaction so each row is only locked briefly. Run periodically by
+     * {@link DatabaseConnector#initializeDatabase()}, which keeps the aggregates and daily rollups
+     * of hot accounts at most one interval behind.
+     *
+     * @return the number of credits folded, or -1 on error
+     */
+    @Override
+    public int compactBalanceSlots() {
+        int folded = 0;
+        for (int shard = 0; shard < DatabaseConnector.getShardCount(); shard++) {
+            int shardFolded = compactBalanceSlots(shard);
+            if (shardFolded < 0) {
+                return -1;
+            }
+            folded += shardFolded;
+        }
+        return folded;
+    }
+
+    private int compactBalanceSlots(int shard) {
+        long started = System.nanoTime();
+        int folded = 0;
+
+        try (Connection conn = DatabaseConnector.getShardConnection(shard)) {
+            long[] hot = Queries.longs(conn, "SELECT accountId FROM Accounts WHERE balanceSlots > 0 ORDER BY accountId",
+                    StatementBinder.NONE, Integer.MAX_VALUE, rs -> rs.getInt(1));
+            conn.setAutoCommit(false);
+            for (long accountId : hot) {
+                try {
+                    Optional<Account> locked = lockRow(conn, (int) accountId);
+                    if (locked.isPresent() && locked.get().getBalanceSlots() > 0) {
+                        folded += balanceSlots.fold(conn, locked.get());
+                    }
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            }
+            COMPACT_QUERY.recordSince(started, folded);
+            return folded;
+        } catch (SQLException e) {
+            COMPACT_QUERY.recordError();
+            System.err.println("Error compacting balance slots: " + e.getMessage());
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    // SQLState 40001 covers deadlocks/serialization failures; 1213 and 1205 are MySQL's deadlock and lock-wait timeout codes,
+    // 50200 (SQLState HYT00) is H2's lock timeout.
+    private static boolean isDeadlockOrLockTimeout(SQLException e) {
+        return "40001".equals(e.getSQLState()) || "HYT00".equals(e.getSQLState())
+                || e.getErrorCode() == 1213 || e.getErrorCode() == 1205 || e.getErrorCode() == 50200;
+    }
+
+    public static long getTransferDeadlockCount() {
+        return TRANSFER_DEADLOCKS.get();
+    }
+
+    public static long getTransferRetryCount() {
+        return TRANSFER_RETRIES.get();
+    }
+
+    static void copyBalanceAndAggregates(Account from, Account to) {
+        to.setBalance(from.getBalance());
+        to.setAvgTransactionAmount(from.getAvgTransactionAmount());
+        to.setTransactionCount(from.getTransactionCount());
+        to.setTransactionSum(from.getTransactionSum());
+        to.setAmountM2(from.getAmountM2());
+        to.setVersion(from.getVersion());
+        to.setBalanceSlots(from.getBalanceSlots());
+    }
 }
@@ -0,0 +1,149 @@
+// File: src/main/java/com/bank/dao/AccountRepository.java
+
+package com.bank.dao;
+
+import com.bank.exception.InsufficientFundsException;
+import com.bank.model.Account;
+import com.bank.model.ConsistencyToken;
+import com.bank.model.DailyRollup;
+import com.bank.model.Money;
+import com.bank.model.Transaction;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Storage of accounts and of the balance changes that are recorded together with a ledger row.
+ * {@link AccountDAO} is the JDBC implementation; {@link com.bank.dao.memory.InMemoryStorage}
+ * provides an in-process one.
+ *
+ * Every balance-changing method must apply the balance, the running aggregates (for unflagged
+ * transactions), the ledger rows and the {@link DailyRollup daily rollups} of the days they fall
+ * on atomically, and bump the account's {@code version}.
+ */
+public interface AccountRepository {
+
+    /**
+     * @return the generated account id (also set on {@code account}), or -1 on error
+     */
+    int createAccount(Account account);
+
+    Optional<Account> findAccountById(int accountId);
+
+    /**
+     * Like {@link #findAccountById(int)}, but may be served by a read replica: the result reflects
+     * at least the writes {@code token} names, and may otherwise be slightly behind.
+     */
+    default Optional<Account> findAccountById(int accountId, ConsistencyToken token) {
+        return findAccountById(accountId);
+    }
+
+    /**
+     * Overwrites balance and aggregates with the values on {@code account}.
+     */
+    boolean updateAccount(Account account);
+
+    /**
+     * @return the new balance, or empty if the account does not exist or the write failed
+     */
+    Optional<Money> applyCredit(Account account, Money amount, Transaction transaction);
+
+    /**
+     * @return the new balance, or empty if the account does not exist or the write failed
+     * @throws InsufficientFundsException if the balance does not cover the amount
+     */
+    Optional<Money> applyDebit(Account account, Money amount, Transaction transaction) throws InsufficientFundsException;
+
+    /**
+     * Moves money between two accounts and records both legs as linked transactions.
+     *
+     * @return the new source balance, or empty if an account does not exist or the write failed
+     * @throws InsufficientFundsException if the source balance does not cover the amount
+     */
+    Optional<Money> transfer(Account from, Account to, Money amount, Transaction debit, Transaction credit) throws InsufficientFundsException;
+
+    /**
+     * Runs {@code work} against the given accounts while they are locked and writes back every
+     * account that received a transaction, together with those transactions, as one unit. All
+     * accounts must be in the same {@link #partitionOf partition}.
+     *
+     * @return true if the unit of work was committed
+     */
+    boolean applyBatch(Collection<Integer> accountIds, BatchWork work);
+
+    /**
+     * Accounts in the same partition can be changed together by one {@link #applyBatch} call. The
+     * JDBC implementation partitions by shard; unsharded storage has a single partition.
+     */
+    default int partitionOf(int accountId) {
+        return 0;
+    }
+
+    /**
+     * Marks already committed transactions as flagged with their {@code reasonForFlag}, and takes
+     * their amounts back out of the running aggregates of their accounts, as if they had been
+     * flagged when they were written. Transactions that are already flagged are skipped.
+     *
+     * @return the number of transactions newly flagged, or -1 on error
+     */
+    int flagTransactions(List<Transaction> transactions);
+
+    /**
+     * Recomputes count, sum, average and M2 of every account from its unflagged history.
+     *
+     * @return the number of accounts updated, or -1 on error
+     */
+    int backfillTransactionAggregates();
+
+    /**
+     * @return the account's rollups from {@code from} to {@code to} (both inclusive), oldest first,
+     *         with no entries for days without transactions, or null on error
+     */
+    List<DailyRollup> findDailyRollups(int accountId, LocalDate from, LocalDate to);
+
+    /**
+     * @return the rollup of {@code date} if there is one, else the latest one before it, else the
+     *         earliest one after it; empty if the account has no transactions (or on error)
+     */
+    Optional<DailyRollup> findNearestDailyRollup(int accountId, LocalDate date);
+
+    /**
+     * Recomputes every account's daily rollups from its history. Closing balances are worked out
+     * backwards from the current balance, which assumes every ledger row moved the balance.
+     *
+     * @return the number of accounts rebuilt, or -1 on error
+     */
+    int rebuildDailyRollups();
+
+    /**
+     * Spreads credits to the account over {@code slots} balance slots, so concurrent credits do
+     * not queue on one row, or with 0 stops doing so. Reads still return the whole balance, and
+     * debits fold the slots back in before checking it. Storage without balance slots refuses.
+     *
+     * @return false if the account does not exist, the write failed or slots are not supported
+     */
+    default boolean setBalanceSlots(int accountId, int slots) {
+        return false;
+    }
+
+    /**
+     * Folds the balance slots of every hot account back into the account.
+     *
+     * @return the number of pending credits folded, or -1 on error
+     */
+    default int compactBalanceSlots() {
+        return 0;
+    }
+
+    /**
+     * Bulk unit of work for {@link #applyBatch}. Receives the locked accounts keyed by id (missing ids
+     * are absent) and returns the transactions to record; balances and aggregates are changed on the
+     * account objects directly.
+     */
+    interface BatchWork {
+        List<Transaction> apply(Map<Integer, Account> lockedAccounts);
+    }
+}
@@ -0,0 +1,166 @@
+// File: src/main/java/com/bank/dao/BalanceSlotDAO.java
+
+package com.bank.dao;
+
+import com.bank.metrics.Counter;
+import com.bank.metrics.Metrics;
+import com.bank.model.Account;
+import com.bank.model.Money;
+import com.bank.model.Transaction;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The balance slots of hot accounts. A hot account ({@code Accounts.balanceSlots > 0}) takes
+ * credits into one of its AccountBalanceSlots rows, picked at random, rather than into its
+ * Accounts row, so concurrent credits lock different rows instead of queueing on one. Its balance
+ * is the Accounts balance plus its slots, and its version the Accounts version plus theirs.
+ *
+ * <p>A slot credit only moves the slot. Its transaction is listed in SlotCredits, and its share of
+ * the running aggregates and daily rollups is written when the slots are {@link #fold folded}
+ * back into the account row. {@link AccountDAO} folds an account before anything else changes it,
+ * with the Accounts row locked, so the pending credits are always the newest rows of its history.
+ */
+final class BalanceSlotDAO {
+
+    private static final String CREDIT_SLOT_SQL = "UPDATE AccountBalanceSlots SET balance = balance + ?, version = version + 1 WHERE accountId = ? AND slot = ?";
+    private static final String ADD_PENDING_SQL = "INSERT INTO SlotCredits (transactionId, accountId) VALUES (?, ?)";
+    // Locked in slot order, so a fold waits for credits in flight and holds off new ones until it commits.
+    private static final String LOCK_SLOTS_SQL = "SELECT balance, version FROM AccountBalanceSlots WHERE accountId = ? ORDER BY slot FOR UPDATE";
+    private static final String PENDING_SQL = "SELECT " + TransactionDAO.TRANSACTION_COLUMNS + " FROM Transactions " +
+            "WHERE transactionId IN (SELECT transactionId FROM SlotCredits WHERE accountId = ?) ORDER BY transactionId";
+    private static final String FOLD_ACCOUNT_SQL = "UPDATE Accounts SET balance = ?, avgTransactionAmount = ?, transactionCount = ?, transactionSum = ?, amountM2 = ?, version = ? WHERE accountId = ?";
+    private static final String RESET_SLOTS_SQL = "UPDATE AccountBalanceSlots SET balance = 0, version = 0 WHERE accountId = ?";
+    private static final String CLEAR_PENDING_SQL = "DELETE FROM SlotCredits WHERE accountId = ?";
+
+    private static final Counter SLOT_CREDITS = Metrics.counter("account.slots.credits");
+    private static final Counter FOLDS = Metrics.counter("account.slots.folds");
+    private static final Counter FOLDED_CREDITS = Metrics.counter("account.slots.foldedCredits");
+
+    private final DailyRollupDAO dailyRollupDAO;
+
+    BalanceSlotDAO(DailyRollupDAO dailyRollupDAO) {
+        this.dailyRollupDAO = dailyRollupDAO;
+    }
+
+    /**
+     * Adds {@code amount} to a random one of the account's {@code slots} slots.
+     *
+     * @return false if there is no such slot, because the account is no longer hot or has fewer
+     *         slots than the caller thought; nothing was written then
+     */
+    boolean credit(Connection conn, int accountId, int slots, Money amount) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(CREDIT_SLOT_SQL)) {
+            pstmt.setBigDecimal(1, amount.toBigDecimal());
+            pstmt.setInt(2, accountId);
+            pstmt.setInt(3, ThreadLocalRandom.current().nextInt(slots));
+            if (pstmt.executeUpdate() == 0) {
+                return false;
+            }
+        }
+        SLOT_CREDITS.increment();
+        return true;
+    }
+
+    /** Lists a credited transaction, once inserted on {@code conn}, for the next fold. */
+    void addPending(Connection conn, Transaction transaction) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(ADD_PENDING_SQL)) {
+            pstmt.setInt(1, transaction.getTransactionId());
+            pstmt.setInt(2, transaction.getAccountId());
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Folds the slots of a hot account into its Accounts row: their balance is added to it, the
+     * unflagged pending credits go into the aggregates, all of them into the daily rollups, and
+     * the slots start again from zero. The caller has locked the Accounts row, read into
+     * {@code account}, and commits; {@code account} is updated to the folded row.
+     *
+     * @return the number of credits folded
+     */
+    int fold(Connection conn, Account account) throws SQLException {
+        int accountId = account.getAccountId();
+        Money slotBalance = Money.ZERO;
+        long slotVersion = 0;
+        try (PreparedStatement pstmt = conn.prepareStatement(LOCK_SLOTS_SQL)) {
+            pstmt.setInt(1, accountId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    slotBalance = slotBalance.plus(Money.of(rs.getBigDecimal(1)));
+                    slotVersion += rs.getLong(2);
+                }
+            }
+        }
+        if (slotVersion == 0) {
+            return 0; // nothing credited since the last fold
+        }
+        List<Transaction> pending = Queries.list(conn, PENDING_SQL, pstmt -> pstmt.setInt(1, accountId), TransactionDAO.TRANSACTION_MAPPER);
+
+        account.setBalance(account.getBalance().plus(slotBalance));
+        for (Transaction transaction : pending) {
+            if (!transaction.isFlagged()) {
+                account.foldIntoAggregates(transaction.getAmount());
+            }
+        }
+        // The version the account had with its slots, plus one for the fold.
+        account.setVersion(account.getVersion() + slotVersion + 1);
+
+        try (PreparedStatement pstmt = conn.prepareStatement(FOLD_ACCOUNT_SQL)) {
+            pstmt.setBigDecimal(1, account.getBalance().toBigDecimal());
+            pstmt.setBigDecimal(2, account.getAvgTransactionAmount().toBigDecimal());
+            pstmt.setLong(3, account.getTransactionCount());
+            pstmt.setBigDecimal(4, account.getTransactionSum().toBigDecimal());
+            pstmt.setDouble(5, account.getAmountM2());
+            pstmt.setLong(6, account.getVersion());
+            pstmt.setInt(7, accountId);
+            pstmt.executeUpdate();
+        }
+        execute(conn, RESET_SLOTS_SQL, accountId);
+        dailyRollupDAO.addToRollups(conn, pending, Collections.singletonMap(accountId, account.getBalance()));
+        execute(conn, CLEAR_PENDING_SQL, accountId);
+
+        FOLDS.increment();
+        FOLDED_CREDITS.add(pending.size());
+        return pending.size();
+    }
+
+    /**
+     * Replaces the slots of an account that was just folded (so every slot is zero) with
+     * {@code slots} new ones and records the count on its Accounts row; 0 makes it an ordinary
+     * account again.
+     */
+    void resize(Connection conn, int accountId, int slots) throws SQLException {
+        execute(conn, "DELETE FROM AccountBalanceSlots WHERE accountId = ?", accountId);
+        if (slots > 0) {
+            try (PreparedStatement pstmt = conn.prepareStatement("INSERT INTO AccountBalanceSlots (accountId, slot, balance, version) VALUES (?, ?, ?, 0)")) {
+                for (int slot = 0; slot < slots; slot++) {
+                    pstmt.setInt(1, accountId);
+                    pstmt.setInt(2, slot);
+                    pstmt.setBigDecimal(3, BigDecimal.ZERO);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement("UPDATE Accounts SET balanceSlots = ?, version = version + 1 WHERE accountId = ?")) {
+            pstmt.setInt(1, slots);
+            pstmt.setInt(2, accountId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private static void execute(Connection conn, String sql, int accountId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, accountId);
+            pstmt.executeUpdate();
+        }
+    }
+}
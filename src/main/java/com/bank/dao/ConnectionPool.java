@@ -0,0 +1,423 @@
+// File: src/main/java/com/bank/dao/ConnectionPool.java
+
+package com.bank.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A small bounded JDBC connection pool.
+ *
+ * Callers get a proxy {@link Connection}; calling {@code close()} on it hands the
+ * physical connection back to the pool instead of closing it, so the existing
+ * try-with-resources blocks in the DAOs keep working unchanged. The same goes for
+ * prepared statements: unless {@link PoolConfig#getStatementCacheSize()} is 0, closing
+ * one parks it in its connection's {@link StatementCache}, and the next
+ * {@code prepareStatement} with the same SQL and options on that connection reuses it
+ * instead of preparing it again (on MySQL, with useServerPrepStmts, a server round trip).
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    private final PoolConfig config;
+    private final PoolMetrics metrics;
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+    private final Map<PooledConnection, Boolean> borrowed = new ConcurrentHashMap<>();
+    private final AtomicInteger total = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    public ConnectionPool(PoolConfig config) {
+        if (config.getMaxSize() < 1 || config.getMinSize() < 0 || config.getMinSize() > config.getMaxSize()) {
+            throw new IllegalArgumentException("Invalid pool size bounds: " + config);
+        }
+        this.config = config;
+        this.metrics = new PoolMetrics(this);
+        this.permits = new Semaphore(config.getMaxSize(), true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "bank-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        fillToMinimum();
+        long interval = config.getHousekeepingIntervalMillis();
+        housekeeper.scheduleWithFixedDelay(this::housekeep, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed.");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(config.getAcquireTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                metrics.recordTimeout();
+                throw new SQLException("Timed out after " + config.getAcquireTimeoutMillis()
+                        + " ms waiting for a database connection (active=" + activeCount() + ", max=" + config.getMaxSize() + ").");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection.", e);
+        }
+
+        try {
+            PooledConnection pooled = takeIdleOrCreate();
+            pooled.borrowedAt = System.currentTimeMillis();
+            // Capturing the stack costs more than the rest of a borrow, so only leak detection pays for it.
+            pooled.borrowSite = config.getLeakDetectionThresholdMillis() > 0 ? new Throwable("Connection borrowed here") : null;
+            pooled.leakReported = false;
+            borrowed.put(pooled, Boolean.TRUE);
+            metrics.recordBorrow(System.nanoTime() - start);
+            return pooled.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeIdleOrCreate() throws SQLException {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (!config.isValidateOnBorrow() || isUsable(pooled)) {
+                return pooled;
+            }
+            metrics.recordValidationFailure();
+            destroy(pooled);
+        }
+        return create();
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        try {
+            return pooled.physical.isValid(config.getValidationTimeoutSeconds());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection create() throws SQLException {
+        Connection physical = DriverManager.getConnection(config.getUrl(), config.getUser(), config.getPassword());
+        total.incrementAndGet();
+        metrics.recordCreated();
+        return new PooledConnection(physical);
+    }
+
+    private void destroy(PooledConnection pooled) {
+        total.decrementAndGet();
+        metrics.recordDestroyed();
+        if (pooled.statements != null) {
+            pooled.statements.clear();
+        }
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing pooled connection: " + e.getMessage());
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        if (borrowed.remove(pooled) == null) {
+            return;
+        }
+        boolean reusable = !closed;
+        try {
+            if (reusable && pooled.physical.isClosed()) {
+                reusable = false;
+            }
+            if (reusable && !pooled.physical.getAutoCommit()) {
+                // Never hand out a connection with a half-finished transaction.
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            reusable = false;
+        }
+
+        if (reusable) {
+            pooled.idleSince = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+        } else {
+            destroy(pooled);
+        }
+        permits.release();
+    }
+
+    private void fillToMinimum() {
+        while (!closed && total.get() < config.getMinSize()) {
+            try {
+                PooledConnection pooled = create();
+                pooled.idleSince = System.currentTimeMillis();
+                idle.offerLast(pooled);
+            } catch (SQLException e) {
+                System.err.println("Error pre-filling connection pool: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private void housekeep() {
+        try {
+            long now = System.currentTimeMillis();
+
+            // Evict connections idle for too long, oldest first, without dropping below the minimum size.
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext() && total.get() > config.getMinSize()) {
+                PooledConnection pooled = it.next();
+                if (now - pooled.idleSince > config.getIdleTimeoutMillis() && idle.remove(pooled)) {
+                    metrics.recordEvicted();
+                    destroy(pooled);
+                }
+            }
+
+            long threshold = config.getLeakDetectionThresholdMillis();
+            if (threshold > 0) {
+                for (PooledConnection pooled : borrowed.keySet()) {
+                    if (!pooled.leakReported && now - pooled.borrowedAt > threshold) {
+                        pooled.leakReported = true;
+                        metrics.recordLeak();
+                        System.err.println("Possible connection leak: connection held for " + (now - pooled.borrowedAt) + " ms.");
+                        if (pooled.borrowSite != null) {
+                            pooled.borrowSite.printStackTrace();
+                        }
+                    }
+                }
+            }
+
+            fillToMinimum();
+        } catch (RuntimeException e) {
+            System.err.println("Error during connection pool housekeeping: " + e.getMessage());
+        }
+    }
+
+    public PoolMetrics getMetrics() {
+        return metrics;
+    }
+
+    public PoolConfig getConfig() {
+        return config;
+    }
+
+    int activeCount() { return borrowed.size(); }
+    int idleCount() { return idle.size(); }
+    int totalCount() { return total.get(); }
+
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+    }
+
+    private final class PooledConnection {
+        private final Connection physical;
+        private final StatementCache statements;
+        private volatile long borrowedAt;
+        private volatile long idleSince;
+        private volatile Throwable borrowSite;
+        private volatile boolean leakReported;
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statements = config.getStatementCacheSize() > 0 ? new StatementCache(config.getStatementCacheSize()) : null;
+        }
+
+        private Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Handle(this));
+        }
+    }
+
+    /**
+     * Logical connection handed to callers. Each borrow gets a fresh handle so a
+     * stale reference cannot touch a connection that has already been re-borrowed.
+     */
+    private final class Handle implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean released;
+
+        private Handle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!released) {
+                        released = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return released || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.physical + "]";
+                case "prepareStatement":
+                    String key = released || pooled.statements == null ? null : cacheKey(args);
+                    return key != null ? prepareCached(key, method, args) : invokeIfBorrowed(method, args);
+                default:
+                    return invokeIfBorrowed(method, args);
+            }
+        }
+
+        private Object invokeIfBorrowed(Method method, Object[] args) throws Throwable {
+            if (released) {
+                throw new SQLException("Connection has already been returned to the pool.");
+            }
+            return invokePhysical(method, args);
+        }
+
+        private Object invokePhysical(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private Object prepareCached(String key, Method method, Object[] args) throws Throwable {
+            PreparedStatement statement = pooled.statements.take(key);
+            if (statement != null) {
+                metrics.recordStatementCacheHit();
+            } else {
+                metrics.recordStatementCacheMiss();
+                statement = (PreparedStatement) invokePhysical(method, args);
+            }
+            return Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    new CachedStatement(pooled.statements, key, statement));
+        }
+    }
+
+    /**
+     * Cache key for the prepareStatement overloads that take SQL plus plain int options, or null
+     * for the column-list overloads, which are not cached.
+     */
+    private static String cacheKey(Object[] args) {
+        String sql = (String) args[0];
+        if (args.length == 1) {
+            return "0:" + sql;
+        }
+        if (args.length == 2 && args[1] instanceof Integer) {
+            return "k" + args[1] + ":" + sql;
+        }
+        if (args.length == 3) {
+            return "t" + args[1] + "," + args[2] + ":" + sql;
+        }
+        return null;
+    }
+
+    /**
+     * Statement handed to callers from a {@link StatementCache}. {@code close()} clears the
+     * parameters and puts it back in the cache. A statement whose options were changed beyond the
+     * fetch size is closed for real, so the next caller always gets default options.
+     */
+    private static final class CachedStatement implements InvocationHandler {
+        private static final Set<String> UNCACHEABLE_AFTER = Set.of(
+                "setMaxRows", "setLargeMaxRows", "setMaxFieldSize", "setQueryTimeout", "setFetchDirection",
+                "setEscapeProcessing", "setPoolable", "setCursorName", "closeOnCompletion");
+
+        private final StatementCache cache;
+        private final String key;
+        private final PreparedStatement statement;
+        private boolean closed;
+        private boolean fetchSizeChanged;
+        private boolean batched;
+        private boolean reusable = true;
+
+        private CachedStatement(StatementCache cache, String key, PreparedStatement statement) {
+            this.cache = cache;
+            this.key = key;
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        giveBack();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || statement.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + statement + "]";
+                default:
+                    if (closed) {
+                        throw new SQLException("Statement has already been closed.");
+                    }
+                    if ("setFetchSize".equals(name)) {
+                        fetchSizeChanged = true;
+                    } else if ("addBatch".equals(name)) {
+                        batched = true;
+                    } else if (UNCACHEABLE_AFTER.contains(name)) {
+                        reusable = false;
+                    }
+                    try {
+                        return method.invoke(statement, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+
+        private void giveBack() throws SQLException {
+            try {
+                if (reusable && !statement.isClosed()) {
+                    // Callers close their result sets first; this only catches one left open.
+                    ResultSet open = statement.getResultSet();
+                    if (open != null) {
+                        open.close();
+                    }
+                    statement.clearParameters();
+                    if (batched) {
+                        statement.clearBatch();
+                    }
+                    if (fetchSizeChanged) {
+                        statement.setFetchSize(0);
+                    }
+                    if (cache.offer(key, statement)) {
+                        return;
+                    }
+                }
+            } catch (SQLException e) {
+                // Not reusable; close it below.
+            }
+            statement.close();
+        }
+    }
+}
@@ -0,0 +1,349 @@
+// File: src/main/java/com/bank/dao/CrossShardTransfer.java
+
+package com.bank.dao;
+
+import com.bank.exception.InsufficientFundsException;
+import com.bank.metrics.Counter;
+import com.bank.metrics.Metrics;
+import com.bank.metrics.QueryMetrics;
+import com.bank.model.Account;
+import com.bank.model.Money;
+import com.bank.model.Transaction;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * A transfer between accounts on different shards, run as a saga of three local transactions:
+ *
+ * <ol>
+ *   <li>Debit, on the source shard: lock and check the source, debit it, write the TRANSFER_OUT
+ *       leg and a TransferSagas row in state DEBITED. Once this commits the transfer is durable and
+ *       will be carried through.</li>
+ *   <li>Credit, on the destination shard: claim the saga id in TransferCredits, credit the
+ *       destination and write the TRANSFER_IN leg. The claim's primary key makes a repeated credit
+ *       a no-op; if the destination does not exist the claim is committed as refused.</li>
+ *   <li>Finish, on the source shard: move the saga from DEBITED to COMPLETED and link the debit
+ *       leg to the credit leg or, if the credit was refused, to COMPENSATED together with a
+ *       refunding TRANSFER_IN on the source.</li>
+ * </ol>
+ *
+ * Each step can be repeated safely, so {@link #recover} re-drives every saga still in DEBITED
+ * from step 2, whether its process died or its credit failed. Until step 2 commits the amount is
+ * in flight: gone from the source, not yet on the destination. Each leg's linkedTransactionId
+ * names a row on the other shard.
+ */
+final class CrossShardTransfer {
+    private static final String DEBITED = "DEBITED";
+    private static final String COMPLETED = "COMPLETED";
+    private static final String COMPENSATED = "COMPENSATED";
+    // TransferCredits.transactionId of a credit that found no destination account.
+    private static final int REFUSED = -1;
+
+    private static final String SAGA_COLUMNS = "sagaId, fromAccountId, toAccountId, amount, isFlagged, reasonForFlag, debitTransactionId";
+
+    private static final QueryMetrics DEBIT_QUERY = Metrics.query("transfer.crossShard.debit");
+    private static final QueryMetrics CREDIT_QUERY = Metrics.query("transfer.crossShard.credit");
+    private static final QueryMetrics FINISH_QUERY = Metrics.query("transfer.crossShard.finish");
+    private static final QueryMetrics RECOVER_QUERY = Metrics.query("transfer.crossShard.recover");
+    private static final Counter COMPENSATED_TRANSFERS = Metrics.counter("transfer.crossShard.compensated");
+
+    private final AccountDAO accountDAO;
+    private final TransactionDAO transactionDAO;
+    private final DailyRollupDAO dailyRollupDAO;
+
+    CrossShardTransfer(AccountDAO accountDAO, TransactionDAO transactionDAO, DailyRollupDAO dailyRollupDAO) {
+        this.accountDAO = accountDAO;
+        this.transactionDAO = transactionDAO;
+        this.dailyRollupDAO = dailyRollupDAO;
+    }
+
+    /**
+     * Runs all three steps. If the credit fails after the debit committed, the transfer still
+     * counts as done: it is left in DEBITED for {@link #recover} to finish.
+     *
+     * @return the new source balance, or empty if an account does not exist or the write failed
+     * @throws InsufficientFundsException if the source balance does not cover the amount
+     */
+    Optional<Money> transfer(Account from, Account to, Money amount, Transaction debit, Transaction credit) throws InsufficientFundsException {
+        Saga saga = new Saga(UUID.randomUUID().toString(), from.getAccountId(), to.getAccountId(), amount, debit.isFlagged(), debit.getReasonForFlag());
+        try {
+            Optional<Account> debited = debit(saga, debit);
+            if (debited.isEmpty()) {
+                return Optional.empty();
+            }
+            AccountDAO.copyBalanceAndAggregates(debited.get(), from);
+        } catch (SQLException e) {
+            DEBIT_QUERY.recordError();
+            System.err.println("Error transferring funds: " + e.getMessage());
+            e.printStackTrace();
+            return Optional.empty();
+        }
+
+        try {
+            int creditTransactionId = credit(saga, credit, to);
+            finish(saga, creditTransactionId);
+            if (creditTransactionId == REFUSED) {
+                System.err.println("Transfer failed: Account not found with ID " + to.getAccountId() + "; the debit was refunded.");
+                return Optional.empty();
+            }
+            debit.setLinkedTransactionId(creditTransactionId);
+        } catch (SQLException e) {
+            System.err.println("Transfer " + saga.sagaId + " debited account " + from.getAccountId()
+                    + " but could not be completed yet; it will be finished by recovery: " + e.getMessage());
+        }
+        return Optional.of(from.getBalance());
+    }
+
+    private Optional<Account> debit(Saga saga, Transaction debit) throws SQLException, InsufficientFundsException {
+        String insertSql = "INSERT INTO TransferSagas (sagaId, fromAccountId, toAccountId, amount, isFlagged, reasonForFlag, state, debitTransactionId) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        long started = System.nanoTime();
+
+        try (Connection conn = DatabaseConnector.getConnection(saga.fromAccountId)) {
+            conn.setAutoCommit(false);
+            try {
+                Optional<Account> locked = accountDAO.lockAccount(conn, saga.fromAccountId);
+                if (locked.isEmpty()) {
+                    conn.rollback();
+                    DEBIT_QUERY.recordSince(started, 0);
+                    System.err.println("Transfer failed: One or both accounts not found.");
+                    return Optional.empty();
+                }
+                if (locked.get().getBalance().isLessThan(saga.amount)) {
+                    conn.rollback();
+                    DEBIT_QUERY.recordSince(started, 0);
+                    throw new InsufficientFundsException("Insufficient funds for transfer. Current balance: " + locked.get().getBalance());
+                }
+
+                accountDAO.updateBalance(conn, saga.fromAccountId, saga.amount.negate(), saga.amount, !saga.flagged, false);
+                saga.debitTransactionId = transactionDAO.createTransaction(conn, debit);
+                try (PreparedStatement pstmt = conn.prepareStatement(insertSql)) {
+                    pstmt.setString(1, saga.sagaId);
+                    pstmt.setInt(2, saga.fromAccountId);
+                    pstmt.setInt(3, saga.toAccountId);
+                    pstmt.setBigDecimal(4, saga.amount.toBigDecimal());
+                    pstmt.setBoolean(5, saga.flagged);
+                    pstmt.setString(6, saga.reasonForFlag);
+                    pstmt.setString(7, DEBITED);
+                    pstmt.setInt(8, saga.debitTransactionId);
+                    pstmt.executeUpdate();
+                }
+                Optional<Account> updated = accountDAO.findAccountById(conn, saga.fromAccountId);
+                if (updated.isPresent()) {
+                    dailyRollupDAO.addToRollups(conn, Collections.singletonList(debit), Collections.singletonMap(saga.fromAccountId, updated.get().getBalance()));
+                }
+                conn.commit();
+                DEBIT_QUERY.recordSince(started, 3);
+                return updated;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * @param to refreshed from the updated row on success; may be null
+     * @return the id of the credit leg, or {@link #REFUSED}; the same on every call for one saga
+     */
+    private int credit(Saga saga, Transaction credit, Account to) throws SQLException {
+        long started = System.nanoTime();
+
+        try (Connection conn = DatabaseConnector.getConnection(saga.toAccountId)) {
+            conn.setAutoCommit(false);
+            try {
+                // Waits for a concurrent claim of the same saga to commit or roll back.
+                if (!claim(conn, saga.sagaId)) {
+                    conn.rollback();
+                    int existing = findCredit(conn, saga.sagaId);
+                    conn.commit();
+                    CREDIT_QUERY.recordSince(started, 0);
+                    return existing;
+                }
+
+                int creditTransactionId = REFUSED;
+                Optional<Account> updated = Optional.empty();
+                if (accountDAO.updateBalance(conn, saga.toAccountId, saga.amount, saga.amount, !saga.flagged, false) > 0) {
+                    credit.setLinkedTransactionId(saga.debitTransactionId);
+                    creditTransactionId = transactionDAO.createTransaction(conn, credit);
+                    updated = accountDAO.findAccountById(conn, saga.toAccountId);
+                    if (updated.isPresent()) {
+                        dailyRollupDAO.addToRollups(conn, Collections.singletonList(credit), Collections.singletonMap(saga.toAccountId, updated.get().getBalance()));
+                    }
+                }
+                try (PreparedStatement pstmt = conn.prepareStatement("UPDATE TransferCredits SET transactionId = ? WHERE sagaId = ?")) {
+                    pstmt.setInt(1, creditTransactionId);
+                    pstmt.setString(2, saga.sagaId);
+                    pstmt.executeUpdate();
+                }
+                conn.commit();
+                CREDIT_QUERY.recordSince(started, creditTransactionId == REFUSED ? 1 : 4);
+
+                if (to != null) {
+                    updated.ifPresent(row -> AccountDAO.copyBalanceAndAggregates(row, to));
+                }
+                return creditTransactionId;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            CREDIT_QUERY.recordError();
+            throw e;
+        }
+    }
+
+    /** @return false if the saga's credit was already claimed */
+    private static boolean claim(Connection conn, String sagaId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("INSERT INTO TransferCredits (sagaId, transactionId) VALUES (?, 0)")) {
+            pstmt.setString(1, sagaId);
+            pstmt.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            // SQLState class 23: integrity constraint violation, here the duplicate sagaId.
+            if (e.getSQLState() != null && e.getSQLState().startsWith("23")) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private static int findCredit(Connection conn, String sagaId) throws SQLException {
+        Optional<Integer> transactionId = Queries.first(conn, "SELECT transactionId FROM TransferCredits WHERE sagaId = ?",
+                pstmt -> pstmt.setString(1, sagaId), rs -> rs.getInt(1));
+        if (transactionId.isEmpty()) {
+            throw new SQLException("Credit of transfer " + sagaId + " was claimed but cannot be found.");
+        }
+        return transactionId.get();
+    }
+
+    /**
+     * @return false if the saga was already finished
+     */
+    private boolean finish(Saga saga, int creditTransactionId) throws SQLException {
+        boolean refused = creditTransactionId == REFUSED;
+        long started = System.nanoTime();
+
+        try (Connection conn = DatabaseConnector.getConnection(saga.fromAccountId)) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement pstmt = conn.prepareStatement("UPDATE TransferSagas SET state = ?, creditTransactionId = ? WHERE sagaId = ? AND state = ?")) {
+                    pstmt.setString(1, refused ? COMPENSATED : COMPLETED);
+                    pstmt.setInt(2, creditTransactionId);
+                    pstmt.setString(3, saga.sagaId);
+                    pstmt.setString(4, DEBITED);
+                    if (pstmt.executeUpdate() == 0) {
+                        conn.rollback();
+                        FINISH_QUERY.recordSince(started, 0);
+                        return false;
+                    }
+                }
+                if (refused) {
+                    Transaction refund = new Transaction(saga.fromAccountId, "TRANSFER_IN", saga.amount);
+                    refund.setFlagged(saga.flagged);
+                    refund.setReasonForFlag(saga.reasonForFlag);
+                    refund.setLinkedTransactionId(saga.debitTransactionId);
+                    accountDAO.updateBalance(conn, saga.fromAccountId, saga.amount, saga.amount, !saga.flagged, false);
+                    transactionDAO.createTransaction(conn, refund);
+                    Optional<Account> updated = accountDAO.findAccountById(conn, saga.fromAccountId);
+                    if (updated.isPresent()) {
+                        dailyRollupDAO.addToRollups(conn, Collections.singletonList(refund), Collections.singletonMap(saga.fromAccountId, updated.get().getBalance()));
+                    }
+                    COMPENSATED_TRANSFERS.increment();
+                } else {
+                    try (PreparedStatement pstmt = conn.prepareStatement("UPDATE Transactions SET linkedTransactionId = ? WHERE transactionId = ?")) {
+                        pstmt.setInt(1, creditTransactionId);
+                        pstmt.setInt(2, saga.debitTransactionId);
+                        pstmt.executeUpdate();
+                    }
+                }
+                conn.commit();
+                FINISH_QUERY.recordSince(started, refused ? 4 : 2);
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            FINISH_QUERY.recordError();
+            throw e;
+        }
+    }
+
+    /**
+     * Finishes every saga still in DEBITED on any shard that started at least
+     * {@code minAgeMillis} ago. A saga (or shard) that fails is reported and left for the next run.
+     *
+     * @return the number of sagas finished by this call
+     */
+    int recover(long minAgeMillis) {
+        String sql = "SELECT " + SAGA_COLUMNS + " FROM TransferSagas WHERE state = ? AND createdAt <= ? ORDER BY createdAt";
+        Timestamp cutoff = new Timestamp(System.currentTimeMillis() - minAgeMillis);
+        int finished = 0;
+
+        for (int shard = 0; shard < DatabaseConnector.getShardCount(); shard++) {
+            long started = System.nanoTime();
+            List<Saga> pending;
+            try (Connection conn = DatabaseConnector.getShardConnection(shard)) {
+                pending = Queries.list(conn, sql, pstmt -> {
+                    pstmt.setString(1, DEBITED);
+                    pstmt.setTimestamp(2, cutoff);
+                }, CrossShardTransfer::mapSaga);
+                RECOVER_QUERY.recordSince(started, pending.size());
+            } catch (SQLException e) {
+                RECOVER_QUERY.recordError();
+                System.err.println("Error finding unfinished transfers on shard " + shard + ": " + e.getMessage());
+                e.printStackTrace();
+                continue;
+            }
+            for (Saga saga : pending) {
+                Transaction credit = new Transaction(saga.toAccountId, "TRANSFER_IN", saga.amount);
+                credit.setFlagged(saga.flagged);
+                credit.setReasonForFlag(saga.reasonForFlag);
+                try {
+                    if (finish(saga, credit(saga, credit, null))) {
+                        finished++;
+                    }
+                } catch (SQLException e) {
+                    System.err.println("Error recovering transfer " + saga.sagaId + ": " + e.getMessage());
+                }
+            }
+        }
+        if (finished > 0) {
+            InfoLog.println("Recovered " + finished + " unfinished cross-shard transfer(s).");
+        }
+        return finished;
+    }
+
+    private static Saga mapSaga(ResultSet rs) throws SQLException {
+        Saga saga = new Saga(rs.getString(1), rs.getInt(2), rs.getInt(3), Money.of(rs.getBigDecimal(4)), rs.getBoolean(5), rs.getString(6));
+        saga.debitTransactionId = rs.getInt(7);
+        return saga;
+    }
+
+    private static final class Saga {
+        private final String sagaId;
+        private final int fromAccountId;
+        private final int toAccountId;
+        private final Money amount;
+        private final boolean flagged;
+        private final String reasonForFlag;
+        private int debitTransactionId;
+
+        private Saga(String sagaId, int fromAccountId, int toAccountId, Money amount, boolean flagged, String reasonForFlag) {
+            this.sagaId = sagaId;
+            this.fromAccountId = fromAccountId;
+            this.toAccountId = toAccountId;
+            this.amount = amount;
+            this.flagged = flagged;
+            this.reasonForFlag = reasonForFlag;
+        }
+    }
+}
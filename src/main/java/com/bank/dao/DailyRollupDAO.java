@@ -0,0 +1,304 @@
+// File: src/main/java/com/bank/dao/DailyRollupDAO.java
+
+package com.bank.dao;
+
+import com.bank.dao.archive.TransactionArchive;
+import com.bank.metrics.Metrics;
+import com.bank.metrics.QueryMetrics;
+import com.bank.model.DailyRollup;
+import com.bank.model.Money;
+import com.bank.model.Transaction;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * JDBC access to the DailyRollups table. {@link AccountDAO} calls {@link #addToRollups} on its own
+ * connection after every balance-changing write, so a rollup always commits or rolls back with the
+ * ledger rows it summarises.
+ */
+public class DailyRollupDAO {
+
+    // Keep in step with Transaction.isDebit().
+    private static final String IS_DEBIT = "transactionType IN ('WITHDRAWAL', 'TRANSFER_OUT')";
+
+    // The day is taken from the inserted ledger row, so a rollup and its rows always agree on the
+    // date even when a write straddles midnight. Rows of one account are serialised by its row lock,
+    // so the last upsert of the day leaves the day's closing balance.
+    private static final String UPSERT_SQL = "INSERT INTO DailyRollups (accountId, rollupDate, openingBalance, closingBalance, " +
+            "depositCount, depositSum, withdrawalCount, withdrawalSum, flaggedCount) " +
+            "SELECT accountId, CAST(transactionTime AS DATE), ?, ?, ?, ?, ?, ?, ? FROM Transactions WHERE transactionId = ? " +
+            "ON DUPLICATE KEY UPDATE closingBalance = VALUES(closingBalance), " +
+            "depositCount = depositCount + VALUES(depositCount), depositSum = depositSum + VALUES(depositSum), " +
+            "withdrawalCount = withdrawalCount + VALUES(withdrawalCount), withdrawalSum = withdrawalSum + VALUES(withdrawalSum), " +
+            "flaggedCount = flaggedCount + VALUES(flaggedCount)";
+    private static final String ADD_FLAGGED_SQL = "UPDATE DailyRollups SET flaggedCount = flaggedCount + 1 " +
+            "WHERE accountId = ? AND rollupDate = (SELECT CAST(transactionTime AS DATE) FROM Transactions WHERE transactionId = ?)";
+    private static final String INSERT_SQL = "INSERT INTO DailyRollups (accountId, rollupDate, openingBalance, closingBalance, " +
+            "depositCount, depositSum, withdrawalCount, withdrawalSum, flaggedCount) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Accounts locked and rebuilt per database transaction by rebuildDailyRollups.
+    private static final int REBUILD_ACCOUNTS_PER_TRANSACTION = Integer.getInteger("bank.rollup.rebuildChunkSize", 500);
+
+    // Read by position in mapRollup.
+    private static final String ROLLUP_COLUMNS = "accountId, rollupDate, openingBalance, closingBalance, depositCount, depositSum, " +
+            "withdrawalCount, withdrawalSum, flaggedCount";
+
+    private static final QueryMetrics UPSERT_QUERY = Metrics.query("rollup.upsert");
+    private static final QueryMetrics FIND_RANGE_QUERY = Metrics.query("rollup.findRange");
+    private static final QueryMetrics FIND_NEAREST_QUERY = Metrics.query("rollup.findNearest");
+    private static final QueryMetrics REBUILD_QUERY = Metrics.query("rollup.rebuild");
+
+    /**
+     * Adds transactions that were just inserted on {@code conn} to the rollups of their days.
+     * {@code balancesAfter} holds each touched account's balance after all of them; the balance
+     * after each single row is worked out backwards from it.
+     */
+    public void addToRollups(Connection conn, List<Transaction> transactions, Map<Integer, Money> balancesAfter) throws SQLException {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        Money[] closing = new Money[transactions.size()];
+        Map<Integer, Money> running = new HashMap<>(balancesAfter);
+        for (int i = transactions.size() - 1; i >= 0; i--) {
+            Transaction transaction = transactions.get(i);
+            Money balance = running.get(transaction.getAccountId());
+            closing[i] = balance;
+            running.put(transaction.getAccountId(), transaction.isDebit() ? balance.plus(transaction.getAmount()) : balance.minus(transaction.getAmount()));
+        }
+
+        long started = System.nanoTime();
+        try (PreparedStatement pstmt = conn.prepareStatement(UPSERT_SQL)) {
+            for (int i = 0; i < transactions.size(); i++) {
+                Transaction transaction = transactions.get(i);
+                boolean debit = transaction.isDebit();
+                Money opening = debit ? closing[i].plus(transaction.getAmount()) : closing[i].minus(transaction.getAmount());
+                pstmt.setBigDecimal(1, opening.toBigDecimal());
+                pstmt.setBigDecimal(2, closing[i].toBigDecimal());
+                pstmt.setInt(3, debit ? 0 : 1);
+                pstmt.setBigDecimal(4, (debit ? Money.ZERO : transaction.getAmount()).toBigDecimal());
+                pstmt.setInt(5, debit ? 1 : 0);
+                pstmt.setBigDecimal(6, (debit ? transaction.getAmount() : Money.ZERO).toBigDecimal());
+                pstmt.setInt(7, transaction.isFlagged() ? 1 : 0);
+                pstmt.setInt(8, transaction.getTransactionId());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        } catch (SQLException e) {
+            UPSERT_QUERY.recordError();
+            throw e;
+        }
+        UPSERT_QUERY.recordSince(started, transactions.size());
+    }
+
+    /**
+     * Counts a transaction that was flagged after it was written, on the caller's connection.
+     */
+    public void addFlagged(Connection conn, Transaction transaction) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(ADD_FLAGGED_SQL)) {
+            pstmt.setInt(1, transaction.getAccountId());
+            pstmt.setInt(2, transaction.getTransactionId());
+            pstmt.executeUpdate();
+        }
+    }
+
+    public List<DailyRollup> findDailyRollups(int accountId, LocalDate from, LocalDate to) {
+        String sql = "SELECT " + ROLLUP_COLUMNS + " FROM DailyRollups WHERE accountId = ? AND rollupDate >= ? AND rollupDate <= ? ORDER BY rollupDate";
+        long started = System.nanoTime();
+
+        try (Connection conn = DatabaseConnector.getConnection(accountId)) {
+            List<DailyRollup> rollups = Queries.list(conn, sql, pstmt -> {
+                pstmt.setInt(1, accountId);
+                pstmt.setDate(2, Date.valueOf(from));
+                pstmt.setDate(3, Date.valueOf(to));
+            }, DailyRollupDAO::mapRollup);
+            FIND_RANGE_QUERY.recordSince(started, rollups.size());
+            return rollups;
+        } catch (SQLException e) {
+            FIND_RANGE_QUERY.recordError();
+            System.err.println("Error finding daily rollups: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    public Optional<DailyRollup> findNearestDailyRollup(int accountId, LocalDate date) {
+        String atOrBeforeSql = "SELECT " + ROLLUP_COLUMNS + " FROM DailyRollups WHERE accountId = ? AND rollupDate <= ? ORDER BY rollupDate DESC LIMIT 1";
+        String afterSql = "SELECT " + ROLLUP_COLUMNS + " FROM DailyRollups WHERE accountId = ? AND rollupDate > ? ORDER BY rollupDate LIMIT 1";
+        long started = System.nanoTime();
+
+        try (Connection conn = DatabaseConnector.getConnection(accountId)) {
+            StatementBinder binder = pstmt -> {
+                pstmt.setInt(1, accountId);
+                pstmt.setDate(2, Date.valueOf(date));
+            };
+            Optional<DailyRollup> rollup = Queries.first(conn, atOrBeforeSql, binder, DailyRollupDAO::mapRollup);
+            if (rollup.isEmpty()) {
+                rollup = Queries.first(conn, afterSql, binder, DailyRollupDAO::mapRollup);
+            }
+            FIND_NEAREST_QUERY.recordSince(started, rollup.isPresent() ? 1 : 0);
+            return rollup;
+        } catch (SQLException e) {
+            FIND_NEAREST_QUERY.recordError();
+            System.err.println("Error finding daily rollup: " + e.getMessage());
+            e.printStackTrace();
+            return Optional.empty();
+        }
+    }
+
+    private static DailyRollup mapRollup(ResultSet rs) throws SQLException {
+        DailyRollup rollup = new DailyRollup();
+        rollup.setAccountId(rs.getInt(1));
+        rollup.setDate(rs.getDate(2).toLocalDate());
+        rollup.setOpeningBalance(Money.of(rs.getBigDecimal(3)));
+        rollup.setClosingBalance(Money.of(rs.getBigDecimal(4)));
+        rollup.setDepositCount(rs.getLong(5));
+        rollup.setDepositSum(Money.of(rs.getBigDecimal(6)));
+        rollup.setWithdrawalCount(rs.getLong(7));
+        rollup.setWithdrawalSum(Money.of(rs.getBigDecimal(8)));
+        rollup.setFlaggedCount(rs.getLong(9));
+        return rollup;
+    }
+
+    /**
+     * Rebuilds the rollups from the ledger, a chunk of accounts per database transaction. Each
+     * chunk's account rows are locked first (in ascending id order, like transfers), so writes to
+     * those accounts wait and the balances walked back from are the ones the history ends at.
+     *
+     * <p>Rows moved to the {@link TransactionArchive} are no longer in Transactions, so the rollups
+     * up to the day of the newest archived row are kept as they are; only later days are rebuilt.
+     *
+     * @return the number of accounts rebuilt, or -1 on error
+     */
+    public int rebuildDailyRollups() {
+        TransactionArchive archive = TransactionArchive.getDefault();
+        Timestamp archivedUntil = archive == null ? null : archive.getNewestTime();
+        LocalDate lastArchivedDay = archivedUntil == null ? null : archivedUntil.toLocalDateTime().toLocalDate();
+        if (lastArchivedDay != null) {
+            InfoLog.println("Keeping the daily rollups up to " + lastArchivedDay + ", whose transactions are archived.");
+        }
+        int rebuilt = 0;
+        for (int shard = 0; shard < DatabaseConnector.getShardCount(); shard++) {
+            int shardRebuilt = rebuildDailyRollups(shard, lastArchivedDay);
+            if (shardRebuilt < 0) {
+                return -1;
+            }
+            rebuilt += shardRebuilt;
+        }
+        return rebuilt;
+    }
+
+    private int rebuildDailyRollups(int shard, LocalDate lastArchivedDay) {
+        String afterArchive = lastArchivedDay == null ? "" : " AND transactionTime >= ?";
+        String lockSql = "SELECT accountId, balance FROM Accounts WHERE accountId > ? ORDER BY accountId LIMIT ? FOR UPDATE";
+        // Credits still in balance slots are left out: neither the Accounts balance nor the rollups
+        // include them until they are folded.
+        String selectSql = "SELECT accountId, CAST(transactionTime AS DATE) AS rollupDate, " +
+                "SUM(CASE WHEN " + IS_DEBIT + " THEN 0 ELSE 1 END) AS depositCount, " +
+                "SUM(CASE WHEN " + IS_DEBIT + " THEN 0 ELSE amount END) AS depositSum, " +
+                "SUM(CASE WHEN " + IS_DEBIT + " THEN 1 ELSE 0 END) AS withdrawalCount, " +
+                "SUM(CASE WHEN " + IS_DEBIT + " THEN amount ELSE 0 END) AS withdrawalSum, " +
+                "SUM(CASE WHEN isFlagged THEN 1 ELSE 0 END) AS flaggedCount " +
+                "FROM Transactions WHERE accountId >= ? AND accountId <= ?" + afterArchive + " " +
+                "AND transactionId NOT IN (SELECT transactionId FROM SlotCredits WHERE accountId >= ? AND accountId <= ?) " +
+                "GROUP BY accountId, CAST(transactionTime AS DATE) ORDER BY accountId, rollupDate DESC";
+        String deleteSql = "DELETE FROM DailyRollups WHERE accountId >= ? AND accountId <= ?" + (lastArchivedDay == null ? "" : " AND rollupDate > ?");
+        long started = System.nanoTime();
+        int rebuilt = 0;
+        long rows = 0;
+
+        try (Connection conn = DatabaseConnector.getShardConnection(shard)) {
+            conn.setAutoCommit(false);
+            int lastAccountId = 0;
+            while (true) {
+                try (PreparedStatement lock = conn.prepareStatement(lockSql);
+                     PreparedStatement select = conn.prepareStatement(selectSql);
+                     PreparedStatement delete = conn.prepareStatement(deleteSql);
+                     PreparedStatement insert = conn.prepareStatement(INSERT_SQL)) {
+
+                    TreeMap<Integer, Money> balances = new TreeMap<>();
+                    lock.setInt(1, lastAccountId);
+                    lock.setInt(2, REBUILD_ACCOUNTS_PER_TRANSACTION);
+                    try (ResultSet rs = lock.executeQuery()) {
+                        while (rs.next()) {
+                            balances.put(rs.getInt("accountId"), Money.of(rs.getBigDecimal("balance")));
+                        }
+                    }
+                    if (balances.isEmpty()) {
+                        conn.commit();
+                        break;
+                    }
+                    int firstId = balances.firstKey();
+                    lastAccountId = balances.lastKey();
+
+                    delete.setInt(1, firstId);
+                    delete.setInt(2, lastAccountId);
+                    if (lastArchivedDay != null) {
+                        delete.setDate(3, Date.valueOf(lastArchivedDay));
+                    }
+                    delete.executeUpdate();
+
+                    int p = 1;
+                    select.setInt(p++, firstId);
+                    select.setInt(p++, lastAccountId);
+                    if (lastArchivedDay != null) {
+                        select.setTimestamp(p++, Timestamp.valueOf(lastArchivedDay.plusDays(1).atStartOfDay()));
+                    }
+                    select.setInt(p++, firstId);
+                    select.setInt(p, lastAccountId);
+                    try (ResultSet rs = select.executeQuery()) {
+                        int currentAccountId = 0;
+                        Money balance = Money.ZERO;
+                        while (rs.next()) {
+                            int accountId = rs.getInt("accountId");
+                            if (accountId != currentAccountId) {
+                                currentAccountId = accountId;
+                                balance = balances.get(accountId);
+                                rebuilt++;
+                            }
+                            Money depositSum = toMoney(rs.getBigDecimal("depositSum"));
+                            Money withdrawalSum = toMoney(rs.getBigDecimal("withdrawalSum"));
+                            Money opening = balance.minus(depositSum).plus(withdrawalSum);
+
+                            insert.setInt(1, accountId);
+                            insert.setDate(2, rs.getDate("rollupDate"));
+                            insert.setBigDecimal(3, opening.toBigDecimal());
+                            insert.setBigDecimal(4, balance.toBigDecimal());
+                            insert.setLong(5, rs.getLong("depositCount"));
+                            insert.setBigDecimal(6, depositSum.toBigDecimal());
+                            insert.setLong(7, rs.getLong("withdrawalCount"));
+                            insert.setBigDecimal(8, withdrawalSum.toBigDecimal());
+                            insert.setLong(9, rs.getLong("flaggedCount"));
+                            insert.addBatch();
+                            balance = opening;
+                            rows++;
+                        }
+                    }
+                    insert.executeBatch();
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            }
+            REBUILD_QUERY.recordSince(started, rows);
+            InfoLog.println("Rebuilt " + rows + " daily rollups for " + rebuilt + " accounts.");
+            return rebuilt;
+        } catch (SQLException e) {
+            REBUILD_QUERY.recordError();
+            System.err.println("Error rebuilding daily rollups: " + e.getMessage());
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    private static Money toMoney(BigDecimal value) {
+        return value == null ? Money.ZERO : Money.of(value);
+    }
+}
@@ -2,63 +2,539 @@
 
 package com.bank.dao;
 
+import com.bank.dao.replica.ReplicaConfig;
+import com.bank.dao.replica.ReplicaSet;
+import com.bank.dao.shard.AccountIdAllocator;
+import com.bank.dao.shard.ShardConfig;
+import com.bank.dao.shard.ShardMap;
+
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class DatabaseConnector {
 
-    private static final String URL = "jdbc:mysql://localhost:3306/bank_system?serverTimezone=UTC";
+    // Connection settings live in PoolConfig and can be overridden with
+    // -Dbank.db.url / -Dbank.db.user / -Dbank.db.password and -Dbank.pool.* properties.
+    // !!! IMPORTANT: Change the defaults in PoolConfig to your actual MySQL username and password !!!
+    // With -Dbank.shard.count (see ShardConfig) accounts are spread over several databases instead.
+    // With -Dbank.replica.count (see ReplicaConfig) reads can go to replicas of each database.
+
+    // The only database, or shard 0 when sharded.
+    private static volatile ConnectionPool pool;
+    // Null unless sharded.
+    private static volatile Shards shards;
+    // Replicas per shard (null entries for shards without replicas); null until the first read asks.
+    private static volatile ReplicaSet[] replicaSets;
 
-    // !!! IMPORTANT: Change this to your actual MySQL username and password !!!
-    private static final String USER = "root";       // <-- CHANGE THIS
-    private static final String PASSWORD = "123456"; // <-- CHANGE THIS
+    // How often the balance slots of hot accounts are folded back into them; 0 turns this off.
+    private static final long SLOT_COMPACTION_INTERVAL_MILLIS = Long.getLong("bank.slots.compactionIntervalMillis", 1_000L);
+    private static ScheduledExecutorService slotCompaction;
 
+    /**
+     * A connection to the only database, or to the first shard when sharded. Use
+     * {@link #getConnection(int)} for anything that belongs to one account.
+     */
     public static Connection getConnection() throws SQLException {
+        return getPool().getConnection();
+    }
+
+    /** A connection to the database that holds {@code accountId}. */
+    public static Connection getConnection(int accountId) throws SQLException {
+        return getShardConnection(shardOf(accountId));
+    }
+
+    public static Connection getShardConnection(int shard) throws SQLException {
+        return primaryPool(shard).getConnection();
+    }
+
+    /**
+     * A connection for reading the data of {@code accountId}: a replica of its database when one
+     * is within the lag limit, else the database itself. Reads may be up to the lag limit behind
+     * the latest writes; use {@link #getReadConnection(int, long)} for reads that must see them.
+     */
+    public static Connection getReadConnection(int accountId) throws SQLException {
+        return getReadConnection(accountId, -1);
+    }
+
+    /**
+     * Like {@link #getReadConnection(int)}, but only returns a replica that has at least version
+     * {@code minVersion} of the account (see {@link com.bank.model.ConsistencyToken}).
+     *
+     * @param minVersion the lowest account version the read must see, or -1 for any
+     */
+    public static Connection getReadConnection(int accountId, long minVersion) throws SQLException {
+        int shard = shardOf(accountId);
+        ReplicaSet replicas = getReplicaSet(shard);
+        return replicas == null ? getShardConnection(shard) : replicas.getReadConnection(accountId, minVersion);
+    }
+
+    /** A connection for reads of a whole shard that may lag like {@link #getReadConnection(int)}. */
+    public static Connection getShardReadConnection(int shard) throws SQLException {
+        ReplicaSet replicas = getReplicaSet(shard);
+        return replicas == null ? getShardConnection(shard) : replicas.getReadConnection();
+    }
+
+    /** The replicas of shard {@code shard} (0 when not sharded), or null if it has none. */
+    public static ReplicaSet getReplicaSet(int shard) {
+        ReplicaSet[] current = replicaSets;
+        if (current == null) {
+            synchronized (DatabaseConnector.class) {
+                current = replicaSets;
+                if (current == null) {
+                    current = replicasFromSystemProperties();
+                    replicaSets = current;
+                }
+            }
+        }
+        return current[shard];
+    }
+
+    // Started on first use rather than with the pools, so that a simulated copier finds the tables.
+    private static ReplicaSet[] replicasFromSystemProperties() {
+        int shardCount = getShardCount();
+        ReplicaSet[] sets = new ReplicaSet[shardCount];
+        for (int shard = 0; shard < shardCount; shard++) {
+            ConnectionPool primary = primaryPool(shard);
+            ReplicaConfig config = isSharded()
+                    ? ReplicaConfig.fromSystemProperties(shard, primary.getConfig())
+                    : ReplicaConfig.fromSystemProperties(primary.getConfig());
+            if (config.isEnabled()) {
+                sets[shard] = new ReplicaSet(replicaSetName(shard), primary, config);
+            }
+        }
+        return sets;
+    }
+
+    /**
+     * Routes reads of shard {@code shard} (0 when not sharded) to the given replicas, replacing
+     * any it had; a config without replicas sends them back to the primary.
+     */
+    public static synchronized void configureReplicas(int shard, ReplicaConfig config) {
+        getReplicaSet(shard);
+        ReplicaSet[] sets = replicaSets.clone();
+        if (sets[shard] != null) {
+            sets[shard].close();
+        }
+        sets[shard] = config.isEnabled() ? new ReplicaSet(replicaSetName(shard), primaryPool(shard), config) : null;
+        replicaSets = sets;
+    }
+
+    private static ConnectionPool primaryPool(int shard) {
+        ConnectionPool current = getPool();
+        Shards sharded = shards;
+        return sharded == null ? current : sharded.pools[shard];
+    }
+
+    private static String replicaSetName(int shard) {
+        return isSharded() ? ShardConfig.shardName(shard) : "primary";
+    }
+
+    public static boolean isSharded() {
+        getPool();
+        return shards != null;
+    }
+
+    /** 1 when not sharded. */
+    public static int getShardCount() {
+        getPool();
+        Shards sharded = shards;
+        return sharded == null ? 1 : sharded.pools.length;
+    }
+
+    /** 0 when not sharded. */
+    public static int shardOf(int accountId) {
+        getPool();
+        Shards sharded = shards;
+        return sharded == null ? 0 : sharded.map.shardOf(accountId);
+    }
+
+    /**
+     * @return the ids grouped by shard, each group in iteration order of {@code accountIds}
+     */
+    public static Map<Integer, List<Integer>> groupByShard(Collection<Integer> accountIds) {
+        Map<Integer, List<Integer>> groups = new TreeMap<>();
+        for (Integer accountId : accountIds) {
+            groups.computeIfAbsent(shardOf(accountId), shard -> new ArrayList<>()).add(accountId);
+        }
+        return groups;
+    }
+
+    /** The allocator of account ids when sharded, else null (each insert takes the next AUTO_INCREMENT). */
+    public static AccountIdAllocator getAccountIdAllocator() {
+        getPool();
+        Shards sharded = shards;
+        return sharded == null ? null : sharded.idAllocator;
+    }
+
+    public static ConnectionPool getPool() {
+        ConnectionPool current = pool;
+        if (current == null) {
+            synchronized (DatabaseConnector.class) {
+                current = pool;
+                if (current == null) {
+                    ShardConfig shardConfig = ShardConfig.fromSystemProperties();
+                    if (shardConfig.isEnabled()) {
+                        install(new Shards(shardConfig));
+                    } else {
+                        pool = new ConnectionPool(PoolConfig.fromSystemProperties());
+                    }
+                    current = pool;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Replaces the active pool, e.g. to point the application at an embedded database.
+     * Connections still borrowed from the previous pool are closed when they are returned.
+     */
+    public static synchronized void configure(PoolConfig config) {
+        closePools();
+        pool = new ConnectionPool(config);
+    }
+
+    /**
+     * Replaces the active pool(s) with one pool per shard. Like {@link #configure}, connections
+     * still borrowed from the previous pools are closed when they are returned.
+     */
+    public static synchronized void configureShards(ShardConfig config) {
+        if (!config.isEnabled()) {
+            throw new IllegalArgumentException("No shards configured.");
+        }
+        closePools();
+        install(new Shards(config));
+    }
+
+    private static void install(Shards sharded) {
+        shards = sharded;
+        pool = sharded.pools[0];
+    }
+
+    private static void closePools() {
+        Shards previousShards = shards;
+        ConnectionPool previous = pool;
+        ReplicaSet[] previousReplicas = replicaSets;
+        shards = null;
+        pool = null;
+        replicaSets = null;
+        if (previousReplicas != null) {
+            for (ReplicaSet replicas : previousReplicas) {
+                if (replicas != null) {
+                    replicas.close();
+                }
+            }
+        }
+        if (previousShards != null) {
+            previousShards.close();
+        } else if (previous != null) {
+            previous.close();
+        }
+    }
+
+    public static synchronized void shutdown() {
+        if (slotCompaction != null) {
+            slotCompaction.shutdownNow();
+            slotCompaction = null;
+        }
+        closePools();
+    }
+
+    /** Metrics of the only pool, or of shard 0's pool when sharded. */
+    public static PoolMetrics getPoolMetrics() {
+        return getPool().getMetrics();
+    }
+
+    public static PoolMetrics getPoolMetrics(int shard) {
+        getPool();
+        Shards sharded = shards;
+        return sharded == null ? getPool().getMetrics() : sharded.pools[shard].getMetrics();
+    }
+
+    public static void initializeDatabase() {
+        boolean aggregatesAdded = false;
+        boolean rollupsAdded = false;
+        int shardCount = getShardCount();
         try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-        } catch (ClassNotFoundException e) {
-            System.err.println("MySQL JDBC Driver not found. Make sure it's in your classpath.");
+            for (int shard = 0; shard < shardCount; shard++) {
+                boolean[] upgraded = initializeShard(shard);
+                aggregatesAdded |= upgraded[0];
+                rollupsAdded |= upgraded[1];
+            }
+        } catch (SQLException e) {
+            System.err.println("Error initializing the database: " + e.getMessage());
             e.printStackTrace();
+            return;
+        }
+        if (aggregatesAdded) {
+            new AccountDAO().backfillTransactionAggregates();
+        }
+        if (rollupsAdded) {
+            new AccountDAO().rebuildDailyRollups();
         }
-        return DriverManager.getConnection(URL, USER, PASSWORD);
+        InfoLog.println(shardCount > 1
+                ? "Database connection successful. Tables are ready on " + shardCount + " shards."
+                : "Database connection successful. Tables are ready.");
+
+        Shards sharded = shards;
+        if (sharded != null) {
+            AccountDAO accountDAO = new AccountDAO();
+            accountDAO.recoverTransfers(0);
+            sharded.startTransferRecovery(accountDAO);
+        }
+        startSlotCompaction();
     }
 
-    public static void initializeDatabase() {
-        try (Connection connection = getConnection();
+    private static synchronized void startSlotCompaction() {
+        if (slotCompaction != null || SLOT_COMPACTION_INTERVAL_MILLIS <= 0) {
+            return;
+        }
+        AccountDAO accountDAO = new AccountDAO();
+        slotCompaction = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "bank-slot-compaction");
+            t.setDaemon(true);
+            return t;
+        });
+        slotCompaction.scheduleWithFixedDelay(accountDAO::compactBalanceSlots,
+                SLOT_COMPACTION_INTERVAL_MILLIS, SLOT_COMPACTION_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates or upgrades the tables of one shard (or of the only database).
+     *
+     * @return whether the aggregate columns and the DailyRollups table were added, which needs a
+     *         backfill once every shard is ready
+     */
+    private static boolean[] initializeShard(int shard) throws SQLException {
+        try (Connection connection = getShardConnection(shard);
              Statement statement = connection.createStatement()) {
+            boolean rollupsAdded = !tableExists(statement, "DailyRollups");
+            createLedgerTables(statement);
+
+            // Upgrade tables created by earlier versions of the schema.
+            boolean aggregatesAdded = addColumnIfMissing(statement, "Accounts", "transactionCount", "BIGINT NOT NULL DEFAULT 0");
+            aggregatesAdded |= addColumnIfMissing(statement, "Accounts", "transactionSum", "DECIMAL(19, 2) NOT NULL DEFAULT 0.00");
+            aggregatesAdded |= addColumnIfMissing(statement, "Accounts", "amountM2", "DOUBLE NOT NULL DEFAULT 0");
+            addColumnIfMissing(statement, "Accounts", "version", "BIGINT NOT NULL DEFAULT 0");
+            addColumnIfMissing(statement, "Accounts", "balanceSlots", "INT NOT NULL DEFAULT 0");
+            addColumnIfMissing(statement, "Transactions", "linkedTransactionId", "INT NULL");
+            // Serves history pages/streams and the fraud window query by (accountId, time) range scans.
+            createIndexIfMissing(connection, "Transactions", "idx_transactions_account_time", "accountId, transactionTime");
+            // Lets compaction find the few hot accounts without scanning the table.
+            createIndexIfMissing(connection, "Accounts", "idx_accounts_balance_slots", "balanceSlots");
+
+            if (isSharded()) {
+                // Cross-shard transfers in flight that debited an account on this shard.
+                statement.execute("CREATE TABLE IF NOT EXISTS TransferSagas (" +
+                        "sagaId VARCHAR(36) PRIMARY KEY," +
+                        "fromAccountId INT NOT NULL," +
+                        "toAccountId INT NOT NULL," +
+                        "amount DECIMAL(15, 2) NOT NULL," +
+                        "isFlagged BOOLEAN DEFAULT FALSE," +
+                        "reasonForFlag VARCHAR(255)," +
+                        "state VARCHAR(16) NOT NULL," +
+                        "debitTransactionId INT NOT NULL," +
+                        "creditTransactionId INT NULL," +
+                        "createdAt TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+                        ");");
+                // Credits applied (or refused) on this shard, one row per transfer, so retries apply them once.
+                statement.execute("CREATE TABLE IF NOT EXISTS TransferCredits (" +
+                        "sagaId VARCHAR(36) PRIMARY KEY," +
+                        "transactionId INT NOT NULL" +
+                        ");");
+                createIndexIfMissing(connection, "TransferSagas", "idx_transfer_sagas_state", "state, createdAt");
+                if (shard == 0) {
+                    statement.execute("CREATE TABLE IF NOT EXISTS AccountIdSequence (" +
+                            "name VARCHAR(64) PRIMARY KEY," +
+                            "nextId BIGINT NOT NULL" +
+                            ");");
+                }
+            }
+            return new boolean[]{aggregatesAdded, rollupsAdded};
+        }
+    }
+
+    /**
+     * Creates the Accounts, Transactions, JournalCheckpoint, DailyRollups, AccountBalanceSlots and
+     * SlotCredits tables in their current form unless they exist; also used to set up simulated replicas.
+     */
+    public static void createLedgerTables(Statement statement) throws SQLException {
+        // SQL to create the Accounts table (Full Version)
+        String createAccountsTableSql = "CREATE TABLE IF NOT EXISTS Accounts (" +
+                "accountId INT PRIMARY KEY AUTO_INCREMENT," +
+                "customerName VARCHAR(255) NOT NULL," +
+                "accountType VARCHAR(50)," +
+                "balance DECIMAL(15, 2) NOT NULL," +
+                "avgTransactionAmount DECIMAL(15, 2) DEFAULT 0.00," +
+                "transactionCount BIGINT NOT NULL DEFAULT 0," +
+                "transactionSum DECIMAL(19, 2) NOT NULL DEFAULT 0.00," +
+                "amountM2 DOUBLE NOT NULL DEFAULT 0," +
+                "version BIGINT NOT NULL DEFAULT 0," +
+                "balanceSlots INT NOT NULL DEFAULT 0," +
+                "createdAt TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+                ");";
+
+        // SQL to create the Transactions table (Full Version)
+        String createTransactionsTableSql = "CREATE TABLE IF NOT EXISTS Transactions (" +
+                "transactionId INT PRIMARY KEY AUTO_INCREMENT," +
+                "accountId INT," +
+                "transactionType VARCHAR(50) NOT NULL," +
+                "amount DECIMAL(15, 2) NOT NULL," +
+                "isFlagged BOOLEAN DEFAULT FALSE," +
+                "reasonForFlag VARCHAR(255)," +
+                "transactionTime TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+                "linkedTransactionId INT NULL," +
+                "FOREIGN KEY (accountId) REFERENCES Accounts(accountId)" +
+                ");";
 
-            // SQL to create the Accounts table (Full Version)
-            String createAccountsTableSql = "CREATE TABLE IF NOT EXISTS Accounts (" +
-                    "accountId INT PRIMARY KEY AUTO_INCREMENT," +
-                    "customerName VARCHAR(255) NOT NULL," +
-                    "accountType VARCHAR(50)," +
-                    "balance DECIMAL(15, 2) NOT NULL," +
-                    "avgTransactionAmount DECIMAL(15, 2) DEFAULT 0.00," +
-                    "createdAt TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
-                    ");";
-
-            // SQL to create the Transactions table (Full Version)
-            String createTransactionsTableSql = "CREATE TABLE IF NOT EXISTS Transactions (" +
-                    "transactionId INT PRIMARY KEY AUTO_INCREMENT," +
-                    "accountId INT," +
-                    "transactionType VARCHAR(50) NOT NULL," +
-                    "amount DECIMAL(15, 2) NOT NULL," +
-                    "isFlagged BOOLEAN DEFAULT FALSE," +
-                    "reasonForFlag VARCHAR(255)," +
-                    "transactionTime TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
-                    "FOREIGN KEY (accountId) REFERENCES Accounts(accountId)" +
-                    ");";
-
-            statement.execute(createAccountsTableSql);
-            statement.execute(createTransactionsTableSql);
-
-            System.out.println("Database connection successful. Tables are ready.");
+        // Last journal sequence inserted into Transactions, committed together with those rows.
+        String createJournalCheckpointTableSql = "CREATE TABLE IF NOT EXISTS JournalCheckpoint (" +
+                "journalName VARCHAR(64) PRIMARY KEY," +
+                "appliedSequence BIGINT NOT NULL" +
+                ");";
 
+        // Per-account, per-day balances and activity, maintained by every balance-changing write.
+        String createDailyRollupsTableSql = "CREATE TABLE IF NOT EXISTS DailyRollups (" +
+                "accountId INT NOT NULL," +
+                "rollupDate DATE NOT NULL," +
+                "openingBalance DECIMAL(15, 2) NOT NULL," +
+                "closingBalance DECIMAL(15, 2) NOT NULL," +
+                "depositCount INT NOT NULL DEFAULT 0," +
+                "depositSum DECIMAL(19, 2) NOT NULL DEFAULT 0.00," +
+                "withdrawalCount INT NOT NULL DEFAULT 0," +
+                "withdrawalSum DECIMAL(19, 2) NOT NULL DEFAULT 0.00," +
+                "flaggedCount INT NOT NULL DEFAULT 0," +
+                "PRIMARY KEY (accountId, rollupDate)," +
+                "FOREIGN KEY (accountId) REFERENCES Accounts(accountId)" +
+                ");";
+
+        // Sub-balances of hot accounts (Accounts.balanceSlots > 0), which take credits in place of
+        // the account row until they are folded back into it.
+        String createAccountBalanceSlotsTableSql = "CREATE TABLE IF NOT EXISTS AccountBalanceSlots (" +
+                "accountId INT NOT NULL," +
+                "slot INT NOT NULL," +
+                "balance DECIMAL(15, 2) NOT NULL DEFAULT 0.00," +
+                "version BIGINT NOT NULL DEFAULT 0," +
+                "PRIMARY KEY (accountId, slot)," +
+                "FOREIGN KEY (accountId) REFERENCES Accounts(accountId)" +
+                ");";
+
+        // Credits held in balance slots whose aggregates and rollups are written by the next fold.
+        String createSlotCreditsTableSql = "CREATE TABLE IF NOT EXISTS SlotCredits (" +
+                "transactionId INT PRIMARY KEY," +
+                "accountId INT NOT NULL," +
+                "FOREIGN KEY (accountId) REFERENCES Accounts(accountId)" +
+                ");";
+
+        statement.execute(createAccountsTableSql);
+        statement.execute(createTransactionsTableSql);
+        statement.execute(createJournalCheckpointTableSql);
+        statement.execute(createDailyRollupsTableSql);
+        statement.execute(createAccountBalanceSlotsTableSql);
+        statement.execute(createSlotCreditsTableSql);
+    }
+
+    static boolean tableExists(Statement statement, String table) {
+        try {
+            statement.executeQuery("SELECT 1 FROM " + table + " WHERE 1 = 0").close();
+            return true;
         } catch (SQLException e) {
-            System.err.println("Error initializing the database: " + e.getMessage());
-            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Adds a column to an existing table unless it is already there.
+     *
+     * @return true if the column was added
+     */
+    static boolean addColumnIfMissing(Statement statement, String table, String column, String definition) throws SQLException {
+        try {
+            statement.executeQuery("SELECT " + column + " FROM " + table + " WHERE 1 = 0").close();
+            return false;
+        } catch (SQLException e) {
+            statement.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+            InfoLog.println("Added column " + table + "." + column + ".");
+            return true;
+        }
+    }
+
+    /**
+     * Creates an index unless an index with the same name already exists on the table.
+     *
+     * @return true if the index was created
+     */
+    public static boolean createIndexIfMissing(Connection connection, String table, String index, String columns) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        // Unquoted identifiers are stored upper-case by some databases (H2) and as written by others (MySQL).
+        for (String tableName : new String[]{table, table.toUpperCase(), table.toLowerCase()}) {
+            try (ResultSet rs = metaData.getIndexInfo(connection.getCatalog(), null, tableName, false, false)) {
+                while (rs.next()) {
+                    if (index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                        return false;
+                    }
+                }
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE INDEX " + index + " ON " + table + " (" + columns + ")");
+        }
+        InfoLog.println("Created index " + index + " on " + table + ".");
+        return true;
+    }
+
+    /** The pools, hash ring and id allocator of a sharded setup, replaced as a whole on reconfiguration. */
+    private static final class Shards {
+        private final ConnectionPool[] pools;
+        private final ShardMap map;
+        private final AccountIdAllocator idAllocator;
+        private final long recoveryIntervalMillis;
+        private ScheduledExecutorService recovery;
+
+        Shards(ShardConfig config) {
+            List<PoolConfig> configs = config.getShards();
+            this.pools = new ConnectionPool[configs.size()];
+            for (int i = 0; i < pools.length; i++) {
+                pools[i] = new ConnectionPool(configs.get(i));
+            }
+            this.map = new ShardMap(pools.length, config.getVirtualNodes());
+            this.idAllocator = new AccountIdAllocator(config.getIdBlockSize());
+            this.recoveryIntervalMillis = config.getRecoveryIntervalMillis();
+            InfoLog.println("Sharding accounts over " + pools.length + " databases: " + config);
+        }
+
+        // Finishes transfers whose process died or whose credit failed, once they are an interval old.
+        synchronized void startTransferRecovery(AccountDAO accountDAO) {
+            if (recovery != null || recoveryIntervalMillis <= 0) {
+                return;
+            }
+            recovery = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "bank-transfer-recovery");
+                t.setDaemon(true);
+                return t;
+            });
+            recovery.scheduleWithFixedDelay(() -> accountDAO.recoverTransfers(recoveryIntervalMillis),
+                    recoveryIntervalMillis, recoveryIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+
+        synchronized void close() {
+            if (recovery != null) {
+                recovery.shutdownNow();
+            }
+            for (ConnectionPool shardPool : pools) {
+                shardPool.close();
+            }
         }
     }
 }
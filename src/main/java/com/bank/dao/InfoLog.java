@@ -0,0 +1,33 @@
+// File: src/main/java/com/bank/dao/InfoLog.java
+
+package com.bank.dao;
+
+/**
+ * Informational messages of the services and DAOs, such as "Deposit successful" or a created
+ * index, printed to standard output unless quiet. Quiet is read from {@code -Dbank.quiet}
+ * (default false) and can be switched at runtime, e.g. by the load generator, which would
+ * otherwise print a line per operation. Errors go to standard error either way.
+ */
+public final class InfoLog {
+
+    private static volatile boolean quiet = Boolean.getBoolean("bank.quiet");
+
+    private InfoLog() {}
+
+    public static void println(String message) {
+        if (!quiet) {
+            System.out.println(message);
+        }
+    }
+
+    public static boolean isQuiet() {
+        return quiet;
+    }
+
+    /** @return the previous setting, so a caller can restore it */
+    public static boolean setQuiet(boolean quiet) {
+        boolean previous = InfoLog.quiet;
+        InfoLog.quiet = quiet;
+        return previous;
+    }
+}
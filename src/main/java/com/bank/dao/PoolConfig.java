@@ -0,0 +1,75 @@
+// File: src/main/java/com/bank/dao/PoolConfig.java
+
+package com.bank.dao;
+
+/**
+ * Settings for {@link ConnectionPool}. Every value can be overridden with a
+ * {@code bank.db.*} / {@code bank.pool.*} system property, so the same build can
+ * point at MySQL in production and at an embedded H2 database in local runs.
+ */
+public class PoolConfig {
+    private String url = "jdbc:mysql://localhost:3306/bank_system?serverTimezone=UTC&rewriteBatchedStatements=true&useCursorFetch=true&useServerPrepStmts=true";
+    private String user = "root";
+    private String password = "123456";
+    private int minSize = 2;
+    private int maxSize = 10;
+    private long acquireTimeoutMillis = 5_000;
+    private boolean validateOnBorrow = true;
+    private int validationTimeoutSeconds = 2;
+    private long idleTimeoutMillis = 60_000;
+    private long leakDetectionThresholdMillis = 0;
+    private long housekeepingIntervalMillis = 5_000;
+    private int statementCacheSize = 64;
+
+    public PoolConfig() {}
+
+    public static PoolConfig fromSystemProperties() {
+        PoolConfig config = new PoolConfig();
+        config.url = System.getProperty("bank.db.url", config.url);
+        config.user = System.getProperty("bank.db.user", config.user);
+        config.password = System.getProperty("bank.db.password", config.password);
+        config.minSize = Integer.getInteger("bank.pool.minSize", config.minSize);
+        config.maxSize = Integer.getInteger("bank.pool.maxSize", config.maxSize);
+        config.acquireTimeoutMillis = Long.getLong("bank.pool.acquireTimeoutMillis", config.acquireTimeoutMillis);
+        config.validateOnBorrow = Boolean.parseBoolean(System.getProperty("bank.pool.validateOnBorrow", String.valueOf(config.validateOnBorrow)));
+        config.validationTimeoutSeconds = Integer.getInteger("bank.pool.validationTimeoutSeconds", config.validationTimeoutSeconds);
+        config.idleTimeoutMillis = Long.getLong("bank.pool.idleTimeoutMillis", config.idleTimeoutMillis);
+        config.leakDetectionThresholdMillis = Long.getLong("bank.pool.leakDetectionThresholdMillis", config.leakDetectionThresholdMillis);
+        config.housekeepingIntervalMillis = Long.getLong("bank.pool.housekeepingIntervalMillis", config.housekeepingIntervalMillis);
+        config.statementCacheSize = Integer.getInteger("bank.pool.statementCacheSize", config.statementCacheSize);
+        return config;
+    }
+
+    // --- Getters and Setters ---
+    public String getUrl() { return url; }
+    public void setUrl(String url) { this.url = url; }
+    public String getUser() { return user; }
+    public void setUser(String user) { this.user = user; }
+    public String getPassword() { return password; }
+    public void setPassword(String password) { this.password = password; }
+    public int getMinSize() { return minSize; }
+    public void setMinSize(int minSize) { this.minSize = minSize; }
+    public int getMaxSize() { return maxSize; }
+    public void setMaxSize(int maxSize) { this.maxSize = maxSize; }
+    public long getAcquireTimeoutMillis() { return acquireTimeoutMillis; }
+    public void setAcquireTimeoutMillis(long acquireTimeoutMillis) { this.acquireTimeoutMillis = acquireTimeoutMillis; }
+    public boolean isValidateOnBorrow() { return validateOnBorrow; }
+    public void setValidateOnBorrow(boolean validateOnBorrow) { this.validateOnBorrow = validateOnBorrow; }
+    public int getValidationTimeoutSeconds() { return validationTimeoutSeconds; }
+    public void setValidationTimeoutSeconds(int validationTimeoutSeconds) { this.validationTimeoutSeconds = validationTimeoutSeconds; }
+    public long getIdleTimeoutMillis() { return idleTimeoutMillis; }
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) { this.idleTimeoutMillis = idleTimeoutMillis; }
+    /** Connections held longer than this are reported with their borrowing stack trace; 0 (the default) disables it, and the per-borrow stack capture with it. */
+    public long getLeakDetectionThresholdMillis() { return leakDetectionThresholdMillis; }
+    public void setLeakDetectionThresholdMillis(long leakDetectionThresholdMillis) { this.leakDetectionThresholdMillis = leakDetectionThresholdMillis; }
+    public long getHousekeepingIntervalMillis() { return housekeepingIntervalMillis; }
+    public void setHousekeepingIntervalMillis(long housekeepingIntervalMillis) { this.housekeepingIntervalMillis = housekeepingIntervalMillis; }
+    /** Prepared statements kept open per connection for reuse; 0 disables the cache. */
+    public int getStatementCacheSize() { return statementCacheSize; }
+    public void setStatementCacheSize(int statementCacheSize) { this.statementCacheSize = statementCacheSize; }
+
+    @Override
+    public String toString() {
+        return "PoolConfig{" + "url='" + url + '\'' + ", user='" + user + '\'' + ", minSize=" + minSize + ", maxSize=" + maxSize + ", acquireTimeoutMillis=" + acquireTimeoutMillis + ", validateOnBorrow=" + validateOnBorrow + ", idleTimeoutMillis=" + idleTimeoutMillis + ", leakDetectionThresholdMillis=" + leakDetectionThresholdMillis + ", statementCacheSize=" + statementCacheSize + '}';
+    }
+}
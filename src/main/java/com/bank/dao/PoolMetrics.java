@@ -0,0 +1,123 @@
+// File: src/main/java/com/bank/dao/PoolMetrics.java
+
+package com.bank.dao;
+
+import com.bank.metrics.LatencyHistogram;
+import com.bank.metrics.Metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters for a {@link ConnectionPool}. All updates are plain atomic increments
+ * so they can be read at any time without stopping the pool.
+ */
+public class PoolMetrics {
+    // Upper bounds (in microseconds) of the wait-time histogram buckets; the last bucket is open-ended.
+    private static final long[] WAIT_BUCKET_BOUNDS_MICROS = {
+            10, 50, 100, 500, 1_000, 5_000, 10_000, 50_000, 100_000, 500_000, 1_000_000, 5_000_000
+    };
+    // Percentiles of the same wait, shared by every pool so they survive DatabaseConnector.configure().
+    private static final LatencyHistogram ACQUIRE_LATENCY = Metrics.latency("pool.acquire");
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+    private final AtomicLong borrowed = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong leaksDetected = new AtomicLong();
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+    private final AtomicLong totalWaitMicros = new AtomicLong();
+    private final AtomicLongArray waitHistogram = new AtomicLongArray(WAIT_BUCKET_BOUNDS_MICROS.length + 1);
+
+    private final ConnectionPool pool;
+
+    PoolMetrics(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    void recordCreated() { created.incrementAndGet(); }
+    void recordDestroyed() { destroyed.incrementAndGet(); }
+    void recordTimeout() { timeouts.incrementAndGet(); }
+    void recordValidationFailure() { validationFailures.incrementAndGet(); }
+    void recordEvicted() { evicted.incrementAndGet(); }
+    void recordLeak() { leaksDetected.incrementAndGet(); }
+    void recordStatementCacheHit() { statementCacheHits.incrementAndGet(); }
+    void recordStatementCacheMiss() { statementCacheMisses.incrementAndGet(); }
+
+    void recordBorrow(long waitNanos) {
+        long micros = waitNanos / 1_000;
+        ACQUIRE_LATENCY.record(waitNanos);
+        borrowed.incrementAndGet();
+        totalWaitMicros.addAndGet(micros);
+        int bucket = 0;
+        while (bucket < WAIT_BUCKET_BOUNDS_MICROS.length && micros > WAIT_BUCKET_BOUNDS_MICROS[bucket]) {
+            bucket++;
+        }
+        waitHistogram.incrementAndGet(bucket);
+    }
+
+    // --- Getters ---
+    public int getActive() { return pool.activeCount(); }
+    public int getIdle() { return pool.idleCount(); }
+    public int getTotal() { return pool.totalCount(); }
+    public long getCreated() { return created.get(); }
+    public long getDestroyed() { return destroyed.get(); }
+    public long getBorrowed() { return borrowed.get(); }
+    public long getTimeouts() { return timeouts.get(); }
+    public long getValidationFailures() { return validationFailures.get(); }
+    public long getEvicted() { return evicted.get(); }
+    public long getLeaksDetected() { return leaksDetected.get(); }
+    public long getTotalWaitMicros() { return totalWaitMicros.get(); }
+    /** prepareStatement calls served from a connection's statement cache. */
+    public long getStatementCacheHits() { return statementCacheHits.get(); }
+    /** prepareStatement calls that found no idle cached statement and prepared a new one. */
+    public long getStatementCacheMisses() { return statementCacheMisses.get(); }
+
+    public long[] getWaitHistogramBoundsMicros() {
+        return WAIT_BUCKET_BOUNDS_MICROS.clone();
+    }
+
+    public long[] getWaitHistogramCounts() {
+        long[] counts = new long[waitHistogram.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = waitHistogram.get(i);
+        }
+        return counts;
+    }
+
+    /**
+     * Renders the counters in a Prometheus-style text format so they can be scraped or logged as-is.
+     */
+    public String toText() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("bank_pool_active ").append(getActive()).append('\n');
+        sb.append("bank_pool_idle ").append(getIdle()).append('\n');
+        sb.append("bank_pool_total ").append(getTotal()).append('\n');
+        sb.append("bank_pool_created_total ").append(getCreated()).append('\n');
+        sb.append("bank_pool_destroyed_total ").append(getDestroyed()).append('\n');
+        sb.append("bank_pool_borrowed_total ").append(getBorrowed()).append('\n');
+        sb.append("bank_pool_timeouts_total ").append(getTimeouts()).append('\n');
+        sb.append("bank_pool_validation_failures_total ").append(getValidationFailures()).append('\n');
+        sb.append("bank_pool_evicted_total ").append(getEvicted()).append('\n');
+        sb.append("bank_pool_leaks_detected_total ").append(getLeaksDetected()).append('\n');
+        sb.append("bank_pool_statement_cache_hits_total ").append(getStatementCacheHits()).append('\n');
+        sb.append("bank_pool_statement_cache_misses_total ").append(getStatementCacheMisses()).append('\n');
+        long cumulative = 0;
+        for (int i = 0; i < waitHistogram.length(); i++) {
+            cumulative += waitHistogram.get(i);
+            String le = i < WAIT_BUCKET_BOUNDS_MICROS.length ? String.valueOf(WAIT_BUCKET_BOUNDS_MICROS[i]) : "+Inf";
+            sb.append("bank_pool_wait_micros_bucket{le=\"").append(le).append("\"} ").append(cumulative).append('\n');
+        }
+        sb.append("bank_pool_wait_micros_sum ").append(getTotalWaitMicros()).append('\n');
+        sb.append("bank_pool_wait_micros_count ").append(getBorrowed()).append('\n');
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "PoolMetrics{" + "active=" + getActive() + ", idle=" + getIdle() + ", total=" + getTotal() + ", borrowed=" + getBorrowed() + ", timeouts=" + getTimeouts() + ", leaksDetected=" + getLeaksDetected() + '}';
+    }
+}
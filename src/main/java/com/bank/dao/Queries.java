@@ -0,0 +1,100 @@
+// File: src/main/java/com/bank/dao/Queries.java
+
+package com.bank.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * The prepare / bind / execute / map loop shared by the DAOs. Every method runs on the caller's
+ * connection and closes its statement when done, which with the pool's statement cache returns it
+ * for reuse. Errors propagate; metrics and error reporting stay with the calling DAO method.
+ */
+public final class Queries {
+
+    /** Reads one long from the current row, for projections that need no entity. */
+    @FunctionalInterface
+    public interface LongMapper {
+        long map(ResultSet rs) throws SQLException;
+    }
+
+    private Queries() {}
+
+    public static <T> List<T> list(Connection conn, String sql, StatementBinder binder, RowMapper<T> mapper) throws SQLException {
+        List<T> rows = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            binder.bind(pstmt);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(mapper.map(rs));
+                }
+            }
+        }
+        return rows;
+    }
+
+    public static <T> Optional<T> first(Connection conn, String sql, StatementBinder binder, RowMapper<T> mapper) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            binder.bind(pstmt);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? Optional.of(mapper.map(rs)) : Optional.empty();
+            }
+        }
+    }
+
+    /**
+     * Delivers rows to {@code consumer} one at a time over a forward-only, read-only cursor that
+     * fetches {@code fetchSize} rows per round trip.
+     *
+     * @return the number of rows delivered
+     */
+    public static <T> long forEach(Connection conn, String sql, int fetchSize, StatementBinder binder, RowMapper<T> mapper, Consumer<? super T> consumer) throws SQLException {
+        long count = 0;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            pstmt.setFetchSize(fetchSize);
+            binder.bind(pstmt);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(mapper.map(rs));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /** Runs a single-value query such as {@code SELECT COUNT(*)}; 0 if it returns no row. */
+    public static long single(Connection conn, String sql, StatementBinder binder) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            binder.bind(pstmt);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    /** Reads one long per row into a primitive array of at most {@code limit} values. */
+    public static long[] longs(Connection conn, String sql, StatementBinder binder, int limit, LongMapper mapper) throws SQLException {
+        long[] values = new long[Math.min(limit, 1024)];
+        int count = 0;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            binder.bind(pstmt);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (count < limit && rs.next()) {
+                    if (count == values.length) {
+                        values = Arrays.copyOf(values, Math.min(limit, values.length * 2));
+                    }
+                    values[count++] = mapper.map(rs);
+                }
+            }
+        }
+        return count == values.length ? values : Arrays.copyOf(values, count);
+    }
+}
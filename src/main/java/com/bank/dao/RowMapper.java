@@ -0,0 +1,16 @@
+// File: src/main/java/com/bank/dao/RowMapper.java
+
+package com.bank.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a result set. Mappers read columns by position, so they are written
+ * against a fixed column list (see {@link TransactionDAO#TRANSACTION_COLUMNS}) rather than
+ * {@code SELECT *}.
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+    T map(ResultSet rs) throws SQLException;
+}
@@ -0,0 +1,14 @@
+// File: src/main/java/com/bank/dao/StatementBinder.java
+
+package com.bank.dao;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/** Sets the parameters of a prepared statement before {@link Queries} executes it. */
+@FunctionalInterface
+public interface StatementBinder {
+    StatementBinder NONE = pstmt -> {};
+
+    void bind(PreparedStatement pstmt) throws SQLException;
+}
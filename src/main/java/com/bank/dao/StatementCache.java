@@ -0,0 +1,64 @@
+// File: src/main/java/com/bank/dao/StatementCache.java
+
+package com.bank.dao;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Idle prepared statements of one pooled connection, keyed by SQL text and statement options,
+ * least recently used first. A statement is taken out while a caller uses it, so two callers on
+ * the same connection never share one, and offered back when the caller closes it.
+ */
+final class StatementCache {
+    private final int capacity;
+    private final LinkedHashMap<String, PreparedStatement> idle = new LinkedHashMap<>(16, 0.75f, true);
+
+    StatementCache(int capacity) {
+        this.capacity = capacity;
+    }
+
+    synchronized PreparedStatement take(String key) {
+        return idle.remove(key);
+    }
+
+    /**
+     * @return false if the statement was not kept (another one with the same key is already
+     *         cached) and the caller should close it
+     */
+    synchronized boolean offer(String key, PreparedStatement statement) {
+        if (idle.containsKey(key)) {
+            return false;
+        }
+        idle.put(key, statement);
+        if (idle.size() > capacity) {
+            Iterator<Map.Entry<String, PreparedStatement>> eldest = idle.entrySet().iterator();
+            PreparedStatement evicted = eldest.next().getValue();
+            eldest.remove();
+            close(evicted);
+        }
+        return true;
+    }
+
+    synchronized void clear() {
+        for (PreparedStatement statement : idle.values()) {
+            close(statement);
+        }
+        idle.clear();
+    }
+
+    synchronized int size() {
+        return idle.size();
+    }
+
+    private static void close(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing cached statement: " + e.getMessage());
+        }
+    }
+}
@@ -2,26 +2,98 @@
 
 package com.bank.dao;
 
+import com.bank.dao.archive.TransactionArchive;
+import com.bank.metrics.Metrics;
+import com.bank.metrics.QueryMetrics;
+import com.bank.model.ConsistencyToken;
+import com.bank.model.Money;
 import com.bank.model.Transaction;
+import com.bank.model.TransactionCursor;
+import com.bank.model.TransactionPage;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
-public class TransactionDAO {
+public class TransactionDAO implements TransactionRepository {
 
+    // Rows per multi-row INSERT in createTransactions.
+    private static final int INSERT_ROWS_PER_STATEMENT = Integer.getInteger("bank.batch.insertRows", 100);
+    // Rows fetched per round trip by streaming reads (MySQL honours it with useCursorFetch=true).
+    private static final int STREAM_FETCH_SIZE = Integer.getInteger("bank.stream.fetchSize", 500);
+
+    // Reads include the connection acquire; inserts on a caller's connection time only the statements.
+    private static final QueryMetrics INSERT_QUERY = Metrics.query("transaction.insert");
+    private static final QueryMetrics INSERT_BATCH_QUERY = Metrics.query("transaction.insertBatch");
+    private static final QueryMetrics FIND_BY_ACCOUNT_QUERY = Metrics.query("transaction.findByAccount");
+    private static final QueryMetrics FIND_PAGE_QUERY = Metrics.query("transaction.findPage");
+    private static final QueryMetrics STREAM_QUERY = Metrics.query("transaction.stream");
+    private static final QueryMetrics FIND_SINCE_QUERY = Metrics.query("transaction.findSince");
+    private static final QueryMetrics FIND_BETWEEN_QUERY = Metrics.query("transaction.findBetween");
+    private static final QueryMetrics FIND_TIMES_QUERY = Metrics.query("transaction.findTimesSince");
+    private static final QueryMetrics FIND_TIMES_BULK_QUERY = Metrics.query("transaction.findTimesSinceBulk");
+    private static final QueryMetrics COUNT_SINCE_QUERY = Metrics.query("transaction.countSince");
+    private static final QueryMetrics FIND_AMOUNTS_QUERY = Metrics.query("transaction.findAmountsSince");
+    private static final QueryMetrics FIND_AFTER_QUERY = Metrics.query("transaction.findAfter");
+
+    /** Columns of every full-row read, in the order {@link #TRANSACTION_MAPPER} reads them. */
+    public static final String TRANSACTION_COLUMNS =
+            "transactionId, accountId, transactionType, amount, isFlagged, reasonForFlag, transactionTime, linkedTransactionId";
+    public static final RowMapper<Transaction> TRANSACTION_MAPPER = TransactionDAO::mapTransaction;
+
+    // Archived history merged into reads by account; null when archiving is off.
+    private final TransactionArchive archive;
+
+    public TransactionDAO() {
+        this(TransactionArchive.getDefault());
+    }
+
+    public TransactionDAO(TransactionArchive archive) {
+        this.archive = archive;
+    }
+
+    @Override
     public int createTransaction(Transaction transaction) {
-        String sql = "INSERT INTO Transactions (accountId, transactionType, amount, isFlagged, reasonForFlag) VALUES (?, ?, ?, ?, ?)";
+        try (Connection conn = DatabaseConnector.getConnection(transaction.getAccountId())) {
+            return createTransaction(conn, transaction);
+        } catch (SQLException e) {
+            System.err.println("Error creating transaction: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return -1;
+    }
+
+    /**
+     * Inserts a transaction on the caller's connection so it commits or rolls back together with
+     * whatever else the caller does in the same database transaction.
+     */
+    public int createTransaction(Connection conn, Transaction transaction) throws SQLException {
+        String sql = "INSERT INTO Transactions (accountId, transactionType, amount, isFlagged, reasonForFlag, linkedTransactionId) VALUES (?, ?, ?, ?, ?, ?)";
         int generatedTransactionId = -1;
+        long started = System.nanoTime();
 
-        try (Connection conn = DatabaseConnector.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             pstmt.setInt(1, transaction.getAccountId());
             pstmt.setString(2, transaction.getTransactionType());
-            pstmt.setBigDecimal(3, transaction.getAmount());
+            pstmt.setBigDecimal(3, transaction.getAmount().toBigDecimal());
             pstmt.setBoolean(4, transaction.isFlagged());
             pstmt.setString(5, transaction.getReasonForFlag());
+            if (transaction.getLinkedTransactionId() != 0) {
+                pstmt.setInt(6, transaction.getLinkedTransactionId());
+            } else {
+                pstmt.setNull(6, Types.INTEGER);
+            }
 
             int affectedRows = pstmt.executeUpdate();
 
@@ -30,73 +102,527 @@ public class TransactionDAO {
                     if (generatedKeys.next()) {
                         generatedTransactionId = generatedKeys.getInt(1);
                         transaction.setTransactionId(generatedTransactionId);
-                        System.out.println("Successfully created transaction with ID: " + generatedTransactionId);
+                        InfoLog.println("Successfully created transaction with ID: " + generatedTransactionId);
                     }
                 }
             }
+            INSERT_QUERY.recordSince(started, affectedRows);
         } catch (SQLException e) {
-            System.err.println("Error creating transaction: " + e.getMessage());
-            e.printStackTrace();
+            INSERT_QUERY.recordError();
+            throw e;
         }
         return generatedTransactionId;
     }
 
+    /**
+     * Inserts many transactions on the caller's connection using multi-row INSERT statements and
+     * assigns the generated ids back to the given objects, in order. Rows without a transactionTime
+     * get the database's current time.
+     */
+    public void createTransactions(Connection conn, List<Transaction> transactions) throws SQLException {
+        long started = System.nanoTime();
+        for (int from = 0; from < transactions.size(); from += INSERT_ROWS_PER_STATEMENT) {
+            List<Transaction> chunk = transactions.subList(from, Math.min(from + INSERT_ROWS_PER_STATEMENT, transactions.size()));
+            StringBuilder sql = new StringBuilder("INSERT INTO Transactions (accountId, transactionType, amount, isFlagged, reasonForFlag, linkedTransactionId, transactionTime) VALUES ");
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "" : ", ").append("(?, ?, ?, ?, ?, ?, COALESCE(?, CURRENT_TIMESTAMP))");
+            }
+
+            try (PreparedStatement pstmt = conn.prepareStatement(sql.toString(), Statement.RETURN_GENERATED_KEYS)) {
+                int p = 1;
+                for (Transaction transaction : chunk) {
+                    pstmt.setInt(p++, transaction.getAccountId());
+                    pstmt.setString(p++, transaction.getTransactionType());
+                    pstmt.setBigDecimal(p++, transaction.getAmount().toBigDecimal());
+                    pstmt.setBoolean(p++, transaction.isFlagged());
+                    pstmt.setString(p++, transaction.getReasonForFlag());
+                    if (transaction.getLinkedTransactionId() != 0) {
+                        pstmt.setInt(p++, transaction.getLinkedTransactionId());
+                    } else {
+                        pstmt.setNull(p++, Types.INTEGER);
+                    }
+                    pstmt.setTimestamp(p++, transaction.getTransactionTime());
+                }
+                pstmt.executeUpdate();
+
+                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                    for (Transaction transaction : chunk) {
+                        if (!generatedKeys.next()) {
+                            break;
+                        }
+                        transaction.setTransactionId(generatedKeys.getInt(1));
+                    }
+                }
+            } catch (SQLException e) {
+                INSERT_BATCH_QUERY.recordError();
+                throw e;
+            }
+        }
+        INSERT_BATCH_QUERY.recordSince(started, transactions.size());
+    }
+
+    /**
+     * Inserts the two legs of a transfer on the caller's connection and links them to each other.
+     */
+    public void createLinkedTransactions(Connection conn, Transaction debit, Transaction credit) throws SQLException {
+        int debitId = createTransaction(conn, debit);
+        credit.setLinkedTransactionId(debitId);
+        int creditId = createTransaction(conn, credit);
+
+        try (PreparedStatement pstmt = conn.prepareStatement("UPDATE Transactions SET linkedTransactionId = ? WHERE transactionId = ?")) {
+            pstmt.setInt(1, creditId);
+            pstmt.setInt(2, debitId);
+            pstmt.executeUpdate();
+        }
+        debit.setLinkedTransactionId(creditId);
+    }
+
+    @Override
     public List<Transaction> findTransactionsByAccountId(int accountId) {
+        return findTransactionsByAccountId(accountId, ConsistencyToken.NONE);
+    }
+
+    @Override
+    public List<Transaction> findTransactionsByAccountId(int accountId, ConsistencyToken token) {
         List<Transaction> transactions = new ArrayList<>();
-        String sql = "SELECT * FROM Transactions WHERE accountId = ? ORDER BY transactionTime DESC";
+        String sql = "SELECT " + TRANSACTION_COLUMNS + " FROM Transactions WHERE accountId = ? ORDER BY transactionTime DESC, transactionId DESC";
+        long started = System.nanoTime();
 
-        try (Connection conn = DatabaseConnector.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setInt(1, accountId);
-
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    Transaction transaction = new Transaction();
-                    transaction.setTransactionId(rs.getInt("transactionId"));
-                    transaction.setAccountId(rs.getInt("accountId"));
-                    transaction.setTransactionType(rs.getString("transactionType"));
-                    transaction.setAmount(rs.getBigDecimal("amount"));
-                    transaction.setFlagged(rs.getBoolean("isFlagged"));
-                    transaction.setReasonForFlag(rs.getString("reasonForFlag"));
-                    transaction.setTransactionTime(rs.getTimestamp("transactionTime"));
-                    transactions.add(transaction);
-                }
+        try (Connection conn = DatabaseConnector.getReadConnection(accountId, token.getVersion(accountId))) {
+            transactions = Queries.list(conn, sql, pstmt -> pstmt.setInt(1, accountId), TRANSACTION_MAPPER);
+            if (archive != null) {
+                transactions = mergeArchived(transactions, archive.newestFirst(accountId, null, null, null), Integer.MAX_VALUE);
             }
-        } catch (SQLException e) {
+            FIND_BY_ACCOUNT_QUERY.recordSince(started, transactions.size());
+        } catch (SQLException | UncheckedIOException e) {
+            FIND_BY_ACCOUNT_QUERY.recordError();
             System.err.println("Error finding transactions by account ID: " + e.getMessage());
             e.printStackTrace();
         }
         return transactions;
     }
 
+    /**
+     * Returns one page of an account's history, newest first, using keyset pagination on
+     * (transactionTime, transactionId). Each page is an index range scan on
+     * (accountId, transactionTime), so deep pages cost the same as the first one.
+     *
+     * @param cursor the {@link TransactionPage#getNextCursor()} of the previous page, or null for the first page
+     */
+    @Override
+    public TransactionPage findTransactionsPage(int accountId, TransactionCursor cursor, int pageSize) {
+        return findTransactionsPage(accountId, cursor, pageSize, ConsistencyToken.NONE);
+    }
+
+    @Override
+    public TransactionPage findTransactionsPage(int accountId, TransactionCursor cursor, int pageSize, ConsistencyToken token) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive.");
+        }
+        // Archived rows are older than almost all rows still in the table, so a page usually comes
+        // from one source; each source is asked for a full page plus one to be safe.
+        String sql = cursor == null
+                ? "SELECT " + TRANSACTION_COLUMNS + " FROM Transactions WHERE accountId = ? ORDER BY transactionTime DESC, transactionId DESC LIMIT ?"
+                : "SELECT " + TRANSACTION_COLUMNS + " FROM Transactions WHERE accountId = ? AND (transactionTime < ? OR (transactionTime = ? AND transactionId < ?)) " +
+                  "ORDER BY transactionTime DESC, transactionId DESC LIMIT ?";
+        List<Transaction> transactions = new ArrayList<>();
+        boolean hasMore = false;
+        long started = System.nanoTime();
+
+        try (Connection conn = DatabaseConnector.getReadConnection(accountId, token.getVersion(accountId))) {
+            transactions = Queries.list(conn, sql, pstmt -> {
+                int p = 1;
+                pstmt.setInt(p++, accountId);
+                if (cursor != null) {
+                    pstmt.setTimestamp(p++, cursor.getTransactionTime());
+                    pstmt.setTimestamp(p++, cursor.getTransactionTime());
+                    pstmt.setInt(p++, cursor.getTransactionId());
+                }
+                // Fetch one extra row to learn whether another page exists.
+                pstmt.setInt(p, pageSize + 1);
+            }, TRANSACTION_MAPPER);
+            if (archive != null) {
+                transactions = mergeArchived(transactions, archive.newestFirst(accountId, cursor, null, null), pageSize + 1);
+            }
+            if (transactions.size() > pageSize) {
+                hasMore = true;
+                transactions.remove(pageSize);
+            }
+            FIND_PAGE_QUERY.recordSince(started, transactions.size());
+        } catch (SQLException | UncheckedIOException e) {
+            FIND_PAGE_QUERY.recordError();
+            System.err.println("Error finding transaction page: " + e.getMessage());
+            e.printStackTrace();
+        }
+        TransactionCursor next = hasMore ? TransactionCursor.after(transactions.get(transactions.size() - 1)) : null;
+        return new TransactionPage(transactions, next);
+    }
+
+    /**
+     * Streams an account's history, newest first, to {@code consumer} one row at a time over a
+     * forward-only, read-only cursor, without building a list. The consumer runs while the
+     * connection is held, so it should not block for long.
+     *
+     * @return the number of rows delivered, or -1 on error
+     */
+    @Override
+    public long streamTransactionsByAccountId(int accountId, Consumer<Transaction> consumer) {
+        return streamTransactionsByAccountId(accountId, consumer, ConsistencyToken.NONE);
+    }
+
+    @Override
+    public long streamTransactionsByAccountId(int accountId, Consumer<Transaction> consumer, ConsistencyToken token) {
+        String sql = "SELECT " + TRANSACTION_COLUMNS + " FROM Transactions WHERE accountId = ? ORDER BY transactionTime DESC, transactionId DESC";
+        long count;
+        long started = System.nanoTime();
+
+        try (Connection conn = DatabaseConnector.getReadConnection(accountId, token.getVersion(accountId))) {
+            if (archive == null) {
+                count = Queries.forEach(conn, sql, STREAM_FETCH_SIZE, pstmt -> pstmt.setInt(1, accountId), TRANSACTION_MAPPER, consumer);
+            } else {
+                ArchiveMerger merger = new ArchiveMerger(archive.newestFirst(accountId, null, null, null), consumer);
+                Queries.forEach(conn, sql, STREAM_FETCH_SIZE, pstmt -> pstmt.setInt(1, accountId), TRANSACTION_MAPPER, merger);
+                count = merger.finish();
+            }
+            STREAM_QUERY.recordSince(started, count);
+        } catch (SQLException | UncheckedIOException e) {
+            STREAM_QUERY.recordError();
+            System.err.println("Error streaming transactions: " + e.getMessage());
+            e.printStackTrace();
+            return -1;
+        }
+        return count;
+    }
+
+    @Override
     public List<Transaction> findTransactionsByAccountIdSince(int accountId, Timestamp windowStart) {
         List<Transaction> transactions = new ArrayList<>();
-        String sql = "SELECT * FROM Transactions WHERE accountId = ? AND transactionTime >= ?";
+        String sql = "SELECT " + TRANSACTION_COLUMNS + " FROM Transactions WHERE accountId = ? AND transactionTime >= ?";
+        long started = System.nanoTime();
 
-        try (Connection conn = DatabaseConnector.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setInt(1, accountId);
-            pstmt.setTimestamp(2, windowStart);
-
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    Transaction transaction = new Transaction();
-                    transaction.setTransactionId(rs.getInt("transactionId"));
-                    transaction.setAccountId(rs.getInt("accountId"));
-                    transaction.setTransactionType(rs.getString("transactionType"));
-                    transaction.setAmount(rs.getBigDecimal("amount"));
-                    transaction.setFlagged(rs.getBoolean("isFlagged"));
-                    transaction.setReasonForFlag(rs.getString("reasonForFlag"));
-                    transaction.setTransactionTime(rs.getTimestamp("transactionTime"));
-                    transactions.add(transaction);
+        try (Connection conn = DatabaseConnector.getConnection(accountId)) {
+            transactions = Queries.list(conn, sql, pstmt -> {
+                pstmt.setInt(1, accountId);
+                pstmt.setTimestamp(2, windowStart);
+            }, TRANSACTION_MAPPER);
+            if (archive != null) {
+                Set<Integer> ids = new HashSet<>();
+                for (Transaction transaction : transactions) {
+                    ids.add(transaction.getTransactionId());
+                }
+                TransactionArchive.Cursor archived = archive.newestFirst(accountId, null, windowStart, null);
+                while (archived.hasNext()) {
+                    Transaction transaction = archived.next();
+                    if (!ids.contains(transaction.getTransactionId())) {
+                        transactions.add(transaction);
+                    }
                 }
             }
-        } catch (SQLException e) {
+            FIND_SINCE_QUERY.recordSince(started, transactions.size());
+        } catch (SQLException | UncheckedIOException e) {
+            FIND_SINCE_QUERY.recordError();
             System.err.println("Error finding recent transactions: " + e.getMessage());
             e.printStackTrace();
         }
         return transactions;
     }
+
+    @Override
+    public List<Transaction> findTransactionsByAccountIdBetween(int accountId, Timestamp from, Timestamp to) {
+        List<Transaction> transactions = new ArrayList<>();
+        String sql = "SELECT " + TRANSACTION_COLUMNS + " FROM Transactions WHERE accountId = ? AND transactionTime >= ? AND transactionTime <= ? " +
+                "ORDER BY transactionTime DESC, transactionId DESC";
+        long started = System.nanoTime();
+
+        try (Connection conn = DatabaseConnector.getConnection(accountId)) {
+            transactions = Queries.list(conn, sql, pstmt -> {
+                pstmt.setInt(1, accountId);
+                pstmt.setTimestamp(2, from);
+                pstmt.setTimestamp(3, to);
+            }, TRANSACTION_MAPPER);
+            if (archive != null) {
+                transactions = mergeArchived(transactions, archive.newestFirst(accountId, null, from, to), Integer.MAX_VALUE);
+            }
+            FIND_BETWEEN_QUERY.recordSince(started, transactions.size());
+        } catch (SQLException | UncheckedIOException e) {
+            FIND_BETWEEN_QUERY.recordError();
+            System.err.println("Error finding transactions in range: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return transactions;
+    }
+
+    /**
+     * Counts an account's transactions at or after {@code windowStart} without reading them.
+     * Archived rows are not counted; the archive only holds rows older than any such window.
+     *
+     * @return the count, or -1 on error
+     */
+    @Override
+    public int countTransactionsByAccountIdSince(int accountId, Timestamp windowStart) {
+        String sql = "SELECT COUNT(*) FROM Transactions WHERE accountId = ? AND transactionTime >= ?";
+        long started = System.nanoTime();
+
+        try (Connection conn = DatabaseConnector.getReadConnection(accountId)) {
+            int count = (int) Queries.single(conn, sql, pstmt -> {
+                pstmt.setInt(1, accountId);
+                pstmt.setTimestamp(2, windowStart);
+            });
+            COUNT_SINCE_QUERY.recordSince(started, 1);
+            return count;
+        } catch (SQLException e) {
+            COUNT_SINCE_QUERY.recordError();
+            System.err.println("Error counting recent transactions: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the amounts (minor units, newest first) of at most {@code limit} transactions of an
+     * account at or after {@code windowStart}, reading only the amount column. Like the count, this
+     * reads only the table.
+     */
+    @Override
+    public long[] findTransactionAmountsByAccountIdSince(int accountId, Timestamp windowStart, int limit) {
+        String sql = "SELECT amount FROM Transactions WHERE accountId = ? AND transactionTime >= ? " +
+                "ORDER BY transactionTime DESC, transactionId DESC LIMIT ?";
+        long started = System.nanoTime();
+
+        try (Connection conn = DatabaseConnector.getReadConnection(accountId)) {
+            long[] amounts = Queries.longs(conn, sql, pstmt -> {
+                pstmt.setInt(1, accountId);
+                pstmt.setTimestamp(2, windowStart);
+                pstmt.setInt(3, limit);
+            }, limit, rs -> Money.of(rs.getBigDecimal(1)).getMinorUnits());
+            FIND_AMOUNTS_QUERY.recordSince(started, amounts.length);
+            return amounts;
+        } catch (SQLException e) {
+            FIND_AMOUNTS_QUERY.recordError();
+            System.err.println("Error finding recent transaction amounts: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return new long[0];
+    }
+
+    /** Orders history rows newest first by (transactionTime, transactionId). */
+    private static final Comparator<Transaction> NEWEST_FIRST = Comparator.comparing(Transaction::getTransactionTime)
+            .thenComparingInt(Transaction::getTransactionId).reversed();
+
+    /**
+     * Merges rows from the table (newest first) with archived rows of the same account into at
+     * most {@code limit} rows, newest first. A row found in both keeps the table's copy.
+     */
+    private static List<Transaction> mergeArchived(List<Transaction> hot, TransactionArchive.Cursor archived, int limit) {
+        if (!archived.hasNext()) {
+            return hot;
+        }
+        List<Transaction> merged = new ArrayList<>();
+        int i = 0;
+        while (merged.size() < limit && (i < hot.size() || archived.hasNext())) {
+            if (!archived.hasNext()) {
+                merged.add(hot.get(i++));
+            } else if (i == hot.size()) {
+                merged.add(archived.next());
+            } else {
+                int order = NEWEST_FIRST.compare(hot.get(i), archived.peek());
+                if (order == 0) {
+                    archived.next();
+                } else if (order < 0) {
+                    merged.add(hot.get(i++));
+                } else {
+                    merged.add(archived.next());
+                }
+            }
+        }
+        return merged;
+    }
+
+    private static Transaction mapTransaction(ResultSet rs) throws SQLException {
+        Transaction transaction = new Transaction();
+        transaction.setTransactionId(rs.getInt(1));
+        transaction.setAccountId(rs.getInt(2));
+        transaction.setTransactionType(rs.getString(3));
+        transaction.setAmount(Money.of(rs.getBigDecimal(4)));
+        transaction.setFlagged(rs.getBoolean(5));
+        transaction.setReasonForFlag(rs.getString(6));
+        transaction.setTransactionTime(rs.getTimestamp(7));
+        transaction.setLinkedTransactionId(rs.getInt(8));
+        return transaction;
+    }
+
+    /**
+     * Delivers table rows to a consumer with the account's archived rows interleaved in history
+     * order; a row still in both places is delivered once.
+     */
+    private static final class ArchiveMerger implements Consumer<Transaction> {
+        private final TransactionArchive.Cursor archived;
+        private final Consumer<Transaction> consumer;
+        private long delivered;
+
+        ArchiveMerger(TransactionArchive.Cursor archived, Consumer<Transaction> consumer) {
+            this.archived = archived;
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void accept(Transaction transaction) {
+            while (archived.hasNext() && NEWEST_FIRST.compare(archived.peek(), transaction) <= 0) {
+                Transaction older = archived.next();
+                if (older.getTransactionId() != transaction.getTransactionId()) {
+                    consumer.accept(older);
+                    delivered++;
+                }
+            }
+            consumer.accept(transaction);
+            delivered++;
+        }
+
+        /** Delivers the archived rows older than the last table row; returns the total delivered. */
+        long finish() {
+            while (archived.hasNext()) {
+                consumer.accept(archived.next());
+                delivered++;
+            }
+            return delivered;
+        }
+    }
+
+    /**
+     * Returns the times (epoch millis, newest first) of at most {@code limit} transactions of an
+     * account at or after {@code windowStart}. Used to seed in-memory velocity windows without
+     * materializing full rows. Like the other fraud window reads (counts, amounts) it may be served
+     * by a replica, so it can miss up to the replica lag limit of the newest writes.
+     */
+    @Override
+    public long[] findTransactionTimesByAccountIdSince(int accountId, Timestamp windowStart, int limit) {
+        String sql = "SELECT transactionTime FROM Transactions WHERE accountId = ? AND transactionTime >= ? ORDER BY transactionTime DESC LIMIT ?";
+        long started = System.nanoTime();
+
+        try (Connection conn = DatabaseConnector.getReadConnection(accountId)) {
+            long[] times = Queries.longs(conn, sql, pstmt -> {
+                pstmt.setInt(1, accountId);
+                pstmt.setTimestamp(2, windowStart);
+                pstmt.setInt(3, limit);
+            }, limit, rs -> rs.getTimestamp(1).getTime());
+            FIND_TIMES_QUERY.recordSince(started, times.length);
+            return times;
+        } catch (SQLException e) {
+            FIND_TIMES_QUERY.recordError();
+            System.err.println("Error finding recent transaction times: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return new long[0];
+    }
+
+    /**
+     * Bulk variant of {@link #findTransactionTimesByAccountIdSince}: one query for many accounts,
+     * returning for each account at most {@code limit} transaction times (epoch millis, newest first).
+     * Accounts without recent transactions are absent from the map.
+     *
+     * @return the times per account, or null if the query failed
+     */
+    @Override
+    public Map<Integer, long[]> findTransactionTimesByAccountIdsSince(Collection<Integer> accountIds, Timestamp windowStart, int limit) {
+        Map<Integer, long[]> times = new HashMap<>();
+        if (accountIds.isEmpty()) {
+            return times;
+        }
+        Map<Integer, Integer> counts = new HashMap<>();
+        long rows = 0;
+        long started = System.nanoTime();
+        // One query per shard holding any of the accounts.
+        for (Map.Entry<Integer, List<Integer>> group : DatabaseConnector.groupByShard(accountIds).entrySet()) {
+            List<Integer> shardAccountIds = group.getValue();
+            StringBuilder sql = new StringBuilder("SELECT accountId, transactionTime FROM Transactions WHERE transactionTime >= ? AND accountId IN (");
+            for (int n = 0; n < shardAccountIds.size(); n++) {
+                sql.append(n == 0 ? "?" : ", ?");
+            }
+            sql.append(") ORDER BY accountId, transactionTime DESC");
+
+            try (Connection conn = DatabaseConnector.getShardReadConnection(group.getKey());
+                 PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+
+                pstmt.setTimestamp(1, windowStart);
+                int p = 2;
+                for (Integer accountId : shardAccountIds) {
+                    pstmt.setInt(p++, accountId);
+                }
+
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        int accountId = rs.getInt(1);
+                        rows++;
+                        long[] accountTimes = times.computeIfAbsent(accountId, id -> new long[limit]);
+                        int count = counts.getOrDefault(accountId, 0);
+                        if (count < limit) {
+                            accountTimes[count] = rs.getTimestamp(2).getTime();
+                            counts.put(accountId, count + 1);
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                FIND_TIMES_BULK_QUERY.recordError();
+                System.err.println("Error finding recent transaction times: " + e.getMessage());
+                e.printStackTrace();
+                return null;
+            }
+        }
+        FIND_TIMES_BULK_QUERY.recordSince(started, rows);
+        for (Map.Entry<Integer, long[]> entry : times.entrySet()) {
+            entry.setValue(Arrays.copyOf(entry.getValue(), counts.get(entry.getKey())));
+        }
+        return times;
+    }
+
+    /**
+     * Reads the ledger in id order on the primary, where a row is readable as soon as it is
+     * committed. Each page is a range scan of the primary key.
+     */
+    @Override
+    public List<Transaction> findTransactionsAfter(int afterTransactionId, int limit) {
+        String sql = "SELECT " + TRANSACTION_COLUMNS + " FROM Transactions WHERE transactionId > ? ORDER BY transactionId LIMIT ?";
+        long started = System.nanoTime();
+
+        try (Connection conn = DatabaseConnector.getConnection()) {
+            List<Transaction> transactions = Queries.list(conn, sql, pstmt -> {
+                pstmt.setInt(1, afterTransactionId);
+                pstmt.setInt(2, limit);
+            }, TRANSACTION_MAPPER);
+            FIND_AFTER_QUERY.recordSince(started, transactions.size());
+            return transactions;
+        } catch (SQLException e) {
+            FIND_AFTER_QUERY.recordError();
+            System.err.println("Error reading transactions after ID " + afterTransactionId + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    @Override
+    public int findMaxArchivedTransactionId() {
+        if (archive == null) {
+            return 0;
+        }
+        try {
+            return archive.getMaxTransactionId();
+        } catch (IOException e) {
+            System.err.println("Error reading the archived transaction IDs: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return -1;
+    }
+
+    @Override
+    public int findMaxTransactionId() {
+        try (Connection conn = DatabaseConnector.getConnection();
+             Statement statement = conn.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(transactionId), 0) FROM Transactions")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            System.err.println("Error finding the last transaction ID: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return -1;
+    }
 }
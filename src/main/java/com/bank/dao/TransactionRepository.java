@@ -0,0 +1,111 @@
+// File: src/main/java/com/bank/dao/TransactionRepository.java
+
+package com.bank.dao;
+
+import com.bank.model.ConsistencyToken;
+import com.bank.model.Transaction;
+import com.bank.model.TransactionCursor;
+import com.bank.model.TransactionPage;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Read access to the ledger, plus standalone inserts. Histories are always returned newest first,
+ * ordered by (transactionTime, transactionId). {@link TransactionDAO} is the JDBC implementation.
+ */
+public interface TransactionRepository {
+
+    /**
+     * @return the generated transaction id (also set on {@code transaction}), or -1 on error
+     */
+    int createTransaction(Transaction transaction);
+
+    List<Transaction> findTransactionsByAccountId(int accountId);
+
+    /**
+     * Like {@link #findTransactionsByAccountId(int)}, but reflecting at least the writes
+     * {@code token} names. Implementations with read replicas may serve either variant from a
+     * replica; the token makes them fall back to the primary while the replica is behind it.
+     */
+    default List<Transaction> findTransactionsByAccountId(int accountId, ConsistencyToken token) {
+        return findTransactionsByAccountId(accountId);
+    }
+
+    /**
+     * @param cursor the {@link TransactionPage#getNextCursor()} of the previous page, or null for the first page
+     */
+    TransactionPage findTransactionsPage(int accountId, TransactionCursor cursor, int pageSize);
+
+    default TransactionPage findTransactionsPage(int accountId, TransactionCursor cursor, int pageSize, ConsistencyToken token) {
+        return findTransactionsPage(accountId, cursor, pageSize);
+    }
+
+    /**
+     * @return the number of rows delivered, or -1 on error
+     */
+    long streamTransactionsByAccountId(int accountId, Consumer<Transaction> consumer);
+
+    default long streamTransactionsByAccountId(int accountId, Consumer<Transaction> consumer, ConsistencyToken token) {
+        return streamTransactionsByAccountId(accountId, consumer);
+    }
+
+    List<Transaction> findTransactionsByAccountIdSince(int accountId, Timestamp windowStart);
+
+    /**
+     * @return the transactions from {@code from} to {@code to} (both inclusive), newest first
+     */
+    List<Transaction> findTransactionsByAccountIdBetween(int accountId, Timestamp from, Timestamp to);
+
+    /**
+     * Count-only projection for callers that need no rows.
+     *
+     * @return the number of transactions at or after {@code windowStart}, or -1 on error
+     */
+    int countTransactionsByAccountIdSince(int accountId, Timestamp windowStart);
+
+    /**
+     * Amount-only projection.
+     *
+     * @return the amounts (minor units, newest first) of at most {@code limit} transactions at or after {@code windowStart}
+     */
+    long[] findTransactionAmountsByAccountIdSince(int accountId, Timestamp windowStart, int limit);
+
+    /**
+     * @return the times (epoch millis, newest first) of at most {@code limit} transactions at or after {@code windowStart}
+     */
+    long[] findTransactionTimesByAccountIdSince(int accountId, Timestamp windowStart, int limit);
+
+    /**
+     * @return at most {@code limit} transaction times (epoch millis, newest first) per account,
+     *         without entries for accounts with no recent transactions, or null on error
+     */
+    Map<Integer, long[]> findTransactionTimesByAccountIdsSince(Collection<Integer> accountIds, Timestamp windowStart, int limit);
+
+    /**
+     * Reads the ledger in id order, for consumers catching up with it. Archived rows are not
+     * included; see {@link #findMaxArchivedTransactionId}.
+     *
+     * @return at most {@code limit} transactions with an id above {@code afterTransactionId},
+     *         in ascending id order, or null on error
+     */
+    List<Transaction> findTransactionsAfter(int afterTransactionId, int limit);
+
+    /**
+     * Rows with ids up to this one may have been archived, and are then missing from
+     * {@link #findTransactionsAfter}.
+     *
+     * @return the highest archived transaction id, 0 if nothing is archived, or -1 on error
+     */
+    default int findMaxArchivedTransactionId() {
+        return 0;
+    }
+
+    /**
+     * @return the highest transaction id stored, 0 if there are none, or -1 on error
+     */
+    int findMaxTransactionId();
+}
@@ -0,0 +1,48 @@
+// File: src/main/java/com/bank/dao/archive/ArchiveConfig.java
+
+package com.bank.dao.archive;
+
+/**
+ * Settings for {@link TransactionArchive} and {@link TransactionArchiver}. Every value can be
+ * overridden with a {@code bank.archive.*} system property. Archiving is off (and history reads
+ * touch only the database) unless {@code bank.archive.dir} is set.
+ */
+public class ArchiveConfig {
+    private String directory;
+    private int maxAgeDays = 90;
+    private int segmentRows = 100_000;
+    private int groupRows = 4096;
+
+    public ArchiveConfig() {}
+
+    public static ArchiveConfig fromSystemProperties() {
+        ArchiveConfig config = new ArchiveConfig();
+        config.directory = System.getProperty("bank.archive.dir");
+        config.maxAgeDays = Integer.getInteger("bank.archive.maxAgeDays", config.maxAgeDays);
+        config.segmentRows = Integer.getInteger("bank.archive.segmentRows", config.segmentRows);
+        config.groupRows = Integer.getInteger("bank.archive.groupRows", config.groupRows);
+        return config;
+    }
+
+    public boolean isEnabled() {
+        return directory != null && !directory.isEmpty();
+    }
+
+    // --- Getters and Setters ---
+    public String getDirectory() { return directory; }
+    public void setDirectory(String directory) { this.directory = directory; }
+    /** Transactions older than this many days are moved out of the database. */
+    public int getMaxAgeDays() { return maxAgeDays; }
+    public void setMaxAgeDays(int maxAgeDays) { this.maxAgeDays = maxAgeDays; }
+    /** Most rows per segment file; one archiving run writes as many segments as it needs. */
+    public int getSegmentRows() { return segmentRows; }
+    public void setSegmentRows(int segmentRows) { this.segmentRows = segmentRows; }
+    /** Rows per compressed row group, the unit a read decompresses. */
+    public int getGroupRows() { return groupRows; }
+    public void setGroupRows(int groupRows) { this.groupRows = groupRows; }
+
+    @Override
+    public String toString() {
+        return "ArchiveConfig{" + "directory='" + directory + '\'' + ", maxAgeDays=" + maxAgeDays + ", segmentRows=" + segmentRows + ", groupRows=" + groupRows + '}';
+    }
+}
@@ -0,0 +1,541 @@
+// File: src/main/java/com/bank/dao/archive/ArchiveSegment.java
+
+package com.bank.dao.archive;
+
+import com.bank.model.Money;
+import com.bank.model.Transaction;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * One immutable, memory-mapped archive file holding the archived ledger rows of a contiguous
+ * range of (transactionTime, transactionId) keys, for all accounts.
+ *
+ * <p>Layout, all big-endian:
+ * <pre>
+ *   header      magic "BKA1", row count, rows per group, min/max time, the key of the last row
+ *               in time order, min/max account id, directory/group counts and offsets
+ *   dictionary  transaction types and flag reasons, as modified UTF-8
+ *   directory   (accountId, firstRow, rowCount) per account, sorted by accountId
+ *   groups      (offset, compressedLength, rawLength) per row group
+ *   data        the row groups, each compressed with Deflate
+ * </pre>
+ * Rows are sorted by (accountId, transactionTime, transactionId), so one account's rows are a
+ * single range found by binary search in the directory. Inside a row group the rows are stored
+ * column by column: transaction ids and times (epoch microseconds) as zig-zag varint deltas from
+ * the previous row, amounts as varint minor units, types as dictionary indexes, the flags as a
+ * bitmap, flag reasons as dictionary index plus one (0 for none), and linked ids as deltas from the
+ * row's own id. Readers use the header's min/max time to skip whole segments and decompress only the
+ * row groups that overlap the account's range.
+ */
+public final class ArchiveSegment {
+    static final int MAGIC = 0x424B4131; // "BKA1"
+    private static final int HEADER_BYTES = 4 + 4 + 4 + 8 + 8 + 8 + 4 + 4 + 4 + 4 + 4 + 4 + 8 + 8 + 8;
+    private static final int DIRECTORY_ENTRY_BYTES = 12;
+    private static final int GROUP_ENTRY_BYTES = 16;
+
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private final int rowCount;
+    private final int groupRows;
+    private final long minTimeMicros;
+    private final long maxTimeMicros;
+    private final long lastTimeMicros;
+    private final int lastTransactionId;
+    private final int minAccountId;
+    private final int maxAccountId;
+    private final int accountCount;
+    private final int groupCount;
+    private final String[] dictionary;
+    private final int directoryOffset;
+    private final int groupTableOffset;
+    // Not in the header: found by the first getMaxTransactionId(), -1 until then.
+    private volatile int maxTransactionId = -1;
+
+    private ArchiveSegment(Path file, MappedByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException(file + " is not an archive segment.");
+        }
+        ByteBuffer header = buffer.duplicate();
+        header.position(4);
+        this.rowCount = header.getInt();
+        this.groupRows = header.getInt();
+        this.minTimeMicros = header.getLong();
+        this.maxTimeMicros = header.getLong();
+        this.lastTimeMicros = header.getLong();
+        this.lastTransactionId = header.getInt();
+        this.minAccountId = header.getInt();
+        this.maxAccountId = header.getInt();
+        this.accountCount = header.getInt();
+        this.groupCount = header.getInt();
+        int dictionarySize = header.getInt();
+        this.directoryOffset = (int) header.getLong();
+        this.groupTableOffset = (int) header.getLong();
+        long fileLength = header.getLong();
+        if (fileLength != buffer.capacity()) {
+            throw new IOException(file + " is truncated: expected " + fileLength + " bytes, found " + buffer.capacity() + ".");
+        }
+
+        byte[] dictionaryBytes = new byte[directoryOffset - HEADER_BYTES];
+        header.get(dictionaryBytes);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(dictionaryBytes));
+        this.dictionary = new String[dictionarySize];
+        for (int i = 0; i < dictionarySize; i++) {
+            dictionary[i] = in.readUTF();
+        }
+    }
+
+    public static ArchiveSegment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new ArchiveSegment(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes {@code rows} to {@code file} (through a forced temporary file and an atomic rename,
+     * so the file is either complete or absent) and opens it.
+     *
+     * @param rows            the rows to archive; sorted here, so any order is accepted
+     * @param lastTimeMicros  time of the last of {@code rows} in (time, id) order
+     * @param lastTransactionId id of that row
+     */
+    static ArchiveSegment write(Path file, List<Transaction> rows, long lastTimeMicros, int lastTransactionId, int groupRows) throws IOException {
+        List<Transaction> sorted = new ArrayList<>(rows);
+        sorted.sort((a, b) -> {
+            if (a.getAccountId() != b.getAccountId()) {
+                return Integer.compare(a.getAccountId(), b.getAccountId());
+            }
+            int byTime = Long.compare(toMicros(a.getTransactionTime()), toMicros(b.getTransactionTime()));
+            return byTime != 0 ? byTime : Integer.compare(a.getTransactionId(), b.getTransactionId());
+        });
+
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> words = new ArrayList<>();
+        long minTime = Long.MAX_VALUE;
+        long maxTime = Long.MIN_VALUE;
+        List<int[]> directory = new ArrayList<>();
+        for (int i = 0; i < sorted.size(); i++) {
+            Transaction transaction = sorted.get(i);
+            long time = toMicros(transaction.getTransactionTime());
+            minTime = Math.min(minTime, time);
+            maxTime = Math.max(maxTime, time);
+            wordIndex(dictionary, words, transaction.getTransactionType());
+            if (transaction.getReasonForFlag() != null) {
+                wordIndex(dictionary, words, transaction.getReasonForFlag());
+            }
+            int[] last = directory.isEmpty() ? null : directory.get(directory.size() - 1);
+            if (last == null || last[0] != transaction.getAccountId()) {
+                directory.add(new int[]{transaction.getAccountId(), i, 1});
+            } else {
+                last[2]++;
+            }
+        }
+
+        List<byte[]> groups = new ArrayList<>();
+        List<Integer> rawLengths = new ArrayList<>();
+        Deflater deflater = new Deflater();
+        try {
+            for (int from = 0; from < sorted.size(); from += groupRows) {
+                byte[] raw = encodeGroup(sorted.subList(from, Math.min(from + groupRows, sorted.size())), dictionary, minTime);
+                deflater.reset();
+                deflater.setInput(raw);
+                deflater.finish();
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 4 + 64);
+                byte[] chunk = new byte[64 * 1024];
+                while (!deflater.finished()) {
+                    compressed.write(chunk, 0, deflater.deflate(chunk));
+                }
+                groups.add(compressed.toByteArray());
+                rawLengths.add(raw.length);
+            }
+        } finally {
+            deflater.end();
+        }
+
+        ByteArrayOutputStream dictionaryBytes = new ByteArrayOutputStream();
+        DataOutputStream dictionaryOut = new DataOutputStream(dictionaryBytes);
+        for (String word : words) {
+            dictionaryOut.writeUTF(word);
+        }
+        long directoryOffset = HEADER_BYTES + dictionaryBytes.size();
+        long groupTableOffset = directoryOffset + (long) DIRECTORY_ENTRY_BYTES * directory.size();
+        long dataOffset = groupTableOffset + (long) GROUP_ENTRY_BYTES * groups.size();
+        long fileLength = dataOffset;
+        for (byte[] group : groups) {
+            fileLength += group.length;
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer head = ByteBuffer.allocate((int) dataOffset);
+            head.putInt(MAGIC).putInt(sorted.size()).putInt(groupRows)
+                    .putLong(sorted.isEmpty() ? 0 : minTime).putLong(sorted.isEmpty() ? 0 : maxTime)
+                    .putLong(lastTimeMicros).putInt(lastTransactionId)
+                    .putInt(directory.isEmpty() ? 0 : directory.get(0)[0]).putInt(directory.isEmpty() ? 0 : directory.get(directory.size() - 1)[0])
+                    .putInt(directory.size()).putInt(groups.size()).putInt(words.size())
+                    .putLong(directoryOffset).putLong(groupTableOffset).putLong(fileLength);
+            head.put(dictionaryBytes.toByteArray());
+            for (int[] entry : directory) {
+                head.putInt(entry[0]).putInt(entry[1]).putInt(entry[2]);
+            }
+            long offset = dataOffset;
+            for (int i = 0; i < groups.size(); i++) {
+                head.putLong(offset).putInt(groups.get(i).length).putInt(rawLengths.get(i));
+                offset += groups.get(i).length;
+            }
+            head.flip();
+            writeFully(channel, head);
+            for (byte[] group : groups) {
+                writeFully(channel, ByteBuffer.wrap(group));
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return open(file);
+    }
+
+    private static int wordIndex(Map<String, Integer> dictionary, List<String> words, String word) {
+        Integer index = dictionary.get(word);
+        if (index == null) {
+            index = words.size();
+            dictionary.put(word, index);
+            words.add(word);
+        }
+        return index;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+
+    private static byte[] encodeGroup(List<Transaction> rows, Map<String, Integer> dictionary, long baseTimeMicros) {
+        ColumnWriter out = new ColumnWriter(rows.size() * 12);
+        long previous = 0;
+        for (Transaction transaction : rows) {
+            out.putSigned(transaction.getTransactionId() - previous);
+            previous = transaction.getTransactionId();
+        }
+        previous = baseTimeMicros;
+        for (Transaction transaction : rows) {
+            long time = toMicros(transaction.getTransactionTime());
+            out.putSigned(time - previous);
+            previous = time;
+        }
+        for (Transaction transaction : rows) {
+            out.putSigned(transaction.getAmount().getMinorUnits());
+        }
+        for (Transaction transaction : rows) {
+            out.putUnsigned(dictionary.get(transaction.getTransactionType()));
+        }
+        int bits = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i).isFlagged()) {
+                bits |= 1 << (i & 7);
+            }
+            if ((i & 7) == 7 || i == rows.size() - 1) {
+                out.putByte(bits);
+                bits = 0;
+            }
+        }
+        for (Transaction transaction : rows) {
+            out.putUnsigned(transaction.getReasonForFlag() == null ? 0 : dictionary.get(transaction.getReasonForFlag()) + 1);
+        }
+        for (Transaction transaction : rows) {
+            int linked = transaction.getLinkedTransactionId();
+            out.putSigned(linked == 0 ? 0 : (long) linked - transaction.getTransactionId());
+        }
+        return out.toByteArray();
+    }
+
+    // --- Reading ---
+
+    public boolean contains(int accountId) {
+        return accountId >= minAccountId && accountId <= maxAccountId && directoryIndex(accountId) >= 0;
+    }
+
+    private int directoryIndex(int accountId) {
+        int low = 0;
+        int high = accountCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int id = buffer.getInt(directoryOffset + mid * DIRECTORY_ENTRY_BYTES);
+            if (id < accountId) {
+                low = mid + 1;
+            } else if (id > accountId) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the account's archived rows in (transactionTime, transactionId) order, decompressing
+     * only the row groups its range overlaps.
+     */
+    public List<Transaction> read(int accountId) throws IOException {
+        int index = directoryIndex(accountId);
+        if (index < 0) {
+            return new ArrayList<>();
+        }
+        int entry = directoryOffset + index * DIRECTORY_ENTRY_BYTES;
+        int firstRow = buffer.getInt(entry + 4);
+        int rows = buffer.getInt(entry + 8);
+        List<Transaction> transactions = new ArrayList<>(rows);
+        Inflater inflater = new Inflater();
+        try {
+            for (int group = firstRow / groupRows; group <= (firstRow + rows - 1) / groupRows; group++) {
+                int groupStart = group * groupRows;
+                int groupSize = Math.min(groupRows, rowCount - groupStart);
+                DecodedGroup decoded = decodeGroup(inflater, group, groupSize);
+                int from = Math.max(firstRow, groupStart) - groupStart;
+                int to = Math.min(firstRow + rows, groupStart + groupSize) - groupStart;
+                for (int i = from; i < to; i++) {
+                    transactions.add(decoded.transaction(i, accountId));
+                }
+            }
+        } finally {
+            inflater.end();
+        }
+        return transactions;
+    }
+
+    /** Ids of every row in the segment, in file order. */
+    public int[] transactionIds() throws IOException {
+        int[] ids = new int[rowCount];
+        Inflater inflater = new Inflater();
+        try {
+            for (int group = 0; group < groupCount; group++) {
+                int groupStart = group * groupRows;
+                int groupSize = Math.min(groupRows, rowCount - groupStart);
+                DecodedGroup decoded = decodeGroup(inflater, group, groupSize);
+                for (int i = 0; i < groupSize; i++) {
+                    ids[groupStart + i] = (int) decoded.ids[i];
+                }
+            }
+        } finally {
+            inflater.end();
+        }
+        return ids;
+    }
+
+    /** Highest id in the segment; decodes every row group the first time it is asked. */
+    public int getMaxTransactionId() throws IOException {
+        int max = maxTransactionId;
+        if (max < 0) {
+            max = 0;
+            for (int id : transactionIds()) {
+                max = Math.max(max, id);
+            }
+            maxTransactionId = max;
+        }
+        return max;
+    }
+
+    private DecodedGroup decodeGroup(Inflater inflater, int group, int rows) throws IOException {
+        int entry = groupTableOffset + group * GROUP_ENTRY_BYTES;
+        int offset = (int) buffer.getLong(entry);
+        int compressedLength = buffer.getInt(entry + 8);
+        byte[] raw = new byte[buffer.getInt(entry + 12)];
+        ByteBuffer compressed = buffer.duplicate();
+        compressed.position(offset).limit(offset + compressedLength);
+        inflater.reset();
+        inflater.setInput(compressed);
+        try {
+            int read = 0;
+            while (read < raw.length && !inflater.finished()) {
+                read += inflater.inflate(raw, read, raw.length - read);
+            }
+            if (read != raw.length) {
+                throw new IOException("Row group " + group + " of " + file + " is shorter than recorded.");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Row group " + group + " of " + file + " is corrupt.", e);
+        }
+
+        ColumnReader in = new ColumnReader(raw);
+        DecodedGroup decoded = new DecodedGroup(rows);
+        long previous = 0;
+        for (int i = 0; i < rows; i++) {
+            previous += in.getSigned();
+            decoded.ids[i] = previous;
+        }
+        previous = minTimeMicros;
+        for (int i = 0; i < rows; i++) {
+            previous += in.getSigned();
+            decoded.times[i] = previous;
+        }
+        for (int i = 0; i < rows; i++) {
+            decoded.amounts[i] = in.getSigned();
+        }
+        for (int i = 0; i < rows; i++) {
+            decoded.types[i] = dictionary[(int) in.getUnsigned()];
+        }
+        boolean[] flagged = new boolean[rows];
+        for (int i = 0; i < rows; i += 8) {
+            int bits = in.getByte();
+            for (int bit = 0; bit < 8 && i + bit < rows; bit++) {
+                flagged[i + bit] = (bits & (1 << bit)) != 0;
+            }
+        }
+        for (int i = 0; i < rows; i++) {
+            int reason = (int) in.getUnsigned();
+            decoded.reasons[i] = reason == 0 ? null : dictionary[reason - 1];
+        }
+        for (int i = 0; i < rows; i++) {
+            long delta = in.getSigned();
+            decoded.linked[i] = delta == 0 ? 0 : decoded.ids[i] + delta;
+        }
+        decoded.flagged = flagged;
+        return decoded;
+    }
+
+    // --- Getters ---
+    public Path getFile() { return file; }
+    public int getRowCount() { return rowCount; }
+    public long getMinTimeMicros() { return minTimeMicros; }
+    public long getMaxTimeMicros() { return maxTimeMicros; }
+    /** Time of the newest row in (time, id) order; with {@link #getLastTransactionId()} it is the segment's upper key. */
+    public long getLastTimeMicros() { return lastTimeMicros; }
+    public int getLastTransactionId() { return lastTransactionId; }
+    public long getSizeBytes() { return buffer.capacity(); }
+
+    static long toMicros(Timestamp time) {
+        return Math.floorDiv(time.getTime(), 1000) * 1_000_000 + time.getNanos() / 1000;
+    }
+
+    static Timestamp toTimestamp(long micros) {
+        Timestamp time = new Timestamp(Math.floorDiv(micros, 1_000_000) * 1000);
+        time.setNanos(Math.floorMod(micros, 1_000_000) * 1000);
+        return time;
+    }
+
+    @Override
+    public String toString() {
+        return "ArchiveSegment{" + "file=" + file.getFileName() + ", rows=" + rowCount + ", accounts=" + accountCount + ", groups=" + groupCount
+                + ", from=" + toTimestamp(minTimeMicros) + ", to=" + toTimestamp(maxTimeMicros) + ", bytes=" + buffer.capacity() + '}';
+    }
+
+    /** One row group, decoded into columns. */
+    private static final class DecodedGroup {
+        final long[] ids;
+        final long[] times;
+        final long[] amounts;
+        final String[] types;
+        final String[] reasons;
+        final long[] linked;
+        boolean[] flagged;
+
+        DecodedGroup(int rows) {
+            ids = new long[rows];
+            times = new long[rows];
+            amounts = new long[rows];
+            types = new String[rows];
+            reasons = new String[rows];
+            linked = new long[rows];
+        }
+
+        Transaction transaction(int row, int accountId) {
+            Transaction transaction = new Transaction();
+            transaction.setTransactionId((int) ids[row]);
+            transaction.setAccountId(accountId);
+            transaction.setTransactionType(types[row]);
+            transaction.setAmount(Money.ofMinor(amounts[row]));
+            transaction.setFlagged(flagged[row]);
+            transaction.setReasonForFlag(reasons[row]);
+            transaction.setTransactionTime(toTimestamp(times[row]));
+            transaction.setLinkedTransactionId((int) linked[row]);
+            return transaction;
+        }
+    }
+
+    /** Growable byte array with varint encoders. */
+    private static final class ColumnWriter {
+        private byte[] bytes;
+        private int size;
+
+        ColumnWriter(int capacity) {
+            bytes = new byte[Math.max(16, capacity)];
+        }
+
+        void putByte(int value) {
+            if (size == bytes.length) {
+                bytes = Arrays.copyOf(bytes, size * 2);
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        // Zig-zag first, so small negative deltas stay short too.
+        void putSigned(long value) {
+            putUnsigned((value << 1) ^ (value >> 63));
+        }
+
+        void putUnsigned(long value) {
+            while ((value & ~0x7FL) != 0) {
+                putByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            putByte((int) value);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+    }
+
+    private static final class ColumnReader {
+        private final byte[] bytes;
+        private int position;
+
+        ColumnReader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        int getByte() {
+            return bytes[position++] & 0xFF;
+        }
+
+        long getSigned() {
+            long value = getUnsigned();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        long getUnsigned() {
+            long value = 0;
+            int shift = 0;
+            while (true) {
+                int b = bytes[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+                shift += 7;
+            }
+        }
+    }
+}
@@ -0,0 +1,251 @@
+// File: src/main/java/com/bank/dao/archive/TransactionArchive.java
+
+package com.bank.dao.archive;
+
+import com.bank.dao.InfoLog;
+import com.bank.metrics.Metrics;
+import com.bank.metrics.QueryMetrics;
+import com.bank.model.Transaction;
+import com.bank.model.TransactionCursor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * The directory of {@link ArchiveSegment segments} holding transactions moved out of the
+ * database by {@link TransactionArchiver}. Segments are numbered in the order they were written
+ * and cover consecutive, non-overlapping ranges of (transactionTime, transactionId), so an
+ * account's archived history is read newest first by walking the segments from the last one
+ * back, skipping any whose time range or account directory rules it out.
+ */
+public class TransactionArchive {
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".bka";
+    private static final QueryMetrics READ_QUERY = Metrics.query("archive.read");
+
+    private static TransactionArchive defaultArchive;
+    private static boolean defaultOpened;
+
+    private final Path directory;
+    private final ArchiveConfig config;
+    // Oldest first; replaced, never modified, so readers iterate a stable snapshot.
+    private volatile List<ArchiveSegment> segments;
+    private int nextSequence;
+
+    private TransactionArchive(Path directory, ArchiveConfig config, List<ArchiveSegment> segments, int nextSequence) {
+        this.directory = directory;
+        this.config = config;
+        this.segments = segments;
+        this.nextSequence = nextSequence;
+    }
+
+    /**
+     * Opens (creating if needed) the archive in {@code config.getDirectory()}. Temporary files left
+     * by an interrupted write are deleted.
+     */
+    public static TransactionArchive open(ArchiveConfig config) throws IOException {
+        Path directory = Paths.get(config.getDirectory());
+        Files.createDirectories(directory);
+        List<Integer> sequences = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.delete(file);
+                } else if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    sequences.add(Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                }
+            }
+        }
+        Collections.sort(sequences);
+        List<ArchiveSegment> segments = new ArrayList<>();
+        for (int sequence : sequences) {
+            segments.add(ArchiveSegment.open(segmentFile(directory, sequence)));
+        }
+        int nextSequence = sequences.isEmpty() ? 1 : sequences.get(sequences.size() - 1) + 1;
+        InfoLog.println("Opened transaction archive " + directory + " with " + segments.size() + " segment(s).");
+        return new TransactionArchive(directory, config, Collections.unmodifiableList(segments), nextSequence);
+    }
+
+    /**
+     * Returns the archive configured by the {@code bank.archive.*} system properties, opening it on
+     * first use, or null if archiving is not configured.
+     *
+     * @throws IllegalStateException if the archive directory cannot be opened
+     */
+    public static synchronized TransactionArchive getDefault() {
+        if (!defaultOpened) {
+            ArchiveConfig config = ArchiveConfig.fromSystemProperties();
+            if (config.isEnabled()) {
+                try {
+                    defaultArchive = open(config);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Could not open transaction archive " + config.getDirectory(), e);
+                }
+            }
+            defaultOpened = true;
+        }
+        return defaultArchive;
+    }
+
+    private static Path segmentFile(Path directory, int sequence) {
+        return directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Writes {@code rows} as the next segment and makes it visible to readers.
+     *
+     * @param last the newest of {@code rows} in (transactionTime, transactionId) order
+     */
+    synchronized ArchiveSegment addSegment(List<Transaction> rows, Transaction last) throws IOException {
+        ArchiveSegment segment = ArchiveSegment.write(segmentFile(directory, nextSequence), rows,
+                ArchiveSegment.toMicros(last.getTransactionTime()), last.getTransactionId(), config.getGroupRows());
+        nextSequence++;
+        List<ArchiveSegment> updated = new ArrayList<>(segments);
+        updated.add(segment);
+        segments = Collections.unmodifiableList(updated);
+        return segment;
+    }
+
+    /** Segments oldest first. */
+    public List<ArchiveSegment> getSegments() {
+        return segments;
+    }
+
+    /** Transaction time of the newest archived row, or null if nothing has been archived. */
+    public Timestamp getNewestTime() {
+        List<ArchiveSegment> current = segments;
+        if (current.isEmpty()) {
+            return null;
+        }
+        long newest = Long.MIN_VALUE;
+        for (ArchiveSegment segment : current) {
+            newest = Math.max(newest, segment.getMaxTimeMicros());
+        }
+        return ArchiveSegment.toTimestamp(newest);
+    }
+
+    /**
+     * Highest archived transaction id, or 0 if nothing has been archived. Rows are archived by age,
+     * not by id, so rows with lower ids may still be in the table.
+     */
+    public int getMaxTransactionId() throws IOException {
+        int max = 0;
+        for (ArchiveSegment segment : segments) {
+            max = Math.max(max, segment.getMaxTransactionId());
+        }
+        return max;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public ArchiveConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Reads an account's archived transactions newest first, by (transactionTime, transactionId).
+     * Segments are decompressed lazily, so a caller that stops early only pays for the segments it
+     * reached.
+     *
+     * @param before    only rows strictly older than this key, or null for no bound
+     * @param notBefore only rows at or after this time, or null
+     * @param notAfter  only rows at or before this time, or null
+     */
+    public Cursor newestFirst(int accountId, TransactionCursor before, Timestamp notBefore, Timestamp notAfter) {
+        return new Cursor(segments, accountId, before, notBefore, notAfter);
+    }
+
+    /**
+     * Newest-first iterator over one account's archived rows with a one-row lookahead.
+     *
+     * @throws UncheckedIOException from {@link #hasNext()} if a segment cannot be read
+     */
+    public static final class Cursor {
+        private final List<ArchiveSegment> segments;
+        private final int accountId;
+        private final long beforeMicros;
+        private final int beforeId;
+        private final long notBeforeMicros;
+        private final long notAfterMicros;
+        private int nextSegment;
+        private List<Transaction> rows = Collections.emptyList();
+        private int position = -1;
+        private Transaction next;
+        private boolean done;
+
+        private Cursor(List<ArchiveSegment> segments, int accountId, TransactionCursor before, Timestamp notBefore, Timestamp notAfter) {
+            this.segments = segments;
+            this.accountId = accountId;
+            this.beforeMicros = before == null ? Long.MAX_VALUE : ArchiveSegment.toMicros(before.getTransactionTime());
+            this.beforeId = before == null ? Integer.MAX_VALUE : before.getTransactionId();
+            this.notBeforeMicros = notBefore == null ? Long.MIN_VALUE : ArchiveSegment.toMicros(notBefore);
+            this.notAfterMicros = notAfter == null ? Long.MAX_VALUE : ArchiveSegment.toMicros(notAfter);
+            this.nextSegment = segments.size() - 1;
+        }
+
+        public boolean hasNext() {
+            while (next == null && !done) {
+                if (position >= 0) {
+                    Transaction candidate = rows.get(position--);
+                    long time = ArchiveSegment.toMicros(candidate.getTransactionTime());
+                    if (time < notBeforeMicros) {
+                        // Rows only get older from here, in this segment and every earlier one.
+                        done = true;
+                    } else if (time <= notAfterMicros && (time < beforeMicros || (time == beforeMicros && candidate.getTransactionId() < beforeId))) {
+                        next = candidate;
+                    }
+                } else if (nextSegment >= 0) {
+                    loadSegment(segments.get(nextSegment--));
+                } else {
+                    done = true;
+                }
+            }
+            return next != null;
+        }
+
+        private void loadSegment(ArchiveSegment segment) {
+            if (segment.getMaxTimeMicros() < notBeforeMicros) {
+                done = true;
+                return;
+            }
+            if (segment.getMinTimeMicros() > notAfterMicros || segment.getMinTimeMicros() > beforeMicros || !segment.contains(accountId)) {
+                return;
+            }
+            long started = System.nanoTime();
+            try {
+                rows = segment.read(accountId);
+                position = rows.size() - 1;
+                READ_QUERY.recordSince(started, rows.size());
+            } catch (IOException e) {
+                READ_QUERY.recordError();
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /** The row {@link #next()} would return, without consuming it. */
+        public Transaction peek() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return next;
+        }
+
+        public Transaction next() {
+            Transaction result = peek();
+            next = null;
+            return result;
+        }
+    }
+}
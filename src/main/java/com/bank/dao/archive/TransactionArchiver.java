@@ -0,0 +1,185 @@
+// File: src/main/java/com/bank/dao/archive/TransactionArchiver.java
+
+package com.bank.dao.archive;
+
+import com.bank.dao.DatabaseConnector;
+import com.bank.dao.InfoLog;
+import com.bank.dao.Queries;
+import com.bank.dao.TransactionDAO;
+import com.bank.metrics.Metrics;
+import com.bank.metrics.QueryMetrics;
+import com.bank.model.Transaction;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves transactions older than {@link ArchiveConfig#getMaxAgeDays()} out of the Transactions
+ * table into {@link TransactionArchive} segments.
+ *
+ * <p>Rows are taken in (transactionTime, transactionId) order, starting after the last key of the
+ * newest segment, so each segment covers the next key range. A segment is written and synced
+ * before its rows are deleted; if the process dies in between, the next run deletes the rows of
+ * the newest segment again before going on (history reads drop the duplicates meanwhile). Rows
+ * inserted later with a time before the archived range stay in the table and are still merged
+ * into history reads.
+ */
+public class TransactionArchiver {
+    private static final int DELETE_IDS_PER_STATEMENT = 500;
+    private static final QueryMetrics SELECT_QUERY = Metrics.query("archive.select");
+    private static final QueryMetrics DELETE_QUERY = Metrics.query("archive.delete");
+
+    private final TransactionArchive archive;
+
+    public TransactionArchiver(TransactionArchive archive) {
+        this.archive = archive;
+    }
+
+    public Report archive() throws IOException, SQLException {
+        ArchiveConfig config = archive.getConfig();
+        Timestamp cutoff = new Timestamp(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(config.getMaxAgeDays()));
+        long started = System.nanoTime();
+        long rows = 0;
+        int segments = 0;
+        long bytes = 0;
+
+        try (Connection conn = DatabaseConnector.getConnection()) {
+            // Serves the (transactionTime, transactionId) range scan below.
+            DatabaseConnector.createIndexIfMissing(conn, "Transactions", "idx_transactions_time", "transactionTime, transactionId");
+            List<ArchiveSegment> existing = archive.getSegments();
+            if (!existing.isEmpty()) {
+                int[] ids = existing.get(existing.size() - 1).transactionIds();
+                int deleted = delete(conn, ids);
+                if (deleted > 0) {
+                    InfoLog.println("Deleted " + deleted + " already archived transaction(s) left behind by an interrupted run.");
+                }
+            }
+
+            while (true) {
+                List<Transaction> batch = selectBatch(conn, cutoff, config.getSegmentRows());
+                if (batch.isEmpty()) {
+                    break;
+                }
+                ArchiveSegment segment = archive.addSegment(batch, batch.get(batch.size() - 1));
+                int[] ids = new int[batch.size()];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = batch.get(i).getTransactionId();
+                }
+                delete(conn, ids);
+                rows += batch.size();
+                segments++;
+                bytes += segment.getSizeBytes();
+                InfoLog.println("Archived " + segment);
+                if (batch.size() < config.getSegmentRows()) {
+                    break;
+                }
+            }
+        }
+        return new Report(rows, segments, bytes, System.nanoTime() - started);
+    }
+
+    private List<Transaction> selectBatch(Connection conn, Timestamp cutoff, int limit) throws SQLException {
+        List<ArchiveSegment> segments = archive.getSegments();
+        ArchiveSegment newest = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        String sql = newest == null
+                ? "SELECT " + TransactionDAO.TRANSACTION_COLUMNS + " FROM Transactions WHERE transactionTime < ? ORDER BY transactionTime, transactionId LIMIT ?"
+                : "SELECT " + TransactionDAO.TRANSACTION_COLUMNS + " FROM Transactions WHERE transactionTime < ? AND (transactionTime > ? OR (transactionTime = ? AND transactionId > ?)) " +
+                  "ORDER BY transactionTime, transactionId LIMIT ?";
+        long started = System.nanoTime();
+
+        try {
+            List<Transaction> batch = Queries.list(conn, sql, pstmt -> {
+                int p = 1;
+                pstmt.setTimestamp(p++, cutoff);
+                if (newest != null) {
+                    Timestamp last = ArchiveSegment.toTimestamp(newest.getLastTimeMicros());
+                    pstmt.setTimestamp(p++, last);
+                    pstmt.setTimestamp(p++, last);
+                    pstmt.setInt(p++, newest.getLastTransactionId());
+                }
+                pstmt.setInt(p, limit);
+            }, TransactionDAO.TRANSACTION_MAPPER);
+            SELECT_QUERY.recordSince(started, batch.size());
+            return batch;
+        } catch (SQLException e) {
+            SELECT_QUERY.recordError();
+            throw e;
+        }
+    }
+
+    /** Deletes the given transactions in one database transaction. */
+    private static int delete(Connection conn, int[] ids) throws SQLException {
+        long started = System.nanoTime();
+        int deleted = 0;
+        conn.setAutoCommit(false);
+        try {
+            for (int from = 0; from < ids.length; from += DELETE_IDS_PER_STATEMENT) {
+                int to = Math.min(from + DELETE_IDS_PER_STATEMENT, ids.length);
+                StringBuilder sql = new StringBuilder("DELETE FROM Transactions WHERE transactionId IN (");
+                for (int i = from; i < to; i++) {
+                    sql.append(i == from ? "?" : ", ?");
+                }
+                sql.append(")");
+                try (PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+                    for (int i = from; i < to; i++) {
+                        pstmt.setInt(i - from + 1, ids[i]);
+                    }
+                    deleted += pstmt.executeUpdate();
+                }
+            }
+            conn.commit();
+            DELETE_QUERY.recordSince(started, deleted);
+        } catch (SQLException e) {
+            DELETE_QUERY.recordError();
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+        return deleted;
+    }
+
+    public static final class Report {
+        private final long rows;
+        private final int segments;
+        private final long bytes;
+        private final long elapsedNanos;
+
+        private Report(long rows, int segments, long bytes, long elapsedNanos) {
+            this.rows = rows;
+            this.segments = segments;
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        // --- Getters ---
+        /** Rows moved out of the database by this run. */
+        public long getRows() { return rows; }
+        /** Segments written by this run. */
+        public int getSegments() { return segments; }
+        public long getBytes() { return bytes; }
+        public double getElapsedSeconds() { return elapsedNanos / 1e9; }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0.0 : rows / getElapsedSeconds();
+        }
+
+        public double getBytesPerRow() {
+            return rows == 0 ? 0.0 : (double) bytes / rows;
+        }
+
+        @Override
+        public String toString() {
+            return "ArchiveReport{" + "rows=" + rows + ", segments=" + segments + ", bytes=" + bytes
+                    + ", bytesPerRow=" + String.format(Locale.ROOT, "%.1f", getBytesPerRow())
+                    + ", seconds=" + String.format(Locale.ROOT, "%.2f", getElapsedSeconds())
+                    + ", rowsPerSecond=" + String.format(Locale.ROOT, "%.0f", getRowsPerSecond()) + '}';
+        }
+    }
+}
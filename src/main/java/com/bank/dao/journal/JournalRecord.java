@@ -0,0 +1,138 @@
+// File: src/main/java/com/bank/dao/journal/JournalRecord.java
+
+package com.bank.dao.journal;
+
+import com.bank.model.Money;
+import com.bank.model.Transaction;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.zip.CRC32;
+
+/**
+ * Fixed-layout binary encoding of one ledger entry. Every record occupies {@link #SIZE} bytes,
+ * so the n-th record of a segment is at {@code n * SIZE} and a segment can be scanned without
+ * length prefixes. A zero sequence marks an unused slot; a checksum mismatch marks a torn write.
+ *
+ * <pre>
+ *   0  long  sequence
+ *   8  int   crc32 of the record with this field zeroed
+ *  12  int   accountId
+ *  16  int   linkedTransactionId
+ *  20  byte  flags (1 = flagged, 2 = has reason, 4 = has time)
+ *  21  byte  amount scale (always Money.SCALE when written)
+ *  22  byte  transactionType length
+ *  23  byte  reasonForFlag length (unsigned)
+ *  24  long  amount unscaled value (minor units)
+ *  32  long  transactionTime (epoch millis)
+ *  40  50 bytes transactionType (UTF-8)
+ *  90  255 bytes reasonForFlag (UTF-8)
+ * </pre>
+ */
+final class JournalRecord {
+
+    static final int SIZE = 384;
+
+    private static final int CRC_OFFSET = 8;
+    private static final int TYPE_OFFSET = 40;
+    private static final int MAX_TYPE_BYTES = 50;
+    private static final int REASON_OFFSET = 90;
+    private static final int MAX_REASON_BYTES = 255;
+
+    private static final int FLAGGED = 1;
+    private static final int HAS_REASON = 2;
+    private static final int HAS_TIME = 4;
+
+    private JournalRecord() {}
+
+    /**
+     * Encodes everything but the sequence and checksum, which {@link #seal} fills in once the
+     * record's position in the journal is known.
+     *
+     * @throws IllegalArgumentException if a field does not fit the fixed layout
+     */
+    static byte[] encode(Transaction transaction) {
+        byte[] type = transaction.getTransactionType().getBytes(StandardCharsets.UTF_8);
+        byte[] reason = transaction.getReasonForFlag() == null ? null : transaction.getReasonForFlag().getBytes(StandardCharsets.UTF_8);
+        Money amount = transaction.getAmount();
+        if (type.length > MAX_TYPE_BYTES || (reason != null && reason.length > MAX_REASON_BYTES)) {
+            throw new IllegalArgumentException("Transaction type or flag reason is too long for the journal.");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(SIZE);
+        buffer.putInt(12, transaction.getAccountId());
+        buffer.putInt(16, transaction.getLinkedTransactionId());
+        int flags = (transaction.isFlagged() ? FLAGGED : 0) | (reason != null ? HAS_REASON : 0) | (transaction.getTransactionTime() != null ? HAS_TIME : 0);
+        buffer.put(20, (byte) flags);
+        buffer.put(21, (byte) Money.SCALE);
+        buffer.put(22, (byte) type.length);
+        buffer.put(23, (byte) (reason == null ? 0 : reason.length));
+        buffer.putLong(24, amount.getMinorUnits());
+        buffer.putLong(32, transaction.getTransactionTime() == null ? 0 : transaction.getTransactionTime().getTime());
+        buffer.position(TYPE_OFFSET);
+        buffer.put(type);
+        if (reason != null) {
+            buffer.position(REASON_OFFSET);
+            buffer.put(reason);
+        }
+        return buffer.array();
+    }
+
+    /** Stamps the sequence into an encoded record and computes its checksum. */
+    static void seal(byte[] record, long sequence, CRC32 crc) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        buffer.putLong(0, sequence);
+        buffer.putInt(CRC_OFFSET, 0);
+        crc.reset();
+        crc.update(record, 0, SIZE);
+        buffer.putInt(CRC_OFFSET, (int) crc.getValue());
+    }
+
+    /**
+     * Reads the record at {@code offset}.
+     *
+     * @return the record's sequence, or 0 if the slot is empty or its checksum does not match
+     */
+    static long sequenceAt(ByteBuffer segment, int offset, byte[] scratch, CRC32 crc) {
+        ByteBuffer source = segment.duplicate();
+        source.position(offset);
+        source.get(scratch, 0, SIZE);
+        ByteBuffer record = ByteBuffer.wrap(scratch);
+        long sequence = record.getLong(0);
+        if (sequence <= 0) {
+            return 0;
+        }
+        int expected = record.getInt(CRC_OFFSET);
+        record.putInt(CRC_OFFSET, 0);
+        crc.reset();
+        crc.update(scratch, 0, SIZE);
+        return (int) crc.getValue() == expected ? sequence : 0;
+    }
+
+    /** Decodes a record previously validated by {@link #sequenceAt}. */
+    static Transaction decode(byte[] record) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        int flags = buffer.get(20);
+        int typeLength = buffer.get(22);
+        int reasonLength = buffer.get(23) & 0xFF;
+
+        Transaction transaction = new Transaction();
+        transaction.setAccountId(buffer.getInt(12));
+        transaction.setLinkedTransactionId(buffer.getInt(16));
+        long unscaled = buffer.getLong(24);
+        int scale = buffer.get(21);
+        // Segments written before amounts were Money may carry another scale.
+        transaction.setAmount(scale == Money.SCALE ? Money.ofMinor(unscaled) : Money.of(BigDecimal.valueOf(unscaled, scale)));
+        transaction.setFlagged((flags & FLAGGED) != 0);
+        if ((flags & HAS_TIME) != 0) {
+            transaction.setTransactionTime(new Timestamp(buffer.getLong(32)));
+        }
+        transaction.setTransactionType(new String(record, TYPE_OFFSET, typeLength, StandardCharsets.UTF_8));
+        if ((flags & HAS_REASON) != 0) {
+            transaction.setReasonForFlag(new String(record, REASON_OFFSET, reasonLength, StandardCharsets.UTF_8));
+        }
+        return transaction;
+    }
+}
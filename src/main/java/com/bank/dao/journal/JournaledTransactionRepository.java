@@ -0,0 +1,191 @@
+// File: src/main/java/com/bank/dao/journal/JournaledTransactionRepository.java
+
+package com.bank.dao.journal;
+
+import com.bank.dao.TransactionRepository;
+import com.bank.model.ConsistencyToken;
+import com.bank.model.Transaction;
+import com.bank.model.TransactionCursor;
+import com.bank.model.TransactionPage;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * {@link TransactionRepository} whose standalone inserts go through a {@link LedgerJournal}.
+ * {@link #journal} returns as soon as the row is durable in the journal, and concurrent callers
+ * share forces instead of each paying for a database commit; {@link #createTransaction} also
+ * waits for the applier to insert the row, so it can return the transactionId. Reads are served
+ * by the wrapped repository after the applier has caught up with every acknowledged row, so
+ * callers still read their own writes. Journaled rows do not change an account's version, so
+ * with read replicas they can take up to the replica lag limit to appear in history reads.
+ *
+ * <p>BankService does not use it: its balance updates and ledger rows commit together in
+ * AccountDAO, which the journal does not cover. It is exercised by the JournalBenchmark.
+ */
+public class JournaledTransactionRepository implements TransactionRepository {
+
+    private static final long READ_CATCH_UP_MILLIS = Long.getLong("bank.wal.readCatchUpMillis", 5000L);
+    private static final long APPLY_WAIT_MILLIS = Long.getLong("bank.wal.applyWaitMillis", 5000L);
+
+    private final LedgerJournal journal;
+    private final TransactionRepository delegate;
+
+    public JournaledTransactionRepository(LedgerJournal journal, TransactionRepository delegate) {
+        this.journal = journal;
+        this.delegate = delegate;
+    }
+
+    /**
+     * Journals the row and waits until it has been inserted into Transactions.
+     *
+     * @return the generated transaction id (also set on {@code transaction}), or -1 on error or
+     *         if the row was not inserted within -Dbank.wal.applyWaitMillis
+     */
+    @Override
+    public int createTransaction(Transaction transaction) {
+        fixTime(transaction);
+        try {
+            int transactionId = journal.appendAndAwaitId(transaction, APPLY_WAIT_MILLIS);
+            if (transactionId < 0) {
+                System.err.println("Journaled transaction was not inserted within " + APPLY_WAIT_MILLIS + " ms or was rejected.");
+                return -1;
+            }
+            transaction.setTransactionId(transactionId);
+            return transactionId;
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error journaling transaction: " + e.getMessage());
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+    /**
+     * Journals the row and returns once it is durable; its transactionId is assigned when the
+     * applier inserts it and is not set on {@code transaction}.
+     *
+     * @return the row's journal sequence, or -1 on error
+     */
+    public long journal(Transaction transaction) {
+        fixTime(transaction);
+        try {
+            return journal.append(transaction);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error journaling transaction: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    // The transaction time is fixed now so a replay records the original time.
+    private static void fixTime(Transaction transaction) {
+        if (transaction.getTransactionTime() == null) {
+            transaction.setTransactionTime(new Timestamp(System.currentTimeMillis()));
+        }
+    }
+
+    @Override
+    public List<Transaction> findTransactionsByAccountId(int accountId) {
+        catchUp();
+        return delegate.findTransactionsByAccountId(accountId);
+    }
+
+    @Override
+    public List<Transaction> findTransactionsByAccountId(int accountId, ConsistencyToken token) {
+        catchUp();
+        return delegate.findTransactionsByAccountId(accountId, token);
+    }
+
+    @Override
+    public TransactionPage findTransactionsPage(int accountId, TransactionCursor cursor, int pageSize) {
+        catchUp();
+        return delegate.findTransactionsPage(accountId, cursor, pageSize);
+    }
+
+    @Override
+    public TransactionPage findTransactionsPage(int accountId, TransactionCursor cursor, int pageSize, ConsistencyToken token) {
+        catchUp();
+        return delegate.findTransactionsPage(accountId, cursor, pageSize, token);
+    }
+
+    @Override
+    public long streamTransactionsByAccountId(int accountId, Consumer<Transaction> consumer) {
+        catchUp();
+        return delegate.streamTransactionsByAccountId(accountId, consumer);
+    }
+
+    @Override
+    public long streamTransactionsByAccountId(int accountId, Consumer<Transaction> consumer, ConsistencyToken token) {
+        catchUp();
+        return delegate.streamTransactionsByAccountId(accountId, consumer, token);
+    }
+
+    @Override
+    public List<Transaction> findTransactionsByAccountIdSince(int accountId, Timestamp windowStart) {
+        catchUp();
+        return delegate.findTransactionsByAccountIdSince(accountId, windowStart);
+    }
+
+    @Override
+    public List<Transaction> findTransactionsByAccountIdBetween(int accountId, Timestamp from, Timestamp to) {
+        catchUp();
+        return delegate.findTransactionsByAccountIdBetween(accountId, from, to);
+    }
+
+    @Override
+    public int countTransactionsByAccountIdSince(int accountId, Timestamp windowStart) {
+        catchUp();
+        return delegate.countTransactionsByAccountIdSince(accountId, windowStart);
+    }
+
+    @Override
+    public long[] findTransactionAmountsByAccountIdSince(int accountId, Timestamp windowStart, int limit) {
+        catchUp();
+        return delegate.findTransactionAmountsByAccountIdSince(accountId, windowStart, limit);
+    }
+
+    @Override
+    public long[] findTransactionTimesByAccountIdSince(int accountId, Timestamp windowStart, int limit) {
+        catchUp();
+        return delegate.findTransactionTimesByAccountIdSince(accountId, windowStart, limit);
+    }
+
+    @Override
+    public Map<Integer, long[]> findTransactionTimesByAccountIdsSince(Collection<Integer> accountIds, Timestamp windowStart, int limit) {
+        catchUp();
+        return delegate.findTransactionTimesByAccountIdsSince(accountIds, windowStart, limit);
+    }
+
+    @Override
+    public List<Transaction> findTransactionsAfter(int afterTransactionId, int limit) {
+        catchUp();
+        return delegate.findTransactionsAfter(afterTransactionId, limit);
+    }
+
+    @Override
+    public int findMaxArchivedTransactionId() {
+        return delegate.findMaxArchivedTransactionId();
+    }
+
+    @Override
+    public int findMaxTransactionId() {
+        catchUp();
+        return delegate.findMaxTransactionId();
+    }
+
+    // If the applier is stuck (database down), reads go ahead with whatever has been applied.
+    private void catchUp() {
+        try {
+            if (!journal.awaitApplied(journal.getDurableSequence(), READ_CATCH_UP_MILLIS)) {
+                System.err.println("Journal applier is behind; history may miss recent transactions.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
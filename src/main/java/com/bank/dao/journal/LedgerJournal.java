@@ -0,0 +1,630 @@
+// File: src/main/java/com/bank/dao/journal/LedgerJournal.java
+
+package com.bank.dao.journal;
+
+import com.bank.dao.DatabaseConnector;
+import com.bank.dao.InfoLog;
+import com.bank.dao.TransactionDAO;
+import com.bank.model.Transaction;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead journal for ledger rows, in front of the Transactions table.
+ *
+ * <ul>
+ *   <li>{@link #append} writes a fixed-size {@link JournalRecord} into a memory-mapped segment
+ *       file and returns once the record is durable, i.e. once the segment has been forced.</li>
+ *   <li>With group commit, one waiting writer becomes the leader and forces once for every record
+ *       written so far; the rest wait for that force instead of issuing their own, and records
+ *       that arrive during a force are grouped into the next one. An optional commit window makes
+ *       the leader wait before forcing to collect more records, which pays off only when forces
+ *       are slow. Without group commit, every append forces.</li>
+ *   <li>A background applier inserts durable records into Transactions in batches and, in the same
+ *       database transaction, stores the last applied sequence in JournalCheckpoint. Fully applied
+ *       segments are deleted.</li>
+ *   <li>On {@link #open}, records after the checkpoint are replayed; because the checkpoint commits
+ *       atomically with the rows, each record is inserted exactly once.</li>
+ * </ul>
+ *
+ * Tuned with -Dbank.wal.segmentBytes (default 64 MiB), -Dbank.wal.commitWindowMicros (0),
+ * -Dbank.wal.applyBatchSize (500) and -Dbank.wal.maxPending (100000, appends block beyond that
+ * many unapplied records).
+ */
+public class LedgerJournal implements AutoCloseable {
+
+    private static final String SEGMENT_PREFIX = "ledger-";
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final String CHECKPOINT_NAME = "ledger";
+    private static final long APPLY_RETRY_MILLIS = 1000;
+    private static final long CLOSE_TIMEOUT_MILLIS = 10_000;
+
+    private final Path directory;
+    private final boolean groupCommit;
+    private final long commitWindowNanos;
+    private final int segmentBytes = Math.max(1, Integer.getInteger("bank.wal.segmentBytes", 64 * 1024 * 1024) / JournalRecord.SIZE) * JournalRecord.SIZE;
+    private final int applyBatchSize = Integer.getInteger("bank.wal.applyBatchSize", 500);
+    private final long maxPending = Long.getLong("bank.wal.maxPending", 100_000L);
+    private final TransactionDAO transactionDAO = new TransactionDAO();
+
+    // Guarded by appendLock.
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    private final CRC32 appendCrc = new CRC32();
+    private Segment current;
+    private long nextSequence;
+
+    private final ConcurrentLinkedQueue<Pending> pending = new ConcurrentLinkedQueue<>();
+    private volatile long writtenSequence;
+    private volatile long durableSequence;
+    private volatile long appliedSequence;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Object durableMonitor = new Object();
+    private final Object appliedMonitor = new Object();
+    private final AtomicLong forces = new AtomicLong();
+    private final Thread applier;
+    private volatile boolean closed;
+
+    private LedgerJournal(Path directory, boolean groupCommit, long commitWindowMicros) throws IOException {
+        this.directory = directory;
+        this.groupCommit = groupCommit;
+        this.commitWindowNanos = TimeUnit.MICROSECONDS.toNanos(commitWindowMicros);
+        Files.createDirectories(directory);
+        recover(readCheckpoint());
+        this.applier = new Thread(this::runApplier, "ledger-journal-applier");
+        this.applier.setDaemon(true);
+        this.applier.start();
+    }
+
+    /** Opens the journal in {@code directory} with group commit and the configured commit window. */
+    public static LedgerJournal open(Path directory) throws IOException {
+        return open(directory, true, Long.getLong("bank.wal.commitWindowMicros", 0L));
+    }
+
+    /**
+     * @param groupCommit        share one force between concurrent appends
+     * @param commitWindowMicros how long a group-commit leader waits for more appends before forcing
+     */
+    public static LedgerJournal open(Path directory, boolean groupCommit, long commitWindowMicros) throws IOException {
+        return new LedgerJournal(directory, groupCommit, commitWindowMicros);
+    }
+
+    /**
+     * Appends a ledger row and waits until it is durable in the journal. The row reaches the
+     * Transactions table later, through the applier; its transactionId is assigned there.
+     *
+     * @return the record's journal sequence
+     * @throws IllegalArgumentException if the row does not fit the fixed record layout
+     */
+    public long append(Transaction transaction) throws IOException {
+        return appendRecord(transaction).sequence;
+    }
+
+    /**
+     * Appends a ledger row like {@link #append}, then waits until the applier has inserted it and
+     * returns the transactionId it was given. Concurrent callers still share forces and are
+     * inserted in batches, but each waits for a database commit.
+     *
+     * @return the transactionId, or -1 if the database rejected the row or it was not inserted within the timeout
+     * @throws IllegalArgumentException if the row does not fit the fixed record layout
+     */
+    public int appendAndAwaitId(Transaction transaction, long timeoutMillis) throws IOException, InterruptedException {
+        Pending entry = appendRecord(transaction);
+        if (!awaitApplied(entry.sequence, timeoutMillis)) {
+            return -1;
+        }
+        return entry.transactionId > 0 ? entry.transactionId : -1;
+    }
+
+    private Pending appendRecord(Transaction transaction) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed.");
+        }
+        byte[] record = JournalRecord.encode(transaction);
+        Transaction row = new Transaction(transaction);
+        awaitCapacity();
+
+        long sequence;
+        Segment segment;
+        Pending entry;
+        appendLock.lock();
+        try {
+            if (current.isFull()) {
+                roll();
+            }
+            segment = current;
+            sequence = nextSequence++;
+            JournalRecord.seal(record, sequence, appendCrc);
+            segment.write(record);
+            entry = new Pending(sequence, row);
+            pending.add(entry);
+            writtenSequence = sequence;
+        } finally {
+            appendLock.unlock();
+        }
+
+        if (groupCommit) {
+            awaitDurable(sequence);
+        } else {
+            force(segment);
+            synchronized (durableMonitor) {
+                // Everything before this record was written earlier and is covered by the same force.
+                if (sequence > durableSequence) {
+                    durableSequence = sequence;
+                }
+            }
+            LockSupport.unpark(applier);
+        }
+        return entry;
+    }
+
+    /**
+     * Waits until every record up to {@code sequence} has been inserted into Transactions.
+     *
+     * @return false if that did not happen within the timeout
+     */
+    public boolean awaitApplied(long sequence, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        synchronized (appliedMonitor) {
+            while (appliedSequence < sequence) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    return false;
+                }
+                appliedMonitor.wait(remaining);
+            }
+        }
+        return true;
+    }
+
+    public long getWrittenSequence() { return writtenSequence; }
+    public long getDurableSequence() { return durableSequence; }
+    public long getAppliedSequence() { return appliedSequence; }
+    /** Number of forces issued so far; appends per force shows how well writes are being grouped. */
+    public long getForceCount() { return forces.get(); }
+
+    /**
+     * Stops accepting appends, gives the applier a bounded time to drain, and releases the segment
+     * files. Anything not applied by then is replayed on the next {@link #open}.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            awaitApplied(durableSequence, CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        applier.interrupt();
+        try {
+            applier.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        appendLock.lock();
+        try {
+            for (Segment segment : segments) {
+                segment.buffer.force();
+                segment.channel.close();
+            }
+            segments.clear();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // --- Durability ---
+
+    private void awaitDurable(long sequence) throws IOException {
+        while (durableSequence < sequence) {
+            if (flushLock.tryLock()) {
+                try {
+                    if (durableSequence < sequence) {
+                        flushGroup();
+                    }
+                } finally {
+                    flushLock.unlock();
+                }
+            } else {
+                synchronized (durableMonitor) {
+                    if (durableSequence < sequence) {
+                        try {
+                            durableMonitor.wait(1);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new InterruptedIOException("Interrupted while waiting for the journal to be forced.");
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // Runs as group-commit leader: lets the window fill up, then makes everything written so far durable with one force.
+    private void flushGroup() throws IOException {
+        if (commitWindowNanos > 0) {
+            LockSupport.parkNanos(commitWindowNanos);
+        }
+        long target;
+        Segment segment;
+        appendLock.lock();
+        try {
+            target = writtenSequence;
+            segment = current;
+        } finally {
+            appendLock.unlock();
+        }
+        // Records of earlier segments were forced when those segments were rolled.
+        force(segment);
+        synchronized (durableMonitor) {
+            durableSequence = target;
+            durableMonitor.notifyAll();
+        }
+        LockSupport.unpark(applier);
+    }
+
+    private void force(Segment segment) throws IOException {
+        try {
+            segment.buffer.force();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        forces.incrementAndGet();
+    }
+
+    private void awaitCapacity() throws IOException {
+        if (writtenSequence - appliedSequence < maxPending) {
+            return;
+        }
+        synchronized (appliedMonitor) {
+            while (writtenSequence - appliedSequence >= maxPending && !closed) {
+                try {
+                    appliedMonitor.wait(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the journal applier.");
+                }
+            }
+        }
+    }
+
+    // Caller holds appendLock.
+    private void roll() throws IOException {
+        force(current);
+        current.lastSequence = nextSequence - 1;
+        current = createSegment(nextSequence);
+        segments.add(current);
+    }
+
+    // --- Applier ---
+
+    private void runApplier() {
+        List<Pending> batch = new ArrayList<>(applyBatchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            batch.clear();
+            long durable = durableSequence;
+            for (Pending entry : pending) {
+                if (entry.sequence > durable || batch.size() == applyBatchSize) {
+                    break;
+                }
+                batch.add(entry);
+            }
+            if (batch.isEmpty()) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+                continue;
+            }
+            if (!applyWithRetry(batch)) {
+                return;
+            }
+        }
+    }
+
+    // Returns false only if interrupted while waiting to retry.
+    private boolean applyWithRetry(List<Pending> batch) {
+        while (true) {
+            try {
+                apply(batch);
+                return true;
+            } catch (SQLException e) {
+                if (isConstraintViolation(e)) {
+                    applyOneByOne(batch);
+                    return true;
+                }
+                System.err.println("Error applying journal entries (will retry): " + e.getMessage());
+            }
+            try {
+                Thread.sleep(APPLY_RETRY_MILLIS);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }
+    }
+
+    // A row the database rejects outright (e.g. unknown account) would block the journal forever;
+    // it is reported and skipped, just as a direct insert of it would have failed.
+    private void applyOneByOne(List<Pending> batch) {
+        for (Pending entry : batch) {
+            List<Pending> single = Collections.singletonList(entry);
+            while (true) {
+                try {
+                    apply(single);
+                    break;
+                } catch (SQLException e) {
+                    if (!isConstraintViolation(e)) {
+                        System.err.println("Error applying journal entry " + entry.sequence + " (will retry): " + e.getMessage());
+                        try {
+                            Thread.sleep(APPLY_RETRY_MILLIS);
+                        } catch (InterruptedException interrupted) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                        continue;
+                    }
+                    System.err.println("Dropping journal entry " + entry.sequence + " rejected by the database: " + e.getMessage());
+                    try {
+                        skip(entry);
+                        break;
+                    } catch (SQLException checkpointError) {
+                        System.err.println("Error skipping journal entry " + entry.sequence + ": " + checkpointError.getMessage());
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private void apply(List<Pending> batch) throws SQLException {
+        List<Transaction> rows = new ArrayList<>(batch.size());
+        for (Pending entry : batch) {
+            rows.add(new Transaction(entry.row));
+        }
+        long last = batch.get(batch.size() - 1).sequence;
+        try (Connection conn = DatabaseConnector.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                transactionDAO.createTransactions(conn, rows);
+                saveCheckpoint(conn, last);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).transactionId = rows.get(i).getTransactionId();
+        }
+        markApplied(batch.size(), last);
+    }
+
+    private void skip(Pending entry) throws SQLException {
+        try (Connection conn = DatabaseConnector.getConnection()) {
+            saveCheckpoint(conn, entry.sequence);
+        }
+        markApplied(1, entry.sequence);
+    }
+
+    private void markApplied(int count, long last) {
+        for (int i = 0; i < count; i++) {
+            pending.poll();
+        }
+        synchronized (appliedMonitor) {
+            appliedSequence = last;
+            appliedMonitor.notifyAll();
+        }
+        deleteAppliedSegments();
+    }
+
+    private void deleteAppliedSegments() {
+        appendLock.lock();
+        try {
+            for (Iterator<Segment> it = segments.iterator(); it.hasNext(); ) {
+                Segment segment = it.next();
+                if (segment == current || segment.lastSequence > appliedSequence) {
+                    break;
+                }
+                segment.channel.close();
+                Files.deleteIfExists(segment.path);
+                it.remove();
+            }
+        } catch (IOException e) {
+            System.err.println("Error deleting applied journal segment: " + e.getMessage());
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // SQLState class 23 is an integrity constraint violation, which retrying cannot fix.
+    private static boolean isConstraintViolation(SQLException e) {
+        return e.getSQLState() != null && e.getSQLState().startsWith("23");
+    }
+
+    // --- Checkpoint ---
+
+    private static long readCheckpoint() throws IOException {
+        try (Connection conn = DatabaseConnector.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT appliedSequence FROM JournalCheckpoint WHERE journalName = ?")) {
+            pstmt.setString(1, CHECKPOINT_NAME);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        } catch (SQLException e) {
+            throw new IOException("Could not read the journal checkpoint: " + e.getMessage(), e);
+        }
+    }
+
+    private static void saveCheckpoint(Connection conn, long sequence) throws SQLException {
+        try (PreparedStatement update = conn.prepareStatement("UPDATE JournalCheckpoint SET appliedSequence = ? WHERE journalName = ?")) {
+            update.setLong(1, sequence);
+            update.setString(2, CHECKPOINT_NAME);
+            if (update.executeUpdate() > 0) {
+                return;
+            }
+        }
+        try (PreparedStatement insert = conn.prepareStatement("INSERT INTO JournalCheckpoint (journalName, appliedSequence) VALUES (?, ?)")) {
+            insert.setString(1, CHECKPOINT_NAME);
+            insert.setLong(2, sequence);
+            insert.executeUpdate();
+        }
+    }
+
+    // --- Segments and recovery ---
+
+    /**
+     * Scans the segments in sequence order and queues every intact record after the checkpoint.
+     * The first empty, torn or out-of-order slot ends the journal: the rest of that segment is
+     * zeroed and later segments are removed, so stale records can never be mistaken for new ones.
+     */
+    private void recover(long checkpoint) throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                files.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())), file);
+            }
+        }
+
+        byte[] scratch = new byte[JournalRecord.SIZE];
+        CRC32 crc = new CRC32();
+        long last = 0;
+        boolean ended = false;
+        int replayed = 0;
+        for (Map.Entry<Long, Path> file : files.entrySet()) {
+            if (ended) {
+                Files.delete(file.getValue());
+                continue;
+            }
+            Segment segment = mapSegment(file.getValue(), file.getKey());
+            long expected = file.getKey();
+            while (!segment.isFull()) {
+                long sequence = JournalRecord.sequenceAt(segment.buffer, segment.position, scratch, crc);
+                if (sequence != expected || (last != 0 && sequence != last + 1)) {
+                    ended = true;
+                    break;
+                }
+                if (sequence > checkpoint) {
+                    pending.add(new Pending(sequence, JournalRecord.decode(scratch)));
+                    replayed++;
+                }
+                last = sequence;
+                expected++;
+                segment.position += JournalRecord.SIZE;
+            }
+            if (ended) {
+                segment.zeroFrom(segment.position);
+            }
+            segment.lastSequence = expected - 1;
+            segments.add(segment);
+        }
+
+        nextSequence = Math.max(last, checkpoint) + 1;
+        writtenSequence = nextSequence - 1;
+        durableSequence = nextSequence - 1;
+        appliedSequence = pending.isEmpty() ? nextSequence - 1 : pending.peek().sequence - 1;
+
+        Segment tail = segments.peekLast();
+        if (tail != null && !tail.isFull()
+                && tail.firstSequence + tail.position / JournalRecord.SIZE == nextSequence) {
+            current = tail;
+        } else {
+            current = createSegment(nextSequence);
+            segments.add(current);
+        }
+        current.lastSequence = Long.MAX_VALUE;
+        if (replayed > 0) {
+            InfoLog.println("Replaying " + replayed + " journal entries after sequence " + checkpoint + ".");
+        }
+    }
+
+    private Segment createSegment(long firstSequence) throws IOException {
+        Path file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        return mapSegment(file, firstSequence);
+    }
+
+    private Segment mapSegment(Path file, long firstSequence) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // Segments written with a larger bank.wal.segmentBytes keep their size.
+        long size = Math.max(segmentBytes, channel.size() / JournalRecord.SIZE * JournalRecord.SIZE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        return new Segment(file, channel, buffer, firstSequence);
+    }
+
+    private static final class Segment {
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final long firstSequence;
+        // Byte offset of the next free slot; guarded by appendLock once the journal is open.
+        private int position;
+        // Sequence of the last record, once the segment is full (Long.MAX_VALUE while it is being written).
+        private long lastSequence = Long.MAX_VALUE;
+
+        private Segment(Path path, FileChannel channel, MappedByteBuffer buffer, long firstSequence) {
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.firstSequence = firstSequence;
+        }
+
+        private boolean isFull() {
+            return position + JournalRecord.SIZE > buffer.capacity();
+        }
+
+        private void write(byte[] record) {
+            ByteBuffer target = buffer.duplicate();
+            target.position(position);
+            target.put(record);
+            position += record.length;
+        }
+
+        private void zeroFrom(int offset) {
+            ByteBuffer target = buffer.duplicate();
+            target.position(offset);
+            byte[] zeros = new byte[Math.min(64 * 1024, target.remaining())];
+            while (target.hasRemaining()) {
+                target.put(zeros, 0, Math.min(zeros.length, target.remaining()));
+            }
+            buffer.force();
+        }
+    }
+
+    private static final class Pending {
+        private final long sequence;
+        private final Transaction row;
+        // Set by the applier before it publishes appliedSequence; stays 0 for a skipped row.
+        private volatile int transactionId;
+
+        private Pending(long sequence, Transaction row) {
+            this.sequence = sequence;
+            this.row = row;
+        }
+    }
+}
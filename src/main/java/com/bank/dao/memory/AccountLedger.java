@@ -0,0 +1,317 @@
+// File: src/main/java/com/bank/dao/memory/AccountLedger.java
+
+package com.bank.dao.memory;
+
+import com.bank.model.Account;
+import com.bank.model.DailyRollup;
+import com.bank.model.Money;
+import com.bank.model.Transaction;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One account's state plus its append-only transaction history, oldest first. Transactions are
+ * appended under {@link #lock} with ascending ids and non-decreasing times, so the array is
+ * always sorted by (transactionTime, transactionId) and range queries are binary searches. The
+ * only change to a stored row is replacing it with a flagged copy.
+ *
+ * <p>Alongside the history the ledger keeps per-day totals, updated by the same appends and
+ * replacements. They hold no balances: opening and closing balances are worked out backwards from
+ * the current balance when read, so loading a snapshot (which restores the final account state
+ * before the history) or replaying a journal needs no balance history.
+ */
+final class AccountLedger {
+
+    final ReentrantLock lock = new ReentrantLock();
+
+    // Guarded by lock. The stored objects are private copies and are never mutated once stored.
+    private Account account;
+    private Transaction[] transactions = new Transaction[8];
+    private int size;
+    // Oldest day first; days follow the history's order, so only the last one is ever appended to.
+    private final List<DayTotals> days = new ArrayList<>();
+
+    AccountLedger(Account account) {
+        this.account = account;
+    }
+
+    /** Caller must hold {@link #lock}. */
+    Account account() {
+        return account;
+    }
+
+    /** Caller must hold {@link #lock}. */
+    void setAccount(Account account) {
+        this.account = account;
+    }
+
+    /** Caller must hold {@link #lock}. */
+    void append(Transaction transaction) {
+        if (size == transactions.length) {
+            transactions = Arrays.copyOf(transactions, size * 2);
+        }
+        transactions[size++] = transaction;
+        long epochDay = epochDay(transaction);
+        DayTotals day = days.isEmpty() ? null : days.get(days.size() - 1);
+        if (day == null || day.epochDay != epochDay) {
+            day = new DayTotals(epochDay);
+            days.add(day);
+        }
+        day.add(transaction);
+    }
+
+    /**
+     * Returns the stored transaction with the given id, or null. Ids ascend with position, so this
+     * is a binary search. Caller must hold {@link #lock}.
+     */
+    Transaction find(int transactionId) {
+        int index = indexOf(transactionId);
+        return index < 0 ? null : transactions[index];
+    }
+
+    /**
+     * Replaces the stored transaction that has the same id. The array is copied first, so history
+     * views handed out earlier keep seeing the rows they were created with. Caller must hold
+     * {@link #lock}.
+     *
+     * @return false if no transaction has that id
+     */
+    boolean replace(Transaction transaction) {
+        int index = indexOf(transaction.getTransactionId());
+        if (index < 0) {
+            return false;
+        }
+        if (transaction.isFlagged() && !transactions[index].isFlagged()) {
+            DayTotals day = findDay(epochDay(transactions[index]));
+            if (day != null) {
+                day.flaggedCount++;
+            }
+        }
+        transactions = Arrays.copyOf(transactions, transactions.length);
+        transactions[index] = transaction;
+        return true;
+    }
+
+    private int indexOf(int transactionId) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int id = transactions[mid].getTransactionId();
+            if (id < transactionId) {
+                low = mid + 1;
+            } else if (id > transactionId) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Recomputes the per-day totals from the history. Caller must hold {@link #lock}.
+     *
+     * @return the number of days with transactions
+     */
+    int rebuildDays() {
+        days.clear();
+        for (int i = 0; i < size; i++) {
+            long epochDay = epochDay(transactions[i]);
+            if (days.isEmpty() || days.get(days.size() - 1).epochDay != epochDay) {
+                days.add(new DayTotals(epochDay));
+            }
+            days.get(days.size() - 1).add(transactions[i]);
+        }
+        return days.size();
+    }
+
+    /**
+     * Rollups from {@code from} to {@code to} (both inclusive), oldest first. Caller must hold {@link #lock}.
+     */
+    List<DailyRollup> rollups(LocalDate from, LocalDate to) {
+        List<DailyRollup> rollups = new ArrayList<>();
+        Money closing = account.getBalance();
+        for (int i = days.size() - 1; i >= 0 && days.get(i).epochDay >= from.toEpochDay(); i--) {
+            DayTotals day = days.get(i);
+            if (day.epochDay <= to.toEpochDay()) {
+                rollups.add(day.toRollup(account.getAccountId(), closing));
+            }
+            closing = day.opening(closing);
+        }
+        Collections.reverse(rollups);
+        return rollups;
+    }
+
+    /**
+     * The rollup of {@code date}, else the latest one before it, else the earliest one after it;
+     * null without any transactions. Caller must hold {@link #lock}.
+     */
+    DailyRollup nearestRollup(LocalDate date) {
+        Money closing = account.getBalance();
+        for (int i = days.size() - 1; i >= 0; i--) {
+            DayTotals day = days.get(i);
+            if (day.epochDay <= date.toEpochDay() || i == 0) {
+                return day.toRollup(account.getAccountId(), closing);
+            }
+            closing = day.opening(closing);
+        }
+        return null;
+    }
+
+    private DayTotals findDay(long epochDay) {
+        int low = 0;
+        int high = days.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long day = days.get(mid).epochDay;
+            if (day < epochDay) {
+                low = mid + 1;
+            } else if (day > epochDay) {
+                high = mid - 1;
+            } else {
+                return days.get(mid);
+            }
+        }
+        return null;
+    }
+
+    // Calendar day in the default time zone, as the JDBC engine's CAST(transactionTime AS DATE).
+    private static long epochDay(Transaction transaction) {
+        return transaction.getTransactionTime().toLocalDateTime().toLocalDate().toEpochDay();
+    }
+
+    /** Caller must hold {@link #lock}. */
+    int lastTransactionId() {
+        return size == 0 ? 0 : transactions[size - 1].getTransactionId();
+    }
+
+    /**
+     * Time for the next transaction: the wall clock, but never earlier than the newest transaction,
+     * so the history stays in order even if the clock steps back. Caller must hold {@link #lock}.
+     */
+    long nextTransactionTime(long nowMillis) {
+        return size == 0 ? nowMillis : Math.max(nowMillis, transactions[size - 1].getTransactionTime().getTime());
+    }
+
+    /**
+     * Returns the history as it is right now. The returned view stays valid after the lock is
+     * released: later appends go past its end or into a new array.
+     */
+    History history() {
+        lock.lock();
+        try {
+            return new History(transactions, size);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** One day's activity, as amounts in minor units. */
+    private static final class DayTotals {
+        final long epochDay;
+        long depositCount;
+        long depositMinor;
+        long withdrawalCount;
+        long withdrawalMinor;
+        long flaggedCount;
+
+        DayTotals(long epochDay) {
+            this.epochDay = epochDay;
+        }
+
+        void add(Transaction transaction) {
+            if (transaction.isDebit()) {
+                withdrawalCount++;
+                withdrawalMinor = Math.addExact(withdrawalMinor, transaction.getAmount().getMinorUnits());
+            } else {
+                depositCount++;
+                depositMinor = Math.addExact(depositMinor, transaction.getAmount().getMinorUnits());
+            }
+            if (transaction.isFlagged()) {
+                flaggedCount++;
+            }
+        }
+
+        Money opening(Money closing) {
+            return closing.minus(Money.ofMinor(depositMinor)).plus(Money.ofMinor(withdrawalMinor));
+        }
+
+        DailyRollup toRollup(int accountId, Money closing) {
+            DailyRollup rollup = new DailyRollup();
+            rollup.setAccountId(accountId);
+            rollup.setDate(LocalDate.ofEpochDay(epochDay));
+            rollup.setOpeningBalance(opening(closing));
+            rollup.setClosingBalance(closing);
+            rollup.setDepositCount(depositCount);
+            rollup.setDepositSum(Money.ofMinor(depositMinor));
+            rollup.setWithdrawalCount(withdrawalCount);
+            rollup.setWithdrawalSum(Money.ofMinor(withdrawalMinor));
+            rollup.setFlaggedCount(flaggedCount);
+            return rollup;
+        }
+    }
+
+    /** Immutable view of the first {@code size} transactions, oldest first. */
+    static final class History {
+        final Transaction[] transactions;
+        final int size;
+
+        private History(Transaction[] transactions, int size) {
+            this.transactions = transactions;
+            this.size = size;
+        }
+
+        /** Index of the first transaction at or after {@code timeMillis}; {@code size} if there is none. */
+        int firstAtOrAfter(long timeMillis) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (transactions[mid].getTransactionTime().getTime() < timeMillis) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /** Index of the first transaction ordered at or after (timeMillis, transactionId); {@code size} if there is none. */
+        int firstAtOrAfter(long timeMillis, int transactionId) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                Transaction t = transactions[mid];
+                long time = t.getTransactionTime().getTime();
+                if (time < timeMillis || (time == timeMillis && t.getTransactionId() < transactionId)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /** Index of the first transaction with an id above {@code transactionId}; {@code size} if there is none. */
+        int firstAfterId(int transactionId) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (transactions[mid].getTransactionId() <= transactionId) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+// File: src/main/java/com/bank/dao/memory/ChangeSet.java
+
+package com.bank.dao.memory;
+
+import com.bank.model.Account;
+import com.bank.model.Money;
+import com.bank.model.Transaction;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The effect of one write: the new state of every account it touched and the transactions it
+ * appended, plus the flagged versions of transactions that were flagged after they were stored.
+ * Change sets carry results rather than operations, so applying one is idempotent: account
+ * states only replace older versions, transactions are only appended past the ledger's last id
+ * and a flagged row only replaces an unflagged one. The same encoding is used by the journal and
+ * the snapshot.
+ */
+final class ChangeSet {
+
+    final List<Account> accounts;
+    final List<Transaction> transactions;
+    final List<Transaction> flagged;
+
+    ChangeSet(List<Account> accounts, List<Transaction> transactions) {
+        this(accounts, transactions, Collections.emptyList());
+    }
+
+    ChangeSet(List<Account> accounts, List<Transaction> transactions, List<Transaction> flagged) {
+        this.accounts = accounts;
+        this.transactions = transactions;
+        this.flagged = flagged;
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(accounts.size());
+        for (Account account : accounts) {
+            out.writeInt(account.getAccountId());
+            writeString(out, account.getCustomerName());
+            writeString(out, account.getAccountType());
+            writeMoney(out, account.getBalance());
+            writeMoney(out, account.getAvgTransactionAmount());
+            out.writeLong(account.getTransactionCount());
+            writeMoney(out, account.getTransactionSum());
+            out.writeDouble(account.getAmountM2());
+            out.writeLong(account.getVersion());
+            out.writeLong(account.getCreatedAt() == null ? Long.MIN_VALUE : account.getCreatedAt().getTime());
+        }
+        writeTransactions(out, transactions);
+        writeTransactions(out, flagged);
+    }
+
+    static ChangeSet readFrom(DataInput in) throws IOException {
+        int accountCount = in.readInt();
+        List<Account> accounts = new ArrayList<>(accountCount);
+        for (int i = 0; i < accountCount; i++) {
+            Account account = new Account();
+            account.setAccountId(in.readInt());
+            account.setCustomerName(readString(in));
+            account.setAccountType(readString(in));
+            account.setBalance(readMoney(in));
+            account.setAvgTransactionAmount(readMoney(in));
+            account.setTransactionCount(in.readLong());
+            account.setTransactionSum(readMoney(in));
+            account.setAmountM2(in.readDouble());
+            account.setVersion(in.readLong());
+            long createdAt = in.readLong();
+            account.setCreatedAt(createdAt == Long.MIN_VALUE ? null : new Timestamp(createdAt));
+            accounts.add(account);
+        }
+        List<Transaction> transactions = readTransactions(in);
+        List<Transaction> flagged = readTransactions(in);
+        return new ChangeSet(accounts, transactions, flagged);
+    }
+
+    private static void writeTransactions(DataOutput out, List<Transaction> transactions) throws IOException {
+        out.writeInt(transactions.size());
+        for (Transaction transaction : transactions) {
+            out.writeInt(transaction.getTransactionId());
+            out.writeInt(transaction.getAccountId());
+            writeString(out, transaction.getTransactionType());
+            writeMoney(out, transaction.getAmount());
+            out.writeBoolean(transaction.isFlagged());
+            writeString(out, transaction.getReasonForFlag());
+            out.writeLong(transaction.getTransactionTime().getTime());
+            out.writeInt(transaction.getLinkedTransactionId());
+        }
+    }
+
+    private static List<Transaction> readTransactions(DataInput in) throws IOException {
+        int count = in.readInt();
+        List<Transaction> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setTransactionId(in.readInt());
+            transaction.setAccountId(in.readInt());
+            transaction.setTransactionType(readString(in));
+            transaction.setAmount(readMoney(in));
+            transaction.setFlagged(in.readBoolean());
+            transaction.setReasonForFlag(readString(in));
+            transaction.setTransactionTime(new Timestamp(in.readLong()));
+            transaction.setLinkedTransactionId(in.readInt());
+            transactions.add(transaction);
+        }
+        return transactions;
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeMoney(DataOutput out, Money value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.getMinorUnits());
+        }
+    }
+
+    private static Money readMoney(DataInput in) throws IOException {
+        return in.readBoolean() ? Money.ofMinor(in.readLong()) : null;
+    }
+}
@@ -0,0 +1,94 @@
+// File: src/main/java/com/bank/dao/memory/ConcurrentIntMap.java
+
+package com.bank.dao.memory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Concurrent map from non-negative int keys to values, without boxing the keys. Built for densely
+ * allocated ids such as auto-increment keys: values live in fixed-size chunks addressed directly
+ * by the key, so lookups are two array reads and never take a lock. Memory grows with the largest
+ * key, not with the number of entries. Entries cannot be removed.
+ */
+final class ConcurrentIntMap<V> {
+
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    // Replaced (never mutated) when a chunk is added, so readers always see fully built chunks.
+    private volatile AtomicReferenceArray<V>[] chunks = newDirectory(16);
+    private final AtomicInteger size = new AtomicInteger();
+
+    V get(int key) {
+        if (key < 0) {
+            return null;
+        }
+        AtomicReferenceArray<V>[] directory = chunks;
+        int chunkIndex = key >>> CHUNK_BITS;
+        if (chunkIndex >= directory.length || directory[chunkIndex] == null) {
+            return null;
+        }
+        return directory[chunkIndex].get(key & CHUNK_MASK);
+    }
+
+    /**
+     * @return the value already mapped to {@code key}, or null if {@code value} was installed
+     */
+    V putIfAbsent(int key, V value) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Keys must not be negative: " + key);
+        }
+        AtomicReferenceArray<V> chunk = chunkFor(key);
+        if (chunk.compareAndSet(key & CHUNK_MASK, null, value)) {
+            size.incrementAndGet();
+            return null;
+        }
+        return chunk.get(key & CHUNK_MASK);
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    /** Visits every value in ascending key order. Values added concurrently may or may not be seen. */
+    void forEach(Consumer<V> action) {
+        for (AtomicReferenceArray<V> chunk : chunks) {
+            if (chunk == null) {
+                continue;
+            }
+            for (int i = 0; i < CHUNK_SIZE; i++) {
+                V value = chunk.get(i);
+                if (value != null) {
+                    action.accept(value);
+                }
+            }
+        }
+    }
+
+    private AtomicReferenceArray<V> chunkFor(int key) {
+        int chunkIndex = key >>> CHUNK_BITS;
+        AtomicReferenceArray<V>[] directory = chunks;
+        if (chunkIndex < directory.length && directory[chunkIndex] != null) {
+            return directory[chunkIndex];
+        }
+        synchronized (this) {
+            directory = chunks;
+            if (chunkIndex < directory.length && directory[chunkIndex] != null) {
+                return directory[chunkIndex];
+            }
+            AtomicReferenceArray<V>[] grown = newDirectory(Math.max(directory.length, Integer.highestOneBit(chunkIndex) << 1));
+            System.arraycopy(directory, 0, grown, 0, directory.length);
+            grown[chunkIndex] = new AtomicReferenceArray<>(CHUNK_SIZE);
+            chunks = grown;
+            return grown[chunkIndex];
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> AtomicReferenceArray<V>[] newDirectory(int length) {
+        return (AtomicReferenceArray<V>[]) new AtomicReferenceArray<?>[length];
+    }
+}
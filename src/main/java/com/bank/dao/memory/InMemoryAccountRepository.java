@@ -0,0 +1,402 @@
+// File: src/main/java/com/bank/dao/memory/InMemoryAccountRepository.java
+
+package com.bank.dao.memory;
+
+import com.bank.dao.AccountRepository;
+import com.bank.exception.InsufficientFundsException;
+import com.bank.model.Account;
+import com.bank.model.DailyRollup;
+import com.bank.model.Money;
+import com.bank.model.Transaction;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * {@link AccountRepository} over an {@link InMemoryStorage}. Each write builds the new account
+ * states and ledger rows on copies while holding the account locks, commits them as one
+ * {@link ChangeSet}, and only then copies the result back to the caller's objects.
+ */
+class InMemoryAccountRepository implements AccountRepository {
+
+    private final InMemoryStorage storage;
+
+    InMemoryAccountRepository(InMemoryStorage storage) {
+        this.storage = storage;
+    }
+
+    @Override
+    public int createAccount(Account account) {
+        storage.writeGuard().lock();
+        try {
+            Account row = new Account(account);
+            row.setAccountId(storage.nextAccountId());
+            row.setVersion(0);
+            row.setCreatedAt(new Timestamp(System.currentTimeMillis()));
+            storage.commit(new ChangeSet(Collections.singletonList(row), Collections.emptyList()));
+            account.setAccountId(row.getAccountId());
+            return row.getAccountId();
+        } catch (IOException e) {
+            System.err.println("Error creating account: " + e.getMessage());
+            return -1;
+        } finally {
+            storage.writeGuard().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Account> findAccountById(int accountId) {
+        AccountLedger ledger = storage.ledger(accountId);
+        if (ledger == null) {
+            return Optional.empty();
+        }
+        ledger.lock.lock();
+        try {
+            return Optional.of(new Account(ledger.account()));
+        } finally {
+            ledger.lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean updateAccount(Account account) {
+        AccountLedger ledger = storage.ledger(account.getAccountId());
+        if (ledger == null) {
+            return false;
+        }
+        storage.writeGuard().lock();
+        ledger.lock.lock();
+        try {
+            Account row = new Account(ledger.account());
+            row.setBalance(account.getBalance());
+            row.setAvgTransactionAmount(account.getAvgTransactionAmount());
+            row.setTransactionCount(account.getTransactionCount());
+            row.setTransactionSum(account.getTransactionSum());
+            row.setAmountM2(account.getAmountM2());
+            row.setVersion(row.getVersion() + 1);
+            storage.commit(new ChangeSet(Collections.singletonList(row), Collections.emptyList()));
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error updating account: " + e.getMessage());
+            return false;
+        } finally {
+            ledger.lock.unlock();
+            storage.writeGuard().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Money> applyCredit(Account account, Money amount, Transaction transaction) {
+        try {
+            return applyDelta(account, amount, amount, transaction);
+        } catch (InsufficientFundsException e) {
+            // Unreachable: credits are never guarded.
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public Optional<Money> applyDebit(Account account, Money amount, Transaction transaction) throws InsufficientFundsException {
+        return applyDelta(account, amount.negate(), amount, transaction);
+    }
+
+    private Optional<Money> applyDelta(Account account, Money delta, Money amount, Transaction transaction) throws InsufficientFundsException {
+        AccountLedger ledger = storage.ledger(account.getAccountId());
+        if (ledger == null) {
+            System.err.println("Balance update failed: Account not found with ID " + account.getAccountId());
+            return Optional.empty();
+        }
+        storage.writeGuard().lock();
+        ledger.lock.lock();
+        try {
+            Account row = new Account(ledger.account());
+            if (delta.signum() < 0 && row.getBalance().isLessThan(amount)) {
+                throw new InsufficientFundsException("Insufficient funds for withdrawal. Current balance: " + row.getBalance());
+            }
+            applyToRow(row, delta, amount, transaction);
+            Transaction entry = newEntry(ledger, transaction, System.currentTimeMillis());
+            storage.commit(new ChangeSet(Collections.singletonList(row), Collections.singletonList(entry)));
+
+            assignGenerated(entry, transaction);
+            copyBalanceAndAggregates(row, account);
+            return Optional.of(row.getBalance());
+        } catch (IOException e) {
+            System.err.println("Error applying balance change: " + e.getMessage());
+            return Optional.empty();
+        } finally {
+            ledger.lock.unlock();
+            storage.writeGuard().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Money> transfer(Account from, Account to, Money amount, Transaction debit, Transaction credit) throws InsufficientFundsException {
+        AccountLedger fromLedger = storage.ledger(from.getAccountId());
+        AccountLedger toLedger = storage.ledger(to.getAccountId());
+        if (fromLedger == null || toLedger == null || fromLedger == toLedger) {
+            System.err.println("Transfer failed: One or both accounts not found.");
+            return Optional.empty();
+        }
+        AccountLedger first = from.getAccountId() < to.getAccountId() ? fromLedger : toLedger;
+        AccountLedger second = first == fromLedger ? toLedger : fromLedger;
+
+        storage.writeGuard().lock();
+        first.lock.lock();
+        second.lock.lock();
+        try {
+            Account fromRow = new Account(fromLedger.account());
+            Account toRow = new Account(toLedger.account());
+            if (fromRow.getBalance().isLessThan(amount)) {
+                throw new InsufficientFundsException("Insufficient funds for transfer. Current balance: " + fromRow.getBalance());
+            }
+            applyToRow(fromRow, amount.negate(), amount, debit);
+            applyToRow(toRow, amount, amount, credit);
+            long now = System.currentTimeMillis();
+            Transaction debitEntry = newEntry(fromLedger, debit, now);
+            Transaction creditEntry = newEntry(toLedger, credit, now);
+            debitEntry.setLinkedTransactionId(creditEntry.getTransactionId());
+            creditEntry.setLinkedTransactionId(debitEntry.getTransactionId());
+            storage.commit(new ChangeSet(Arrays.asList(fromRow, toRow), Arrays.asList(debitEntry, creditEntry)));
+
+            assignGenerated(debitEntry, debit);
+            assignGenerated(creditEntry, credit);
+            copyBalanceAndAggregates(fromRow, from);
+            copyBalanceAndAggregates(toRow, to);
+            return Optional.of(fromRow.getBalance());
+        } catch (IOException e) {
+            System.err.println("Error transferring funds: " + e.getMessage());
+            return Optional.empty();
+        } finally {
+            second.lock.unlock();
+            first.lock.unlock();
+            storage.writeGuard().unlock();
+        }
+    }
+
+    @Override
+    public boolean applyBatch(Collection<Integer> accountIds, BatchWork work) {
+        if (accountIds.isEmpty()) {
+            return true;
+        }
+        List<AccountLedger> locked = new ArrayList<>();
+        storage.writeGuard().lock();
+        try {
+            Map<Integer, Account> accounts = new HashMap<>();
+            Map<Integer, AccountLedger> ledgers = new HashMap<>();
+            for (Integer id : new TreeSet<>(accountIds)) {
+                AccountLedger ledger = storage.ledger(id);
+                if (ledger != null) {
+                    ledger.lock.lock();
+                    locked.add(ledger);
+                    ledgers.put(id, ledger);
+                    accounts.put(id, new Account(ledger.account()));
+                }
+            }
+
+            List<Transaction> transactions = work.apply(accounts);
+
+            // One timestamp for the whole batch keeps several rows of one account in id order.
+            long now = System.currentTimeMillis();
+            TreeSet<Integer> touched = new TreeSet<>();
+            List<Transaction> entries = new ArrayList<>(transactions.size());
+            for (Transaction transaction : transactions) {
+                AccountLedger ledger = ledgers.get(transaction.getAccountId());
+                if (ledger == null) {
+                    System.err.println("Error applying batch: Transaction refers to account " + transaction.getAccountId() + ", which is not part of the batch.");
+                    return false;
+                }
+                touched.add(transaction.getAccountId());
+                entries.add(newEntry(ledger, transaction, now));
+            }
+            List<Account> rows = new ArrayList<>(touched.size());
+            for (Integer id : touched) {
+                Account account = accounts.get(id);
+                account.setVersion(account.getVersion() + 1);
+                rows.add(new Account(account));
+            }
+            storage.commit(new ChangeSet(rows, entries));
+
+            for (int i = 0; i < transactions.size(); i++) {
+                assignGenerated(entries.get(i), transactions.get(i));
+            }
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error applying batch: " + e.getMessage());
+            return false;
+        } finally {
+            for (int i = locked.size() - 1; i >= 0; i--) {
+                locked.get(i).lock.unlock();
+            }
+            storage.writeGuard().unlock();
+        }
+    }
+
+    @Override
+    public int flagTransactions(List<Transaction> transactions) {
+        Map<Integer, List<Transaction>> byAccount = new TreeMap<>();
+        for (Transaction transaction : transactions) {
+            byAccount.computeIfAbsent(transaction.getAccountId(), id -> new ArrayList<>()).add(transaction);
+        }
+        int flagged = 0;
+        // One change set per account, so only one account lock is held at a time.
+        for (Map.Entry<Integer, List<Transaction>> group : byAccount.entrySet()) {
+            AccountLedger ledger = storage.ledger(group.getKey());
+            if (ledger == null) {
+                continue;
+            }
+            storage.writeGuard().lock();
+            ledger.lock.lock();
+            try {
+                Account row = new Account(ledger.account());
+                List<Transaction> replacements = new ArrayList<>();
+                for (Transaction transaction : group.getValue()) {
+                    Transaction stored = ledger.find(transaction.getTransactionId());
+                    if (stored == null || stored.isFlagged()) {
+                        continue;
+                    }
+                    Transaction replacement = new Transaction(stored);
+                    replacement.setFlagged(true);
+                    replacement.setReasonForFlag(transaction.getReasonForFlag());
+                    replacements.add(replacement);
+                    row.unfoldFromAggregates(stored.getAmount());
+                }
+                if (replacements.isEmpty()) {
+                    continue;
+                }
+                row.setVersion(row.getVersion() + 1);
+                storage.commit(new ChangeSet(Collections.singletonList(row), Collections.emptyList(), replacements));
+                flagged += replacements.size();
+            } catch (IOException e) {
+                System.err.println("Error flagging transactions: " + e.getMessage());
+                return -1;
+            } finally {
+                ledger.lock.unlock();
+                storage.writeGuard().unlock();
+            }
+        }
+        return flagged;
+    }
+
+    @Override
+    public int backfillTransactionAggregates() {
+        int updated = 0;
+        for (AccountLedger ledger : storage.ledgers()) {
+            storage.writeGuard().lock();
+            ledger.lock.lock();
+            try {
+                Account row = new Account(ledger.account());
+                row.setTransactionCount(0);
+                row.setTransactionSum(Money.ZERO);
+                row.setAmountM2(0.0);
+                AccountLedger.History history = ledger.history();
+                for (int i = 0; i < history.size; i++) {
+                    Transaction transaction = history.transactions[i];
+                    if (!transaction.isFlagged()) {
+                        row.foldIntoAggregates(transaction.getAmount());
+                    }
+                }
+                if (row.getTransactionCount() == 0) {
+                    continue;
+                }
+                row.setVersion(row.getVersion() + 1);
+                storage.commit(new ChangeSet(Collections.singletonList(row), Collections.emptyList()));
+                updated++;
+            } catch (IOException e) {
+                System.err.println("Error backfilling transaction aggregates: " + e.getMessage());
+                return -1;
+            } finally {
+                ledger.lock.unlock();
+                storage.writeGuard().unlock();
+            }
+        }
+        return updated;
+    }
+
+    @Override
+    public List<DailyRollup> findDailyRollups(int accountId, LocalDate from, LocalDate to) {
+        AccountLedger ledger = storage.ledger(accountId);
+        if (ledger == null) {
+            return new ArrayList<>();
+        }
+        ledger.lock.lock();
+        try {
+            return ledger.rollups(from, to);
+        } finally {
+            ledger.lock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<DailyRollup> findNearestDailyRollup(int accountId, LocalDate date) {
+        AccountLedger ledger = storage.ledger(accountId);
+        if (ledger == null) {
+            return Optional.empty();
+        }
+        ledger.lock.lock();
+        try {
+            return Optional.ofNullable(ledger.nearestRollup(date));
+        } finally {
+            ledger.lock.unlock();
+        }
+    }
+
+    // The per-day totals are kept up to date by every append; this recomputes them from the history.
+    @Override
+    public int rebuildDailyRollups() {
+        int rebuilt = 0;
+        for (AccountLedger ledger : storage.ledgers()) {
+            ledger.lock.lock();
+            try {
+                if (ledger.rebuildDays() > 0) {
+                    rebuilt++;
+                }
+            } finally {
+                ledger.lock.unlock();
+            }
+        }
+        return rebuilt;
+    }
+
+    // Same effect as AccountDAO's UPDATE: the balance always moves, the aggregates only for unflagged amounts.
+    private static void applyToRow(Account row, Money delta, Money amount, Transaction transaction) {
+        row.setBalance(row.getBalance().plus(delta));
+        if (!transaction.isFlagged()) {
+            row.foldIntoAggregates(amount);
+        }
+        row.setVersion(row.getVersion() + 1);
+    }
+
+    // The stored ledger row is a private copy with the id and time the engine assigns.
+    private Transaction newEntry(AccountLedger ledger, Transaction transaction, long nowMillis) {
+        Transaction entry = new Transaction(transaction);
+        entry.setTransactionId(storage.nextTransactionId());
+        entry.setTransactionTime(new Timestamp(ledger.nextTransactionTime(nowMillis)));
+        return entry;
+    }
+
+    private static void assignGenerated(Transaction entry, Transaction transaction) {
+        transaction.setTransactionId(entry.getTransactionId());
+        transaction.setTransactionTime(entry.getTransactionTime());
+        transaction.setLinkedTransactionId(entry.getLinkedTransactionId());
+    }
+
+    private static void copyBalanceAndAggregates(Account from, Account to) {
+        to.setBalance(from.getBalance());
+        to.setAvgTransactionAmount(from.getAvgTransactionAmount());
+        to.setTransactionCount(from.getTransactionCount());
+        to.setTransactionSum(from.getTransactionSum());
+        to.setAmountM2(from.getAmountM2());
+        to.setVersion(from.getVersion());
+    }
+}
@@ -0,0 +1,263 @@
+// File: src/main/java/com/bank/dao/memory/InMemoryStorage.java
+
+package com.bank.dao.memory;
+
+import com.bank.dao.AccountRepository;
+import com.bank.dao.InfoLog;
+import com.bank.dao.TransactionRepository;
+import com.bank.model.Account;
+import com.bank.model.Transaction;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process storage engine behind {@link #accounts()} and {@link #transactions()}: the whole
+ * ledger lives in memory, so operations cost no I/O beyond the optional replay log.
+ *
+ * <ul>
+ *   <li>Accounts are held in a lock-free int-keyed table; each account owns a lock, its current
+ *       state and its append-only transaction history.</li>
+ *   <li>Writes lock the accounts they touch in ascending id order, exactly like the JDBC transfer.</li>
+ *   <li>Created with {@link #open(Path)}, every write is appended to {@code journal.log} before it
+ *       becomes visible. {@link #snapshot()} (also run by {@link #close()}) writes the full state
+ *       to {@code snapshot.bin} and empties the journal; startup loads the snapshot and replays
+ *       the journal. Created with the no-arg constructor, nothing is persisted.</li>
+ * </ul>
+ *
+ * Ids are assigned by the engine and are never reused.
+ */
+public class InMemoryStorage implements AutoCloseable {
+
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+    private static final String JOURNAL_FILE = "journal.log";
+    private static final int SNAPSHOT_MAGIC = 0x424B5333; // "BKS3"
+    private static final int SNAPSHOT_TRANSACTIONS_PER_FRAME = 4096;
+
+    private final ConcurrentIntMap<AccountLedger> ledgers = new ConcurrentIntMap<>();
+    private final AtomicInteger lastAccountId = new AtomicInteger();
+    private final AtomicInteger lastTransactionId = new AtomicInteger();
+    // Writes share the read side; snapshot() takes the write side so it sees no half-applied write.
+    private final ReentrantReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+    private final Path directory;
+    private final Journal journal;
+    private final InMemoryAccountRepository accountRepository = new InMemoryAccountRepository(this);
+    private final InMemoryTransactionRepository transactionRepository = new InMemoryTransactionRepository(this);
+
+    /** Volatile storage: nothing is written to disk. */
+    public InMemoryStorage() {
+        this.directory = null;
+        this.journal = null;
+    }
+
+    private InMemoryStorage(Path directory, boolean syncOnWrite) throws IOException {
+        Files.createDirectories(directory);
+        this.directory = directory;
+        loadSnapshot(directory.resolve(SNAPSHOT_FILE));
+        this.journal = Journal.openAndReplay(directory.resolve(JOURNAL_FILE), syncOnWrite, this::apply);
+    }
+
+    /**
+     * Opens (or creates) durable storage in {@code directory}, recovering the snapshot and journal
+     * found there. The journal is fsynced on every write if {@code -Dbank.memory.fsync=true};
+     * otherwise writes survive a process crash but not an operating system crash.
+     */
+    public static InMemoryStorage open(Path directory) throws IOException {
+        return open(directory, Boolean.getBoolean("bank.memory.fsync"));
+    }
+
+    public static InMemoryStorage open(Path directory, boolean syncOnWrite) throws IOException {
+        InMemoryStorage storage = new InMemoryStorage(directory, syncOnWrite);
+        InfoLog.println("Recovered " + storage.getAccountCount() + " accounts and " + storage.lastTransactionId.get() + " transaction ids from " + directory);
+        return storage;
+    }
+
+    public AccountRepository accounts() {
+        return accountRepository;
+    }
+
+    public TransactionRepository transactions() {
+        return transactionRepository;
+    }
+
+    public int getAccountCount() {
+        return ledgers.size();
+    }
+
+    public boolean isDurable() {
+        return journal != null;
+    }
+
+    /**
+     * Writes the complete state to a new snapshot and empties the journal. Writers are paused while
+     * the snapshot is written; reads continue.
+     */
+    public void snapshot() throws IOException {
+        if (directory == null) {
+            throw new IllegalStateException("Volatile storage has no directory to snapshot to.");
+        }
+        checkpointLock.writeLock().lock();
+        try {
+            List<AccountLedger> all = ledgers();
+
+            Path target = directory.resolve(SNAPSHOT_FILE);
+            Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(lastAccountId.get());
+                out.writeInt(lastTransactionId.get());
+                for (AccountLedger ledger : all) {
+                    Account account;
+                    ledger.lock.lock();
+                    try {
+                        account = ledger.account();
+                    } finally {
+                        ledger.lock.unlock();
+                    }
+                    Journal.writeFrame(out, new ChangeSet(Collections.singletonList(account), Collections.emptyList()));
+                    AccountLedger.History history = ledger.history();
+                    List<Transaction> transactions = Arrays.asList(history.transactions).subList(0, history.size);
+                    for (int from = 0; from < transactions.size(); from += SNAPSHOT_TRANSACTIONS_PER_FRAME) {
+                        List<Transaction> chunk = transactions.subList(from, Math.min(from + SNAPSHOT_TRANSACTIONS_PER_FRAME, transactions.size()));
+                        Journal.writeFrame(out, new ChangeSet(Collections.emptyList(), chunk));
+                    }
+                }
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            journal.reset();
+            InfoLog.println("Wrote snapshot of " + all.size() + " accounts to " + target);
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+    }
+
+    /** Takes a final snapshot (for durable storage) and releases the journal. */
+    @Override
+    public void close() throws IOException {
+        if (journal != null) {
+            snapshot();
+            journal.close();
+        }
+    }
+
+    // --- Engine primitives used by the repositories ---
+
+    /** Held (shared) by every write for its whole duration, so snapshots never see half of one. */
+    Lock writeGuard() {
+        return checkpointLock.readLock();
+    }
+
+    AccountLedger ledger(int accountId) {
+        return ledgers.get(accountId);
+    }
+
+    /** Every account ledger, in ascending id order. */
+    List<AccountLedger> ledgers() {
+        List<AccountLedger> all = new ArrayList<>(ledgers.size());
+        ledgers.forEach(all::add);
+        return all;
+    }
+
+    int nextAccountId() {
+        return lastAccountId.incrementAndGet();
+    }
+
+    int nextTransactionId() {
+        return lastTransactionId.incrementAndGet();
+    }
+
+    /**
+     * Makes a write durable (if journaled) and then visible. Callers hold the locks of every account
+     * in the change set and the {@link #writeGuard()}. Nothing is applied if the journal write fails.
+     */
+    void commit(ChangeSet changeSet) throws IOException {
+        if (journal != null) {
+            journal.append(changeSet);
+        }
+        apply(changeSet);
+    }
+
+    private void apply(ChangeSet changeSet) {
+        for (Account account : changeSet.accounts) {
+            AccountLedger ledger = ledgers.get(account.getAccountId());
+            if (ledger == null) {
+                ledger = ledgers.putIfAbsent(account.getAccountId(), new AccountLedger(account));
+            }
+            if (ledger != null) {
+                ledger.lock.lock();
+                try {
+                    // Replaying a journal that predates the snapshot must not roll an account back.
+                    if (account.getVersion() > ledger.account().getVersion()) {
+                        ledger.setAccount(account);
+                    }
+                } finally {
+                    ledger.lock.unlock();
+                }
+            }
+            lastAccountId.accumulateAndGet(account.getAccountId(), Math::max);
+        }
+        for (Transaction transaction : changeSet.transactions) {
+            AccountLedger ledger = ledgers.get(transaction.getAccountId());
+            if (ledger == null) {
+                throw new IllegalStateException("Transaction " + transaction.getTransactionId() + " refers to unknown account " + transaction.getAccountId());
+            }
+            ledger.lock.lock();
+            try {
+                if (transaction.getTransactionId() > ledger.lastTransactionId()) {
+                    ledger.append(transaction);
+                }
+            } finally {
+                ledger.lock.unlock();
+            }
+            lastTransactionId.accumulateAndGet(transaction.getTransactionId(), Math::max);
+        }
+        for (Transaction transaction : changeSet.flagged) {
+            AccountLedger ledger = ledgers.get(transaction.getAccountId());
+            if (ledger == null) {
+                throw new IllegalStateException("Transaction " + transaction.getTransactionId() + " refers to unknown account " + transaction.getAccountId());
+            }
+            ledger.lock.lock();
+            try {
+                Transaction stored = ledger.find(transaction.getTransactionId());
+                if (stored != null && !stored.isFlagged()) {
+                    ledger.replace(transaction);
+                }
+            } finally {
+                ledger.lock.unlock();
+            }
+        }
+    }
+
+    private void loadSnapshot(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a ledger snapshot, or written by an incompatible version: " + file);
+            }
+            lastAccountId.set(in.readInt());
+            lastTransactionId.set(in.readInt());
+            Journal.readFrames(in, this::apply);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+// File: src/main/java/com/bank/dao/memory/InMemoryTransactionRepository.java
+
+package com.bank.dao.memory;
+
+import com.bank.dao.TransactionRepository;
+import com.bank.model.Transaction;
+import com.bank.model.TransactionCursor;
+import com.bank.model.TransactionPage;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * {@link TransactionRepository} over an {@link InMemoryStorage}. Reads take a consistent view of
+ * an account's history under its lock and then walk it without locking, newest first. Callers
+ * always receive copies of the stored rows.
+ */
+class InMemoryTransactionRepository implements TransactionRepository {
+
+    private final InMemoryStorage storage;
+
+    InMemoryTransactionRepository(InMemoryStorage storage) {
+        this.storage = storage;
+    }
+
+    @Override
+    public int createTransaction(Transaction transaction) {
+        AccountLedger ledger = storage.ledger(transaction.getAccountId());
+        if (ledger == null) {
+            System.err.println("Error creating transaction: Account not found with ID " + transaction.getAccountId());
+            return -1;
+        }
+        storage.writeGuard().lock();
+        ledger.lock.lock();
+        try {
+            Transaction entry = new Transaction(transaction);
+            entry.setTransactionId(storage.nextTransactionId());
+            entry.setTransactionTime(new Timestamp(ledger.nextTransactionTime(System.currentTimeMillis())));
+            storage.commit(new ChangeSet(Collections.emptyList(), Collections.singletonList(entry)));
+            transaction.setTransactionId(entry.getTransactionId());
+            transaction.setTransactionTime(entry.getTransactionTime());
+            return entry.getTransactionId();
+        } catch (IOException e) {
+            System.err.println("Error creating transaction: " + e.getMessage());
+            return -1;
+        } finally {
+            ledger.lock.unlock();
+            storage.writeGuard().unlock();
+        }
+    }
+
+    @Override
+    public List<Transaction> findTransactionsByAccountId(int accountId) {
+        AccountLedger.History history = history(accountId);
+        if (history == null) {
+            return new ArrayList<>();
+        }
+        List<Transaction> transactions = new ArrayList<>(history.size);
+        for (int i = history.size - 1; i >= 0; i--) {
+            transactions.add(new Transaction(history.transactions[i]));
+        }
+        return transactions;
+    }
+
+    @Override
+    public TransactionPage findTransactionsPage(int accountId, TransactionCursor cursor, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive.");
+        }
+        AccountLedger.History history = history(accountId);
+        if (history == null) {
+            return new TransactionPage(new ArrayList<>(), null);
+        }
+        // Rows strictly older than the cursor end just before the first row at or after it.
+        int end = cursor == null
+                ? history.size
+                : history.firstAtOrAfter(cursor.getTransactionTime().getTime(), cursor.getTransactionId());
+        int start = Math.max(0, end - pageSize);
+
+        List<Transaction> transactions = new ArrayList<>(end - start);
+        for (int i = end - 1; i >= start; i--) {
+            transactions.add(new Transaction(history.transactions[i]));
+        }
+        TransactionCursor next = start > 0 ? TransactionCursor.after(transactions.get(transactions.size() - 1)) : null;
+        return new TransactionPage(transactions, next);
+    }
+
+    @Override
+    public long streamTransactionsByAccountId(int accountId, Consumer<Transaction> consumer) {
+        AccountLedger.History history = history(accountId);
+        if (history == null) {
+            return 0;
+        }
+        for (int i = history.size - 1; i >= 0; i--) {
+            consumer.accept(new Transaction(history.transactions[i]));
+        }
+        return history.size;
+    }
+
+    @Override
+    public List<Transaction> findTransactionsByAccountIdSince(int accountId, Timestamp windowStart) {
+        AccountLedger.History history = history(accountId);
+        if (history == null) {
+            return new ArrayList<>();
+        }
+        int start = history.firstAtOrAfter(windowStart.getTime());
+        List<Transaction> transactions = new ArrayList<>(history.size - start);
+        for (int i = history.size - 1; i >= start; i--) {
+            transactions.add(new Transaction(history.transactions[i]));
+        }
+        return transactions;
+    }
+
+    @Override
+    public List<Transaction> findTransactionsByAccountIdBetween(int accountId, Timestamp from, Timestamp to) {
+        AccountLedger.History history = history(accountId);
+        if (history == null) {
+            return new ArrayList<>();
+        }
+        int start = history.firstAtOrAfter(from.getTime());
+        int end = history.firstAtOrAfter(to.getTime() + 1);
+        List<Transaction> transactions = new ArrayList<>(Math.max(0, end - start));
+        for (int i = end - 1; i >= start; i--) {
+            transactions.add(new Transaction(history.transactions[i]));
+        }
+        return transactions;
+    }
+
+    @Override
+    public int countTransactionsByAccountIdSince(int accountId, Timestamp windowStart) {
+        AccountLedger.History history = history(accountId);
+        return history == null ? 0 : history.size - history.firstAtOrAfter(windowStart.getTime());
+    }
+
+    @Override
+    public long[] findTransactionAmountsByAccountIdSince(int accountId, Timestamp windowStart, int limit) {
+        AccountLedger.History history = history(accountId);
+        if (history == null) {
+            return new long[0];
+        }
+        int start = Math.max(history.firstAtOrAfter(windowStart.getTime()), history.size - limit);
+        long[] amounts = new long[history.size - start];
+        for (int i = 0; i < amounts.length; i++) {
+            amounts[i] = history.transactions[history.size - 1 - i].getAmount().getMinorUnits();
+        }
+        return amounts;
+    }
+
+    @Override
+    public long[] findTransactionTimesByAccountIdSince(int accountId, Timestamp windowStart, int limit) {
+        AccountLedger.History history = history(accountId);
+        if (history == null) {
+            return new long[0];
+        }
+        return recentTimes(history, windowStart.getTime(), limit);
+    }
+
+    @Override
+    public Map<Integer, long[]> findTransactionTimesByAccountIdsSince(Collection<Integer> accountIds, Timestamp windowStart, int limit) {
+        Map<Integer, long[]> times = new HashMap<>();
+        for (Integer accountId : accountIds) {
+            AccountLedger.History history = history(accountId);
+            if (history != null) {
+                long[] accountTimes = recentTimes(history, windowStart.getTime(), limit);
+                if (accountTimes.length > 0) {
+                    times.put(accountId, accountTimes);
+                }
+            }
+        }
+        return times;
+    }
+
+    // Ids ascend along each ledger, so every ledger contributes the rows after its binary search
+    // point, and only the lowest limit of those across all ledgers are kept.
+    @Override
+    public List<Transaction> findTransactionsAfter(int afterTransactionId, int limit) {
+        List<Transaction> transactions = new ArrayList<>();
+        for (AccountLedger ledger : storage.ledgers()) {
+            AccountLedger.History history = ledger.history();
+            int start = history.firstAfterId(afterTransactionId);
+            for (int i = start; i < Math.min(history.size, start + limit); i++) {
+                transactions.add(history.transactions[i]);
+            }
+        }
+        transactions.sort(Comparator.comparingInt(Transaction::getTransactionId));
+        List<Transaction> page = new ArrayList<>(Math.min(limit, transactions.size()));
+        for (Transaction transaction : transactions.subList(0, Math.min(limit, transactions.size()))) {
+            page.add(new Transaction(transaction));
+        }
+        return page;
+    }
+
+    @Override
+    public int findMaxTransactionId() {
+        int max = 0;
+        for (AccountLedger ledger : storage.ledgers()) {
+            AccountLedger.History history = ledger.history();
+            if (history.size > 0) {
+                max = Math.max(max, history.transactions[history.size - 1].getTransactionId());
+            }
+        }
+        return max;
+    }
+
+    private AccountLedger.History history(int accountId) {
+        AccountLedger ledger = storage.ledger(accountId);
+        return ledger == null ? null : ledger.history();
+    }
+
+    private static long[] recentTimes(AccountLedger.History history, long sinceMillis, int limit) {
+        int start = Math.max(history.firstAtOrAfter(sinceMillis), history.size - limit);
+        long[] times = new long[history.size - start];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = history.transactions[history.size - 1 - i].getTransactionTime().getTime();
+        }
+        return times;
+    }
+}
@@ -0,0 +1,165 @@
+// File: src/main/java/com/bank/dao/memory/Journal.java
+
+package com.bank.dao.memory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only replay log of {@link ChangeSet}s. Each record is framed as
+ * {@code [length][crc32][payload]}; on recovery, replay stops at the first incomplete or corrupt
+ * frame (a write torn by a crash) and the file is cut back to the last good record.
+ *
+ * Snapshot files use the same framing after their own header.
+ */
+final class Journal implements AutoCloseable {
+
+    static final int MAGIC = 0x424B4A33; // "BKJ3": amounts as minor units, flagged rows
+    // Larger lengths can only come from a corrupt header; don't try to allocate them.
+    private static final int MAX_FRAME_BYTES = 64 * 1024 * 1024;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final boolean syncOnWrite;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+    private final DataOutputStream bufferOut = new DataOutputStream(buffer);
+    private final CRC32 crc = new CRC32();
+
+    private Journal(Path file, FileChannel channel, boolean syncOnWrite) {
+        this.file = file;
+        this.channel = channel;
+        this.syncOnWrite = syncOnWrite;
+    }
+
+    /**
+     * Replays every intact record of {@code file} (if it exists) into {@code sink}, then opens it for
+     * appending after the last intact record.
+     */
+    static Journal openAndReplay(Path file, boolean syncOnWrite, Consumer<ChangeSet> sink) throws IOException {
+        long validLength = 0;
+        if (Files.exists(file)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                if (Files.size(file) >= Integer.BYTES) {
+                    // Refuse rather than reset: a journal in another format still holds unsnapshotted writes.
+                    if (in.readInt() != MAGIC) {
+                        throw new IOException("Not a ledger journal, or written by an incompatible version: " + file);
+                    }
+                    validLength = Integer.BYTES + readFrames(in, sink);
+                }
+            }
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Journal journal = new Journal(file, channel, syncOnWrite);
+        if (validLength == 0) {
+            journal.reset();
+        } else {
+            channel.truncate(validLength);
+            channel.position(validLength);
+        }
+        return journal;
+    }
+
+    synchronized void append(ChangeSet changeSet) throws IOException {
+        buffer.reset();
+        bufferOut.writeInt(0);
+        bufferOut.writeInt(0);
+        changeSet.writeTo(bufferOut);
+        byte[] frame = buffer.toByteArray();
+        int payloadLength = frame.length - 2 * Integer.BYTES;
+        crc.reset();
+        crc.update(frame, 2 * Integer.BYTES, payloadLength);
+
+        ByteBuffer out = ByteBuffer.wrap(frame);
+        out.putInt(0, payloadLength);
+        out.putInt(Integer.BYTES, (int) crc.getValue());
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        if (syncOnWrite) {
+            channel.force(false);
+        }
+    }
+
+    /** Discards every record; used once a snapshot has captured them. */
+    synchronized void reset() throws IOException {
+        channel.truncate(0);
+        channel.position(0);
+        ByteBuffer header = ByteBuffer.allocate(Integer.BYTES).putInt(0, MAGIC);
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        channel.force(true);
+    }
+
+    synchronized long size() throws IOException {
+        return channel.size();
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.force(true);
+        channel.close();
+    }
+
+    /** Writes one framed change set to {@code out}. */
+    static void writeFrame(DataOutputStream out, ChangeSet changeSet) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(256);
+        changeSet.writeTo(new DataOutputStream(payload));
+        byte[] bytes = payload.toByteArray();
+        CRC32 checksum = new CRC32();
+        checksum.update(bytes);
+        out.writeInt(bytes.length);
+        out.writeInt((int) checksum.getValue());
+        out.write(bytes);
+    }
+
+    /**
+     * Hands each intact frame to {@code sink} until end of input or the first torn or corrupt frame.
+     *
+     * @return the number of bytes occupied by the intact frames
+     */
+    static long readFrames(InputStream input, Consumer<ChangeSet> sink) throws IOException {
+        DataInputStream in = input instanceof DataInputStream ? (DataInputStream) input : new DataInputStream(input);
+        CRC32 checksum = new CRC32();
+        long consumed = 0;
+        while (true) {
+            byte[] payload;
+            int expectedCrc;
+            try {
+                int length = in.readInt();
+                expectedCrc = in.readInt();
+                if (length < 0 || length > MAX_FRAME_BYTES) {
+                    return consumed;
+                }
+                payload = new byte[length];
+                in.readFully(payload);
+            } catch (EOFException e) {
+                return consumed;
+            }
+            checksum.reset();
+            checksum.update(payload);
+            if ((int) checksum.getValue() != expectedCrc) {
+                return consumed;
+            }
+            sink.accept(ChangeSet.readFrom(new DataInputStream(new ByteArrayInputStream(payload))));
+            consumed += 2 * Integer.BYTES + payload.length;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+// File: src/main/java/com/bank/dao/replica/LoadBalancingPolicy.java
+
+package com.bank.dao.replica;
+
+/**
+ * How {@link ReplicaSet} spreads reads over the replicas that are within the lag limit.
+ */
+public enum LoadBalancingPolicy {
+    /** Each read goes to the next replica in turn. */
+    ROUND_ROBIN,
+    /** Each read goes to a replica picked at random. */
+    RANDOM,
+    /** Each read goes to the replica with the fewest borrowed connections; ties go round-robin. */
+    LEAST_ACTIVE
+}
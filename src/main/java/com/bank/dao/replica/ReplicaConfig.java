@@ -0,0 +1,94 @@
+// File: src/main/java/com/bank/dao/replica/ReplicaConfig.java
+
+package com.bank.dao.replica;
+
+import com.bank.dao.PoolConfig;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Read replicas of one primary database (or of one shard). Replicas are off unless
+ * {@code bank.replica.count} (or {@code bank.shard.<s>.replica.count} for shard {@code s}) is set;
+ * replica {@code i} is then read from {@code <prefix><i>.url} / {@code .user} / {@code .password},
+ * with the user, password and every {@code bank.pool.*} setting defaulting to the primary's. The
+ * policy, lag and heartbeat settings are shared by all primaries.
+ *
+ * <p>With {@code bank.replica.simulatedLagMillis} above 0 the replicas are not expected to be
+ * replicated by the database: a {@link SimulatedReplication} copies the primary into them with
+ * that delay instead, which makes embedded H2 databases usable as replicas in local runs.
+ */
+public class ReplicaConfig {
+    private final List<PoolConfig> replicas = new ArrayList<>();
+    private LoadBalancingPolicy policy = LoadBalancingPolicy.ROUND_ROBIN;
+    private long maxLagMillis = 1_000;
+    private long heartbeatIntervalMillis = 200;
+    private long simulatedLagMillis = 0;
+
+    public ReplicaConfig() {}
+
+    /** Replicas of the unsharded database. */
+    public static ReplicaConfig fromSystemProperties(PoolConfig primary) {
+        return fromSystemProperties("bank.replica.", primary);
+    }
+
+    /** Replicas of shard {@code shard}. */
+    public static ReplicaConfig fromSystemProperties(int shard, PoolConfig primary) {
+        return fromSystemProperties("bank.shard." + shard + ".replica.", primary);
+    }
+
+    private static ReplicaConfig fromSystemProperties(String prefix, PoolConfig primary) {
+        ReplicaConfig config = new ReplicaConfig();
+        int count = Integer.getInteger(prefix + "count", 0);
+        for (int i = 0; i < count; i++) {
+            String url = System.getProperty(prefix + i + ".url");
+            if (url == null || url.isEmpty()) {
+                throw new IllegalArgumentException("Missing " + prefix + i + ".url for " + count + " replicas.");
+            }
+            PoolConfig replica = PoolConfig.fromSystemProperties();
+            replica.setUrl(url);
+            replica.setUser(System.getProperty(prefix + i + ".user", primary.getUser()));
+            replica.setPassword(System.getProperty(prefix + i + ".password", primary.getPassword()));
+            config.replicas.add(replica);
+        }
+        config.policy = LoadBalancingPolicy.valueOf(System.getProperty("bank.replica.policy", config.policy.name()).toUpperCase());
+        config.maxLagMillis = Long.getLong("bank.replica.maxLagMillis", config.maxLagMillis);
+        config.heartbeatIntervalMillis = Long.getLong("bank.replica.heartbeatIntervalMillis", config.heartbeatIntervalMillis);
+        config.simulatedLagMillis = Long.getLong("bank.replica.simulatedLagMillis", config.simulatedLagMillis);
+        return config;
+    }
+
+    public boolean isEnabled() {
+        return !replicas.isEmpty();
+    }
+
+    public ReplicaConfig addReplica(PoolConfig replica) {
+        replicas.add(replica);
+        return this;
+    }
+
+    // --- Getters and Setters ---
+    public List<PoolConfig> getReplicas() { return Collections.unmodifiableList(replicas); }
+    public LoadBalancingPolicy getPolicy() { return policy; }
+    public void setPolicy(LoadBalancingPolicy policy) { this.policy = policy; }
+    /** Replicas further behind than this get no reads at all until they catch up. */
+    public long getMaxLagMillis() { return maxLagMillis; }
+    public void setMaxLagMillis(long maxLagMillis) { this.maxLagMillis = maxLagMillis; }
+    /** How often the primary's heartbeat is written and each replica's lag is measured. */
+    public long getHeartbeatIntervalMillis() { return heartbeatIntervalMillis; }
+    public void setHeartbeatIntervalMillis(long heartbeatIntervalMillis) { this.heartbeatIntervalMillis = heartbeatIntervalMillis; }
+    /** Delay of the built-in copier from the primary to the replicas; 0 when the database replicates itself. */
+    public long getSimulatedLagMillis() { return simulatedLagMillis; }
+    public void setSimulatedLagMillis(long simulatedLagMillis) { this.simulatedLagMillis = simulatedLagMillis; }
+
+    @Override
+    public String toString() {
+        StringBuilder urls = new StringBuilder();
+        for (PoolConfig replica : replicas) {
+            urls.append(urls.length() == 0 ? "" : ", ").append(replica.getUrl());
+        }
+        return "ReplicaConfig{" + "replicas=[" + urls + "]" + ", policy=" + policy + ", maxLagMillis=" + maxLagMillis +
+                ", heartbeatIntervalMillis=" + heartbeatIntervalMillis + ", simulatedLagMillis=" + simulatedLagMillis + '}';
+    }
+}
@@ -0,0 +1,248 @@
+// File: src/main/java/com/bank/dao/replica/ReplicaSet.java
+
+package com.bank.dao.replica;
+
+import com.bank.dao.ConnectionPool;
+import com.bank.dao.InfoLog;
+import com.bank.dao.PoolMetrics;
+import com.bank.metrics.Counter;
+import com.bank.metrics.Metrics;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The read replicas of one primary. Reads go to a replica picked by the {@link LoadBalancingPolicy}
+ * among those within {@link ReplicaConfig#getMaxLagMillis()} of the primary, and to the primary
+ * when none is.
+ *
+ * <p>Lag is measured with a heartbeat: the primary's ReplicaHeartbeat row is stamped with the
+ * current time every heartbeat interval, and each replica's lag is the age of the stamp it has
+ * received. A replica that is fully caught up therefore still reports up to one interval of lag.
+ * A replica that cannot be reached counts as infinitely far behind until its next good check.
+ *
+ * <p>A read that must observe given writes passes the lowest account version it needs; the
+ * replica picked is asked for the account's version first and the read falls back to the primary
+ * if the replica does not have it yet.
+ */
+public class ReplicaSet implements AutoCloseable {
+    private static final Counter REPLICA_READS = Metrics.counter("replica.reads");
+    // Reads that went to the primary because no replica was within the lag limit.
+    private static final Counter LAGGING_FALLBACKS = Metrics.counter("replica.fallback.lag");
+    // Reads that went to the primary because the replica had not applied the token's version yet.
+    private static final Counter STALE_FALLBACKS = Metrics.counter("replica.fallback.stale");
+
+    private final String name;
+    private final ConnectionPool primary;
+    private final ConnectionPool[] replicas;
+    private final LoadBalancingPolicy policy;
+    private final long maxLagMillis;
+    private final AtomicLongArray lagMillis;
+    private final AtomicInteger next = new AtomicInteger();
+    private final List<SimulatedReplication> simulations = new ArrayList<>();
+    private final ScheduledExecutorService heartbeat;
+
+    public ReplicaSet(String name, ConnectionPool primary, ReplicaConfig config) {
+        if (!config.isEnabled()) {
+            throw new IllegalArgumentException("No replicas configured.");
+        }
+        this.name = name;
+        this.primary = primary;
+        this.policy = config.getPolicy();
+        this.maxLagMillis = config.getMaxLagMillis();
+        this.replicas = new ConnectionPool[config.getReplicas().size()];
+        this.lagMillis = new AtomicLongArray(replicas.length);
+        for (int i = 0; i < replicas.length; i++) {
+            replicas[i] = new ConnectionPool(config.getReplicas().get(i));
+            lagMillis.set(i, Long.MAX_VALUE);
+        }
+        try {
+            createHeartbeatTable(primary);
+            beat();
+            if (config.getSimulatedLagMillis() > 0) {
+                for (ConnectionPool replica : replicas) {
+                    simulations.add(new SimulatedReplication(primary, replica, config.getSimulatedLagMillis()));
+                }
+            }
+        } catch (SQLException e) {
+            close();
+            throw new IllegalStateException("Could not set up the replicas of " + name + ": " + e.getMessage(), e);
+        }
+        checkLag();
+
+        long interval = Math.max(1, config.getHeartbeatIntervalMillis());
+        heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "bank-replica-heartbeat-" + name);
+            t.setDaemon(true);
+            return t;
+        });
+        heartbeat.scheduleWithFixedDelay(() -> {
+            try {
+                beat();
+            } catch (SQLException e) {
+                System.err.println("Error writing the replica heartbeat of " + name + ": " + e.getMessage());
+            }
+            checkLag();
+        }, interval, interval, TimeUnit.MILLISECONDS);
+        InfoLog.println("Reading " + name + " from " + replicas.length + " replica(s): " + config);
+    }
+
+    /**
+     * A connection for reading the data of {@code accountId}: a replica within the lag limit that
+     * has at least version {@code minVersion} of the account, else the primary.
+     *
+     * @param minVersion the lowest account version the read must see, or -1 for any
+     */
+    public Connection getReadConnection(int accountId, long minVersion) throws SQLException {
+        int replica = choose();
+        if (replica < 0) {
+            LAGGING_FALLBACKS.increment();
+            return primary.getConnection();
+        }
+        Connection conn = null;
+        try {
+            conn = replicas[replica].getConnection();
+            if (minVersion >= 0 && !hasVersion(conn, accountId, minVersion)) {
+                conn.close();
+                STALE_FALLBACKS.increment();
+                return primary.getConnection();
+            }
+        } catch (SQLException e) {
+            // Keep reads off this replica until a heartbeat check finds it healthy again.
+            lagMillis.set(replica, Long.MAX_VALUE);
+            if (conn != null) {
+                conn.close();
+            }
+            System.err.println("Error reading from replica " + replica + " of " + name + ", using the primary: " + e.getMessage());
+            LAGGING_FALLBACKS.increment();
+            return primary.getConnection();
+        }
+        REPLICA_READS.increment();
+        return conn;
+    }
+
+    /** A connection for reads that need no particular account's writes, e.g. multi-account scans. */
+    public Connection getReadConnection() throws SQLException {
+        return getReadConnection(0, -1);
+    }
+
+    private int choose() {
+        int healthy = 0;
+        for (int i = 0; i < replicas.length; i++) {
+            if (lagMillis.get(i) <= maxLagMillis) {
+                healthy++;
+            }
+        }
+        if (healthy == 0) {
+            return -1;
+        }
+        int start = policy == LoadBalancingPolicy.RANDOM
+                ? ThreadLocalRandom.current().nextInt(replicas.length)
+                : Math.floorMod(next.getAndIncrement(), replicas.length);
+        int chosen = -1;
+        for (int n = 0; n < replicas.length; n++) {
+            int i = (start + n) % replicas.length;
+            if (lagMillis.get(i) > maxLagMillis) {
+                continue;
+            }
+            if (policy != LoadBalancingPolicy.LEAST_ACTIVE) {
+                return i;
+            }
+            if (chosen < 0 || replicas[i].getMetrics().getActive() < replicas[chosen].getMetrics().getActive()) {
+                chosen = i;
+            }
+        }
+        return chosen;
+    }
+
+    // Counts the balance slots of a hot account, as AccountDAO does when it reads the account.
+    private static boolean hasVersion(Connection conn, int accountId, long minVersion) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT a.version + COALESCE(SUM(s.version), 0) FROM Accounts a " +
+                "LEFT JOIN AccountBalanceSlots s ON s.accountId = a.accountId WHERE a.accountId = ? GROUP BY a.version")) {
+            pstmt.setInt(1, accountId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() && rs.getLong(1) >= minVersion;
+            }
+        }
+    }
+
+    static void createHeartbeatTable(ConnectionPool pool) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             Statement statement = conn.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS ReplicaHeartbeat (" +
+                    "id INT PRIMARY KEY," +
+                    "beatMillis BIGINT NOT NULL" +
+                    ");");
+        }
+    }
+
+    private void beat() throws SQLException {
+        long now = System.currentTimeMillis();
+        try (Connection conn = primary.getConnection();
+             PreparedStatement update = conn.prepareStatement("UPDATE ReplicaHeartbeat SET beatMillis = ? WHERE id = 1")) {
+            update.setLong(1, now);
+            if (update.executeUpdate() == 0) {
+                try (PreparedStatement insert = conn.prepareStatement("INSERT INTO ReplicaHeartbeat (id, beatMillis) VALUES (1, ?)")) {
+                    insert.setLong(1, now);
+                    insert.executeUpdate();
+                }
+            }
+        }
+    }
+
+    private void checkLag() {
+        for (int i = 0; i < replicas.length; i++) {
+            long lag = Long.MAX_VALUE;
+            try (Connection conn = replicas[i].getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement("SELECT beatMillis FROM ReplicaHeartbeat WHERE id = 1");
+                 ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    lag = Math.max(0, System.currentTimeMillis() - rs.getLong(1));
+                }
+            } catch (SQLException e) {
+                // Unreachable, or nothing replicated yet: stays out of rotation.
+            }
+            lagMillis.set(i, lag);
+        }
+    }
+
+    public int getReplicaCount() {
+        return replicas.length;
+    }
+
+    /** Lag of replica {@code replica} at its last check, or {@link Long#MAX_VALUE} if unknown or unreachable. */
+    public long getLagMillis(int replica) {
+        return lagMillis.get(replica);
+    }
+
+    public PoolMetrics getReplicaPoolMetrics(int replica) {
+        return replicas[replica].getMetrics();
+    }
+
+    @Override
+    public void close() {
+        if (heartbeat != null) {
+            heartbeat.shutdownNow();
+        }
+        for (SimulatedReplication simulation : simulations) {
+            simulation.close();
+        }
+        for (ConnectionPool replica : replicas) {
+            if (replica != null) {
+                replica.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,212 @@
+// File: src/main/java/com/bank/dao/replica/SimulatedReplication.java
+
+package com.bank.dao.replica;
+
+import com.bank.dao.ConnectionPool;
+import com.bank.dao.DatabaseConnector;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stand-in for database replication when the replicas are local embedded databases. Every tick it
+ * captures the accounts whose {@code version} changed since the previous tick, together with their
+ * transactions, daily rollups, balance slots and the primary's heartbeat, and applies each capture to the replica
+ * once it is {@code lagMillis} old, in one replica transaction. Readers of the replica therefore
+ * see the primary as it was roughly {@code lagMillis} ago.
+ *
+ * <p>Only what replica reads need is copied, an account at a time: changes that do not bump the
+ * account's version (standalone ledger inserts, archiving) reach the replica with the account's
+ * next balance change. Meant for local runs and benchmarks, not for production data volumes.
+ */
+public class SimulatedReplication implements AutoCloseable {
+    private static final String[] ACCOUNT_TABLES = {"Accounts", "Transactions", "DailyRollups", "AccountBalanceSlots", "SlotCredits"};
+
+    private final ConnectionPool primary;
+    private final ConnectionPool replica;
+    private final long lagMillis;
+    private final Map<Integer, Long> capturedVersions = new HashMap<>();
+    private final Deque<Capture> pending = new ArrayDeque<>();
+    private final ScheduledExecutorService executor;
+
+    public SimulatedReplication(ConnectionPool primary, ConnectionPool replica, long lagMillis) throws SQLException {
+        this.primary = primary;
+        this.replica = replica;
+        this.lagMillis = lagMillis;
+        try (Connection conn = replica.getConnection();
+             Statement statement = conn.createStatement()) {
+            DatabaseConnector.createLedgerTables(statement);
+            DatabaseConnector.createIndexIfMissing(conn, "Transactions", "idx_transactions_account_time", "accountId, transactionTime");
+        }
+        ReplicaSet.createHeartbeatTable(replica);
+
+        long tick = Math.max(5, lagMillis / 4);
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "bank-simulated-replication");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleWithFixedDelay(this::tick, 0, tick, TimeUnit.MILLISECONDS);
+    }
+
+    private void tick() {
+        try {
+            pending.addLast(capture());
+            long due = System.currentTimeMillis() - lagMillis;
+            while (!pending.isEmpty() && pending.peekFirst().capturedAt <= due) {
+                apply(pending.peekFirst());
+                pending.removeFirst();
+            }
+        } catch (SQLException e) {
+            // A failed capture is taken again and a failed apply retried on the next tick.
+            System.err.println("Error in simulated replication: " + e.getMessage());
+        }
+    }
+
+    private Capture capture() throws SQLException {
+        Capture capture = new Capture(System.currentTimeMillis());
+        try (Connection conn = primary.getConnection()) {
+            // The heartbeat goes first, so the data copied with it is at least as new as it claims.
+            capture.heartbeat = select(conn, "SELECT * FROM ReplicaHeartbeat WHERE id = ?", 1);
+            List<Integer> changed = new ArrayList<>();
+            Map<Integer, Long> versions = new HashMap<>();
+            // A hot account's version includes those of its balance slots, which credits move instead.
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "SELECT a.accountId, a.version + COALESCE(SUM(s.version), 0) FROM Accounts a " +
+                    "LEFT JOIN AccountBalanceSlots s ON s.accountId = a.accountId GROUP BY a.accountId, a.version");
+                 ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    int accountId = rs.getInt(1);
+                    long version = rs.getLong(2);
+                    if (!Long.valueOf(version).equals(capturedVersions.get(accountId))) {
+                        changed.add(accountId);
+                        versions.put(accountId, version);
+                    }
+                }
+            }
+            for (int accountId : changed) {
+                Rows[] tables = new Rows[ACCOUNT_TABLES.length];
+                for (int t = 0; t < ACCOUNT_TABLES.length; t++) {
+                    tables[t] = select(conn, "SELECT * FROM " + ACCOUNT_TABLES[t] + " WHERE accountId = ?", accountId);
+                }
+                capture.accounts.put(accountId, tables);
+            }
+            capturedVersions.putAll(versions);
+        }
+        return capture;
+    }
+
+    private void apply(Capture capture) throws SQLException {
+        try (Connection conn = replica.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                for (Map.Entry<Integer, Rows[]> account : capture.accounts.entrySet()) {
+                    // Children before the account on delete, after it on insert, for the foreign keys.
+                    for (int t = ACCOUNT_TABLES.length - 1; t >= 0; t--) {
+                        try (PreparedStatement delete = conn.prepareStatement("DELETE FROM " + ACCOUNT_TABLES[t] + " WHERE accountId = ?")) {
+                            delete.setInt(1, account.getKey());
+                            delete.executeUpdate();
+                        }
+                    }
+                    for (int t = 0; t < ACCOUNT_TABLES.length; t++) {
+                        insert(conn, ACCOUNT_TABLES[t], account.getValue()[t]);
+                    }
+                }
+                if (!capture.heartbeat.values.isEmpty()) {
+                    try (Statement statement = conn.createStatement()) {
+                        statement.executeUpdate("DELETE FROM ReplicaHeartbeat");
+                    }
+                    insert(conn, "ReplicaHeartbeat", capture.heartbeat);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static Rows select(Connection conn, String sql, int key) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, key);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                ResultSetMetaData metaData = rs.getMetaData();
+                Rows rows = new Rows(new String[metaData.getColumnCount()]);
+                for (int c = 0; c < rows.columns.length; c++) {
+                    rows.columns[c] = metaData.getColumnLabel(c + 1);
+                }
+                while (rs.next()) {
+                    Object[] values = new Object[rows.columns.length];
+                    for (int c = 0; c < values.length; c++) {
+                        values[c] = rs.getObject(c + 1);
+                    }
+                    rows.values.add(values);
+                }
+                return rows;
+            }
+        }
+    }
+
+    private static void insert(Connection conn, String table, Rows rows) throws SQLException {
+        if (rows.values.isEmpty()) {
+            return;
+        }
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (");
+        for (int c = 0; c < rows.columns.length; c++) {
+            sql.append(c == 0 ? "" : ", ").append(rows.columns[c]);
+        }
+        sql.append(") VALUES (");
+        for (int c = 0; c < rows.columns.length; c++) {
+            sql.append(c == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+        try (PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            for (Object[] values : rows.values) {
+                for (int c = 0; c < values.length; c++) {
+                    pstmt.setObject(c + 1, values[c]);
+                }
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private static final class Capture {
+        private final long capturedAt;
+        private final Map<Integer, Rows[]> accounts = new HashMap<>();
+        private Rows heartbeat;
+
+        Capture(long capturedAt) {
+            this.capturedAt = capturedAt;
+        }
+    }
+
+    private static final class Rows {
+        private final String[] columns;
+        private final List<Object[]> values = new ArrayList<>();
+
+        Rows(String[] columns) {
+            this.columns = columns;
+        }
+    }
+}
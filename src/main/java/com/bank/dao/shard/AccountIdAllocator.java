@@ -0,0 +1,92 @@
+// File: src/main/java/com/bank/dao/shard/AccountIdAllocator.java
+
+package com.bank.dao.shard;
+
+import com.bank.dao.DatabaseConnector;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Hands out account ids that are unique across all shards. Each shard's own AUTO_INCREMENT would
+ * hand out the same ids, so ids come from one row of the AccountIdSequence table on the first
+ * shard instead, reserved a block at a time under a row lock; processes sharing the shards get
+ * disjoint blocks. The account is then created on whichever shard the {@link ShardMap} assigns
+ * its id to. Ids of a block that is not used up before the process exits are skipped.
+ */
+public class AccountIdAllocator {
+    private static final String SEQUENCE_NAME = "accounts";
+
+    private final int blockSize;
+    private long next;
+    private long limit;
+
+    public AccountIdAllocator(int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive.");
+        }
+        this.blockSize = blockSize;
+    }
+
+    public synchronized int nextId() throws SQLException {
+        if (next >= limit) {
+            next = reserveBlock();
+            limit = next + blockSize;
+        }
+        if (next > Integer.MAX_VALUE) {
+            throw new SQLException("Account id space exhausted.");
+        }
+        return (int) next++;
+    }
+
+    private long reserveBlock() throws SQLException {
+        try (Connection conn = DatabaseConnector.getShardConnection(0)) {
+            conn.setAutoCommit(false);
+            try {
+                long start;
+                try (PreparedStatement select = conn.prepareStatement("SELECT nextId FROM AccountIdSequence WHERE name = ? FOR UPDATE")) {
+                    select.setString(1, SEQUENCE_NAME);
+                    try (ResultSet rs = select.executeQuery()) {
+                        start = rs.next() ? rs.getLong(1) : -1;
+                    }
+                }
+                if (start < 0) {
+                    // First use: continue after any accounts the shards already hold.
+                    start = maxAccountId() + 1;
+                    try (PreparedStatement insert = conn.prepareStatement("INSERT INTO AccountIdSequence (name, nextId) VALUES (?, ?)")) {
+                        insert.setString(1, SEQUENCE_NAME);
+                        insert.setLong(2, start + blockSize);
+                        insert.executeUpdate();
+                    }
+                } else {
+                    try (PreparedStatement update = conn.prepareStatement("UPDATE AccountIdSequence SET nextId = ? WHERE name = ?")) {
+                        update.setLong(1, start + blockSize);
+                        update.setString(2, SEQUENCE_NAME);
+                        update.executeUpdate();
+                    }
+                }
+                conn.commit();
+                return start;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private static long maxAccountId() throws SQLException {
+        long max = 0;
+        for (int shard = 0; shard < DatabaseConnector.getShardCount(); shard++) {
+            try (Connection conn = DatabaseConnector.getShardConnection(shard);
+                 PreparedStatement pstmt = conn.prepareStatement("SELECT MAX(accountId) FROM Accounts");
+                 ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    max = Math.max(max, rs.getLong(1));
+                }
+            }
+        }
+        return max;
+    }
+}
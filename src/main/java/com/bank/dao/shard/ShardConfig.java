@@ -0,0 +1,83 @@
+// File: src/main/java/com/bank/dao/shard/ShardConfig.java
+
+package com.bank.dao.shard;
+
+import com.bank.dao.PoolConfig;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Settings for spreading accounts over several databases. Sharding is off (everything goes to the
+ * single {@link PoolConfig} database) unless {@code bank.shard.count} is set; then shard {@code i}
+ * is read from {@code bank.shard.<i>.url} / {@code .user} / {@code .password}, with the user,
+ * password and every {@code bank.pool.*} setting defaulting to the unsharded ones.
+ *
+ * <p>Shard names place the shards on the {@link ShardMap} ring, so a shard must keep its name
+ * (and therefore its position in this list) for as long as it holds accounts.
+ */
+public class ShardConfig {
+    private final List<PoolConfig> shards = new ArrayList<>();
+    private int virtualNodes = 64;
+    private int idBlockSize = 100;
+    private long recoveryIntervalMillis = 30_000;
+
+    public ShardConfig() {}
+
+    public static ShardConfig fromSystemProperties() {
+        ShardConfig config = new ShardConfig();
+        int count = Integer.getInteger("bank.shard.count", 0);
+        for (int i = 0; i < count; i++) {
+            String prefix = "bank.shard." + i + ".";
+            String url = System.getProperty(prefix + "url");
+            if (url == null || url.isEmpty()) {
+                throw new IllegalArgumentException("Missing " + prefix + "url for " + count + " shards.");
+            }
+            PoolConfig shard = PoolConfig.fromSystemProperties();
+            shard.setUrl(url);
+            shard.setUser(System.getProperty(prefix + "user", shard.getUser()));
+            shard.setPassword(System.getProperty(prefix + "password", shard.getPassword()));
+            config.shards.add(shard);
+        }
+        config.virtualNodes = Integer.getInteger("bank.shard.virtualNodes", config.virtualNodes);
+        config.idBlockSize = Integer.getInteger("bank.shard.idBlockSize", config.idBlockSize);
+        config.recoveryIntervalMillis = Long.getLong("bank.shard.recoveryIntervalMillis", config.recoveryIntervalMillis);
+        return config;
+    }
+
+    public boolean isEnabled() {
+        return !shards.isEmpty();
+    }
+
+    public ShardConfig addShard(PoolConfig shard) {
+        shards.add(shard);
+        return this;
+    }
+
+    /** Name of shard {@code index} on the hash ring. */
+    public static String shardName(int index) {
+        return "shard-" + index;
+    }
+
+    // --- Getters and Setters ---
+    public List<PoolConfig> getShards() { return Collections.unmodifiableList(shards); }
+    /** Points per shard on the hash ring; more points spread accounts more evenly. */
+    public int getVirtualNodes() { return virtualNodes; }
+    public void setVirtualNodes(int virtualNodes) { this.virtualNodes = virtualNodes; }
+    /** Account ids reserved from the shared sequence per round trip to the first shard. */
+    public int getIdBlockSize() { return idBlockSize; }
+    public void setIdBlockSize(int idBlockSize) { this.idBlockSize = idBlockSize; }
+    /** How often unfinished cross-shard transfers are driven to completion; 0 only recovers at startup. */
+    public long getRecoveryIntervalMillis() { return recoveryIntervalMillis; }
+    public void setRecoveryIntervalMillis(long recoveryIntervalMillis) { this.recoveryIntervalMillis = recoveryIntervalMillis; }
+
+    @Override
+    public String toString() {
+        StringBuilder urls = new StringBuilder();
+        for (PoolConfig shard : shards) {
+            urls.append(urls.length() == 0 ? "" : ", ").append(shard.getUrl());
+        }
+        return "ShardConfig{" + "shards=[" + urls + "]" + ", virtualNodes=" + virtualNodes + ", idBlockSize=" + idBlockSize + ", recoveryIntervalMillis=" + recoveryIntervalMillis + '}';
+    }
+}
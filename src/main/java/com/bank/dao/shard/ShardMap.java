@@ -0,0 +1,61 @@
+// File: src/main/java/com/bank/dao/shard/ShardMap.java
+
+package com.bank.dao.shard;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent-hash ring from account id to shard index. Every shard owns {@code virtualNodes}
+ * points derived from its name; an account belongs to the first point at or after the hash of its
+ * id. Adding a shard therefore takes over roughly 1/N of the ids from the others instead of
+ * reshuffling all of them. The hashes are fixed functions of names and ids, so every process
+ * with the same shard list routes the same way.
+ */
+public final class ShardMap {
+    private final TreeMap<Long, Integer> ring = new TreeMap<>();
+    private final int shardCount;
+
+    public ShardMap(int shardCount, int virtualNodes) {
+        if (shardCount < 1 || virtualNodes < 1) {
+            throw new IllegalArgumentException("Need at least one shard and one virtual node per shard.");
+        }
+        this.shardCount = shardCount;
+        for (int shard = 0; shard < shardCount; shard++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                // On the (astronomically unlikely) collision the lower shard keeps the point.
+                ring.putIfAbsent(hash(ShardConfig.shardName(shard) + "#" + node), shard);
+            }
+        }
+    }
+
+    public int shardOf(int accountId) {
+        Map.Entry<Long, Integer> owner = ring.ceilingEntry(mix(accountId));
+        return (owner != null ? owner : ring.firstEntry()).getValue();
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    // FNV-1a over the UTF-8 bytes, then mixed so nearby names land far apart.
+    private static long hash(String name) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    // MurmurHash3 64-bit finalizer.
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
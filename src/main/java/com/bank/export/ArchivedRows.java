@@ -0,0 +1,101 @@
+// File: src/main/java/com/bank/export/ArchivedRows.java
+
+package com.bank.export;
+
+import com.bank.dao.archive.ArchiveSegment;
+import com.bank.model.Transaction;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The archived rows of one export partition in the exporter's (accountId, transactionTime,
+ * transactionId) order, read an account at a time. Segments cover consecutive time ranges, so an
+ * account's rows are its rows in each segment, oldest segment first; only the segments whose time
+ * range overlaps the export period are read.
+ */
+final class ArchivedRows {
+    private final List<ArchiveSegment> segments;
+    private final int[] accountIds;
+    private final long periodStartMicros;
+    private final long periodEndMicros;
+    private final ExportRow after;
+    private int nextAccount;
+    private List<Transaction> rows = Collections.emptyList();
+    private int position;
+
+    /**
+     * @param segments   the segments that can hold rows of the period, see {@link #overlapping}
+     * @param accountIds the partition's accounts, ascending
+     * @param after      only rows after this key, e.g. the checkpoint of a resumed partition; or null
+     */
+    ArchivedRows(List<ArchiveSegment> segments, int[] accountIds, Timestamp periodStart, Timestamp periodEnd, ExportRow after) {
+        this.segments = segments;
+        this.accountIds = accountIds;
+        this.periodStartMicros = startMicros(periodStart);
+        this.periodEndMicros = endMicros(periodEnd);
+        this.after = after;
+    }
+
+    /** The segments, oldest first, whose time range overlaps [periodStart, periodEnd); a null bound is open. */
+    static List<ArchiveSegment> overlapping(List<ArchiveSegment> segments, Timestamp periodStart, Timestamp periodEnd) {
+        List<ArchiveSegment> overlapping = new ArrayList<>();
+        for (ArchiveSegment segment : segments) {
+            if (segment.getMaxTimeMicros() >= startMicros(periodStart) && segment.getMinTimeMicros() < endMicros(periodEnd)) {
+                overlapping.add(segment);
+            }
+        }
+        return overlapping;
+    }
+
+    /**
+     * Loads the next archived row into {@code row}.
+     *
+     * @return false when there are no more
+     */
+    boolean next(ExportRow row) throws IOException {
+        while (true) {
+            while (position < rows.size()) {
+                Transaction transaction = rows.get(position++);
+                long micros = toMicros(transaction.getTransactionTime());
+                if (micros < periodStartMicros || micros >= periodEndMicros) {
+                    continue;
+                }
+                row.load(transaction);
+                if (after == null || row.compareKey(after) > 0) {
+                    return true;
+                }
+            }
+            if (nextAccount >= accountIds.length) {
+                return false;
+            }
+            int accountId = accountIds[nextAccount++];
+            if (after != null && accountId < after.accountId) {
+                continue;
+            }
+            rows = new ArrayList<>();
+            position = 0;
+            for (ArchiveSegment segment : segments) {
+                if (segment.contains(accountId)) {
+                    rows.addAll(segment.read(accountId));
+                }
+            }
+        }
+    }
+
+    private static long startMicros(Timestamp periodStart) {
+        return periodStart == null ? Long.MIN_VALUE : toMicros(periodStart);
+    }
+
+    private static long endMicros(Timestamp periodEnd) {
+        return periodEnd == null ? Long.MAX_VALUE : toMicros(periodEnd);
+    }
+
+    // The archive's time unit.
+    private static long toMicros(Timestamp time) {
+        return Math.floorDiv(time.getTime(), 1000) * 1_000_000 + time.getNanos() / 1000;
+    }
+}
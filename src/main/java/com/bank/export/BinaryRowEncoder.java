@@ -0,0 +1,52 @@
+// File: src/main/java/com/bank/export/BinaryRowEncoder.java
+
+package com.bank.export;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Big-endian rows after a four-byte {@link #MAGIC}:
+ *
+ * <pre>
+ * int   transactionId
+ * int   accountId
+ * long  amount in minor units (cents)
+ * long  transactionTime, epoch millis
+ * int   linkedTransactionId, 0 if none
+ * byte  flags: bit 0 flagged, bit 1 reasonForFlag present
+ * short length, then the UTF-8 bytes of transactionType
+ * short length, then the UTF-8 bytes of reasonForFlag (only if present)
+ * </pre>
+ */
+final class BinaryRowEncoder extends RowEncoder {
+    static final int MAGIC = 0x424B5831; // "BKX1"
+    static final int FLAG_FLAGGED = 1;
+    static final int FLAG_HAS_REASON = 2;
+
+    @Override
+    void writeHeader(ByteBuffer buffer) {
+        buffer.putInt(MAGIC);
+    }
+
+    @Override
+    void writeRow(ByteBuffer buffer, ExportRow row) {
+        buffer.putInt(row.transactionId);
+        buffer.putInt(row.accountId);
+        buffer.putLong(row.amountMinorUnits);
+        buffer.putLong(row.transactionTimeMillis);
+        buffer.putInt(row.linkedTransactionId);
+        buffer.put((byte) ((row.flagged ? FLAG_FLAGGED : 0) | (row.reasonForFlag != null ? FLAG_HAS_REASON : 0)));
+        putString(buffer, row.transactionType);
+        if (row.reasonForFlag != null) {
+            putString(buffer, row.reasonForFlag);
+        }
+    }
+
+    // The length is back-filled once the bytes are written, so the text is encoded only once.
+    private static void putString(ByteBuffer buffer, String text) {
+        int lengthAt = buffer.position();
+        buffer.putShort((short) 0);
+        putUtf8(buffer, text);
+        buffer.putShort(lengthAt, (short) (buffer.position() - lengthAt - 2));
+    }
+}
@@ -0,0 +1,69 @@
+// File: src/main/java/com/bank/export/BinaryStatementReader.java
+
+package com.bank.export;
+
+import com.bank.model.Money;
+import com.bank.model.Transaction;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.function.Consumer;
+
+/**
+ * Reads part files written in {@link ExportFormat#BINARY}.
+ */
+public final class BinaryStatementReader {
+
+    private BinaryStatementReader() {
+    }
+
+    /**
+     * Hands every row of {@code file} to {@code consumer} in file order.
+     *
+     * @return the number of rows read
+     */
+    public static long read(Path file, Consumer<Transaction> consumer) throws IOException {
+        try (InputStream stream = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 1 << 16))) {
+            if (in.readInt() != BinaryRowEncoder.MAGIC) {
+                throw new IOException(file + " is not a binary statement export.");
+            }
+            long rows = 0;
+            while (true) {
+                int transactionId;
+                try {
+                    transactionId = in.readInt();
+                } catch (EOFException e) {
+                    return rows;
+                }
+                Transaction transaction = new Transaction();
+                transaction.setTransactionId(transactionId);
+                transaction.setAccountId(in.readInt());
+                transaction.setAmount(Money.ofMinor(in.readLong()));
+                transaction.setTransactionTime(new Timestamp(in.readLong()));
+                transaction.setLinkedTransactionId(in.readInt());
+                int flags = in.readByte();
+                transaction.setFlagged((flags & BinaryRowEncoder.FLAG_FLAGGED) != 0);
+                transaction.setTransactionType(readString(in));
+                if ((flags & BinaryRowEncoder.FLAG_HAS_REASON) != 0) {
+                    transaction.setReasonForFlag(readString(in));
+                }
+                consumer.accept(transaction);
+                rows++;
+            }
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readUnsignedShort()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
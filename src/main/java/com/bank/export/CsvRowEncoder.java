@@ -0,0 +1,146 @@
+// File: src/main/java/com/bank/export/CsvRowEncoder.java
+
+package com.bank.export;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * transactionId,accountId,transactionType,amount,isFlagged,reasonForFlag,transactionTime,linkedTransactionId
+ *
+ * <p>Amounts are written as currency units with two decimals, times as ISO-8601 UTC with
+ * milliseconds, and a missing reason or linked id as an empty field. Text fields are quoted only
+ * when they contain a comma, quote or line break.
+ */
+final class CsvRowEncoder extends RowEncoder {
+    private static final byte[] HEADER = ("transactionId,accountId,transactionType,amount,isFlagged,reasonForFlag,transactionTime,linkedTransactionId\n")
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    // Scratch space for digits, written backwards.
+    private final byte[] digits = new byte[20];
+
+    @Override
+    void writeHeader(ByteBuffer buffer) {
+        buffer.put(HEADER);
+    }
+
+    @Override
+    void writeRow(ByteBuffer buffer, ExportRow row) {
+        putLong(buffer, row.transactionId);
+        buffer.put((byte) ',');
+        putLong(buffer, row.accountId);
+        buffer.put((byte) ',');
+        putText(buffer, row.transactionType);
+        buffer.put((byte) ',');
+        putAmount(buffer, row.amountMinorUnits);
+        buffer.put((byte) ',');
+        buffer.put(row.flagged ? TRUE : FALSE);
+        buffer.put((byte) ',');
+        putText(buffer, row.reasonForFlag);
+        buffer.put((byte) ',');
+        putTimestamp(buffer, row.transactionTimeMillis);
+        buffer.put((byte) ',');
+        if (row.linkedTransactionId != 0) {
+            putLong(buffer, row.linkedTransactionId);
+        }
+        buffer.put((byte) '\n');
+    }
+
+    private void putLong(ByteBuffer buffer, long value) {
+        if (value < 0) {
+            buffer.put((byte) '-');
+        }
+        // Digits are taken with their sign stripped one at a time, so Long.MIN_VALUE needs no special case.
+        int i = digits.length;
+        do {
+            digits[--i] = (byte) ('0' + Math.abs(value % 10));
+            value /= 10;
+        } while (value != 0);
+        buffer.put(digits, i, digits.length - i);
+    }
+
+    private void putAmount(ByteBuffer buffer, long minorUnits) {
+        if (minorUnits < 0) {
+            buffer.put((byte) '-');
+        }
+        long cents = Math.abs(minorUnits % 100);
+        putLong(buffer, Math.abs(minorUnits / 100));
+        buffer.put((byte) '.');
+        buffer.put((byte) ('0' + cents / 10));
+        buffer.put((byte) ('0' + cents % 10));
+    }
+
+    private static void putText(ByteBuffer buffer, String text) {
+        if (text == null) {
+            return;
+        }
+        if (!needsQuoting(text)) {
+            putUtf8(buffer, text);
+            return;
+        }
+        buffer.put((byte) '"');
+        int from = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '"') {
+                putUtf8(buffer, text.subSequence(from, i + 1));
+                buffer.put((byte) '"');
+                from = i + 1;
+            }
+        }
+        putUtf8(buffer, text.subSequence(from, text.length()));
+        buffer.put((byte) '"');
+    }
+
+    private static boolean needsQuoting(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // yyyy-MM-ddTHH:mm:ss.SSSZ, using the proleptic Gregorian civil-from-days conversion.
+    private void putTimestamp(ByteBuffer buffer, long epochMillis) {
+        long days = Math.floorDiv(epochMillis, MILLIS_PER_DAY);
+        long millisOfDay = Math.floorMod(epochMillis, MILLIS_PER_DAY);
+
+        long z = days + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        long dayOfEra = z - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1_460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        putPadded(buffer, year, 4);
+        buffer.put((byte) '-');
+        putPadded(buffer, month, 2);
+        buffer.put((byte) '-');
+        putPadded(buffer, day, 2);
+        buffer.put((byte) 'T');
+        putPadded(buffer, millisOfDay / 3_600_000, 2);
+        buffer.put((byte) ':');
+        putPadded(buffer, millisOfDay / 60_000 % 60, 2);
+        buffer.put((byte) ':');
+        putPadded(buffer, millisOfDay / 1_000 % 60, 2);
+        buffer.put((byte) '.');
+        putPadded(buffer, millisOfDay % 1_000, 3);
+        buffer.put((byte) 'Z');
+    }
+
+    private void putPadded(ByteBuffer buffer, long value, int width) {
+        int i = digits.length;
+        do {
+            digits[--i] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0 || digits.length - i < width);
+        buffer.put(digits, i, digits.length - i);
+    }
+}
@@ -0,0 +1,84 @@
+// File: src/main/java/com/bank/export/ExportCheckpoint.java
+
+package com.bank.export;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Progress of one partition: how many bytes of its part file are complete and the key of the
+ * last row in them. It is saved only after those bytes have been forced to disk, so a resumed
+ * export truncates the part file to {@link #fileOffset} and continues after that key.
+ */
+final class ExportCheckpoint {
+    private static final int MAGIC = 0x424B4331; // "BKC1"
+
+    private final Path file;
+    boolean done;
+    long rows;
+    long fileOffset;
+    int lastAccountId;
+    long lastTimeMillis;
+    int lastTimeNanos;
+    int lastTransactionId;
+    // Rows already covered by the saved checkpoint, for progress reporting.
+    long savedRows;
+
+    private ExportCheckpoint(Path file) {
+        this.file = file;
+    }
+
+    static ExportCheckpoint load(Path file) throws IOException {
+        ExportCheckpoint checkpoint = new ExportCheckpoint(file);
+        if (!Files.exists(file)) {
+            return checkpoint;
+        }
+        try (InputStream stream = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(stream)) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file + " is not an export checkpoint.");
+            }
+            checkpoint.done = in.readBoolean();
+            checkpoint.rows = in.readLong();
+            checkpoint.fileOffset = in.readLong();
+            checkpoint.lastAccountId = in.readInt();
+            checkpoint.lastTimeMillis = in.readLong();
+            checkpoint.lastTimeNanos = in.readInt();
+            checkpoint.lastTransactionId = in.readInt();
+        }
+        checkpoint.savedRows = checkpoint.rows;
+        return checkpoint;
+    }
+
+    void advance(ExportRow row) {
+        rows++;
+        lastAccountId = row.accountId;
+        lastTimeMillis = row.transactionTimeMillis;
+        lastTimeNanos = row.transactionTimeNanos;
+        lastTransactionId = row.transactionId;
+    }
+
+    // Written to a temporary file and renamed, so a crash leaves either the old or the new checkpoint.
+    void save() throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream stream = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(stream)) {
+            out.writeInt(MAGIC);
+            out.writeBoolean(done);
+            out.writeLong(rows);
+            out.writeLong(fileOffset);
+            out.writeInt(lastAccountId);
+            out.writeLong(lastTimeMillis);
+            out.writeInt(lastTimeNanos);
+            out.writeInt(lastTransactionId);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        savedRows = rows;
+    }
+}
@@ -0,0 +1,27 @@
+// File: src/main/java/com/bank/export/ExportFormat.java
+
+package com.bank.export;
+
+/**
+ * File formats the statement export can write.
+ */
+public enum ExportFormat {
+    /** RFC 4180 CSV with a header line; amounts in currency units, times in ISO-8601 UTC. */
+    CSV("csv"),
+    /** Length-prefixed binary rows, read back with {@link BinaryStatementReader}. */
+    BINARY("bin");
+
+    private final String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    RowEncoder newEncoder() {
+        return this == CSV ? new CsvRowEncoder() : new BinaryRowEncoder();
+    }
+}
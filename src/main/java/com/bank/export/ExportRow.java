@@ -0,0 +1,67 @@
+// File: src/main/java/com/bank/export/ExportRow.java
+
+package com.bank.export;
+
+import com.bank.model.Transaction;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * One Transactions row as read by the exporter. Each worker reuses a single instance, so a scan
+ * does not build a Transaction (and its Money and Timestamp) per row; archived rows, which the
+ * archive returns as Transactions, are loaded into a second one.
+ */
+final class ExportRow {
+    int transactionId;
+    int accountId;
+    String transactionType;
+    long amountMinorUnits;
+    boolean flagged;
+    String reasonForFlag;
+    long transactionTimeMillis;
+    int transactionTimeNanos;
+    int linkedTransactionId;
+
+    // Columns in the order of StatementExporter's SELECT list.
+    void load(ResultSet rs) throws SQLException {
+        transactionId = rs.getInt(1);
+        accountId = rs.getInt(2);
+        transactionType = rs.getString(3);
+        amountMinorUnits = rs.getBigDecimal(4).movePointRight(2).longValueExact();
+        flagged = rs.getBoolean(5);
+        reasonForFlag = rs.getString(6);
+        Timestamp time = rs.getTimestamp(7);
+        transactionTimeMillis = time.getTime();
+        transactionTimeNanos = time.getNanos();
+        linkedTransactionId = rs.getInt(8);
+    }
+
+    void load(Transaction transaction) {
+        transactionId = transaction.getTransactionId();
+        accountId = transaction.getAccountId();
+        transactionType = transaction.getTransactionType();
+        amountMinorUnits = transaction.getAmount().getMinorUnits();
+        flagged = transaction.isFlagged();
+        reasonForFlag = transaction.getReasonForFlag();
+        Timestamp time = transaction.getTransactionTime();
+        transactionTimeMillis = time.getTime();
+        transactionTimeNanos = time.getNanos();
+        linkedTransactionId = transaction.getLinkedTransactionId();
+    }
+
+    /** Compares the (accountId, transactionTime, transactionId) keys the export is ordered by. */
+    int compareKey(ExportRow other) {
+        if (accountId != other.accountId) {
+            return Integer.compare(accountId, other.accountId);
+        }
+        if (transactionTimeMillis != other.transactionTimeMillis) {
+            return Long.compare(transactionTimeMillis, other.transactionTimeMillis);
+        }
+        if (transactionTimeNanos != other.transactionTimeNanos) {
+            return Integer.compare(transactionTimeNanos, other.transactionTimeNanos);
+        }
+        return Integer.compare(transactionId, other.transactionId);
+    }
+}
@@ -0,0 +1,40 @@
+// File: src/main/java/com/bank/export/RowEncoder.java
+
+package com.bank.export;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Writes rows straight into a byte buffer. Encoders never build intermediate Strings; numbers and
+ * text are written byte by byte. A row that does not fit raises a
+ * {@link java.nio.BufferOverflowException}, after which the exporter flushes and encodes it again.
+ */
+abstract class RowEncoder {
+
+    /** Written once at the start of every part file. */
+    abstract void writeHeader(ByteBuffer buffer);
+
+    abstract void writeRow(ByteBuffer buffer, ExportRow row);
+
+    static void putUtf8(ByteBuffer buffer, CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+}
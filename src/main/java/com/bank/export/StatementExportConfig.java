@@ -0,0 +1,100 @@
+// File: src/main/java/com/bank/export/StatementExportConfig.java
+
+package com.bank.export;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+
+/**
+ * Settings for {@link StatementExporter}. On the command line each one is given as
+ * {@code --name=value}, e.g. {@code export --dir=/data/statements --format=binary --from=2026-09-01 --to=2026-10-01}.
+ */
+public class StatementExportConfig {
+    private static final int MIN_BUFFER_BYTES = 64 * 1024;
+
+    private Path directory;
+    private ExportFormat format = ExportFormat.CSV;
+    private int workers = 4;
+    private int partitions = 16;
+    private int bufferBytes = 1024 * 1024;
+    private int fetchSize = 500;
+    private Timestamp periodStart;
+    private Timestamp periodEnd;
+    private boolean resume = true;
+
+    public StatementExportConfig() {}
+
+    /**
+     * Parses {@code --dir} (required), {@code --format} (csv or binary), {@code --workers},
+     * {@code --partitions}, {@code --bufferKiB}, {@code --fetchSize}, {@code --from} and
+     * {@code --to} (yyyy-MM-dd, the end is exclusive) and {@code --resume}.
+     */
+    public static StatementExportConfig fromArgs(String[] args) {
+        StatementExportConfig config = new StatementExportConfig();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            String name = arg.substring(2, eq);
+            String value = arg.substring(eq + 1);
+            switch (name) {
+                case "dir": config.setDirectory(Paths.get(value)); break;
+                case "format": config.setFormat(ExportFormat.valueOf(value.toUpperCase())); break;
+                case "workers": config.setWorkers(Integer.parseInt(value)); break;
+                case "partitions": config.setPartitions(Integer.parseInt(value)); break;
+                case "bufferKiB": config.setBufferBytes(Integer.parseInt(value) * 1024); break;
+                case "fetchSize": config.setFetchSize(Integer.parseInt(value)); break;
+                case "from": config.setPeriodStart(Timestamp.valueOf(value + " 00:00:00")); break;
+                case "to": config.setPeriodEnd(Timestamp.valueOf(value + " 00:00:00")); break;
+                case "resume": config.setResume(Boolean.parseBoolean(value)); break;
+                default: throw new IllegalArgumentException("Unknown export option: --" + name);
+            }
+        }
+        return config;
+    }
+
+    void validate() {
+        if (directory == null) {
+            throw new IllegalArgumentException("An output directory is required.");
+        }
+        if (workers < 1 || partitions < 1) {
+            throw new IllegalArgumentException("Workers and partitions must be positive.");
+        }
+        if (bufferBytes < MIN_BUFFER_BYTES) {
+            throw new IllegalArgumentException("The buffer must be at least " + MIN_BUFFER_BYTES / 1024 + " KiB.");
+        }
+    }
+
+    // --- Getters and Setters ---
+    public Path getDirectory() { return directory; }
+    public void setDirectory(Path directory) { this.directory = directory; }
+    public ExportFormat getFormat() { return format; }
+    public void setFormat(ExportFormat format) { this.format = format; }
+    /** Threads scanning partitions in parallel; each holds one pooled connection while it scans. */
+    public int getWorkers() { return workers; }
+    public void setWorkers(int workers) { this.workers = workers; }
+    /** Number of account-id ranges, and part files, the export is split into. */
+    public int getPartitions() { return partitions; }
+    public void setPartitions(int partitions) { this.partitions = partitions; }
+    /** Size of each worker's direct write buffer; a checkpoint is taken every time it is flushed. */
+    public int getBufferBytes() { return bufferBytes; }
+    public void setBufferBytes(int bufferBytes) { this.bufferBytes = bufferBytes; }
+    public int getFetchSize() { return fetchSize; }
+    public void setFetchSize(int fetchSize) { this.fetchSize = fetchSize; }
+    /** Inclusive start of the statement period, or null for no lower bound. */
+    public Timestamp getPeriodStart() { return periodStart; }
+    public void setPeriodStart(Timestamp periodStart) { this.periodStart = periodStart; }
+    /** Exclusive end of the statement period, or null for no upper bound. */
+    public Timestamp getPeriodEnd() { return periodEnd; }
+    public void setPeriodEnd(Timestamp periodEnd) { this.periodEnd = periodEnd; }
+    /** Continue from the checkpoints in the directory instead of starting over. */
+    public boolean isResume() { return resume; }
+    public void setResume(boolean resume) { this.resume = resume; }
+
+    @Override
+    public String toString() {
+        return "StatementExportConfig{" + "directory=" + directory + ", format=" + format + ", workers=" + workers + ", partitions=" + partitions + ", bufferBytes=" + bufferBytes + ", fetchSize=" + fetchSize + ", periodStart=" + periodStart + ", periodEnd=" + periodEnd + ", resume=" + resume + '}';
+    }
+}
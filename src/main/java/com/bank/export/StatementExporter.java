@@ -0,0 +1,411 @@
+// File: src/main/java/com/bank/export/StatementExporter.java
+
+package com.bank.export;
+
+import com.bank.dao.DatabaseConnector;
+import com.bank.dao.archive.ArchiveSegment;
+import com.bank.dao.archive.TransactionArchive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exports the Transactions table, e.g. for month-end statements, without loading it into memory.
+ *
+ * <p>The account-id range is split into partitions that worker threads claim one at a time. Each
+ * partition is read with one forward-only, read-only cursor in (accountId, transactionTime,
+ * transactionId) order, which the (accountId, transactionTime) index serves directly. Rows are
+ * encoded into a worker-owned direct buffer and written to that partition's part file through a
+ * {@link FileChannel}. Every time the buffer is flushed, the file is forced and the partition's
+ * checkpoint saved, so an interrupted export resumes where it stopped instead of starting over.
+ *
+ * <p>Rows moved to the {@link TransactionArchive} are part of the export too: when a segment
+ * overlaps the period, each partition's archived rows are read an account at a time and merged
+ * into its cursor in the same order, so a statement of an archived period is complete.
+ *
+ * <p>The output directory holds {@code export.manifest} (format, period and partition layout),
+ * {@code part-NNNNN.csv} or {@code .bin} and one {@code .ckpt} per partition.
+ */
+public class StatementExporter {
+    private static final String MANIFEST = "export.manifest";
+    private static final String SELECT_SQL = "SELECT transactionId, accountId, transactionType, amount, isFlagged, reasonForFlag, transactionTime, linkedTransactionId " +
+            "FROM Transactions WHERE accountId BETWEEN ? AND ?";
+    private static final String AFTER_KEY_SQL = " AND (accountId > ? OR (accountId = ? AND (transactionTime > ? OR (transactionTime = ? AND transactionId > ?))))";
+    private static final String ORDER_SQL = " ORDER BY accountId, transactionTime, transactionId";
+
+    private final StatementExportConfig config;
+    // Null when archiving is not configured.
+    private final TransactionArchive archive;
+    private final AtomicLong rowsExported = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    /** Exports the configured database together with the archive configured by {@code bank.archive.*}, if any. */
+    public StatementExporter(StatementExportConfig config) {
+        this(config, TransactionArchive.getDefault());
+    }
+
+    /** @param archive the archive holding the table's older rows, or null */
+    public StatementExporter(StatementExportConfig config, TransactionArchive archive) {
+        config.validate();
+        this.config = config;
+        this.archive = archive;
+    }
+
+    /** Rows written by the running export so far; can be polled from another thread for progress. */
+    public long getRowsExported() {
+        return rowsExported.get();
+    }
+
+    /**
+     * Runs the export, resuming from the checkpoints in the directory if {@link StatementExportConfig#isResume()}
+     * is set and they were written with the same format and period.
+     */
+    public Report export() throws IOException, SQLException {
+        long start = System.nanoTime();
+        Path directory = config.getDirectory();
+        Files.createDirectories(directory);
+        int[] bounds = prepareLayout(directory);
+
+        int partitions = bounds.length - 1;
+        AtomicInteger nextPartition = new AtomicInteger();
+        AtomicInteger alreadyDone = new AtomicInteger();
+        AtomicInteger resumed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(config.getWorkers(), partitions), r -> {
+            Thread t = new Thread(r, "statement-export");
+            t.setDaemon(true);
+            return t;
+        });
+        List<Future<Void>> results = new ArrayList<>();
+        for (int w = 0; w < Math.min(config.getWorkers(), partitions); w++) {
+            results.add(executor.submit(() -> {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(config.getBufferBytes());
+                RowEncoder encoder = config.getFormat().newEncoder();
+                ExportRow row = new ExportRow();
+                ExportRow archivedRow = new ExportRow();
+                int partition;
+                while ((partition = nextPartition.getAndIncrement()) < partitions) {
+                    ExportCheckpoint checkpoint = ExportCheckpoint.load(directory.resolve(partName(partition, "ckpt")));
+                    if (checkpoint.done) {
+                        alreadyDone.incrementAndGet();
+                        continue;
+                    }
+                    if (checkpoint.rows > 0) {
+                        resumed.incrementAndGet();
+                    }
+                    exportPartition(directory.resolve(partName(partition, config.getFormat().getExtension())),
+                            bounds[partition], bounds[partition + 1] - 1, checkpoint, buffer, encoder, row, archivedRow);
+                }
+                return null;
+            }));
+        }
+        executor.shutdown();
+        try {
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while exporting statements.", e);
+        } catch (ExecutionException e) {
+            executor.shutdownNow();
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            throw new IllegalStateException("Statement export failed.", cause);
+        }
+        return new Report(partitions, alreadyDone.get(), resumed.get(), rowsExported.get(), bytesWritten.get(), System.nanoTime() - start);
+    }
+
+    private void exportPartition(Path file, int fromAccountId, int toAccountId, ExportCheckpoint checkpoint,
+                                 ByteBuffer buffer, RowEncoder encoder, ExportRow row, ExportRow archivedRow) throws IOException, SQLException {
+        boolean resuming = checkpoint.rows > 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // Anything past the checkpoint was written after it was saved and is written again below.
+            channel.truncate(checkpoint.fileOffset);
+            channel.position(checkpoint.fileOffset);
+            buffer.clear();
+            if (checkpoint.fileOffset == 0) {
+                encoder.writeHeader(buffer);
+            }
+
+            try (Connection conn = DatabaseConnector.getConnection()) {
+                ArchivedRows archived = archivedRows(conn, fromAccountId, toAccountId, resuming ? lastExported(checkpoint) : null);
+                exportRows(conn, channel, fromAccountId, toAccountId, checkpoint, buffer, encoder, row, archived, archivedRow);
+            }
+            flush(channel, buffer, checkpoint);
+            checkpoint.done = true;
+            checkpoint.save();
+        }
+    }
+
+    private void exportRows(Connection conn, FileChannel channel, int fromAccountId, int toAccountId, ExportCheckpoint checkpoint,
+                            ByteBuffer buffer, RowEncoder encoder, ExportRow row, ArchivedRows archived, ExportRow archivedRow) throws IOException, SQLException {
+        boolean resuming = checkpoint.rows > 0;
+        try (PreparedStatement pstmt = conn.prepareStatement(buildQuery(resuming), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            pstmt.setFetchSize(config.getFetchSize());
+            int p = 1;
+            pstmt.setInt(p++, fromAccountId);
+            pstmt.setInt(p++, toAccountId);
+            if (resuming) {
+                Timestamp lastTime = new Timestamp(checkpoint.lastTimeMillis);
+                lastTime.setNanos(checkpoint.lastTimeNanos);
+                pstmt.setInt(p++, checkpoint.lastAccountId);
+                pstmt.setInt(p++, checkpoint.lastAccountId);
+                pstmt.setTimestamp(p++, lastTime);
+                pstmt.setTimestamp(p++, lastTime);
+                pstmt.setInt(p++, checkpoint.lastTransactionId);
+            }
+            if (config.getPeriodStart() != null) {
+                pstmt.setTimestamp(p++, config.getPeriodStart());
+            }
+            if (config.getPeriodEnd() != null) {
+                pstmt.setTimestamp(p, config.getPeriodEnd());
+            }
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                boolean live = rs.next();
+                if (live) {
+                    row.load(rs);
+                }
+                boolean archivedLeft = archived != null && archived.next(archivedRow);
+                while (live || archivedLeft) {
+                    int order = !archivedLeft ? -1 : !live ? 1 : row.compareKey(archivedRow);
+                    if (order == 0) {
+                        // Archived while this partition was read: the row is in both, write it once.
+                        archivedLeft = archived.next(archivedRow);
+                        continue;
+                    }
+                    ExportRow next = order < 0 ? row : archivedRow;
+                    int rowStart = buffer.position();
+                    try {
+                        encoder.writeRow(buffer, next);
+                    } catch (BufferOverflowException e) {
+                        // The checkpoint still describes the rows before this one, so flushing here is safe.
+                        buffer.position(rowStart);
+                        flush(channel, buffer, checkpoint);
+                        encoder.writeRow(buffer, next);
+                    }
+                    checkpoint.advance(next);
+                    if (order < 0) {
+                        live = rs.next();
+                        if (live) {
+                            row.load(rs);
+                        }
+                    } else {
+                        archivedLeft = archived.next(archivedRow);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The archived rows of accounts {@code fromAccountId..toAccountId} in the export period, or
+     * null if no archive segment overlaps it.
+     */
+    private ArchivedRows archivedRows(Connection conn, int fromAccountId, int toAccountId, ExportRow after) throws SQLException {
+        List<ArchiveSegment> segments = archive == null ? Collections.emptyList()
+                : ArchivedRows.overlapping(archive.getSegments(), config.getPeriodStart(), config.getPeriodEnd());
+        if (segments.isEmpty()) {
+            return null;
+        }
+        // Accounts stay in the table when their rows are archived, so it lists every account to look up.
+        List<Integer> ids = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT accountId FROM Accounts WHERE accountId BETWEEN ? AND ? ORDER BY accountId")) {
+            pstmt.setInt(1, fromAccountId);
+            pstmt.setInt(2, toAccountId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        int[] accountIds = new int[ids.size()];
+        for (int i = 0; i < accountIds.length; i++) {
+            accountIds[i] = ids.get(i);
+        }
+        return new ArchivedRows(segments, accountIds, config.getPeriodStart(), config.getPeriodEnd(), after);
+    }
+
+    private static ExportRow lastExported(ExportCheckpoint checkpoint) {
+        ExportRow last = new ExportRow();
+        last.accountId = checkpoint.lastAccountId;
+        last.transactionTimeMillis = checkpoint.lastTimeMillis;
+        last.transactionTimeNanos = checkpoint.lastTimeNanos;
+        last.transactionId = checkpoint.lastTransactionId;
+        return last;
+    }
+
+    private String buildQuery(boolean resuming) {
+        StringBuilder sql = new StringBuilder(SELECT_SQL);
+        if (resuming) {
+            sql.append(AFTER_KEY_SQL);
+        }
+        if (config.getPeriodStart() != null) {
+            sql.append(" AND transactionTime >= ?");
+        }
+        if (config.getPeriodEnd() != null) {
+            sql.append(" AND transactionTime < ?");
+        }
+        return sql.append(ORDER_SQL).toString();
+    }
+
+    private void flush(FileChannel channel, ByteBuffer buffer, ExportCheckpoint checkpoint) throws IOException {
+        buffer.flip();
+        int bytes = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        channel.force(false);
+        long newRows = checkpoint.rows - checkpoint.savedRows;
+        checkpoint.fileOffset = channel.position();
+        checkpoint.save();
+        rowsExported.addAndGet(newRows);
+        bytesWritten.addAndGet(bytes);
+    }
+
+    /**
+     * Returns the partition boundaries: partition i covers account ids [bounds[i], bounds[i + 1]).
+     * A resumed export reuses the layout in the manifest; a new one splits the current id range
+     * evenly and clears any earlier export from the directory.
+     */
+    private int[] prepareLayout(Path directory) throws IOException, SQLException {
+        Path manifestFile = directory.resolve(MANIFEST);
+        if (config.isResume() && Files.exists(manifestFile)) {
+            Properties manifest = new Properties();
+            try (InputStream in = Files.newInputStream(manifestFile)) {
+                manifest.load(in);
+            }
+            if (!config.getFormat().name().equals(manifest.getProperty("format"))
+                    || !Objects.equals(String.valueOf(config.getPeriodStart()), manifest.getProperty("periodStart"))
+                    || !Objects.equals(String.valueOf(config.getPeriodEnd()), manifest.getProperty("periodEnd"))) {
+                throw new IOException("The export in " + directory + " was started with different settings (" + manifest
+                        + "); use another directory or resume=false.");
+            }
+            String[] values = manifest.getProperty("bounds").split(",");
+            int[] bounds = new int[values.length];
+            for (int i = 0; i < values.length; i++) {
+                bounds[i] = Integer.parseInt(values[i]);
+            }
+            return bounds;
+        }
+
+        try (DirectoryStream<Path> previous = Files.newDirectoryStream(directory, "{part-*,export.manifest}")) {
+            for (Path file : previous) {
+                Files.delete(file);
+            }
+        }
+        int[] bounds = splitAccountRange();
+        StringBuilder joined = new StringBuilder();
+        for (int bound : bounds) {
+            joined.append(joined.length() == 0 ? "" : ",").append(bound);
+        }
+        Properties manifest = new Properties();
+        manifest.setProperty("format", config.getFormat().name());
+        manifest.setProperty("periodStart", String.valueOf(config.getPeriodStart()));
+        manifest.setProperty("periodEnd", String.valueOf(config.getPeriodEnd()));
+        manifest.setProperty("bounds", joined.toString());
+        try (OutputStream out = Files.newOutputStream(manifestFile)) {
+            manifest.store(out, "Statement export layout; delete this directory to start over.");
+        }
+        return bounds;
+    }
+
+    private int[] splitAccountRange() throws SQLException {
+        long min;
+        long max;
+        try (Connection conn = DatabaseConnector.getConnection();
+             Statement statement = conn.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT MIN(accountId), MAX(accountId) FROM Accounts")) {
+            rs.next();
+            min = rs.getLong(1);
+            max = rs.wasNull() ? min - 1 : rs.getLong(2);
+        }
+        long span = Math.max(0, max - min + 1);
+        int partitions = (int) Math.max(1, Math.min(config.getPartitions(), span));
+        int[] bounds = new int[partitions + 1];
+        for (int i = 0; i <= partitions; i++) {
+            bounds[i] = (int) (min + span * i / partitions);
+        }
+        return bounds;
+    }
+
+    private static String partName(int partition, String extension) {
+        return String.format(Locale.ROOT, "part-%05d.%s", partition, extension);
+    }
+
+    /**
+     * Totals of one {@link #export()} run.
+     */
+    public static final class Report {
+        private final int partitions;
+        private final int partitionsAlreadyDone;
+        private final int partitionsResumed;
+        private final long rows;
+        private final long bytes;
+        private final long elapsedNanos;
+
+        private Report(int partitions, int partitionsAlreadyDone, int partitionsResumed, long rows, long bytes, long elapsedNanos) {
+            this.partitions = partitions;
+            this.partitionsAlreadyDone = partitionsAlreadyDone;
+            this.partitionsResumed = partitionsResumed;
+            this.rows = rows;
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        // --- Getters ---
+        public int getPartitions() { return partitions; }
+        /** Partitions that were complete before this run and were skipped. */
+        public int getPartitionsAlreadyDone() { return partitionsAlreadyDone; }
+        /** Partitions that continued from a checkpoint part-way through. */
+        public int getPartitionsResumed() { return partitionsResumed; }
+        /** Rows written by this run. */
+        public long getRows() { return rows; }
+        public long getBytes() { return bytes; }
+        public double getElapsedSeconds() { return elapsedNanos / 1e9; }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0.0 : rows / getElapsedSeconds();
+        }
+
+        @Override
+        public String toString() {
+            return "ExportReport{" + "partitions=" + partitions + ", alreadyDone=" + partitionsAlreadyDone + ", resumed=" + partitionsResumed
+                    + ", rows=" + rows + ", bytes=" + bytes + ", seconds=" + String.format(Locale.ROOT, "%.2f", getElapsedSeconds())
+                    + ", rowsPerSecond=" + String.format(Locale.ROOT, "%.0f", getRowsPerSecond()) + '}';
+        }
+    }
+}
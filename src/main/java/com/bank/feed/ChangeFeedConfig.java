@@ -0,0 +1,65 @@
+// File: src/main/java/com/bank/feed/ChangeFeedConfig.java
+
+package com.bank.feed;
+
+/**
+ * Settings for {@link LedgerEventPublisher}. Every value can be overridden with a
+ * {@code bank.feed.*} system property. The buffer and overflow policy are the defaults for
+ * subscribers that do not choose their own.
+ */
+public class ChangeFeedConfig {
+    private boolean enabled = false;
+    private int bufferCapacity = 1_024;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DISCONNECT;
+    private long blockTimeoutMillis = 1_000;
+    private int deliveryThreads = 2;
+    private int deliveryBatchSize = 256;
+    private int replayPageSize = 500;
+    private long closeTimeoutMillis = 5_000;
+
+    public ChangeFeedConfig() {}
+
+    public static ChangeFeedConfig fromSystemProperties() {
+        ChangeFeedConfig config = new ChangeFeedConfig();
+        config.enabled = Boolean.parseBoolean(System.getProperty("bank.feed.enabled", String.valueOf(config.enabled)));
+        config.bufferCapacity = Integer.getInteger("bank.feed.bufferCapacity", config.bufferCapacity);
+        config.overflowPolicy = OverflowPolicy.valueOf(System.getProperty("bank.feed.overflowPolicy", config.overflowPolicy.name()).trim().toUpperCase());
+        config.blockTimeoutMillis = Long.getLong("bank.feed.blockTimeoutMillis", config.blockTimeoutMillis);
+        config.deliveryThreads = Integer.getInteger("bank.feed.deliveryThreads", config.deliveryThreads);
+        config.deliveryBatchSize = Integer.getInteger("bank.feed.deliveryBatchSize", config.deliveryBatchSize);
+        config.replayPageSize = Integer.getInteger("bank.feed.replayPageSize", config.replayPageSize);
+        config.closeTimeoutMillis = Long.getLong("bank.feed.closeTimeoutMillis", config.closeTimeoutMillis);
+        return config;
+    }
+
+    // --- Getters and Setters ---
+    /** Whether BankService publishes at all; off unless set. The feed is always off when accounts are sharded. */
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+    /** Events held per subscriber that it has not requested yet. */
+    public int getBufferCapacity() { return bufferCapacity; }
+    public void setBufferCapacity(int bufferCapacity) { this.bufferCapacity = bufferCapacity; }
+    public OverflowPolicy getOverflowPolicy() { return overflowPolicy; }
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) { this.overflowPolicy = overflowPolicy; }
+    /** How long a writer waits for room under {@link OverflowPolicy#BLOCK}. */
+    public long getBlockTimeoutMillis() { return blockTimeoutMillis; }
+    public void setBlockTimeoutMillis(long blockTimeoutMillis) { this.blockTimeoutMillis = blockTimeoutMillis; }
+    /** Threads calling subscribers, shared by all of them. */
+    public int getDeliveryThreads() { return deliveryThreads; }
+    public void setDeliveryThreads(int deliveryThreads) { this.deliveryThreads = deliveryThreads; }
+    /** Events handed to one subscriber before its delivery thread moves on to the next one. */
+    public int getDeliveryBatchSize() { return deliveryBatchSize; }
+    public void setDeliveryBatchSize(int deliveryBatchSize) { this.deliveryBatchSize = deliveryBatchSize; }
+    /** Ledger rows read per query while a subscriber catches up. */
+    public int getReplayPageSize() { return replayPageSize; }
+    public void setReplayPageSize(int replayPageSize) { this.replayPageSize = replayPageSize; }
+    public long getCloseTimeoutMillis() { return closeTimeoutMillis; }
+    public void setCloseTimeoutMillis(long closeTimeoutMillis) { this.closeTimeoutMillis = closeTimeoutMillis; }
+
+    @Override
+    public String toString() {
+        return "ChangeFeedConfig{" + "enabled=" + enabled + ", bufferCapacity=" + bufferCapacity + ", overflowPolicy=" + overflowPolicy +
+                ", blockTimeoutMillis=" + blockTimeoutMillis + ", deliveryThreads=" + deliveryThreads + ", deliveryBatchSize=" + deliveryBatchSize +
+                ", replayPageSize=" + replayPageSize + ", closeTimeoutMillis=" + closeTimeoutMillis + '}';
+    }
+}
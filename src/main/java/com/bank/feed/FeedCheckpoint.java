@@ -0,0 +1,65 @@
+// File: src/main/java/com/bank/feed/FeedCheckpoint.java
+
+package com.bank.feed;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A subscriber's durable position in the change feed: the sequence of the last event it has
+ * finished with. A subscriber saves it as it goes, and after a restart subscribes again with
+ * {@link LedgerEventPublisher#subscribe(java.util.concurrent.Flow.Subscriber, FeedCheckpoint)}
+ * to get every event after it, read back from the ledger, before the live ones. Events it had
+ * handled but not yet saved are delivered again, so handling should be idempotent by sequence.
+ */
+public final class FeedCheckpoint {
+    private static final int MAGIC = 0x424B4631; // "BKF1"
+
+    private final Path file;
+    private volatile long sequence;
+
+    private FeedCheckpoint(Path file, long sequence) {
+        this.file = file;
+        this.sequence = sequence;
+    }
+
+    /** Reads the checkpoint in {@code file}; a missing file is a new subscriber, at sequence 0. */
+    public static FeedCheckpoint load(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return new FeedCheckpoint(file, 0);
+        }
+        try (InputStream stream = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(stream)) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file + " is not a feed checkpoint.");
+            }
+            return new FeedCheckpoint(file, in.readLong());
+        }
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    // Written to a temporary file and renamed, so a crash leaves either the old or the new checkpoint.
+    public synchronized void save(long sequence) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream stream = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(stream)) {
+            out.writeInt(MAGIC);
+            out.writeLong(sequence);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        this.sequence = sequence;
+    }
+}
@@ -0,0 +1,75 @@
+// File: src/main/java/com/bank/feed/LedgerEvent.java
+
+package com.bank.feed;
+
+import com.bank.model.Money;
+import com.bank.model.Transaction;
+
+import java.sql.Timestamp;
+
+/**
+ * One committed ledger row as the change feed delivers it: a deposit, a withdrawal or one leg of
+ * a transfer. Immutable, so a single instance is shared by every subscriber.
+ *
+ * <p>The sequence is the row's transactionId. A subscriber sees sequences strictly increasing,
+ * though not consecutive: ids of rolled-back writes are never used.
+ */
+public final class LedgerEvent {
+    private final long sequence;
+    private final int accountId;
+    private final String transactionType;
+    private final Money amount;
+    private final boolean flagged;
+    private final String reasonForFlag;
+    private final long transactionTimeMillis;
+    private final int linkedTransactionId;
+    private final boolean replayed;
+
+    private LedgerEvent(Transaction transaction, long transactionTimeMillis, boolean replayed) {
+        this.sequence = transaction.getTransactionId();
+        this.accountId = transaction.getAccountId();
+        this.transactionType = transaction.getTransactionType();
+        this.amount = transaction.getAmount();
+        this.flagged = transaction.isFlagged();
+        this.reasonForFlag = transaction.getReasonForFlag();
+        this.transactionTimeMillis = transactionTimeMillis;
+        this.linkedTransactionId = transaction.getLinkedTransactionId();
+        this.replayed = replayed;
+    }
+
+    // Rows written over JDBC get their time from the database, which the writer does not read
+    // back; their live events carry the time they were published instead.
+    static LedgerEvent published(Transaction transaction) {
+        Timestamp time = transaction.getTransactionTime();
+        return new LedgerEvent(transaction, time != null ? time.getTime() : System.currentTimeMillis(), false);
+    }
+
+    static LedgerEvent replayed(Transaction transaction) {
+        return new LedgerEvent(transaction, transaction.getTransactionTime().getTime(), true);
+    }
+
+    public long getSequence() { return sequence; }
+    public int getTransactionId() { return (int) sequence; }
+    public int getAccountId() { return accountId; }
+    public String getTransactionType() { return transactionType; }
+    public Money getAmount() { return amount; }
+    /** The verdict at commit. With asynchronous fraud scoring a row can be flagged later; that is not an event. */
+    public boolean isFlagged() { return flagged; }
+    public String getReasonForFlag() { return reasonForFlag; }
+    public Timestamp getTransactionTime() { return new Timestamp(transactionTimeMillis); }
+    /** For the two legs of a transfer: the transactionId of the opposite leg, 0 otherwise. */
+    public int getLinkedTransactionId() { return linkedTransactionId; }
+    /** True if the event was read back from the ledger for a subscriber catching up, rather than published live. */
+    public boolean isReplayed() { return replayed; }
+
+    /** True for rows that take money out of the account: withdrawals and outgoing transfers. */
+    public boolean isDebit() {
+        return "WITHDRAWAL".equals(transactionType) || "TRANSFER_OUT".equals(transactionType);
+    }
+
+    @Override
+    public String toString() {
+        return "LedgerEvent{" + "sequence=" + sequence + ", accountId=" + accountId + ", transactionType='" + transactionType + '\'' +
+                ", amount=" + amount + ", flagged=" + flagged + ", linkedTransactionId=" + linkedTransactionId + ", replayed=" + replayed + '}';
+    }
+}
@@ -0,0 +1,337 @@
+// File: src/main/java/com/bank/feed/LedgerEventPublisher.java
+
+package com.bank.feed;
+
+import com.bank.dao.TransactionRepository;
+import com.bank.metrics.Counter;
+import com.bank.metrics.Metrics;
+import com.bank.model.Transaction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process change feed of committed ledger rows. Writers {@link #begin} before they insert
+ * rows and {@link #publish} them once committed (or {@link #abandon} the write); subscribers get
+ * every published row as a {@link LedgerEvent} whose sequence is its transactionId.
+ *
+ * <p>Ids are assigned when rows are inserted, not when they commit, so a slow write can commit a
+ * lower id after a fast one has committed a higher id. To hand events out in ascending order the
+ * publisher holds a committed row back until every write that had begun before it committed has
+ * finished: any row a later write inserts gets a higher id. An event is therefore delayed by at
+ * most the longest write that overlaps it.
+ *
+ * <p>A subscriber can start after a sequence it has already seen, typically its
+ * {@link FeedCheckpoint}; the rows after it are read back from the ledger before it receives live
+ * events. Only rows written through this publisher are published live; rows written by other
+ * processes are only seen by a subscriber catching up. Transaction ids must be unique, so the
+ * feed cannot run over sharded accounts.
+ */
+public class LedgerEventPublisher implements Flow.Publisher<LedgerEvent>, AutoCloseable {
+
+    /** Start sequence for a subscriber that only wants events published from now on. */
+    public static final long FROM_NOW = -1;
+
+    // Answers of attachIfCaughtUp other than a sequence to replay up to.
+    static final long ATTACHED = -1;
+    static final long LEDGER_UNREADABLE = -2;
+
+    private static final Counter PUBLISHED = Metrics.counter("feed.published");
+    private static final Counter OUT_OF_ORDER = Metrics.counter("feed.outOfOrder");
+
+    private final TransactionRepository transactionRepository;
+    private final ChangeFeedConfig config;
+    private final ExecutorService executor;
+    // Every subscription that has not ended, caught up or not.
+    private final List<LedgerSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    // Guarded by this.
+    private long lastWrite;
+    private final TreeSet<Long> openWrites = new TreeSet<>();
+    // Committed rows not handed out yet, by sequence.
+    private final TreeMap<Long, Held> held = new TreeMap<>();
+    private long lastSequence;
+    private boolean seeded;
+    private boolean closed;
+
+    /**
+     * Nothing is read until the first write or subscriber: then the publisher starts after the
+     * highest transaction id already in {@code transactionRepository} or its archive, which is
+     * where subscribers catching up stop reading the ledger until something new is published.
+     */
+    public LedgerEventPublisher(TransactionRepository transactionRepository, ChangeFeedConfig config) {
+        if (config.getBufferCapacity() < 1 || config.getDeliveryThreads() < 1 || config.getDeliveryBatchSize() < 1 || config.getReplayPageSize() < 1) {
+            throw new IllegalArgumentException("Invalid change feed settings: " + config);
+        }
+        this.transactionRepository = transactionRepository;
+        this.config = config;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(config.getDeliveryThreads(), r -> {
+            Thread t = new Thread(r, "bank-feed-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // --- Writers ---
+
+    /**
+     * Registers a write that is about to insert ledger rows. End it with {@link #publish} after
+     * it commits, or {@link #abandon} if it does not; until then, rows committed by writes that
+     * began later are held back.
+     *
+     * @return the write's ticket
+     */
+    public synchronized long begin() {
+        seed();
+        long write = ++lastWrite;
+        openWrites.add(write);
+        return write;
+    }
+
+    /**
+     * Ends a write whose rows have committed and queues them for the subscribers. Does nothing
+     * if the write has already ended. With {@link OverflowPolicy#BLOCK} subscribers this can wait
+     * for one of them to make room; other writers are not held up meanwhile.
+     */
+    public void publish(long write, Transaction... transactions) {
+        publish(write, List.of(transactions));
+    }
+
+    public void publish(long write, List<Transaction> transactions) {
+        List<LedgerSubscription> full;
+        synchronized (this) {
+            if (!openWrites.remove(write)) {
+                return;
+            }
+            for (Transaction transaction : transactions) {
+                if (transaction.getTransactionId() > 0) {
+                    held.put((long) transaction.getTransactionId(), new Held(LedgerEvent.published(transaction), lastWrite));
+                }
+            }
+            full = release();
+        }
+        awaitRoom(full);
+    }
+
+    /**
+     * Ends a write that committed nothing. Does nothing if the write has already ended. Like
+     * {@link #publish}, this can wait for room if it lets rows of other writes through.
+     */
+    public void abandon(long write) {
+        List<LedgerSubscription> full;
+        synchronized (this) {
+            if (!openWrites.remove(write)) {
+                return;
+            }
+            full = release();
+        }
+        awaitRoom(full);
+    }
+
+    /**
+     * Moves the last sequence up to the highest id in the ledger, the first time it can. That is
+     * only safe while no write is unfinished, or the ids of its rows would count as published.
+     * Caller holds this.
+     *
+     * @return false if the ledger has not been read yet
+     */
+    private boolean seed() {
+        if (!seeded && openWrites.isEmpty() && held.isEmpty()) {
+            int last = transactionRepository.findMaxTransactionId();
+            // Archived rows count too: the table alone may have had its newest rows archived.
+            int archived = transactionRepository.findMaxArchivedTransactionId();
+            if (last >= 0 && archived >= 0) {
+                lastSequence = Math.max(lastSequence, Math.max(last, archived));
+                seeded = true;
+            }
+        }
+        return seeded;
+    }
+
+    // Hands out held rows in ascending order, up to the first one an unfinished write could still
+    // precede. Never waits: a full BLOCK subscriber takes the events over its capacity, and the
+    // writer waits for the subscribers returned here once this is unlocked.
+    private List<LedgerSubscription> release() {
+        long oldestOpen = openWrites.isEmpty() ? Long.MAX_VALUE : openWrites.first();
+        List<LedgerSubscription> full = List.of();
+        while (!held.isEmpty()) {
+            Map.Entry<Long, Held> first = held.firstEntry();
+            if (first.getValue().lastWriteAtCommit >= oldestOpen) {
+                break;
+            }
+            held.pollFirstEntry();
+            LedgerEvent event = first.getValue().event;
+            if (event.getSequence() <= lastSequence) {
+                // Only possible if ids are not assigned in insert order, e.g. rows written elsewhere.
+                OUT_OF_ORDER.increment();
+                System.err.println("Change feed: transaction " + event.getSequence() + " committed after sequence " + lastSequence + " and was not published.");
+                continue;
+            }
+            lastSequence = event.getSequence();
+            PUBLISHED.increment();
+            for (LedgerSubscription subscription : subscriptions) {
+                if (subscription.attached && subscription.offer(event) && !full.contains(subscription)) {
+                    if (full.isEmpty()) {
+                        full = new ArrayList<>();
+                    }
+                    full.add(subscription);
+                }
+            }
+        }
+        return full;
+    }
+
+    // Called without holding this, so a full subscriber only stalls the writers handing it events.
+    private static void awaitRoom(List<LedgerSubscription> full) {
+        for (LedgerSubscription subscription : full) {
+            subscription.awaitRoom();
+        }
+    }
+
+    // --- Subscribers ---
+
+    /** Subscribes to the events published from now on, with the configured buffer and overflow policy. */
+    @Override
+    public void subscribe(Flow.Subscriber<? super LedgerEvent> subscriber) {
+        subscribe(subscriber, FROM_NOW, config.getBufferCapacity(), config.getOverflowPolicy());
+    }
+
+    /** Subscribes to every event after the checkpoint's sequence. Saving the checkpoint is up to the subscriber. */
+    public void subscribe(Flow.Subscriber<? super LedgerEvent> subscriber, FeedCheckpoint checkpoint) {
+        subscribe(subscriber, checkpoint.getSequence(), config.getBufferCapacity(), config.getOverflowPolicy());
+    }
+
+    /**
+     * Subscribes to every event with a sequence above {@code afterSequence} ({@link #FROM_NOW} for
+     * only new ones). Events already published are read back from the ledger as the subscriber
+     * requests them; live events are buffered up to {@code bufferCapacity}, and {@code policy}
+     * decides what happens beyond that.
+     */
+    public void subscribe(Flow.Subscriber<? super LedgerEvent> subscriber, long afterSequence, int bufferCapacity, OverflowPolicy policy) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        Objects.requireNonNull(policy, "policy");
+        if (afterSequence < FROM_NOW || bufferCapacity < 1) {
+            throw new IllegalArgumentException("Invalid subscription: after sequence " + afterSequence + ", buffer capacity " + bufferCapacity);
+        }
+        LedgerSubscription subscription;
+        synchronized (this) {
+            seed();
+            subscription = new LedgerSubscription(this, subscriber, afterSequence == FROM_NOW ? lastSequence : afterSequence, bufferCapacity, policy, config);
+            subscriptions.add(subscription);
+            if (closed) {
+                subscription.complete();
+            }
+        }
+        subscription.start();
+    }
+
+    /**
+     * Attaches {@code subscription} to the live events if it has seen everything published, or
+     * completes it if the publisher is closed.
+     *
+     * @return {@link #ATTACHED} if so, {@link #LEDGER_UNREADABLE} if the ledger's last id could not
+     *         be read, otherwise the last sequence published, up to which it should replay first
+     */
+    synchronized long attachIfCaughtUp(LedgerSubscription subscription, long position) {
+        if (closed) {
+            subscription.complete();
+            return ATTACHED;
+        }
+        if (!seed()) {
+            return LEDGER_UNREADABLE;
+        }
+        if (position >= lastSequence) {
+            subscription.floor = position;
+            subscription.attached = true;
+            return ATTACHED;
+        }
+        return lastSequence;
+    }
+
+    List<Transaction> readLedger(long afterSequence, int limit) {
+        return transactionRepository.findTransactionsAfter((int) Math.min(afterSequence, Integer.MAX_VALUE), limit);
+    }
+
+    /** Highest sequence whose row may be archived and so cannot be replayed, 0 if none, or -1 if unknown. */
+    long lastArchivedSequence() {
+        return transactionRepository.findMaxArchivedTransactionId();
+    }
+
+    void remove(LedgerSubscription subscription) {
+        subscriptions.remove(subscription);
+    }
+
+    void execute(LedgerSubscription subscription) {
+        try {
+            executor.execute(subscription);
+        } catch (RejectedExecutionException e) {
+            System.err.println("Change feed is stopped; a subscriber was not called.");
+        }
+    }
+
+    /** Sequence of the last event handed out, or of the last row in the ledger when the publisher was first used. */
+    public synchronized long getLastSequence() {
+        seed();
+        return lastSequence;
+    }
+
+    /** Subscriptions that have not ended, whether live or still catching up. */
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Completes every subscriber once it has taken the events already buffered for it, waiting up
+     * to {@code closeTimeoutMillis}, and stops the delivery threads. Rows still held back for an
+     * unfinished write are not published.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (LedgerSubscription subscription : subscriptions) {
+                subscription.complete();
+            }
+        }
+        long deadline = System.currentTimeMillis() + config.getCloseTimeoutMillis();
+        try {
+            while (!subscriptions.isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            executor.shutdown();
+            if (!subscriptions.isEmpty() || !executor.awaitTermination(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS)) {
+                System.err.println("Change feed closed with " + subscriptions.size() + " subscribers not completed.");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    private static final class Held {
+        final LedgerEvent event;
+        // Writes up to this ticket had begun when the row committed; it waits for all of them.
+        final long lastWriteAtCommit;
+
+        Held(LedgerEvent event, long lastWriteAtCommit) {
+            this.event = event;
+            this.lastWriteAtCommit = lastWriteAtCommit;
+        }
+    }
+}
@@ -0,0 +1,323 @@
+// File: src/main/java/com/bank/feed/LedgerSubscription.java
+
+package com.bank.feed;
+
+import com.bank.metrics.Counter;
+import com.bank.metrics.Metrics;
+import com.bank.model.Transaction;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+/**
+ * One subscriber of a {@link LedgerEventPublisher}. It first replays the ledger after its start
+ * sequence, page by page as the subscriber requests, and joins the live subscribers once it has
+ * caught up. Live events wait in a bounded buffer until requested; {@link OverflowPolicy} decides
+ * what happens when it is full.
+ *
+ * <p>All calls into the subscriber are made by this object's delivery task, which runs on the
+ * publisher's delivery threads, at most once at a time and for at most a batch of events per turn.
+ */
+final class LedgerSubscription implements Flow.Subscription, Runnable {
+
+    private static final Counter DELIVERED = Metrics.counter("feed.delivered");
+    private static final Counter REPLAYED = Metrics.counter("feed.replayed");
+    private static final Counter DROPPED = Metrics.counter("feed.dropped");
+    private static final Counter DISCONNECTED = Metrics.counter("feed.disconnected");
+
+    private final LedgerEventPublisher publisher;
+    private final Flow.Subscriber<? super LedgerEvent> subscriber;
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final long blockTimeoutMillis;
+    private final int batchSize;
+    private final int replayPageSize;
+
+    // Guarded by this.
+    private final ArrayDeque<LedgerEvent> buffer = new ArrayDeque<>();
+    private long demand;
+    private boolean scheduled;
+    // Set by cancel() and once a terminal signal is due; nothing is delivered after it.
+    private boolean cancelled;
+    private boolean completing;
+    private Throwable failure;
+
+    // Guarded by the publisher: whether it offers live events here, and the sequence it joined at.
+    boolean attached;
+    long floor;
+
+    // Touched only by the delivery task.
+    private boolean started;
+    private boolean live;
+    private long position;
+    private final ArrayDeque<LedgerEvent> replayed = new ArrayDeque<>();
+
+    LedgerSubscription(LedgerEventPublisher publisher, Flow.Subscriber<? super LedgerEvent> subscriber, long afterSequence,
+                       int capacity, OverflowPolicy policy, ChangeFeedConfig config) {
+        this.publisher = publisher;
+        this.subscriber = subscriber;
+        this.position = afterSequence;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.blockTimeoutMillis = config.getBlockTimeoutMillis();
+        this.batchSize = config.getDeliveryBatchSize();
+        this.replayPageSize = config.getReplayPageSize();
+    }
+
+    // --- Flow.Subscription, called by the subscriber ---
+
+    @Override
+    public synchronized void request(long n) {
+        if (cancelled) {
+            return;
+        }
+        if (n <= 0) {
+            fail(new IllegalArgumentException("Subscriber requested " + n + " events; requests must be positive."));
+            return;
+        }
+        demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+        schedule();
+    }
+
+    @Override
+    public void cancel() {
+        synchronized (this) {
+            cancelled = true;
+            buffer.clear();
+            notifyAll();
+        }
+        publisher.remove(this);
+    }
+
+    // --- Called by the publisher ---
+
+    /**
+     * Hands a live event to this subscriber. Called with the publisher locked, in sequence order,
+     * so it never waits: under {@link OverflowPolicy#BLOCK} a full buffer takes the event anyway
+     * and the writer waits in {@link #awaitRoom()} afterwards.
+     *
+     * @return true if the buffer is now over its capacity and the writer has to wait
+     */
+    boolean offer(LedgerEvent event) {
+        if (event.getSequence() <= floor) {
+            return false;
+        }
+        synchronized (this) {
+            if (cancelled || failure != null) {
+                return false;
+            }
+            if (buffer.size() >= capacity) {
+                switch (policy) {
+                    case DROP_OLDEST:
+                        buffer.poll();
+                        DROPPED.increment();
+                        break;
+                    case DROP_NEWEST:
+                        DROPPED.increment();
+                        return false;
+                    case BLOCK:
+                        break;
+                    default:
+                        disconnect(event.getSequence());
+                        return false;
+                }
+            }
+            buffer.add(event);
+            if (demand > 0) {
+                schedule();
+            }
+            return buffer.size() > capacity;
+        }
+    }
+
+    /**
+     * Under {@link OverflowPolicy#BLOCK}, waits until the buffer is back within its capacity, and
+     * disconnects the subscriber if that takes longer than the block timeout. Called by a writer
+     * after it has offered events, without the publisher locked; each writer can put its own
+     * events over the capacity before it waits.
+     */
+    void awaitRoom() {
+        synchronized (this) {
+            long deadline = System.currentTimeMillis() + blockTimeoutMillis;
+            try {
+                while (buffer.size() > capacity && !cancelled && failure == null) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        disconnect(buffer.peekLast().getSequence());
+                        return;
+                    }
+                    wait(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Caller holds this.
+    private void disconnect(long sequence) {
+        fail(new IllegalStateException("Subscriber fell " + capacity + " events behind at sequence " + sequence +
+                "; subscribe again from its checkpoint to catch up."));
+        DISCONNECTED.increment();
+    }
+
+    /** Lets the subscriber finish what it has been given, then completes it. */
+    synchronized void complete() {
+        completing = true;
+        schedule();
+    }
+
+    /** Queues the first run of the delivery task, which calls onSubscribe. */
+    synchronized void start() {
+        schedule();
+    }
+
+    // Caller holds this.
+    private void fail(Throwable error) {
+        failure = error;
+        buffer.clear();
+        notifyAll();
+        publisher.remove(this);
+        schedule();
+    }
+
+    // Caller holds this.
+    private void schedule() {
+        if (!scheduled) {
+            scheduled = true;
+            publisher.execute(this);
+        }
+    }
+
+    // --- Delivery task ---
+
+    @Override
+    public void run() {
+        if (!started) {
+            started = true;
+            try {
+                subscriber.onSubscribe(this);
+            } catch (Throwable e) {
+                cancel();
+                System.err.println("Change feed subscriber failed in onSubscribe and was cancelled: " + e);
+                return;
+            }
+        }
+        for (int delivered = 0; delivered < batchSize; ) {
+            LedgerEvent event = null;
+            Throwable error = null;
+            boolean done = false;
+            boolean catchUp = false;
+            synchronized (this) {
+                if (cancelled) {
+                    scheduled = false;
+                    return;
+                }
+                ArrayDeque<LedgerEvent> source = live ? buffer : replayed;
+                if (failure != null) {
+                    error = failure;
+                    cancelled = true;
+                } else if (source.isEmpty() && completing) {
+                    done = true;
+                    cancelled = true;
+                } else if (demand == 0) {
+                    scheduled = false;
+                    return;
+                } else if (!source.isEmpty()) {
+                    event = source.poll();
+                    demand--;
+                    notifyAll(); // room for a writer waiting under BLOCK
+                } else if (live) {
+                    scheduled = false;
+                    return;
+                } else {
+                    catchUp = true;
+                }
+            }
+
+            if (catchUp) {
+                if (!catchUp()) {
+                    synchronized (this) {
+                        fail(new IllegalStateException("Could not read the ledger after sequence " + position + "."));
+                    }
+                }
+            } else if (error != null || done) {
+                publisher.remove(this);
+                try {
+                    if (error != null) {
+                        subscriber.onError(error);
+                    } else {
+                        subscriber.onComplete();
+                    }
+                } catch (Throwable e) {
+                    System.err.println("Change feed subscriber failed in " + (error != null ? "onError" : "onComplete") + ": " + e);
+                }
+                return;
+            } else {
+                position = event.getSequence();
+                try {
+                    subscriber.onNext(event);
+                } catch (Throwable e) {
+                    cancel();
+                    System.err.println("Change feed subscriber failed in onNext at sequence " + position + " and was cancelled: " + e);
+                    return;
+                }
+                DELIVERED.increment();
+                if (event.isReplayed()) {
+                    REPLAYED.increment();
+                }
+                delivered++;
+            }
+        }
+        // Give the other subscribers a turn; scheduled stays set, so nobody queues this twice.
+        publisher.execute(this);
+    }
+
+    /**
+     * Queues the next ledger rows after {@link #position} up to the publisher's last sequence, or,
+     * when there are none, joins the live subscribers. Only rows the publisher has already
+     * published are replayed, so none it publishes later can be older than the replayed ones.
+     *
+     * @return false if the ledger could not be read
+     */
+    private boolean catchUp() {
+        while (true) {
+            long target = publisher.attachIfCaughtUp(this, position);
+            if (target == LedgerEventPublisher.LEDGER_UNREADABLE) {
+                return false;
+            }
+            if (target == LedgerEventPublisher.ATTACHED) {
+                live = true;
+                return true;
+            }
+            // The archive is not read in id order, so a subscriber that needs archived rows is failed instead of skipping them.
+            long archived = publisher.lastArchivedSequence();
+            if (archived < 0) {
+                return false;
+            }
+            if (position < archived) {
+                synchronized (this) {
+                    fail(new IllegalStateException("Cannot replay after sequence " + position + ": rows up to sequence " + archived
+                            + " may have been archived, and archived rows are not replayed."));
+                }
+                return true;
+            }
+            List<Transaction> page = publisher.readLedger(position, replayPageSize);
+            if (page == null) {
+                return false;
+            }
+            for (Transaction transaction : page) {
+                if (transaction.getTransactionId() > target) {
+                    break;
+                }
+                replayed.add(LedgerEvent.replayed(transaction));
+            }
+            if (!replayed.isEmpty()) {
+                return true;
+            }
+            // Nothing left up to the target; the rows after it are what the publisher did since.
+            position = target;
+        }
+    }
+}
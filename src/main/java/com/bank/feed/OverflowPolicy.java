@@ -0,0 +1,23 @@
+// File: src/main/java/com/bank/feed/OverflowPolicy.java
+
+package com.bank.feed;
+
+/** What the change feed does with a new event when a subscriber's buffer is full. */
+public enum OverflowPolicy {
+    /**
+     * Ends the subscription with an error; the subscriber can subscribe again from its checkpoint
+     * and catch up from the ledger at its own pace. Nothing is lost and writers never wait.
+     */
+    DISCONNECT,
+    /**
+     * Makes the writer that handed out the event wait, up to the configured block timeout, for the
+     * subscriber to make room; after that the subscriber is disconnected. The writer waits after
+     * its events are queued, so other writers are not held up by it, but each of them waits in
+     * turn while the subscriber stays behind: writes slow down to the slowest subscriber.
+     */
+    BLOCK,
+    /** Discards the oldest buffered event to make room for the new one. */
+    DROP_OLDEST,
+    /** Discards the new event. */
+    DROP_NEWEST
+}
@@ -0,0 +1,39 @@
+// File: src/main/java/com/bank/metrics/Counter.java
+
+package com.bank.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A monotonically increasing count, such as the hits of one fraud rule.
+ */
+public class Counter implements CounterMXBean {
+    private final String name;
+    private final AtomicLong value = new AtomicLong();
+
+    Counter(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void increment() {
+        value.incrementAndGet();
+    }
+
+    public void add(long delta) {
+        value.addAndGet(delta);
+    }
+
+    @Override
+    public long getValue() {
+        return value.get();
+    }
+
+    @Override
+    public String toString() {
+        return name + "=" + getValue();
+    }
+}
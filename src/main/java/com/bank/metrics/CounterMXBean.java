@@ -0,0 +1,10 @@
+// File: src/main/java/com/bank/metrics/CounterMXBean.java
+
+package com.bank.metrics;
+
+/**
+ * JMX view of a {@link Counter}.
+ */
+public interface CounterMXBean {
+    long getValue();
+}
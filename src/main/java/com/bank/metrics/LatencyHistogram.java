@@ -0,0 +1,149 @@
+// File: src/main/java/com/bank/metrics/LatencyHistogram.java
+
+package com.bank.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A latency histogram with log-linear buckets: every power of two is split into 16 equal
+ * sub-buckets, so a reported percentile is at most 1/16 (6.25%) above the true value. Values
+ * are nanoseconds from 1 ns up to about 68 s; longer ones land in the last bucket.
+ *
+ * <p>Recording is a handful of atomic adds on preallocated arrays: it takes no lock and allocates
+ * nothing, so it can sit on every hot path. Percentiles are computed when read. A read that races
+ * with writers may see a few recordings in the count but not yet in the buckets, which is
+ * irrelevant at the percentiles reported.
+ */
+public class LatencyHistogram implements LatencyHistogramMXBean {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 35;
+    private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+    private static final long MAX_TRACKABLE_NANOS = (1L << (MAX_EXPONENT + 1)) - 1;
+
+    private final String name;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /** Creates a standalone histogram; use {@link Metrics#latency} for one that is registered and exported. */
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_TRACKABLE_NANOS);
+        buckets.incrementAndGet(bucketIndex(value));
+        count.incrementAndGet();
+        totalNanos.addAndGet(value);
+        long max = maxNanos.get();
+        while (value > max && !maxNanos.compareAndSet(max, value)) {
+            max = maxNanos.get();
+        }
+    }
+
+    /** Records the time elapsed since {@code startNanos}, a {@link System#nanoTime()} reading. */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    // Highest value that maps to the bucket, so percentiles never under-report.
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long lower = (long) (SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        long max = maxNanos.get();
+        return new Snapshot(total, totalNanos.get(), max,
+                percentile(counts, total, max, 0.50), percentile(counts, total, max, 0.99), percentile(counts, total, max, 0.999));
+    }
+
+    private static long percentile(long[] counts, long total, long max, double quantile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    // --- MXBean attributes (read on demand, so each one takes its own snapshot) ---
+    @Override public long getCount() { return count.get(); }
+    @Override public double getMeanMicros() { return snapshot().getMeanMicros(); }
+    @Override public double getP50Micros() { return snapshot().getP50Nanos() / 1_000.0; }
+    @Override public double getP99Micros() { return snapshot().getP99Nanos() / 1_000.0; }
+    @Override public double getP999Micros() { return snapshot().getP999Nanos() / 1_000.0; }
+    @Override public double getMaxMicros() { return maxNanos.get() / 1_000.0; }
+
+    /**
+     * A point-in-time view of a histogram.
+     */
+    public static final class Snapshot {
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long p50Nanos;
+        private final long p99Nanos;
+        private final long p999Nanos;
+
+        private Snapshot(long count, long totalNanos, long maxNanos, long p50Nanos, long p99Nanos, long p999Nanos) {
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.p50Nanos = p50Nanos;
+            this.p99Nanos = p99Nanos;
+            this.p999Nanos = p999Nanos;
+        }
+
+        // --- Getters ---
+        public long getCount() { return count; }
+        public long getTotalNanos() { return totalNanos; }
+        public long getMaxNanos() { return maxNanos; }
+        public long getP50Nanos() { return p50Nanos; }
+        public long getP99Nanos() { return p99Nanos; }
+        public long getP999Nanos() { return p999Nanos; }
+
+        public double getMeanMicros() {
+            return count == 0 ? 0.0 : totalNanos / 1_000.0 / count;
+        }
+
+        @Override
+        public String toString() {
+            return "Latency{" + "count=" + count + ", meanMicros=" + String.format("%.1f", getMeanMicros())
+                    + ", p50Micros=" + p50Nanos / 1_000 + ", p99Micros=" + p99Nanos / 1_000
+                    + ", p999Micros=" + p999Nanos / 1_000 + ", maxMicros=" + maxNanos / 1_000 + '}';
+        }
+    }
+}
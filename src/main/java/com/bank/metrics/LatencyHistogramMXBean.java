@@ -0,0 +1,15 @@
+// File: src/main/java/com/bank/metrics/LatencyHistogramMXBean.java
+
+package com.bank.metrics;
+
+/**
+ * JMX view of a {@link LatencyHistogram}. Latencies are reported in microseconds.
+ */
+public interface LatencyHistogramMXBean {
+    long getCount();
+    double getMeanMicros();
+    double getP50Micros();
+    double getP99Micros();
+    double getP999Micros();
+    double getMaxMicros();
+}
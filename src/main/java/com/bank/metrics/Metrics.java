@@ -0,0 +1,115 @@
+// File: src/main/java/com/bank/metrics/Metrics.java
+
+package com.bank.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Process-wide registry of latency histograms, query metrics and counters.
+ *
+ * <p>Instrumented classes look their metrics up once, into static fields, and record into them
+ * directly, so the registry is never touched on a hot path. Every metric is also registered as an
+ * MXBean under the {@code com.bank} domain ({@code type=Latency}, {@code type=Query} or
+ * {@code type=Counter}, {@code name=<metric name>}) unless started with -Dbank.metrics.jmx=false.
+ */
+public final class Metrics {
+    public static final String JMX_DOMAIN = "com.bank";
+    private static final boolean JMX_ENABLED = Boolean.parseBoolean(System.getProperty("bank.metrics.jmx", "true"));
+
+    private static final Map<String, LatencyHistogram> latencies = new ConcurrentSkipListMap<>();
+    private static final Map<String, QueryMetrics> queries = new ConcurrentSkipListMap<>();
+    private static final Map<String, Counter> counters = new ConcurrentSkipListMap<>();
+
+    private Metrics() {
+    }
+
+    /** Returns the latency histogram with this name, creating it on first use. */
+    public static synchronized LatencyHistogram latency(String name) {
+        LatencyHistogram histogram = latencies.get(name);
+        if (histogram == null) {
+            histogram = new LatencyHistogram(name);
+            latencies.put(name, histogram);
+            register("Latency", name, histogram, LatencyHistogramMXBean.class);
+        }
+        return histogram;
+    }
+
+    /** Returns the query metrics with this name, creating them on first use. */
+    public static synchronized QueryMetrics query(String name) {
+        QueryMetrics metrics = queries.get(name);
+        if (metrics == null) {
+            metrics = new QueryMetrics(name);
+            queries.put(name, metrics);
+            register("Query", name, metrics, QueryMetricsMXBean.class);
+        }
+        return metrics;
+    }
+
+    /** Returns the counter with this name, creating it on first use. */
+    public static synchronized Counter counter(String name) {
+        Counter counter = counters.get(name);
+        if (counter == null) {
+            counter = new Counter(name);
+            counters.put(name, counter);
+            register("Counter", name, counter, CounterMXBean.class);
+        }
+        return counter;
+    }
+
+    private static <T> void register(String type, String name, T metric, Class<T> mxBeanInterface) {
+        if (!JMX_ENABLED) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=" + type + ",name=" + name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(new StandardMBean(metric, mxBeanInterface, true), objectName);
+        } catch (JMException e) {
+            System.err.println("Could not register metric " + name + " with JMX: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Renders every metric in a Prometheus-style text format, like {@code PoolMetrics.toText()}.
+     * Latencies are in microseconds.
+     */
+    public static String toText() {
+        StringBuilder sb = new StringBuilder();
+        for (LatencyHistogram histogram : latencies.values()) {
+            appendLatency(sb, "bank_latency_micros", histogram.getName(), histogram.snapshot());
+        }
+        for (QueryMetrics query : queries.values()) {
+            appendLatency(sb, "bank_query_micros", query.getName(), query.snapshot());
+            sb.append("bank_query_rows_total{name=\"").append(query.getName()).append("\"} ").append(query.getRows()).append('\n');
+            sb.append("bank_query_errors_total{name=\"").append(query.getName()).append("\"} ").append(query.getErrors()).append('\n');
+        }
+        for (Counter counter : counters.values()) {
+            sb.append("bank_events_total{name=\"").append(counter.getName()).append("\"} ").append(counter.getValue()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static void appendLatency(StringBuilder sb, String metric, String name, LatencyHistogram.Snapshot snapshot) {
+        String label = "{name=\"" + name + "\"";
+        sb.append(metric).append(label).append(",quantile=\"0.5\"} ").append(micros(snapshot.getP50Nanos())).append('\n');
+        sb.append(metric).append(label).append(",quantile=\"0.99\"} ").append(micros(snapshot.getP99Nanos())).append('\n');
+        sb.append(metric).append(label).append(",quantile=\"0.999\"} ").append(micros(snapshot.getP999Nanos())).append('\n');
+        sb.append(metric).append("_max").append(label).append("} ").append(micros(snapshot.getMaxNanos())).append('\n');
+        sb.append(metric).append("_sum").append(label).append("} ").append(micros(snapshot.getTotalNanos())).append('\n');
+        sb.append(metric).append("_count").append(label).append("} ").append(snapshot.getCount()).append('\n');
+    }
+
+    private static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1_000.0);
+    }
+}
@@ -0,0 +1,83 @@
+// File: src/main/java/com/bank/metrics/MetricsReporter.java
+
+package com.bank.metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Writes a text dump of the metrics at a fixed interval, either to standard output or, atomically
+ * replaced on every dump, to a file. A last dump is written on {@link #close()}.
+ */
+public class MetricsReporter implements AutoCloseable {
+    private final Supplier<String> source;
+    private final Path file;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param source produces the text to dump, e.g. {@link Metrics#toText()}
+     * @param file   the file to overwrite on every dump, or null for standard output
+     */
+    public MetricsReporter(Supplier<String> source, Path file, long intervalSeconds) {
+        if (intervalSeconds <= 0) {
+            throw new IllegalArgumentException("intervalSeconds must be positive");
+        }
+        this.source = source;
+        this.file = file;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "bank-metrics-reporter");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleAtFixedRate(this::dump, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Starts a reporter if -Dbank.metrics.dumpIntervalSeconds is set to a positive value (default 0,
+     * no dump). -Dbank.metrics.dumpFile sends the dump to a file instead of standard output.
+     */
+    public static Optional<MetricsReporter> fromSystemProperties(Supplier<String> source) {
+        long interval = Long.getLong("bank.metrics.dumpIntervalSeconds", 0L);
+        if (interval <= 0) {
+            return Optional.empty();
+        }
+        String file = System.getProperty("bank.metrics.dumpFile");
+        return Optional.of(new MetricsReporter(source, file == null ? null : Paths.get(file), interval));
+    }
+
+    public void dump() {
+        try {
+            String text = "# metrics at " + Instant.now() + "\n" + source.get();
+            if (file == null) {
+                System.out.print(text);
+                return;
+            }
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(temp, text.getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error writing metrics dump: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        dump();
+    }
+}
@@ -0,0 +1,44 @@
+// File: src/main/java/com/bank/metrics/QueryMetrics.java
+
+package com.bank.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Timing of one DAO query, together with the rows it returned (reads) or changed (writes) and the
+ * number of times it failed. Failed executions are counted but not timed.
+ */
+public class QueryMetrics extends LatencyHistogram implements QueryMetricsMXBean {
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    QueryMetrics(String name) {
+        super(name);
+    }
+
+    /** Records a successful execution that started at {@code startNanos} and touched {@code rowCount} rows. */
+    public void recordSince(long startNanos, long rowCount) {
+        recordSince(startNanos);
+        rows.addAndGet(rowCount);
+    }
+
+    public void recordError() {
+        errors.incrementAndGet();
+    }
+
+    @Override
+    public long getRows() {
+        return rows.get();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.get();
+    }
+
+    @Override
+    public double getMeanRows() {
+        long executions = getCount();
+        return executions == 0 ? 0.0 : (double) rows.get() / executions;
+    }
+}
@@ -0,0 +1,12 @@
+// File: src/main/java/com/bank/metrics/QueryMetricsMXBean.java
+
+package com.bank.metrics;
+
+/**
+ * JMX view of a {@link QueryMetrics}: the latency of the query plus the rows it returned or changed.
+ */
+public interface QueryMetricsMXBean extends LatencyHistogramMXBean {
+    long getRows();
+    long getErrors();
+    double getMeanRows();
+}
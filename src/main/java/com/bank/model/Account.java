@@ -2,24 +2,46 @@
 
 package com.bank.model;
 
-import java.math.BigDecimal;
 import java.sql.Timestamp;
 
 public class Account {
     private int accountId;
     private String customerName;
     private String accountType;
-    private BigDecimal balance;
-    private BigDecimal avgTransactionAmount;
+    private Money balance;
+    private Money avgTransactionAmount;
+    // Running aggregates over unflagged transactions, kept alongside the balance so the
+    // average (and variance, via Welford's M2 term) never needs a scan of the history.
+    private long transactionCount;
+    private Money transactionSum = Money.ZERO;
+    private double amountM2;
+    // Incremented by every balance-changing write; lets caches order concurrent updates.
+    private long version;
+    // Number of sub-balances credits are spread over; 0 for an ordinary account (see AccountDAO).
+    private int balanceSlots;
     private Timestamp createdAt;
 
     public Account() {}
 
-    public Account(String customerName, String accountType, BigDecimal balance) {
+    public Account(Account other) {
+        this.accountId = other.accountId;
+        this.customerName = other.customerName;
+        this.accountType = other.accountType;
+        this.balance = other.balance;
+        this.avgTransactionAmount = other.avgTransactionAmount;
+        this.transactionCount = other.transactionCount;
+        this.transactionSum = other.transactionSum;
+        this.amountM2 = other.amountM2;
+        this.version = other.version;
+        this.balanceSlots = other.balanceSlots;
+        this.createdAt = other.createdAt;
+    }
+
+    public Account(String customerName, String accountType, Money balance) {
         this.customerName = customerName;
         this.accountType = accountType;
         this.balance = balance;
-        this.avgTransactionAmount = balance.compareTo(BigDecimal.ZERO) > 0 ? balance : BigDecimal.ZERO;
+        this.avgTransactionAmount = balance.signum() > 0 ? balance : Money.ZERO;
     }
 
     // --- Getters and Setters ---
@@ -29,15 +51,74 @@ public class Account {
     public void setCustomerName(String customerName) { this.customerName = customerName; }
     public String getAccountType() { return accountType; }
     public void setAccountType(String accountType) { this.accountType = accountType; }
-    public BigDecimal getBalance() { return balance; }
-    public void setBalance(BigDecimal balance) { this.balance = balance; }
-    public BigDecimal getAvgTransactionAmount() { return avgTransactionAmount; }
-    public void setAvgTransactionAmount(BigDecimal avgTransactionAmount) { this.avgTransactionAmount = avgTransactionAmount; }
+    public Money getBalance() { return balance; }
+    public void setBalance(Money balance) { this.balance = balance; }
+    public Money getAvgTransactionAmount() { return avgTransactionAmount; }
+    public void setAvgTransactionAmount(Money avgTransactionAmount) { this.avgTransactionAmount = avgTransactionAmount; }
+    public long getTransactionCount() { return transactionCount; }
+    public void setTransactionCount(long transactionCount) { this.transactionCount = transactionCount; }
+    public Money getTransactionSum() { return transactionSum; }
+    public void setTransactionSum(Money transactionSum) { this.transactionSum = transactionSum; }
+    public double getAmountM2() { return amountM2; }
+    public void setAmountM2(double amountM2) { this.amountM2 = amountM2; }
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+    public int getBalanceSlots() { return balanceSlots; }
+    public void setBalanceSlots(int balanceSlots) { this.balanceSlots = balanceSlots; }
     public Timestamp getCreatedAt() { return createdAt; }
     public void setCreatedAt(Timestamp createdAt) { this.createdAt = createdAt; }
 
+    /**
+     * Folds one unflagged transaction amount into count, sum, average and Welford M2; the in-memory
+     * counterpart of the aggregate update AccountDAO performs in SQL.
+     */
+    public void foldIntoAggregates(Money amount) {
+        long previousCount = transactionCount;
+        Money previousSum = transactionSum;
+        long newCount = previousCount + 1;
+        Money newSum = previousSum.plus(amount);
+
+        double x = amount.toDouble();
+        double previousMean = previousCount > 0 ? previousSum.toDouble() / previousCount : 0.0;
+        double newMean = newSum.toDouble() / newCount;
+
+        transactionCount = newCount;
+        transactionSum = newSum;
+        amountM2 = previousCount > 0 ? amountM2 + (x - previousMean) * (x - newMean) : 0.0;
+        avgTransactionAmount = Money.average(newSum, newCount);
+    }
+
+    /**
+     * Takes an amount that was folded in earlier back out of count, sum, average and M2; used when
+     * a transaction is flagged after it was committed.
+     */
+    public void unfoldFromAggregates(Money amount) {
+        if (transactionCount <= 1) {
+            transactionCount = 0;
+            transactionSum = Money.ZERO;
+            amountM2 = 0.0;
+            avgTransactionAmount = Money.ZERO;
+            return;
+        }
+        long newCount = transactionCount - 1;
+        Money newSum = transactionSum.minus(amount);
+
+        double x = amount.toDouble();
+        double mean = transactionSum.toDouble() / transactionCount;
+        double newMean = newSum.toDouble() / newCount;
+
+        transactionCount = newCount;
+        transactionSum = newSum;
+        amountM2 = Math.max(0.0, amountM2 - (x - mean) * (x - newMean));
+        avgTransactionAmount = Money.average(newSum, newCount);
+    }
+
+    public double getAmountVariance() {
+        return transactionCount > 1 ? amountM2 / (transactionCount - 1) : 0.0;
+    }
+
     @Override
     public String toString() {
-        return "Account{" + "accountId=" + accountId + ", customerName='" + customerName + '\'' + ", accountType='" + accountType + '\'' + ", balance=" + balance + ", avgTransactionAmount=" + avgTransactionAmount + ", createdAt=" + createdAt + '}';
+        return "Account{" + "accountId=" + accountId + ", customerName='" + customerName + '\'' + ", accountType='" + accountType + '\'' + ", balance=" + balance + ", avgTransactionAmount=" + avgTransactionAmount + ", transactionCount=" + transactionCount + ", createdAt=" + createdAt + '}';
     }
 }
@@ -0,0 +1,38 @@
+package com.bank.model;
+
+public class BatchOperation {
+    public enum Type { DEPOSIT, WITHDRAWAL }
+
+    private Type type;
+    private int accountId;
+    private Money amount;
+
+    public BatchOperation() {}
+
+    public BatchOperation(Type type, int accountId, Money amount) {
+        this.type = type;
+        this.accountId = accountId;
+        this.amount = amount;
+    }
+
+    public static BatchOperation deposit(int accountId, Money amount) {
+        return new BatchOperation(Type.DEPOSIT, accountId, amount);
+    }
+
+    public static BatchOperation withdrawal(int accountId, Money amount) {
+        return new BatchOperation(Type.WITHDRAWAL, accountId, amount);
+    }
+
+    // --- Getters and Setters ---
+    public Type getType() { return type; }
+    public void setType(Type type) { this.type = type; }
+    public int getAccountId() { return accountId; }
+    public void setAccountId(int accountId) { this.accountId = accountId; }
+    public Money getAmount() { return amount; }
+    public void setAmount(Money amount) { this.amount = amount; }
+
+    @Override
+    public String toString() {
+        return "BatchOperation{" + "type=" + type + ", accountId=" + accountId + ", amount=" + amount + '}';
+    }
+}
@@ -0,0 +1,46 @@
+package com.bank.model;
+
+/**
+ * Outcome of one {@link BatchOperation}. Results are returned in the same order as the operations.
+ */
+public class BatchResult {
+    private final int index;
+    private final BatchOperation operation;
+    private final boolean success;
+    private final int transactionId;
+    private final Money balanceAfter;
+    private final boolean flagged;
+    private final String message;
+
+    private BatchResult(int index, BatchOperation operation, boolean success, int transactionId, Money balanceAfter, boolean flagged, String message) {
+        this.index = index;
+        this.operation = operation;
+        this.success = success;
+        this.transactionId = transactionId;
+        this.balanceAfter = balanceAfter;
+        this.flagged = flagged;
+        this.message = message;
+    }
+
+    public static BatchResult succeeded(int index, BatchOperation operation, Transaction transaction, Money balanceAfter) {
+        return new BatchResult(index, operation, true, transaction.getTransactionId(), balanceAfter, transaction.isFlagged(), transaction.getReasonForFlag());
+    }
+
+    public static BatchResult failed(int index, BatchOperation operation, String message) {
+        return new BatchResult(index, operation, false, -1, null, false, message);
+    }
+
+    // --- Getters ---
+    public int getIndex() { return index; }
+    public BatchOperation getOperation() { return operation; }
+    public boolean isSuccess() { return success; }
+    public int getTransactionId() { return transactionId; }
+    public Money getBalanceAfter() { return balanceAfter; }
+    public boolean isFlagged() { return flagged; }
+    public String getMessage() { return message; }
+
+    @Override
+    public String toString() {
+        return "BatchResult{" + "index=" + index + ", success=" + success + ", transactionId=" + transactionId + ", balanceAfter=" + balanceAfter + ", flagged=" + flagged + ", message='" + message + '\'' + '}';
+    }
+}
@@ -0,0 +1,98 @@
+package com.bank.model;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Session consistency token: the lowest {@code version} of each account a read must observe.
+ * Every balance-changing write bumps the account's version, so a token taken from the accounts a
+ * write returned makes later reads of those accounts see that write, from a replica once it has
+ * caught up and from the primary until then. Tokens are immutable; {@link #toString()} and
+ * {@link #parse(String)} carry them between requests.
+ */
+public final class ConsistencyToken {
+    public static final ConsistencyToken NONE = new ConsistencyToken(Collections.emptyMap());
+
+    private final Map<Integer, Long> versions;
+
+    private ConsistencyToken(Map<Integer, Long> versions) {
+        this.versions = versions;
+    }
+
+    public static ConsistencyToken of(Account... accounts) {
+        ConsistencyToken token = NONE;
+        for (Account account : accounts) {
+            token = token.with(account.getAccountId(), account.getVersion());
+        }
+        return token;
+    }
+
+    /** This token, also requiring at least {@code version} of {@code accountId}. */
+    public ConsistencyToken with(int accountId, long version) {
+        if (getVersion(accountId) >= version) {
+            return this;
+        }
+        Map<Integer, Long> copy = new TreeMap<>(versions);
+        copy.put(accountId, version);
+        return new ConsistencyToken(Collections.unmodifiableMap(copy));
+    }
+
+    /** A token that requires everything either token requires. */
+    public ConsistencyToken merge(ConsistencyToken other) {
+        ConsistencyToken merged = this;
+        for (Map.Entry<Integer, Long> entry : other.versions.entrySet()) {
+            merged = merged.with(entry.getKey(), entry.getValue());
+        }
+        return merged;
+    }
+
+    /**
+     * @return the lowest version of the account a read must see, or -1 if the token says nothing
+     *         about it
+     */
+    public long getVersion(int accountId) {
+        return versions.getOrDefault(accountId, -1L);
+    }
+
+    public boolean isEmpty() {
+        return versions.isEmpty();
+    }
+
+    /**
+     * Reads the {@link #toString()} form, e.g. {@code "12:7,40:3"}; an empty string is {@link #NONE}.
+     */
+    public static ConsistencyToken parse(String text) {
+        ConsistencyToken token = NONE;
+        if (text == null || text.trim().isEmpty()) {
+            return token;
+        }
+        for (String part : text.split(",")) {
+            int colon = part.indexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("Invalid consistency token: " + text);
+            }
+            token = token.with(Integer.parseInt(part.substring(0, colon).trim()), Long.parseLong(part.substring(colon + 1).trim()));
+        }
+        return token;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ConsistencyToken && versions.equals(((ConsistencyToken) o).versions);
+    }
+
+    @Override
+    public int hashCode() {
+        return versions.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<Integer, Long> entry : versions.entrySet()) {
+            text.append(text.length() == 0 ? "" : ",").append(entry.getKey()).append(':').append(entry.getValue());
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,47 @@
+package com.bank.model;
+
+import java.time.LocalDate;
+
+/**
+ * One account's activity on one day: the balance before its first and after its last
+ * transaction, and the money moved in (deposits and incoming transfers) and out (withdrawals and
+ * outgoing transfers). Flagged transactions still move the balance and are counted in both.
+ */
+public class DailyRollup {
+    private int accountId;
+    private LocalDate date;
+    private Money openingBalance;
+    private Money closingBalance;
+    private long depositCount;
+    private Money depositSum = Money.ZERO;
+    private long withdrawalCount;
+    private Money withdrawalSum = Money.ZERO;
+    private long flaggedCount;
+
+    public DailyRollup() {}
+
+    // --- Getters and Setters ---
+    public int getAccountId() { return accountId; }
+    public void setAccountId(int accountId) { this.accountId = accountId; }
+    public LocalDate getDate() { return date; }
+    public void setDate(LocalDate date) { this.date = date; }
+    public Money getOpeningBalance() { return openingBalance; }
+    public void setOpeningBalance(Money openingBalance) { this.openingBalance = openingBalance; }
+    public Money getClosingBalance() { return closingBalance; }
+    public void setClosingBalance(Money closingBalance) { this.closingBalance = closingBalance; }
+    public long getDepositCount() { return depositCount; }
+    public void setDepositCount(long depositCount) { this.depositCount = depositCount; }
+    public Money getDepositSum() { return depositSum; }
+    public void setDepositSum(Money depositSum) { this.depositSum = depositSum; }
+    public long getWithdrawalCount() { return withdrawalCount; }
+    public void setWithdrawalCount(long withdrawalCount) { this.withdrawalCount = withdrawalCount; }
+    public Money getWithdrawalSum() { return withdrawalSum; }
+    public void setWithdrawalSum(Money withdrawalSum) { this.withdrawalSum = withdrawalSum; }
+    public long getFlaggedCount() { return flaggedCount; }
+    public void setFlaggedCount(long flaggedCount) { this.flaggedCount = flaggedCount; }
+
+    @Override
+    public String toString() {
+        return "DailyRollup{" + "accountId=" + accountId + ", date=" + date + ", openingBalance=" + openingBalance + ", closingBalance=" + closingBalance + ", depositCount=" + depositCount + ", depositSum=" + depositSum + ", withdrawalCount=" + withdrawalCount + ", withdrawalSum=" + withdrawalSum + ", flaggedCount=" + flaggedCount + '}';
+    }
+}
@@ -0,0 +1,130 @@
+package com.bank.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Immutable amount of money held as a long count of minor units (cents), matching the
+ * {@code DECIMAL(15, 2)} columns it is stored in. Arithmetic is exact and throws
+ * {@link ArithmeticException} instead of overflowing; the only rounding is HALF_UP, when
+ * converting from a {@link BigDecimal} with more than two decimals and when averaging, which is
+ * what MySQL does when storing into and rounding {@code DECIMAL} values.
+ *
+ * Convert with {@link #of(BigDecimal)} and {@link #toBigDecimal()} only at the edges (JDBC and
+ * user input); everything in between works on minor units.
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final int SCALE = 2;
+    public static final Money ZERO = new Money(0);
+
+    private static final long MINOR_PER_MAJOR = 100;
+
+    private final long minorUnits;
+
+    private Money(long minorUnits) {
+        this.minorUnits = minorUnits;
+    }
+
+    public static Money ofMinor(long minorUnits) {
+        return minorUnits == 0 ? ZERO : new Money(minorUnits);
+    }
+
+    /**
+     * Rounds {@code amount} HALF_UP to two decimals, as a {@code DECIMAL(15, 2)} column would.
+     *
+     * @throws ArithmeticException if the amount does not fit in a long count of cents
+     */
+    public static Money of(BigDecimal amount) {
+        return ofMinor(amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+    }
+
+    /** Parses a decimal string such as {@code "1000.00"}. */
+    public static Money parse(String amount) {
+        return of(new BigDecimal(amount));
+    }
+
+    /**
+     * The mean of {@code count} amounts adding up to {@code total}, rounded HALF_UP (away from
+     * zero on a tie) to a whole cent, like {@code ROUND(total / count, 2)} on a DECIMAL.
+     */
+    public static Money average(Money total, long count) {
+        if (count <= 0) {
+            throw new ArithmeticException("Cannot average over " + count + " amounts.");
+        }
+        long quotient = total.minorUnits / count;
+        long remainder = Math.abs(total.minorUnits % count);
+        // remainder >= count - remainder is 2 * remainder >= count without the overflow.
+        if (remainder >= count - remainder) {
+            quotient += total.minorUnits < 0 ? -1 : 1;
+        }
+        return ofMinor(quotient);
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    /** Nearest double; only for floating-point statistics such as the Welford variance term. */
+    public double toDouble() {
+        return minorUnits / (double) MINOR_PER_MAJOR;
+    }
+
+    public Money plus(Money other) {
+        return ofMinor(Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    public Money minus(Money other) {
+        return ofMinor(Math.subtractExact(minorUnits, other.minorUnits));
+    }
+
+    public Money times(long factor) {
+        return ofMinor(Math.multiplyExact(minorUnits, factor));
+    }
+
+    public Money negate() {
+        return ofMinor(Math.negateExact(minorUnits));
+    }
+
+    public int signum() {
+        return Long.signum(minorUnits);
+    }
+
+    public boolean isLessThan(Money other) {
+        return minorUnits < other.minorUnits;
+    }
+
+    public boolean isGreaterThan(Money other) {
+        return minorUnits > other.minorUnits;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Money && ((Money) o).minorUnits == minorUnits;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits);
+    }
+
+    /** Plain two-decimal form, e.g. {@code 1000.00} or {@code -0.05}, the same as the column value. */
+    @Override
+    public String toString() {
+        long abs = Math.abs(minorUnits);
+        if (abs < 0) {
+            return toBigDecimal().toPlainString(); // Long.MIN_VALUE
+        }
+        long cents = abs % MINOR_PER_MAJOR;
+        return (minorUnits < 0 ? "-" : "") + (abs / MINOR_PER_MAJOR) + (cents < 10 ? ".0" : ".") + cents;
+    }
+}
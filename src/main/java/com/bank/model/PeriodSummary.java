@@ -0,0 +1,80 @@
+package com.bank.model;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * An account's activity from {@code from} to {@code to} (both inclusive), summed from its
+ * {@link DailyRollup daily rollups}.
+ */
+public class PeriodSummary {
+    private final int accountId;
+    private final LocalDate from;
+    private final LocalDate to;
+    private final Money openingBalance;
+    private final Money closingBalance;
+    private final long depositCount;
+    private final Money depositSum;
+    private final long withdrawalCount;
+    private final Money withdrawalSum;
+    private final long flaggedCount;
+    private final int activeDays;
+
+    private PeriodSummary(int accountId, LocalDate from, LocalDate to, Money openingBalance, Money closingBalance, long depositCount, Money depositSum,
+                          long withdrawalCount, Money withdrawalSum, long flaggedCount, int activeDays) {
+        this.accountId = accountId;
+        this.from = from;
+        this.to = to;
+        this.openingBalance = openingBalance;
+        this.closingBalance = closingBalance;
+        this.depositCount = depositCount;
+        this.depositSum = depositSum;
+        this.withdrawalCount = withdrawalCount;
+        this.withdrawalSum = withdrawalSum;
+        this.flaggedCount = flaggedCount;
+        this.activeDays = activeDays;
+    }
+
+    /**
+     * @param rollups the period's rollups, oldest first
+     * @param openingBalance the balance at the start of {@code from}; only used if there are no rollups
+     */
+    public static PeriodSummary of(int accountId, LocalDate from, LocalDate to, List<DailyRollup> rollups, Money openingBalance) {
+        if (rollups.isEmpty()) {
+            return new PeriodSummary(accountId, from, to, openingBalance, openingBalance, 0, Money.ZERO, 0, Money.ZERO, 0, 0);
+        }
+        long depositCount = 0;
+        Money depositSum = Money.ZERO;
+        long withdrawalCount = 0;
+        Money withdrawalSum = Money.ZERO;
+        long flaggedCount = 0;
+        for (DailyRollup rollup : rollups) {
+            depositCount += rollup.getDepositCount();
+            depositSum = depositSum.plus(rollup.getDepositSum());
+            withdrawalCount += rollup.getWithdrawalCount();
+            withdrawalSum = withdrawalSum.plus(rollup.getWithdrawalSum());
+            flaggedCount += rollup.getFlaggedCount();
+        }
+        return new PeriodSummary(accountId, from, to, rollups.get(0).getOpeningBalance(), rollups.get(rollups.size() - 1).getClosingBalance(),
+                depositCount, depositSum, withdrawalCount, withdrawalSum, flaggedCount, rollups.size());
+    }
+
+    // --- Getters ---
+    public int getAccountId() { return accountId; }
+    public LocalDate getFrom() { return from; }
+    public LocalDate getTo() { return to; }
+    public Money getOpeningBalance() { return openingBalance; }
+    public Money getClosingBalance() { return closingBalance; }
+    public long getDepositCount() { return depositCount; }
+    public Money getDepositSum() { return depositSum; }
+    public long getWithdrawalCount() { return withdrawalCount; }
+    public Money getWithdrawalSum() { return withdrawalSum; }
+    public long getFlaggedCount() { return flaggedCount; }
+    /** Number of days in the period with at least one transaction. */
+    public int getActiveDays() { return activeDays; }
+
+    @Override
+    public String toString() {
+        return "PeriodSummary{" + "accountId=" + accountId + ", from=" + from + ", to=" + to + ", openingBalance=" + openingBalance + ", closingBalance=" + closingBalance + ", depositCount=" + depositCount + ", depositSum=" + depositSum + ", withdrawalCount=" + withdrawalCount + ", withdrawalSum=" + withdrawalSum + ", flaggedCount=" + flaggedCount + ", activeDays=" + activeDays + '}';
+    }
+}
@@ -1,20 +1,32 @@
 package com.bank.model;
 
-import java.math.BigDecimal;
 import java.sql.Timestamp;
 
 public class Transaction {
     private int transactionId;
     private int accountId;
     private String transactionType;
-    private BigDecimal amount;
+    private Money amount;
     private boolean isFlagged;
     private String reasonForFlag;
     private Timestamp transactionTime;
+    // For the two legs of a transfer: the id of the opposite leg, 0 otherwise.
+    private int linkedTransactionId;
 
     public Transaction() {}
 
-    public Transaction(int accountId, String transactionType, BigDecimal amount) {
+    public Transaction(Transaction other) {
+        this.transactionId = other.transactionId;
+        this.accountId = other.accountId;
+        this.transactionType = other.transactionType;
+        this.amount = other.amount;
+        this.isFlagged = other.isFlagged;
+        this.reasonForFlag = other.reasonForFlag;
+        this.transactionTime = other.transactionTime;
+        this.linkedTransactionId = other.linkedTransactionId;
+    }
+
+    public Transaction(int accountId, String transactionType, Money amount) {
         this.accountId = accountId;
         this.transactionType = transactionType;
         this.amount = amount;
@@ -28,17 +40,24 @@ public class Transaction {
     public void setAccountId(int accountId) { this.accountId = accountId; }
     public String getTransactionType() { return transactionType; }
     public void setTransactionType(String transactionType) { this.transactionType = transactionType; }
-    public BigDecimal getAmount() { return amount; }
-    public void setAmount(BigDecimal amount) { this.amount = amount; }
+    public Money getAmount() { return amount; }
+    public void setAmount(Money amount) { this.amount = amount; }
     public boolean isFlagged() { return isFlagged; }
     public void setFlagged(boolean flagged) { isFlagged = flagged; }
     public String getReasonForFlag() { return reasonForFlag; }
     public void setReasonForFlag(String reasonForFlag) { this.reasonForFlag = reasonForFlag; }
+    public int getLinkedTransactionId() { return linkedTransactionId; }
+    public void setLinkedTransactionId(int linkedTransactionId) { this.linkedTransactionId = linkedTransactionId; }
     public Timestamp getTransactionTime() { return transactionTime; }
     public void setTransactionTime(Timestamp transactionTime) { this.transactionTime = transactionTime; }
 
+    /** True for rows that take money out of the account: withdrawals and outgoing transfers. */
+    public boolean isDebit() {
+        return "WITHDRAWAL".equals(transactionType) || "TRANSFER_OUT".equals(transactionType);
+    }
+
     @Override
     public String toString() {
-        return "Transaction{" + "transactionId=" + transactionId + ", accountId=" + accountId + ", transactionType='" + transactionType + '\'' + ", amount=" + amount + ", isFlagged=" + isFlagged + ", reasonForFlag='" + reasonForFlag + '\'' + ", transactionTime=" + transactionTime + '}';
+        return "Transaction{" + "transactionId=" + transactionId + ", accountId=" + accountId + ", transactionType='" + transactionType + '\'' + ", amount=" + amount + ", isFlagged=" + isFlagged + ", reasonForFlag='" + reasonForFlag + '\'' + ", transactionTime=" + transactionTime + (linkedTransactionId != 0 ? ", linkedTransactionId=" + linkedTransactionId : "") + '}';
     }
 }
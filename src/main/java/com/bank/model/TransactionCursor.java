@@ -0,0 +1,30 @@
+package com.bank.model;
+
+import java.sql.Timestamp;
+
+/**
+ * Keyset position in an account's transaction history: the (transactionTime, transactionId) of the
+ * last row of a page. The next page starts strictly after it.
+ */
+public class TransactionCursor {
+    private final Timestamp transactionTime;
+    private final int transactionId;
+
+    public TransactionCursor(Timestamp transactionTime, int transactionId) {
+        this.transactionTime = transactionTime;
+        this.transactionId = transactionId;
+    }
+
+    public static TransactionCursor after(Transaction transaction) {
+        return new TransactionCursor(transaction.getTransactionTime(), transaction.getTransactionId());
+    }
+
+    // --- Getters ---
+    public Timestamp getTransactionTime() { return transactionTime; }
+    public int getTransactionId() { return transactionId; }
+
+    @Override
+    public String toString() {
+        return "TransactionCursor{" + "transactionTime=" + transactionTime + ", transactionId=" + transactionId + '}';
+    }
+}
@@ -0,0 +1,27 @@
+package com.bank.model;
+
+import java.util.List;
+
+/**
+ * One page of an account's transaction history, newest first.
+ */
+public class TransactionPage {
+    private final List<Transaction> transactions;
+    private final TransactionCursor nextCursor;
+
+    public TransactionPage(List<Transaction> transactions, TransactionCursor nextCursor) {
+        this.transactions = transactions;
+        this.nextCursor = nextCursor;
+    }
+
+    // --- Getters ---
+    public List<Transaction> getTransactions() { return transactions; }
+    /** Cursor for the following page, or null if this is the last page. */
+    public TransactionCursor getNextCursor() { return nextCursor; }
+    public boolean hasMore() { return nextCursor != null; }
+
+    @Override
+    public String toString() {
+        return "TransactionPage{" + "size=" + transactions.size() + ", nextCursor=" + nextCursor + '}';
+    }
+}
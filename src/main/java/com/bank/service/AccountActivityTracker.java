@@ -0,0 +1,284 @@
+package com.bank.service;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory sliding windows of recent activity per account, shared by the stateful fraud rules.
+ *
+ * Each account keeps a ring buffer of its most recent transaction timestamps (for VELOCITY) and
+ * the destinations it recently transferred to (for FAN_OUT), both under one lock so a check reads
+ * and updates them in a single step. Only as many entries are retained as the rules need to reach
+ * their limits, so counts saturate at the capacity. The timestamps are seeded from the database
+ * the first time an account is touched, after which checks do no I/O; destinations are not stored
+ * with ledger rows in a form that can be read back cheaply, so they are only learned from the
+ * transfers this process scores.
+ */
+public class AccountActivityTracker {
+
+    /** Loads the most recent transaction times (epoch millis) of an account at or after {@code sinceMillis}. */
+    public interface Seeder {
+        long[] load(int accountId, long sinceMillis, int maxEntries);
+    }
+
+    private final long windowMillis;
+    private final int capacity;
+    private final long fanOutWindowMillis;
+    private final int fanOutCapacity;
+    private final int maxTrackedAccounts;
+    private final Seeder seeder;
+    private final ConcurrentHashMap<Integer, Window> windows = new ConcurrentHashMap<>();
+
+    public AccountActivityTracker(long windowMillis, int capacity, long fanOutWindowMillis, int fanOutCapacity, int maxTrackedAccounts, Seeder seeder) {
+        if (capacity < 1 || windowMillis <= 0 || fanOutCapacity < 1 || fanOutWindowMillis <= 0 || maxTrackedAccounts < 1) {
+            throw new IllegalArgumentException("Invalid activity tracker bounds.");
+        }
+        this.windowMillis = windowMillis;
+        this.capacity = capacity;
+        this.fanOutWindowMillis = fanOutWindowMillis;
+        this.fanOutCapacity = fanOutCapacity;
+        this.maxTrackedAccounts = maxTrackedAccounts;
+        this.seeder = seeder;
+    }
+
+    /** Whether this tracker keeps the same windows as one built with these bounds. */
+    boolean hasBounds(long windowMillis, int capacity, long fanOutWindowMillis, int fanOutCapacity, int maxTrackedAccounts) {
+        return this.windowMillis == windowMillis && this.capacity == capacity && this.fanOutWindowMillis == fanOutWindowMillis
+                && this.fanOutCapacity == fanOutCapacity && this.maxTrackedAccounts == maxTrackedAccounts;
+    }
+
+    /**
+     * Counts the account's transactions inside the window ending at {@code nowMillis}, then records
+     * a new transaction at {@code nowMillis}. Both steps happen under the account's lock so
+     * concurrent transactions on one account each see a distinct count.
+     *
+     * @return the number of earlier transactions in the window, capped at the capacity
+     */
+    public int recordAndCount(int accountId, long nowMillis) {
+        Window window = window(accountId, nowMillis);
+        synchronized (window) {
+            return recordTime(accountId, window, nowMillis);
+        }
+    }
+
+    /**
+     * Reads and updates the account's windows for one transaction in a single step, writing the
+     * counts into row {@code row} of {@code features}.
+     *
+     * @param velocity     whether to count and record the transaction time
+     * @param counterparty the destination of a transfer whose fan-out is to be counted and recorded, or 0
+     */
+    void observe(int accountId, long nowMillis, boolean velocity, int counterparty, FraudFeatures features, int row) {
+        Window window = window(accountId, nowMillis);
+        synchronized (window) {
+            if (velocity) {
+                features.recentTransactions[row] = recordTime(accountId, window, nowMillis);
+            }
+            if (counterparty > 0) {
+                window.expireCounterparties(nowMillis - fanOutWindowMillis);
+                features.recentCounterparties[row] = window.counterpartyCount;
+                features.newCounterparty[row] = window.recordCounterparty(counterparty, nowMillis);
+            }
+        }
+    }
+
+    private Window window(int accountId, long nowMillis) {
+        Window window = windows.get(accountId);
+        if (window == null) {
+            if (windows.size() >= maxTrackedAccounts) {
+                evict(nowMillis);
+            }
+            window = windows.computeIfAbsent(accountId, id -> new Window(capacity, fanOutCapacity));
+        }
+        return window;
+    }
+
+    // Caller holds the window's lock.
+    private int recordTime(int accountId, Window window, long nowMillis) {
+        if (!window.seeded) {
+            long[] seed = seeder.load(accountId, nowMillis - windowMillis, capacity);
+            for (int i = seed.length - 1; i >= 0; i--) {
+                window.add(seed[i]);
+            }
+            window.seeded = true;
+        }
+        window.expire(nowMillis - windowMillis);
+        int count = window.size;
+        window.add(nowMillis);
+        return count;
+    }
+
+    /**
+     * Seeds an account's window from preloaded history (epoch millis, newest first) unless the
+     * account is already tracked. Lets bulk callers load many windows with one query.
+     */
+    public void seed(int accountId, long[] newestFirst) {
+        Window window = windows.computeIfAbsent(accountId, id -> new Window(capacity, fanOutCapacity));
+        synchronized (window) {
+            if (!window.seeded) {
+                for (int i = newestFirst.length - 1; i >= 0; i--) {
+                    window.add(newestFirst[i]);
+                }
+                window.seeded = true;
+            }
+        }
+    }
+
+    public boolean isTracked(int accountId) {
+        Window window = windows.get(accountId);
+        if (window == null) {
+            return false;
+        }
+        synchronized (window) {
+            return window.seeded;
+        }
+    }
+
+    /**
+     * Records a transaction for an account that is already tracked. Untracked accounts are skipped:
+     * their window will pick the transaction up from the database when it is first seeded.
+     */
+    public void recordIfTracked(int accountId, long nowMillis) {
+        Window window = windows.get(accountId);
+        if (window != null) {
+            synchronized (window) {
+                if (window.seeded) {
+                    window.expire(nowMillis - windowMillis);
+                    window.add(nowMillis);
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts the account's transactions inside the window without recording a new one.
+     * Accounts that are not tracked yet report zero rather than going to the database.
+     */
+    public int count(int accountId, long nowMillis) {
+        Window window = windows.get(accountId);
+        if (window == null) {
+            return 0;
+        }
+        synchronized (window) {
+            window.expire(nowMillis - windowMillis);
+            return window.size;
+        }
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int trackedAccounts() {
+        return windows.size();
+    }
+
+    public void clear() {
+        windows.clear();
+    }
+
+    // Drops windows that have gone quiet; if that is not enough, drops arbitrary windows. Dropped
+    // accounts are simply re-seeded from the database on their next transaction.
+    private void evict(long nowMillis) {
+        long cutoff = nowMillis - Math.max(windowMillis, fanOutWindowMillis);
+        for (Iterator<Map.Entry<Integer, Window>> it = windows.entrySet().iterator(); it.hasNext(); ) {
+            Window window = it.next().getValue();
+            if (window.newest() < cutoff) {
+                it.remove();
+            }
+        }
+        // Free a quarter of the budget at once so a full map is not swept on every new account.
+        int target = maxTrackedAccounts - Math.max(1, maxTrackedAccounts / 4);
+        Iterator<Integer> it = windows.keySet().iterator();
+        while (windows.size() > target && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static final class Window {
+        private final long[] times;
+        private int head;
+        private int size;
+        private volatile long newest = Long.MIN_VALUE;
+        private boolean seeded;
+        // Distinct recent transfer destinations and when each was last paid, unordered.
+        private final int[] counterparties;
+        private final long[] counterpartyTimes;
+        private int counterpartyCount;
+
+        private Window(int capacity, int fanOutCapacity) {
+            this.times = new long[capacity];
+            this.counterparties = new int[fanOutCapacity];
+            this.counterpartyTimes = new long[fanOutCapacity];
+        }
+
+        // Appends a timestamp, overwriting the oldest one once the ring is full.
+        private void add(long time) {
+            int tail = (head + size) % times.length;
+            times[tail] = time;
+            if (size < times.length) {
+                size++;
+            } else {
+                head = (head + 1) % times.length;
+            }
+            touch(time);
+        }
+
+        private void expire(long cutoff) {
+            while (size > 0 && times[head] < cutoff) {
+                head = (head + 1) % times.length;
+                size--;
+            }
+        }
+
+        /**
+         * Records a payment to {@code counterparty}; once the set is full, a new destination
+         * replaces the one paid longest ago.
+         *
+         * @return true if the destination was not in the window yet
+         */
+        private boolean recordCounterparty(int counterparty, long time) {
+            touch(time);
+            int oldest = 0;
+            for (int i = 0; i < counterpartyCount; i++) {
+                if (counterparties[i] == counterparty) {
+                    counterpartyTimes[i] = time;
+                    return false;
+                }
+                if (counterpartyTimes[i] < counterpartyTimes[oldest]) {
+                    oldest = i;
+                }
+            }
+            int slot = counterpartyCount < counterparties.length ? counterpartyCount++ : oldest;
+            counterparties[slot] = counterparty;
+            counterpartyTimes[slot] = time;
+            return true;
+        }
+
+        private void expireCounterparties(long cutoff) {
+            for (int i = counterpartyCount - 1; i >= 0; i--) {
+                if (counterpartyTimes[i] < cutoff) {
+                    counterpartyCount--;
+                    counterparties[i] = counterparties[counterpartyCount];
+                    counterpartyTimes[i] = counterpartyTimes[counterpartyCount];
+                }
+            }
+        }
+
+        private void touch(long time) {
+            if (time > newest) {
+                newest = time;
+            }
+        }
+
+        private long newest() {
+            return newest;
+        }
+    }
+}
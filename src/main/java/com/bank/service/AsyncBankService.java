@@ -0,0 +1,243 @@
+package com.bank.service;
+
+import com.bank.exception.InsufficientFundsException;
+import com.bank.metrics.Counter;
+import com.bank.metrics.Metrics;
+import com.bank.model.Account;
+import com.bank.model.Money;
+import com.bank.model.Transaction;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking facade over {@link BankService}: every call returns at once with a
+ * {@link CompletableFuture}, so one caller thread can keep many customer requests in flight.
+ *
+ * <ul>
+ *   <li>The blocking service calls run on virtual threads when the runtime has them, or else on a
+ *       fixed pool; either way at most {@code maxConcurrency} run at once, so callers cannot
+ *       outnumber the connection pool.</li>
+ *   <li>Operations on one account run one at a time, in the order they were called. A transfer
+ *       waits for both of its accounts. An operation that fails does not hold up the next one.</li>
+ *   <li>A transfer loads its two accounts in parallel before it runs, unless both are cached.</li>
+ *   <li>Once {@code maxPending} operations are unfinished, further calls fail fast with a
+ *       {@link RejectedExecutionException} instead of queueing without bound.</li>
+ * </ul>
+ *
+ * Futures fail with the exception the blocking method would have thrown, e.g. a withdrawal
+ * without funds completes exceptionally with an {@link InsufficientFundsException}.
+ */
+public class AsyncBankService implements AutoCloseable {
+
+    private static final Counter SUBMITTED = Metrics.counter("async.submitted");
+    private static final Counter REJECTED = Metrics.counter("async.rejected");
+    private static final Counter PREFETCHES = Metrics.counter("async.transfer.prefetches");
+
+    private final BankService bankService;
+    private final AsyncServiceConfig config;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    // Bounds virtual threads to maxConcurrency blocking calls; null when a fixed pool does that.
+    private final Semaphore permits;
+    // Per account, the completion of the last operation queued on it.
+    private final Map<Integer, CompletableFuture<Void>> tails = new HashMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile boolean closed;
+
+    public AsyncBankService(BankService bankService) {
+        this(bankService, AsyncServiceConfig.fromSystemProperties());
+    }
+
+    public AsyncBankService(BankService bankService, AsyncServiceConfig config) {
+        if (config.getMaxConcurrency() < 1 || config.getMaxPending() < 1) {
+            throw new IllegalArgumentException("Invalid async service bounds: " + config);
+        }
+        this.bankService = bankService;
+        this.config = config;
+        ExecutorService virtual = config.isVirtualThreads() ? newVirtualThreadExecutor() : null;
+        this.virtualThreads = virtual != null;
+        if (virtual != null) {
+            this.executor = virtual;
+            this.permits = new Semaphore(config.getMaxConcurrency());
+        } else {
+            AtomicInteger threadNumber = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(config.getMaxConcurrency(), r -> {
+                Thread t = new Thread(r, "bank-async-" + threadNumber.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+            this.permits = null;
+        }
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() is looked up reflectively because the build targets Java 11.
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null; // not available before Java 21
+        }
+    }
+
+    public CompletableFuture<Optional<Account>> deposit(int accountId, Money amount) {
+        return serialize(new int[]{accountId}, () -> call(() -> bankService.deposit(accountId, amount)));
+    }
+
+    public CompletableFuture<Optional<Account>> withdraw(int accountId, Money amount) {
+        return serialize(new int[]{accountId}, () -> call(() -> {
+            try {
+                return bankService.withdraw(accountId, amount);
+            } catch (InsufficientFundsException e) {
+                throw new CompletionException(e);
+            }
+        }));
+    }
+
+    /**
+     * @return a future of true if the transfer was committed, false if it was refused or could not be written
+     */
+    public CompletableFuture<Boolean> transfer(int fromAccountId, int toAccountId, Money amount) {
+        Supplier<Boolean> transfer = () -> {
+            try {
+                return bankService.transfer(fromAccountId, toAccountId, amount);
+            } catch (InsufficientFundsException e) {
+                throw new CompletionException(e);
+            }
+        };
+        return serialize(new int[]{fromAccountId, toAccountId}, () -> {
+            if (fromAccountId == toAccountId || (bankService.isCached(fromAccountId) && bankService.isCached(toAccountId))) {
+                return call(transfer);
+            }
+            // The two lookups are independent, so they run side by side and the transfer then finds
+            // both accounts in the cache instead of reading them one after the other.
+            PREFETCHES.increment();
+            CompletableFuture<Optional<Account>> from = call(() -> bankService.getAccount(fromAccountId));
+            CompletableFuture<Optional<Account>> to = call(() -> bankService.getAccount(toAccountId));
+            return CompletableFuture.allOf(from, to).thenCompose(loaded -> call(transfer));
+        });
+    }
+
+    public CompletableFuture<Optional<Account>> getAccount(int accountId) {
+        return serialize(new int[]{accountId}, () -> call(() -> bankService.getAccount(accountId)));
+    }
+
+    public CompletableFuture<List<Transaction>> getTransactionHistory(int accountId) {
+        return serialize(new int[]{accountId}, () -> call(() -> bankService.getTransactionHistory(accountId)));
+    }
+
+    /**
+     * Starts {@code operation} once every operation queued earlier on any of {@code accountIds} has
+     * finished, and makes later operations on those accounts wait for it in turn. Chaining happens
+     * under one lock, so two operations that share accounts are always ordered the same way on
+     * each of them and cannot wait on each other.
+     */
+    private <T> CompletableFuture<T> serialize(int[] accountIds, Supplier<CompletableFuture<T>> operation) {
+        if (closed) {
+            return refused("Async bank service is closed.");
+        }
+        if (pending.incrementAndGet() > config.getMaxPending()) {
+            pending.decrementAndGet();
+            return refused("Too many pending operations (" + config.getMaxPending() + ").");
+        }
+        SUBMITTED.increment();
+
+        CompletableFuture<T> result;
+        CompletableFuture<Void> done;
+        synchronized (tails) {
+            CompletableFuture<?>[] predecessors = new CompletableFuture<?>[accountIds.length];
+            int count = 0;
+            for (int accountId : accountIds) {
+                CompletableFuture<Void> tail = tails.get(accountId);
+                if (tail != null) {
+                    predecessors[count++] = tail;
+                }
+            }
+            CompletableFuture<Void> turn = count == 0
+                    ? CompletableFuture.completedFuture(null)
+                    : CompletableFuture.allOf(Arrays.copyOf(predecessors, count));
+            // Tails never fail (see below), so the turn only comes once the predecessors are done.
+            result = turn.thenCompose(ready -> operation.get());
+            done = result.handle((value, error) -> null);
+            for (int accountId : accountIds) {
+                tails.put(accountId, done);
+            }
+        }
+        done.thenRun(() -> {
+            synchronized (tails) {
+                for (int accountId : accountIds) {
+                    tails.remove(accountId, done);
+                }
+            }
+            pending.decrementAndGet();
+        });
+        return result;
+    }
+
+    private static <T> CompletableFuture<T> refused(String reason) {
+        REJECTED.increment();
+        CompletableFuture<T> refused = new CompletableFuture<>();
+        refused.completeExceptionally(new RejectedExecutionException(reason));
+        return refused;
+    }
+
+    // Runs one blocking service call on the I/O executor.
+    private <T> CompletableFuture<T> call(Supplier<T> blocking) {
+        if (permits == null) {
+            return CompletableFuture.supplyAsync(blocking, executor);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            permits.acquireUninterruptibly();
+            try {
+                return blocking.get();
+            } finally {
+                permits.release();
+            }
+        }, executor);
+    }
+
+    /** Operations accepted and not finished yet. */
+    public int getPending() {
+        return pending.get();
+    }
+
+    /** Whether blocking calls run on virtual threads rather than a fixed pool. */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Refuses new operations, waits up to {@code closeTimeoutMillis} for the accepted ones to
+     * finish and stops the executor. The wrapped {@link BankService} is left running.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        long deadline = System.currentTimeMillis() + config.getCloseTimeoutMillis();
+        try {
+            while (pending.get() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            executor.shutdown();
+            if (!executor.awaitTermination(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS)) {
+                System.err.println("Async bank service closed with " + pending.get() + " operations unfinished.");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.bank.service;
+
+/**
+ * Settings for {@link AsyncBankService}. Every value can be overridden with a
+ * {@code bank.async.*} system property.
+ */
+public class AsyncServiceConfig {
+    private boolean virtualThreads = true;
+    private int maxConcurrency = 10;
+    private int maxPending = 10_000;
+    private long closeTimeoutMillis = 30_000;
+
+    public AsyncServiceConfig() {}
+
+    public static AsyncServiceConfig fromSystemProperties() {
+        AsyncServiceConfig config = new AsyncServiceConfig();
+        config.virtualThreads = Boolean.parseBoolean(System.getProperty("bank.async.virtualThreads", String.valueOf(config.virtualThreads)));
+        // One blocking call per pooled connection; more would only queue inside the pool.
+        config.maxConcurrency = Integer.getInteger("bank.async.maxConcurrency", Integer.getInteger("bank.pool.maxSize", config.maxConcurrency));
+        config.maxPending = Integer.getInteger("bank.async.maxPending", config.maxPending);
+        config.closeTimeoutMillis = Long.getLong("bank.async.closeTimeoutMillis", config.closeTimeoutMillis);
+        return config;
+    }
+
+    // --- Getters and Setters ---
+    /** Run blocking calls on virtual threads when the runtime has them (Java 21+); otherwise on a fixed pool. */
+    public boolean isVirtualThreads() { return virtualThreads; }
+    public void setVirtualThreads(boolean virtualThreads) { this.virtualThreads = virtualThreads; }
+    /** Blocking service calls running at once: the size of the fixed pool, or the permits shared by virtual threads. */
+    public int getMaxConcurrency() { return maxConcurrency; }
+    public void setMaxConcurrency(int maxConcurrency) { this.maxConcurrency = maxConcurrency; }
+    /** Operations accepted but not finished, including those waiting behind others on the same account; beyond this, calls are refused. */
+    public int getMaxPending() { return maxPending; }
+    public void setMaxPending(int maxPending) { this.maxPending = maxPending; }
+    public long getCloseTimeoutMillis() { return closeTimeoutMillis; }
+    public void setCloseTimeoutMillis(long closeTimeoutMillis) { this.closeTimeoutMillis = closeTimeoutMillis; }
+
+    @Override
+    public String toString() {
+        return "AsyncServiceConfig{" + "virtualThreads=" + virtualThreads + ", maxConcurrency=" + maxConcurrency + ", maxPending=" + maxPending + ", closeTimeoutMillis=" + closeTimeoutMillis + '}';
+    }
+}
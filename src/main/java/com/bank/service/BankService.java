@@ -1,119 +1,695 @@
 package com.bank.service;
 
+import com.bank.dao.AccountCache;
 import com.bank.dao.AccountDAO;
+import com.bank.dao.AccountRepository;
+import com.bank.dao.DatabaseConnector;
+import com.bank.dao.InfoLog;
 import com.bank.dao.TransactionDAO;
+import com.bank.dao.TransactionRepository;
 import com.bank.exception.InsufficientFundsException;
+import com.bank.feed.ChangeFeedConfig;
+import com.bank.feed.LedgerEventPublisher;
+import com.bank.metrics.LatencyHistogram;
+import com.bank.metrics.Metrics;
 import com.bank.model.Account;
+import com.bank.model.BatchOperation;
+import com.bank.model.BatchResult;
+import com.bank.model.ConsistencyToken;
+import com.bank.model.DailyRollup;
+import com.bank.model.Money;
+import com.bank.model.PeriodSummary;
 import com.bank.model.Transaction;
+import com.bank.model.TransactionCursor;
+import com.bank.model.TransactionPage;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
 
 public class BankService {
-    private final AccountDAO accountDAO;
-    private final TransactionDAO transactionDAO;
+    private static final int DEFAULT_BATCH_CHUNK_SIZE = Integer.getInteger("bank.batch.chunkSize", 500);
+    private static final int ACCOUNT_CACHE_SIZE = Integer.getInteger("bank.cache.maxSize", 10_000);
+    private static final long ACCOUNT_CACHE_TTL_MILLIS = Long.getLong("bank.cache.ttlMillis", 30_000L);
+
+    // End-to-end latency of each public operation, whether it succeeds, fails or throws.
+    private static final LatencyHistogram DEPOSIT_LATENCY = Metrics.latency("operation.deposit");
+    private static final LatencyHistogram WITHDRAW_LATENCY = Metrics.latency("operation.withdraw");
+    private static final LatencyHistogram TRANSFER_LATENCY = Metrics.latency("operation.transfer");
+    private static final LatencyHistogram BATCH_LATENCY = Metrics.latency("operation.applyBatch");
+    private static final LatencyHistogram HISTORY_LATENCY = Metrics.latency("operation.history");
+    private static final LatencyHistogram HISTORY_PAGE_LATENCY = Metrics.latency("operation.historyPage");
+    private static final LatencyHistogram HISTORY_STREAM_LATENCY = Metrics.latency("operation.historyStream");
+    private static final LatencyHistogram BALANCE_AT_LATENCY = Metrics.latency("operation.balanceAt");
+    private static final LatencyHistogram PERIOD_SUMMARY_LATENCY = Metrics.latency("operation.periodSummary");
+
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
     private final FraudDetectionService fraudDetectionService;
+    private final AccountCache accountCache;
+    // Null in the default synchronous mode, where every rule runs before the commit.
+    private final FraudScoringPipeline fraudPipeline;
+    // Null when the change feed is turned off.
+    private final LedgerEventPublisher changeFeed;
 
+    /** Uses the JDBC repositories against the configured database. */
     public BankService() {
-        this.accountDAO = new AccountDAO();
-        this.transactionDAO = new TransactionDAO();
-        this.fraudDetectionService = new FraudDetectionService();
+        this(new AccountDAO(), new TransactionDAO());
+    }
+
+    public BankService(AccountRepository accountRepository, TransactionRepository transactionRepository) {
+        this(accountRepository, transactionRepository, new FraudDetectionService(transactionRepository));
     }
 
-    public Account createAccount(String customerName, String accountType, BigDecimal initialDeposit) {
+    public BankService(AccountRepository accountRepository, TransactionRepository transactionRepository, FraudDetectionService fraudDetectionService) {
+        this(accountRepository, transactionRepository, fraudDetectionService, FraudPipelineConfig.fromSystemProperties());
+    }
+
+    /**
+     * With {@link FraudPipelineConfig#isAsynchronous()} set, only the blocking fraud rules run before
+     * a write commits; the others are scored afterwards by a {@link FraudScoringPipeline}, which
+     * flags the stored transactions late. Call {@link #shutdown()} to drain it.
+     */
+    public BankService(AccountRepository accountRepository, TransactionRepository transactionRepository, FraudDetectionService fraudDetectionService, FraudPipelineConfig fraudPipelineConfig) {
+        this(accountRepository, transactionRepository, fraudDetectionService, fraudPipelineConfig, ChangeFeedConfig.fromSystemProperties());
+    }
+
+    /**
+     * With {@link ChangeFeedConfig#isEnabled()} set, every committed deposit, withdrawal and
+     * transfer leg is published on {@link #getChangeFeed()}. Sharded accounts have no change feed.
+     */
+    public BankService(AccountRepository accountRepository, TransactionRepository transactionRepository, FraudDetectionService fraudDetectionService,
+                       FraudPipelineConfig fraudPipelineConfig, ChangeFeedConfig changeFeedConfig) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.fraudDetectionService = fraudDetectionService;
+        this.accountCache = new AccountCache(ACCOUNT_CACHE_SIZE, ACCOUNT_CACHE_TTL_MILLIS, accountRepository::findAccountById);
+        this.fraudPipeline = fraudPipelineConfig.isAsynchronous()
+                ? new FraudScoringPipeline(fraudDetectionService, accountRepository, fraudPipelineConfig, accountCache::invalidate)
+                : null;
+        boolean sharded = accountRepository instanceof AccountDAO && DatabaseConnector.isSharded();
+        if (changeFeedConfig.isEnabled() && sharded) {
+            System.err.println("The change feed is not available with sharding; it is turned off.");
+        }
+        this.changeFeed = changeFeedConfig.isEnabled() && !sharded ? new LedgerEventPublisher(transactionRepository, changeFeedConfig) : null;
+    }
+
+    public Account createAccount(String customerName, String accountType, Money initialDeposit) {
         Account newAccount = new Account(customerName, accountType, initialDeposit);
-        int accountId = accountDAO.createAccount(newAccount);
+        int accountId = accountRepository.createAccount(newAccount);
         newAccount.setAccountId(accountId);
+        // Not cached here: createdAt is assigned by the database, so the first read loads the full row.
         return newAccount;
     }
 
-    public Optional<Account> deposit(int accountId, BigDecimal amount) {
-        Optional<Account> accountOpt = accountDAO.findAccountById(accountId);
-        if (accountOpt.isEmpty()) {
-            System.err.println("Deposit failed: Account not found with ID " + accountId);
-            return Optional.empty();
+    public Optional<Account> deposit(int accountId, Money amount) {
+        long started = System.nanoTime();
+        try {
+            Optional<Account> accountOpt = accountCache.get(accountId);
+            if (accountOpt.isEmpty()) {
+                System.err.println("Deposit failed: Account not found with ID " + accountId);
+                return Optional.empty();
+            }
+
+            Account account = accountOpt.get();
+            Account before = snapshotForScoring(account);
+            Transaction transaction = new Transaction(accountId, "DEPOSIT", amount);
+            transaction = screen(account, transaction, FraudDetectionService.NO_COUNTERPARTY);
+
+            long write = beginWrite();
+            try {
+                if (accountRepository.applyCredit(account, amount, transaction).isEmpty()) {
+                    accountCache.invalidate(accountId);
+                    System.err.println("Deposit failed for account " + accountId);
+                    return Optional.empty();
+                }
+                publish(write, transaction);
+            } finally {
+                endWrite(write);
+            }
+            accountCache.put(account);
+            submitForScoring(before, transaction, null);
+
+            InfoLog.println("Deposit successful for account " + accountId);
+            return Optional.of(account);
+        } finally {
+            DEPOSIT_LATENCY.recordSince(started);
+        }
+    }
+
+    public Optional<Account> withdraw(int accountId, Money amount) throws InsufficientFundsException {
+        long started = System.nanoTime();
+        try {
+            Optional<Account> accountOpt = findForDebit(accountId, amount);
+            if (accountOpt.isEmpty()) {
+                System.err.println("Withdrawal failed: Account not found with ID " + accountId);
+                return Optional.empty();
+            }
+
+            Account account = accountOpt.get();
+            if (account.getBalance().isLessThan(amount)) {
+                throw new InsufficientFundsException("Insufficient funds for withdrawal. Current balance: " + account.getBalance());
+            }
+
+            Account before = snapshotForScoring(account);
+            Transaction transaction = new Transaction(accountId, "WITHDRAWAL", amount);
+            transaction = screen(account, transaction, FraudDetectionService.NO_COUNTERPARTY);
+
+            // The balance check above is a fast path; applyDebit re-checks it atomically in the database.
+            long write = beginWrite();
+            try {
+                if (accountRepository.applyDebit(account, amount, transaction).isEmpty()) {
+                    accountCache.invalidate(accountId);
+                    System.err.println("Withdrawal failed for account " + accountId);
+                    return Optional.empty();
+                }
+                publish(write, transaction);
+            } catch (InsufficientFundsException e) {
+                accountCache.invalidate(accountId);
+                throw e;
+            } finally {
+                endWrite(write);
+            }
+            accountCache.put(account);
+            submitForScoring(before, transaction, null);
+
+            InfoLog.println("Withdrawal successful for account " + accountId);
+            return Optional.of(account);
+        } finally {
+            WITHDRAW_LATENCY.recordSince(started);
         }
+    }
+
+    /**
+     * @return true if the transfer was committed, false if it was refused or could not be written
+     */
+    public boolean transfer(int fromAccountId, int toAccountId, Money amount) throws InsufficientFundsException {
+        long started = System.nanoTime();
+        try {
+            if (fromAccountId == toAccountId) {
+                System.err.println("Transfer failed: Source and destination accounts are the same.");
+                return false;
+            }
+
+            Optional<Account> fromAccountOpt = findForDebit(fromAccountId, amount);
+            Optional<Account> toAccountOpt = accountCache.get(toAccountId);
+
+            if (fromAccountOpt.isEmpty() || toAccountOpt.isEmpty()) {
+                System.err.println("Transfer failed: One or both accounts not found.");
+                return false;
+            }
 
-        Account account = accountOpt.get();
-        Transaction transaction = new Transaction(accountId, "DEPOSIT", amount);
-        transaction = fraudDetectionService.checkForFraud(account, transaction);
+            Account fromAccount = fromAccountOpt.get();
+            Account toAccount = toAccountOpt.get();
+            if (fromAccount.getBalance().isLessThan(amount)) {
+                throw new InsufficientFundsException("Insufficient funds for transfer. Current balance: " + fromAccount.getBalance());
+            }
 
-        account.setBalance(account.getBalance().add(amount));
+            // Fraud is evaluated once, on the sending side; the receiving leg carries the same verdict.
+            Account fromBefore = snapshotForScoring(fromAccount);
+            Transaction debit = new Transaction(fromAccountId, "TRANSFER_OUT", amount);
+            debit = screen(fromAccount, debit, toAccountId);
+            Transaction credit = new Transaction(toAccountId, "TRANSFER_IN", amount);
+            credit.setFlagged(debit.isFlagged());
+            credit.setReasonForFlag(debit.getReasonForFlag());
 
-        if (!transaction.isFlagged()) {
-            updateAverageTransactionAmount(account, amount);
+            long write = beginWrite();
+            try {
+                if (accountRepository.transfer(fromAccount, toAccount, amount, debit, credit).isEmpty()) {
+                    accountCache.invalidate(fromAccountId);
+                    accountCache.invalidate(toAccountId);
+                    System.err.println("Transfer of " + amount + " from account " + fromAccountId + " to " + toAccountId + " failed.");
+                    return false;
+                }
+                publish(write, debit, credit);
+            } catch (InsufficientFundsException e) {
+                accountCache.invalidate(fromAccountId);
+                throw e;
+            } finally {
+                endWrite(write);
+            }
+            accountCache.put(fromAccount);
+            accountCache.put(toAccount);
+            fraudDetectionService.recordActivity(toAccountId);
+            submitForScoring(fromBefore, debit, credit);
+
+            InfoLog.println("Transfer of " + amount + " from account " + fromAccountId + " to " + toAccountId + " successful.");
+            return true;
+        } finally {
+            TRANSFER_LATENCY.recordSince(started);
         }
+    }
 
-        accountDAO.updateAccount(account);
-        transactionDAO.createTransaction(transaction);
+    public List<BatchResult> applyBatch(List<BatchOperation> operations) {
+        return applyBatch(operations, DEFAULT_BATCH_CHUNK_SIZE);
+    }
 
-        System.out.println("Deposit successful for account " + accountId);
-        return Optional.of(account);
+    /**
+     * Applies many deposits and withdrawals with a handful of statements per chunk instead of several
+     * per operation. Each chunk is one database transaction: its accounts are locked and loaded
+     * once, fraud checks run against that preloaded state, and balances and ledger rows are written
+     * in bulk. Operations are applied in list order, so a withdrawal sees earlier deposits of the
+     * same batch. Rejected operations (unknown account, insufficient funds) do not stop the batch.
+     * When the accounts are sharded, each chunk is split by {@link AccountRepository#partitionOf
+     * shard} and every part is its own database transaction.
+     *
+     * @return one result per operation, in the same order
+     */
+    public List<BatchResult> applyBatch(List<BatchOperation> operations, int chunkSize) {
+        long started = System.nanoTime();
+        try {
+            if (chunkSize < 1) {
+                throw new IllegalArgumentException("Chunk size must be positive.");
+            }
+            BatchResult[] results = new BatchResult[operations.size()];
+            for (int from = 0; from < operations.size(); from += chunkSize) {
+                Map<Integer, List<Integer>> byPartition = new TreeMap<>();
+                for (int i = from; i < Math.min(from + chunkSize, operations.size()); i++) {
+                    byPartition.computeIfAbsent(accountRepository.partitionOf(operations.get(i).getAccountId()), partition -> new ArrayList<>()).add(i);
+                }
+                for (List<Integer> positions : byPartition.values()) {
+                    for (BatchResult result : applyBatchChunk(operations, positions)) {
+                        results[result.getIndex()] = result;
+                    }
+                }
+            }
+            return Arrays.asList(results);
+        } finally {
+            BATCH_LATENCY.recordSince(started);
+        }
     }
 
-    public Optional<Account> withdraw(int accountId, BigDecimal amount) throws InsufficientFundsException {
-        Optional<Account> accountOpt = accountDAO.findAccountById(accountId);
-        if (accountOpt.isEmpty()) {
-            System.err.println("Withdrawal failed: Account not found with ID " + accountId);
-            return Optional.empty();
+    // Applies the operations at the given positions of the batch, in order, as one unit.
+    private List<BatchResult> applyBatchChunk(List<BatchOperation> operations, List<Integer> positions) {
+        List<BatchOperation> chunk = new ArrayList<>(positions.size());
+        for (Integer position : positions) {
+            chunk.add(operations.get(position));
         }
+        Set<Integer> accountIds = new TreeSet<>();
+        for (BatchOperation operation : chunk) {
+            accountIds.add(operation.getAccountId());
+        }
+        fraudDetectionService.preloadVelocity(accountIds);
+
+        BatchResult[] results = new BatchResult[chunk.size()];
+        Transaction[] transactions = new Transaction[chunk.size()];
+        Money[] balances = new Money[chunk.size()];
+        Account[] befores = new Account[chunk.size()];
+        Map<Integer, Account> lockedAccounts = new HashMap<>();
+
+        AccountRepository.BatchWork work = accounts -> {
+            lockedAccounts.putAll(accounts);
+            List<Transaction> toRecord = new ArrayList<>();
+            for (int i = 0; i < chunk.size(); i++) {
+                BatchOperation operation = chunk.get(i);
+                Account account = accounts.get(operation.getAccountId());
+                Money amount = operation.getAmount();
+                boolean withdrawal = operation.getType() == BatchOperation.Type.WITHDRAWAL;
 
-        Account account = accountOpt.get();
-        if (account.getBalance().compareTo(amount) < 0) {
-            throw new InsufficientFundsException("Insufficient funds for withdrawal. Current balance: " + account.getBalance());
+                // Reset on every invocation in case the unit of work is ever re-run.
+                transactions[i] = null;
+                results[i] = null;
+                if (account == null) {
+                    results[i] = BatchResult.failed(positions.get(i), operation, "Account not found with ID " + operation.getAccountId());
+                    continue;
+                }
+                if (amount == null || amount.signum() <= 0) {
+                    results[i] = BatchResult.failed(positions.get(i), operation, "Amount must be positive.");
+                    continue;
+                }
+                if (withdrawal && account.getBalance().isLessThan(amount)) {
+                    results[i] = BatchResult.failed(positions.get(i), operation, "Insufficient funds for withdrawal. Current balance: " + account.getBalance());
+                    continue;
+                }
+
+                befores[i] = snapshotForScoring(account);
+                Transaction transaction = new Transaction(account.getAccountId(), withdrawal ? "WITHDRAWAL" : "DEPOSIT", amount);
+                transaction = screen(account, transaction, FraudDetectionService.NO_COUNTERPARTY);
+                account.setBalance(withdrawal ? account.getBalance().minus(amount) : account.getBalance().plus(amount));
+                if (!transaction.isFlagged()) {
+                    account.foldIntoAggregates(amount);
+                }
+                transactions[i] = transaction;
+                balances[i] = account.getBalance();
+                toRecord.add(transaction);
+            }
+            return toRecord;
+        };
+
+        long write = beginWrite();
+        boolean committed;
+        try {
+            committed = accountRepository.applyBatch(accountIds, work);
+            if (committed) {
+                List<Transaction> written = new ArrayList<>();
+                for (Transaction transaction : transactions) {
+                    if (transaction != null) {
+                        written.add(transaction);
+                    }
+                }
+                publish(write, written);
+            }
+        } finally {
+            endWrite(write);
         }
 
-        Transaction transaction = new Transaction(accountId, "WITHDRAWAL", amount);
-        transaction = fraudDetectionService.checkForFraud(account, transaction);
+        for (Integer accountId : accountIds) {
+            Account account = lockedAccounts.get(accountId);
+            if (committed && account != null) {
+                accountCache.put(account);
+            } else {
+                accountCache.invalidate(accountId);
+            }
+        }
 
-        account.setBalance(account.getBalance().subtract(amount));
+        for (int i = 0; i < chunk.size(); i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            if (committed) {
+                submitForScoring(befores[i], transactions[i], null);
+            }
+            results[i] = committed
+                    ? BatchResult.succeeded(positions.get(i), chunk.get(i), transactions[i], balances[i])
+                    : BatchResult.failed(positions.get(i), chunk.get(i), "Batch could not be written; no operation in this chunk was applied.");
+        }
+        return Arrays.asList(results);
+    }
 
-        if (!transaction.isFlagged()) {
-            updateAverageTransactionAmount(account, amount);
+    // Synchronous mode runs every fraud rule here; asynchronous mode only the blocking ones.
+    private Transaction screen(Account account, Transaction transaction, int counterpartyId) {
+        return fraudPipeline == null
+                ? fraudDetectionService.checkForFraud(account, transaction, counterpartyId)
+                : fraudPipeline.screen(account, transaction, counterpartyId);
+    }
+
+    // The deferred rules judge a transaction against the account as it was before that transaction.
+    private Account snapshotForScoring(Account account) {
+        return fraudPipeline == null ? null : new Account(account);
+    }
+
+    private void submitForScoring(Account before, Transaction transaction, Transaction linked) {
+        if (fraudPipeline != null) {
+            fraudPipeline.submit(before, transaction, linked);
         }
+    }
 
-        accountDAO.updateAccount(account);
-        transactionDAO.createTransaction(transaction);
+    // Brackets every write that inserts ledger rows, so the change feed can keep them in id order.
+    private long beginWrite() {
+        return changeFeed == null ? 0 : changeFeed.begin();
+    }
 
-        System.out.println("Withdrawal successful for account " + accountId);
-        return Optional.of(account);
+    private void publish(long write, Transaction... transactions) {
+        if (changeFeed != null) {
+            changeFeed.publish(write, transactions);
+        }
     }
 
-    public void transfer(int fromAccountId, int toAccountId, BigDecimal amount) throws InsufficientFundsException {
-        Optional<Account> fromAccountOpt = accountDAO.findAccountById(fromAccountId);
-        Optional<Account> toAccountOpt = accountDAO.findAccountById(toAccountId);
+    private void publish(long write, List<Transaction> transactions) {
+        if (changeFeed != null) {
+            changeFeed.publish(write, transactions);
+        }
+    }
 
-        if (fromAccountOpt.isEmpty() || toAccountOpt.isEmpty()) {
-            System.err.println("Transfer failed: One or both accounts not found.");
-            return;
+    // A no-op once the write has been published.
+    private void endWrite(long write) {
+        if (changeFeed != null) {
+            changeFeed.abandon(write);
         }
+    }
 
-        withdraw(fromAccountId, amount);
-        deposit(toAccountId, amount);
+    /**
+     * The feed of committed ledger rows, in transactionId order; empty when it is turned off or
+     * the accounts are sharded.
+     */
+    public Optional<LedgerEventPublisher> getChangeFeed() {
+        return Optional.ofNullable(changeFeed);
+    }
+
+    /** Counters of the asynchronous fraud pipeline; empty in synchronous mode. */
+    public Optional<FraudScoringPipeline.Stats> getFraudPipelineStats() {
+        return fraudPipeline == null ? Optional.empty() : Optional.of(fraudPipeline.getStats());
+    }
 
-        System.out.println("Transfer of " + amount + " from account " + fromAccountId + " to " + toAccountId + " successful.");
+    /**
+     * Waits until every transaction committed so far has been scored for fraud. Always true in
+     * synchronous mode.
+     */
+    public boolean awaitFraudScoring(long timeoutMillis) throws InterruptedException {
+        return fraudPipeline == null || fraudPipeline.awaitScored(timeoutMillis);
+    }
+
+    /**
+     * Scores everything the fraud pipeline still has queued, stops its workers and stops watching
+     * the fraud rules file, then completes the change feed's subscribers.
+     */
+    public void shutdown() {
+        if (fraudPipeline != null) {
+            fraudPipeline.close();
+        }
+        if (changeFeed != null) {
+            changeFeed.close();
+        }
+        fraudDetectionService.close();
     }
 
     public Optional<Account> getAccount(int accountId) {
-        return accountDAO.findAccountById(accountId);
+        return accountCache.get(accountId);
+    }
+
+    /**
+     * Reads an account that reflects at least the writes {@code token} names: from the cache when
+     * its entry is new enough, else from a read replica that has caught up, else from the primary.
+     * Replica reads do not fill the cache.
+     */
+    public Optional<Account> getAccount(int accountId, ConsistencyToken token) {
+        Optional<Account> cached = accountCache.getIfPresent(accountId);
+        if (cached.isPresent() && cached.get().getVersion() >= token.getVersion(accountId)) {
+            return cached;
+        }
+        return accountRepository.findAccountById(accountId, token);
+    }
+
+    /**
+     * A token for reads that must observe every write committed to these accounts so far, such as
+     * a {@link #transfer}. Taken from the cache, which every write through this service updates;
+     * accounts not in it are looked up on the primary.
+     */
+    public ConsistencyToken getConsistencyToken(int... accountIds) {
+        ConsistencyToken token = ConsistencyToken.NONE;
+        for (int accountId : accountIds) {
+            Optional<Account> account = accountCache.getIfPresent(accountId);
+            if (!account.isPresent()) {
+                account = accountRepository.findAccountById(accountId);
+            }
+            if (account.isPresent()) {
+                token = token.merge(ConsistencyToken.of(account.get()));
+            }
+        }
+        return token;
+    }
+
+    // Without a token, history reads still see this service's own writes to the account, as far
+    // as the cache remembers them; other writes may be up to the replica lag limit late.
+    private ConsistencyToken sessionToken(int accountId) {
+        return accountCache.getIfPresent(accountId).map(ConsistencyToken::of).orElse(ConsistencyToken.NONE);
+    }
+
+    // Lets AsyncBankService skip prefetching accounts a write would find in the cache anyway.
+    boolean isCached(int accountId) {
+        return accountCache.getIfPresent(accountId).isPresent();
+    }
+
+    public AccountCache.Stats getAccountCacheStats() {
+        return accountCache.getStats();
+    }
+
+    // Reads through the cache, but re-reads from the database before reporting insufficient funds
+    // so that a cached balance can never be the reason a debit is refused.
+    private Optional<Account> findForDebit(int accountId, Money amount) {
+        Optional<Account> accountOpt = accountCache.get(accountId);
+        if (accountOpt.isPresent() && accountOpt.get().getBalance().isLessThan(amount)) {
+            accountCache.invalidate(accountId);
+            accountOpt = accountCache.get(accountId);
+        }
+        return accountOpt;
     }
 
     public List<Transaction> getTransactionHistory(int accountId) {
-        return transactionDAO.findTransactionsByAccountId(accountId);
+        return getTransactionHistory(accountId, sessionToken(accountId));
     }
 
-    private void updateAverageTransactionAmount(Account account, BigDecimal newAmount) {
-        long transactionCount = transactionDAO.findTransactionsByAccountId(account.getAccountId())
-                .stream()
-                .filter(t -> !t.isFlagged())
-                .count();
+    /** Returns the full history, newest first, reflecting at least the writes {@code token} names. */
+    public List<Transaction> getTransactionHistory(int accountId, ConsistencyToken token) {
+        long started = System.nanoTime();
+        try {
+            return transactionRepository.findTransactionsByAccountId(accountId, token);
+        } finally {
+            HISTORY_LATENCY.recordSince(started);
+        }
+    }
+
+    /**
+     * Returns one page of history, newest first. Pass null for the first page and the page's
+     * {@code nextCursor} for the following ones.
+     */
+    public TransactionPage getTransactionHistoryPage(int accountId, TransactionCursor cursor, int pageSize) {
+        return getTransactionHistoryPage(accountId, cursor, pageSize, sessionToken(accountId));
+    }
 
-        BigDecimal currentTotal = account.getAvgTransactionAmount().multiply(new BigDecimal(transactionCount));
-        BigDecimal newTotal = currentTotal.add(newAmount);
-        BigDecimal newAverage = newTotal.divide(new BigDecimal(transactionCount + 1), 2, RoundingMode.HALF_UP);
+    public TransactionPage getTransactionHistoryPage(int accountId, TransactionCursor cursor, int pageSize, ConsistencyToken token) {
+        long started = System.nanoTime();
+        try {
+            return transactionRepository.findTransactionsPage(accountId, cursor, pageSize, token);
+        } finally {
+            HISTORY_PAGE_LATENCY.recordSince(started);
+        }
+    }
+
+    /**
+     * Hands the full history, newest first, to {@code consumer} row by row without loading it into memory.
+     * The recorded latency includes the time spent in {@code consumer}.
+     *
+     * @return the number of transactions delivered, or -1 on error
+     */
+    public long streamTransactionHistory(int accountId, Consumer<Transaction> consumer) {
+        return streamTransactionHistory(accountId, consumer, sessionToken(accountId));
+    }
+
+    public long streamTransactionHistory(int accountId, Consumer<Transaction> consumer, ConsistencyToken token) {
+        long started = System.nanoTime();
+        try {
+            return transactionRepository.streamTransactionsByAccountId(accountId, consumer, token);
+        } finally {
+            HISTORY_STREAM_LATENCY.recordSince(started);
+        }
+    }
+
+    /**
+     * Returns the balance at the end of {@code date}, read from the daily rollups alone. The initial
+     * deposit is not a ledger row, so it already counts at the opening of the account's first day
+     * with transactions.
+     *
+     * @return the balance, or empty if the account does not exist
+     */
+    public Optional<Money> getClosingBalance(int accountId, LocalDate date) {
+        long started = System.nanoTime();
+        try {
+            return accountCache.get(accountId).map(account -> closingBalance(account, date));
+        } finally {
+            BALANCE_AT_LATENCY.recordSince(started);
+        }
+    }
+
+    /**
+     * Returns the balance right after the last transaction at or before {@code time}: the opening
+     * balance of that day from the rollups, plus only that day's transactions up to {@code time}.
+     * Days without transactions need no ledger read at all.
+     *
+     * @return the balance, or empty if the account does not exist
+     */
+    public Optional<Money> getBalanceAt(int accountId, Timestamp time) {
+        long started = System.nanoTime();
+        try {
+            Optional<Account> accountOpt = accountCache.get(accountId);
+            if (accountOpt.isEmpty()) {
+                return Optional.empty();
+            }
+            LocalDate date = time.toLocalDateTime().toLocalDate();
+            Optional<DailyRollup> rollup = accountRepository.findNearestDailyRollup(accountId, date);
+            if (rollup.isEmpty() || !rollup.get().getDate().equals(date)) {
+                return Optional.of(closingBalance(accountOpt.get(), rollup, date));
+            }
+            Money balance = rollup.get().getOpeningBalance();
+            for (Transaction transaction : transactionRepository.findTransactionsByAccountIdBetween(accountId, Timestamp.valueOf(date.atStartOfDay()), time)) {
+                balance = transaction.isDebit() ? balance.minus(transaction.getAmount()) : balance.plus(transaction.getAmount());
+            }
+            return Optional.of(balance);
+        } finally {
+            BALANCE_AT_LATENCY.recordSince(started);
+        }
+    }
+
+    /**
+     * Sums an account's activity from {@code from} to {@code to} (both inclusive) from its daily
+     * rollups, one row per day with transactions, without reading the ledger.
+     *
+     * @return the summary, or empty if the account does not exist or the rollups could not be read
+     */
+    public Optional<PeriodSummary> getPeriodSummary(int accountId, LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("Period ends before it starts: " + from + " to " + to);
+        }
+        long started = System.nanoTime();
+        try {
+            Optional<Account> accountOpt = accountCache.get(accountId);
+            if (accountOpt.isEmpty()) {
+                return Optional.empty();
+            }
+            List<DailyRollup> rollups = accountRepository.findDailyRollups(accountId, from, to);
+            if (rollups == null) {
+                return Optional.empty();
+            }
+            Money opening = rollups.isEmpty() ? closingBalance(accountOpt.get(), from.minusDays(1)) : null;
+            return Optional.of(PeriodSummary.of(accountId, from, to, rollups, opening));
+        } finally {
+            PERIOD_SUMMARY_LATENCY.recordSince(started);
+        }
+    }
+
+    private Money closingBalance(Account account, LocalDate date) {
+        return closingBalance(account, accountRepository.findNearestDailyRollup(account.getAccountId(), date), date);
+    }
+
+    // Without any rollup the account has no transactions, so its balance has never moved.
+    private static Money closingBalance(Account account, Optional<DailyRollup> nearest, LocalDate date) {
+        if (nearest.isEmpty()) {
+            return account.getBalance();
+        }
+        DailyRollup rollup = nearest.get();
+        return rollup.getDate().isAfter(date) ? rollup.getOpeningBalance() : rollup.getClosingBalance();
+    }
+
+    /**
+     * Turns hot-account mode on for an account that takes many concurrent credits, such as a
+     * merchant or settlement account: its credits are spread over {@code slots} balance slots
+     * instead of all waiting for its one row. Balances read and debits checked stay exact; its
+     * average and daily rollups catch up when the slots are compacted, by default every second.
+     * With 0 slots the account goes back to normal.
+     *
+     * @return false if the account does not exist or the storage has no balance slots
+     */
+    public boolean setHotAccount(int accountId, int slots) {
+        boolean changed = accountRepository.setBalanceSlots(accountId, slots);
+        // The cached copy decides whether a credit goes to a slot, so it must learn the new count.
+        accountCache.invalidate(accountId);
+        return changed;
+    }
+
+    /**
+     * Recomputes every account's daily rollups from its transaction history. Only needed for
+     * history written before the rollups existed, which startup already handles for the database.
+     */
+    public int rebuildDailyRollups() {
+        return accountRepository.rebuildDailyRollups();
+    }
 
-        account.setAvgTransactionAmount(newAverage);
+    /**
+     * Recomputes the running aggregates of every account from its transaction history.
+     * Only needed once for accounts that predate the aggregate columns.
+     */
+    public int backfillAccountAggregates() {
+        int updated = accountRepository.backfillTransactionAggregates();
+        accountCache.invalidateAll();
+        return updated;
     }
 }
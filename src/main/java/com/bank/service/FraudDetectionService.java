@@ -1,55 +1,317 @@
 package com.bank.service;
 
+import com.bank.dao.InfoLog;
 import com.bank.dao.TransactionDAO;
+import com.bank.dao.TransactionRepository;
+import com.bank.metrics.Counter;
+import com.bank.metrics.Metrics;
 import com.bank.model.Account;
 import com.bank.model.Transaction;
 
-import java.math.BigDecimal;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
 import java.sql.Timestamp;
-import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
-public class FraudDetectionService {
-    private static final int FREQUENCY_TRANSACTION_LIMIT = 10;
-    private static final long FREQUENCY_WINDOW_MINUTES = 5;
-    private static final BigDecimal AMOUNT_MULTIPLIER_LIMIT = new BigDecimal("5.0");
+/**
+ * Runs the configured {@link FraudRule rules} against transactions before (or, with the
+ * {@link FraudScoringPipeline}, after) they are committed.
+ *
+ * <p>A check gathers everything the rules look at in one pass: the running aggregates on the
+ * account and one update of the account's activity windows, which are cached in memory and only
+ * seeded from the database. Then every rule tests those features, in the configured order, and
+ * the first that fires flags the transaction. Batches are scored column-wise, one rule at a time
+ * over all rows. The rule set can be replaced while checks are running, and is re-read from
+ * {@link FraudRuleConfig#getRulesFile()} when that file changes.
+ */
+public class FraudDetectionService implements AutoCloseable {
+    /** Counterparty argument for transactions that are not transfers. */
+    public static final int NO_COUNTERPARTY = 0;
 
-    private final TransactionDAO transactionDAO;
+    private static final Set<FraudRule> ALL_RULES = EnumSet.allOf(FraudRule.class);
+    private static final Counter CHECKS = Metrics.counter("fraud.checks");
+    // Per rule, indexed by ordinal: rows evaluated, time spent evaluating them, and rows it flagged.
+    private static final Counter[] EVALUATIONS = new Counter[FraudRule.values().length];
+    private static final Counter[] EVALUATION_NANOS = new Counter[FraudRule.values().length];
+    private static final Counter[] HITS = new Counter[FraudRule.values().length];
+
+    static {
+        for (FraudRule rule : FraudRule.values()) {
+            EVALUATIONS[rule.ordinal()] = Metrics.counter("fraud.rule." + rule.getKey() + ".evaluations");
+            EVALUATION_NANOS[rule.ordinal()] = Metrics.counter("fraud.rule." + rule.getKey() + ".nanos");
+            HITS[rule.ordinal()] = Metrics.counter("fraud.rule." + rule.getKey() + ".hits");
+        }
+    }
+
+    private final TransactionRepository transactionDAO;
+    private volatile Engine engine;
+    private ScheduledExecutorService reloader;
+    private FileTime rulesFileModified;
 
     public FraudDetectionService() {
-        this.transactionDAO = new TransactionDAO();
+        this(new TransactionDAO());
+    }
+
+    public FraudDetectionService(TransactionRepository transactionRepository) {
+        this(transactionRepository, FraudRuleConfig.fromSystemProperties());
+    }
+
+    public FraudDetectionService(TransactionRepository transactionRepository, FraudRuleConfig config) {
+        this.transactionDAO = transactionRepository;
+        this.engine = new Engine(FraudRuleSet.compile(config), newTracker(config));
+        if (config.getRulesFile() != null && config.getReloadIntervalMillis() > 0) {
+            startReloading(config);
+        }
     }
 
     public Transaction checkForFraud(Account account, Transaction newTransaction) {
-        if (isTransactionFrequencyTooHigh(account.getAccountId())) {
-            newTransaction.setFlagged(true);
-            newTransaction.setReasonForFlag("High transaction frequency detected.");
-            return newTransaction;
+        return checkForFraud(account, newTransaction, NO_COUNTERPARTY);
+    }
+
+    /**
+     * @param counterpartyId the destination account of a transfer, or {@link #NO_COUNTERPARTY}
+     */
+    public Transaction checkForFraud(Account account, Transaction newTransaction, int counterpartyId) {
+        return checkForFraud(account, newTransaction, counterpartyId, ALL_RULES, System.currentTimeMillis());
+    }
+
+    /**
+     * Runs only {@code rules}, as if at {@code atMillis}. {@code account} must be the state the
+     * transaction was applied to, i.e. before its own amount was folded into the average.
+     */
+    Transaction checkForFraud(Account account, Transaction newTransaction, int counterpartyId, Set<FraudRule> rules, long atMillis) {
+        score(new Account[]{account}, new Transaction[]{newTransaction}, new int[]{counterpartyId}, new long[]{atMillis}, rules);
+        return newTransaction;
+    }
+
+    /**
+     * Scores many transactions at once, flagging them in place. Row {@code i} is transaction
+     * {@code transactions[i]} against {@code accounts[i]} (its account before the transaction), paying
+     * {@code counterpartyIds[i]}, at {@code atMillis[i]}. Rows of one account must be in the order
+     * they were applied, since each one moves the account's activity windows.
+     *
+     * @return the number of transactions flagged
+     */
+    public int scoreBatch(Account[] accounts, Transaction[] transactions, int[] counterpartyIds, long[] atMillis) {
+        return score(accounts, transactions, counterpartyIds, atMillis, ALL_RULES);
+    }
+
+    int score(Account[] accounts, Transaction[] transactions, int[] counterpartyIds, long[] atMillis, Set<FraudRule> rules) {
+        Engine current = engine;
+        FraudRuleSet ruleSet = current.ruleSet;
+        int size = transactions.length;
+        CHECKS.add(size);
+
+        // One pass over the rows gathers every feature; the windows are only touched for the rules that run.
+        boolean velocity = rules.contains(FraudRule.VELOCITY) && ruleSet.isEnabled(FraudRule.VELOCITY);
+        boolean fanOut = rules.contains(FraudRule.FAN_OUT) && ruleSet.isEnabled(FraudRule.FAN_OUT);
+        FraudFeatures features = new FraudFeatures(size);
+        for (int i = 0; i < size; i++) {
+            features.load(i, accounts[i], transactions[i]);
+            int counterparty = fanOut ? counterpartyIds[i] : NO_COUNTERPARTY;
+            if (velocity || counterparty != NO_COUNTERPARTY) {
+                current.tracker.observe(accounts[i].getAccountId(), atMillis[i], velocity, counterparty, features, i);
+            }
         }
 
-        if (isTransactionAmountAnomalous(account, newTransaction.getAmount())) {
-            newTransaction.setFlagged(true);
-            newTransaction.setReasonForFlag("Transaction amount is significantly higher than average.");
-            return newTransaction;
+        FraudRule[] verdicts = new FraudRule[size];
+        boolean[] hits = new boolean[size];
+        FraudRule[] order = ruleSet.getRules();
+        for (int r = 0; r < order.length; r++) {
+            FraudRule rule = order[r];
+            if (!rules.contains(rule)) {
+                continue;
+            }
+            long started = System.nanoTime();
+            ruleSet.getCheck(r).evaluate(features, hits);
+            EVALUATION_NANOS[rule.ordinal()].add(System.nanoTime() - started);
+            EVALUATIONS[rule.ordinal()].add(size);
+            for (int i = 0; i < size; i++) {
+                if (hits[i] && verdicts[i] == null) {
+                    verdicts[i] = rule;
+                }
+            }
         }
 
-        return newTransaction;
+        int flagged = 0;
+        for (int i = 0; i < size; i++) {
+            if (verdicts[i] != null) {
+                HITS[verdicts[i].ordinal()].increment();
+                transactions[i].setFlagged(true);
+                transactions[i].setReasonForFlag(verdicts[i].getReason());
+                flagged++;
+            }
+        }
+        return flagged;
+    }
+
+    /** Transactions flagged by {@code rule} since startup, whether inline or by the asynchronous pipeline. */
+    public static long getRuleHits(FraudRule rule) {
+        return HITS[rule.ordinal()].getValue();
+    }
+
+    /** Evaluation counts, time and hits of every rule since startup. */
+    public static Map<FraudRule, RuleStats> getRuleStats() {
+        Map<FraudRule, RuleStats> stats = new EnumMap<>(FraudRule.class);
+        for (FraudRule rule : FraudRule.values()) {
+            stats.put(rule, new RuleStats(rule, EVALUATIONS[rule.ordinal()].getValue(), EVALUATION_NANOS[rule.ordinal()].getValue(), HITS[rule.ordinal()].getValue()));
+        }
+        return stats;
+    }
+
+    public FraudRuleConfig getRuleConfig() {
+        return engine.ruleSet.getConfig();
     }
 
-    private boolean isTransactionFrequencyTooHigh(int accountId) {
-        Timestamp windowStart = Timestamp.from(Instant.now().minusSeconds(FREQUENCY_WINDOW_MINUTES * 60));
-        List<Transaction> recentTransactions = transactionDAO.findTransactionsByAccountIdSince(accountId, windowStart);
-        System.out.println("Found " + recentTransactions.size() + " transactions in the last " + FREQUENCY_WINDOW_MINUTES + " minutes.");
-        return recentTransactions.size() >= FREQUENCY_TRANSACTION_LIMIT;
+    /**
+     * Replaces the rule set. Checks already running finish with the previous one. Activity windows
+     * are kept unless their window lengths or limits changed; then they are rebuilt from the
+     * database as accounts are touched again.
+     *
+     * @throws IllegalArgumentException if {@code config} is invalid; the current rules stay in place
+     */
+    public void reloadRules(FraudRuleConfig config) {
+        FraudRuleSet ruleSet = FraudRuleSet.compile(config);
+        synchronized (this) {
+            AccountActivityTracker tracker = engine.tracker;
+            if (!tracker.hasBounds(config.getVelocityWindowMillis(), config.getVelocityLimit(), config.getFanOutWindowMillis(),
+                    config.getFanOutLimit(), config.getMaxTrackedAccounts())) {
+                tracker = newTracker(config);
+            }
+            engine = new Engine(ruleSet, tracker);
+        }
+        InfoLog.println("Fraud rules loaded: " + config);
+    }
+
+    private AccountActivityTracker newTracker(FraudRuleConfig config) {
+        return new AccountActivityTracker(config.getVelocityWindowMillis(), config.getVelocityLimit(), config.getFanOutWindowMillis(),
+                config.getFanOutLimit(), config.getMaxTrackedAccounts(),
+                (accountId, sinceMillis, maxEntries) -> transactionDAO.findTransactionTimesByAccountIdSince(accountId, new Timestamp(sinceMillis), maxEntries));
+    }
+
+    // Polls the file's modification time; a file that fails to load leaves the current rules in place.
+    private void startReloading(FraudRuleConfig config) {
+        try {
+            rulesFileModified = Files.getLastModifiedTime(config.getRulesFile());
+        } catch (IOException e) {
+            rulesFileModified = null;
+        }
+        reloader = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "fraud-rules-reload");
+            t.setDaemon(true);
+            return t;
+        });
+        reloader.scheduleWithFixedDelay(() -> {
+            FraudRuleConfig current = getRuleConfig();
+            try {
+                FileTime modified = Files.getLastModifiedTime(current.getRulesFile());
+                if (modified.equals(rulesFileModified)) {
+                    return;
+                }
+                rulesFileModified = modified;
+                reloadRules(current.reload());
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Could not reload fraud rules from " + current.getRulesFile() + ": " + e.getMessage());
+            }
+        }, config.getReloadIntervalMillis(), config.getReloadIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /** Stops watching the rules file. */
+    @Override
+    public void close() {
+        if (reloader != null) {
+            reloader.shutdownNow();
+        }
+    }
+
+    /**
+     * Loads the velocity windows of many accounts with a single query, so that a following run of
+     * {@link #checkForFraud} calls over those accounts does no per-row I/O. Accounts already held in
+     * memory are skipped.
+     */
+    public void preloadVelocity(Collection<Integer> accountIds) {
+        Engine current = engine;
+        if (!current.ruleSet.isEnabled(FraudRule.VELOCITY)) {
+            return;
+        }
+        AccountActivityTracker tracker = current.tracker;
+        List<Integer> missing = new ArrayList<>();
+        for (Integer accountId : accountIds) {
+            if (!tracker.isTracked(accountId)) {
+                missing.add(accountId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        Timestamp windowStart = new Timestamp(System.currentTimeMillis() - tracker.getWindowMillis());
+        Map<Integer, long[]> times = transactionDAO.findTransactionTimesByAccountIdsSince(missing, windowStart, tracker.getCapacity());
+        if (times == null) {
+            return; // fall back to lazy per-account seeding
+        }
+        for (Integer accountId : missing) {
+            tracker.seed(accountId, times.getOrDefault(accountId, new long[0]));
+        }
+    }
+
+    /**
+     * Notes a transaction that was not run through {@link #checkForFraud}, such as the receiving
+     * leg of a transfer, so the account's velocity window stays in step with the ledger.
+     */
+    public void recordActivity(int accountId) {
+        engine.tracker.recordIfTracked(accountId, System.currentTimeMillis());
+    }
+
+    // The compiled rules and the windows they read, swapped together on reload.
+    private static final class Engine {
+        private final FraudRuleSet ruleSet;
+        private final AccountActivityTracker tracker;
+
+        private Engine(FraudRuleSet ruleSet, AccountActivityTracker tracker) {
+            this.ruleSet = ruleSet;
+            this.tracker = tracker;
+        }
     }
 
-    private boolean isTransactionAmountAnomalous(Account account, BigDecimal amount) {
-        BigDecimal average = account.getAvgTransactionAmount();
-        if (average == null || average.compareTo(BigDecimal.ZERO) <= 0) {
-            return false;
+    /** Point-in-time counters of one rule. */
+    public static final class RuleStats {
+        private final FraudRule rule;
+        private final long evaluations;
+        private final long evaluationNanos;
+        private final long hits;
+
+        private RuleStats(FraudRule rule, long evaluations, long evaluationNanos, long hits) {
+            this.rule = rule;
+            this.evaluations = evaluations;
+            this.evaluationNanos = evaluationNanos;
+            this.hits = hits;
+        }
+
+        // --- Getters ---
+        public FraudRule getRule() { return rule; }
+        /** Transactions the rule was tested against. */
+        public long getEvaluations() { return evaluations; }
+        public long getEvaluationNanos() { return evaluationNanos; }
+        /** Transactions flagged because of this rule (the first in order that fired). */
+        public long getHits() { return hits; }
+
+        public double getMeanNanos() {
+            return evaluations == 0 ? 0.0 : (double) evaluationNanos / evaluations;
+        }
+
+        @Override
+        public String toString() {
+            return "RuleStats{" + "rule=" + rule + ", evaluations=" + evaluations + ", meanNanos=" + String.format("%.1f", getMeanNanos()) + ", hits=" + hits + '}';
         }
-        BigDecimal limit = average.multiply(AMOUNT_MULTIPLIER_LIMIT);
-        System.out.println("Checking amount " + amount + " against limit " + limit + " (avg: " + average + ")");
-        return amount.compareTo(limit) > 0;
     }
 }
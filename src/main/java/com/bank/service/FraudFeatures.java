@@ -0,0 +1,49 @@
+package com.bank.service;
+
+import com.bank.model.Account;
+import com.bank.model.Transaction;
+
+/**
+ * Inputs of the fraud rules for a batch of transactions, one column per feature, so each rule can
+ * test every row in one tight loop over primitive arrays. A single check is a batch of one.
+ * Columns of features no rule in the batch needs are left at zero.
+ */
+final class FraudFeatures {
+    final int size;
+    final long[] amountMinor;
+    final double[] amount;
+    // Running aggregates of the account before the transaction.
+    final long[] averageMinor;
+    final long[] count;
+    final double[] mean;
+    final double[] stdDev;
+    // From the activity windows: earlier transactions in the velocity window (saturating), distinct
+    // destinations paid in the fan-out window before this transfer, and whether it pays a new one.
+    final int[] recentTransactions;
+    final int[] recentCounterparties;
+    final boolean[] newCounterparty;
+
+    FraudFeatures(int size) {
+        this.size = size;
+        this.amountMinor = new long[size];
+        this.amount = new double[size];
+        this.averageMinor = new long[size];
+        this.count = new long[size];
+        this.mean = new double[size];
+        this.stdDev = new double[size];
+        this.recentTransactions = new int[size];
+        this.recentCounterparties = new int[size];
+        this.newCounterparty = new boolean[size];
+    }
+
+    /** Fills the stateless columns of {@code row}; {@code account} is its state before the transaction. */
+    void load(int row, Account account, Transaction transaction) {
+        amountMinor[row] = transaction.getAmount().getMinorUnits();
+        amount[row] = transaction.getAmount().toDouble();
+        averageMinor[row] = account.getAvgTransactionAmount() == null ? 0 : account.getAvgTransactionAmount().getMinorUnits();
+        long n = account.getTransactionCount();
+        count[row] = n;
+        mean[row] = n > 0 ? account.getTransactionSum().toDouble() / n : 0.0;
+        stdDev[row] = Math.sqrt(account.getAmountVariance());
+    }
+}
@@ -0,0 +1,65 @@
+package com.bank.service;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Settings for {@link FraudScoringPipeline}. Every value can be overridden with a
+ * {@code bank.fraud.*} system property. Scoring is synchronous unless {@code bank.fraud.async=true}.
+ */
+public class FraudPipelineConfig {
+    private boolean asynchronous = false;
+    private int workers = 2;
+    private int queueCapacity = 10_000;
+    private int maxBatchSize = 256;
+    private Set<FraudRule> blockingRules = EnumSet.of(FraudRule.AMOUNT_ANOMALY);
+
+    public FraudPipelineConfig() {}
+
+    public static FraudPipelineConfig fromSystemProperties() {
+        FraudPipelineConfig config = new FraudPipelineConfig();
+        config.asynchronous = Boolean.parseBoolean(System.getProperty("bank.fraud.async", String.valueOf(config.asynchronous)));
+        config.workers = Integer.getInteger("bank.fraud.workers", config.workers);
+        config.queueCapacity = Integer.getInteger("bank.fraud.queueCapacity", config.queueCapacity);
+        config.maxBatchSize = Integer.getInteger("bank.fraud.batchSize", config.maxBatchSize);
+        String rules = System.getProperty("bank.fraud.blockingRules");
+        if (rules != null) {
+            config.blockingRules = parseRules(rules);
+        }
+        return config;
+    }
+
+    // Comma-separated FraudRule names or keys; "none" or an empty string means no rule blocks.
+    private static Set<FraudRule> parseRules(String value) {
+        Set<FraudRule> rules = EnumSet.noneOf(FraudRule.class);
+        for (String name : value.split(",")) {
+            String trimmed = name.trim();
+            if (!trimmed.isEmpty() && !trimmed.equalsIgnoreCase("NONE")) {
+                rules.add(FraudRule.parse(trimmed));
+            }
+        }
+        return rules;
+    }
+
+    // --- Getters and Setters ---
+    public boolean isAsynchronous() { return asynchronous; }
+    public void setAsynchronous(boolean asynchronous) { this.asynchronous = asynchronous; }
+    public int getWorkers() { return workers; }
+    public void setWorkers(int workers) { this.workers = workers; }
+    public int getQueueCapacity() { return queueCapacity; }
+    public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+    public int getMaxBatchSize() { return maxBatchSize; }
+    public void setMaxBatchSize(int maxBatchSize) { this.maxBatchSize = maxBatchSize; }
+    /**
+     * Rules that still run on the caller's thread, before the commit. Deferring AMOUNT_ANOMALY is
+     * allowed, but a deferred check compares against the committed average, which may still
+     * include earlier outliers that are waiting to be flagged.
+     */
+    public Set<FraudRule> getBlockingRules() { return blockingRules; }
+    public void setBlockingRules(Set<FraudRule> blockingRules) { this.blockingRules = blockingRules.isEmpty() ? EnumSet.noneOf(FraudRule.class) : EnumSet.copyOf(blockingRules); }
+
+    @Override
+    public String toString() {
+        return "FraudPipelineConfig{" + "asynchronous=" + asynchronous + ", workers=" + workers + ", queueCapacity=" + queueCapacity + ", maxBatchSize=" + maxBatchSize + ", blockingRules=" + blockingRules + '}';
+    }
+}
@@ -0,0 +1,48 @@
+package com.bank.service;
+
+import java.util.Locale;
+
+/**
+ * The checks {@link FraudDetectionService} can run. Which of them run, in which order and with
+ * which thresholds is set by {@link FraudRuleConfig}; the first rule in that order that fires
+ * decides the flag reason.
+ */
+public enum FraudRule {
+    /** Too many transactions on the account within the sliding window. */
+    VELOCITY("velocity", "High transaction frequency detected."),
+    /** Amount far above the account's running average. */
+    AMOUNT_ANOMALY("amountAnomaly", "Transaction amount is significantly higher than average."),
+    /** Amount too many standard deviations above the account's mean (Welford variance). */
+    Z_SCORE("zScore", "Transaction amount is a statistical outlier for this account."),
+    /** Transfers to too many different accounts within the sliding window. */
+    FAN_OUT("fanOut", "Transfers to an unusual number of different accounts.");
+
+    private final String key;
+    private final String reason;
+
+    FraudRule(String key, String reason) {
+        this.key = key;
+        this.reason = reason;
+    }
+
+    /** Name of the rule in configuration keys and metric names. */
+    public String getKey() {
+        return key;
+    }
+
+    /** The reasonForFlag recorded on transactions this rule flags. */
+    public String getReason() {
+        return reason;
+    }
+
+    /** Looks a rule up by its constant name ({@code Z_SCORE}) or its key ({@code zScore}). */
+    public static FraudRule parse(String name) {
+        String trimmed = name.trim();
+        for (FraudRule rule : values()) {
+            if (rule.key.equalsIgnoreCase(trimmed) || rule.name().equals(trimmed.toUpperCase(Locale.ROOT))) {
+                return rule;
+            }
+        }
+        throw new IllegalArgumentException("Unknown fraud rule: " + name);
+    }
+}
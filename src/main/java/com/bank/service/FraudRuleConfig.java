@@ -0,0 +1,181 @@
+package com.bank.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * The fraud rule set: which {@link FraudRule rules} run, in which order, and their thresholds.
+ * Every value can be set with a {@code bank.fraud.<key>} system property, e.g.
+ * {@code -Dbank.fraud.rules=velocity,zScore,amountAnomaly} or
+ * {@code -Dbank.fraud.velocity.limit=20}. With {@code bank.fraud.rulesFile} the same keys (without
+ * the {@code bank.fraud.} prefix) are also read from that properties file, which overrides the
+ * system properties and is re-read every {@code bank.fraud.rulesReloadMillis} when it changes.
+ */
+public class FraudRuleConfig {
+    private static final String PREFIX = "bank.fraud.";
+    /** Decimal places allowed in the amount anomaly multiplier. */
+    static final int AMOUNT_MULTIPLIER_SCALE = 4;
+
+    private List<FraudRule> rules = new ArrayList<>(List.of(FraudRule.VELOCITY, FraudRule.AMOUNT_ANOMALY));
+    private long velocityWindowMillis = 5 * 60 * 1000;
+    private int velocityLimit = 10;
+    private BigDecimal amountMultiplier = BigDecimal.valueOf(5);
+    private double zScoreThreshold = 4.0;
+    private long zScoreMinSamples = 30;
+    private long fanOutWindowMillis = 10 * 60 * 1000;
+    private int fanOutLimit = 5;
+    private int maxTrackedAccounts = 100_000;
+    private Path rulesFile;
+    private long reloadIntervalMillis = 5_000;
+
+    public FraudRuleConfig() {}
+
+    public static FraudRuleConfig fromSystemProperties() {
+        FraudRuleConfig config = fromSystemPropertiesOnly();
+        String file = System.getProperty(PREFIX + "rulesFile");
+        if (file != null && !file.isEmpty()) {
+            config.rulesFile = Paths.get(file);
+            config.reloadIntervalMillis = Long.getLong(PREFIX + "rulesReloadMillis", config.reloadIntervalMillis);
+            try {
+                config.apply(readProperties(config.rulesFile), "");
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Cannot read fraud rules from " + file + ": " + e.getMessage(), e);
+            }
+        }
+        config.validate();
+        return config;
+    }
+
+    /**
+     * The system property settings overridden by the current contents of {@link #getRulesFile()};
+     * this is what a hot reload installs.
+     *
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a value in it is invalid
+     */
+    public FraudRuleConfig reload() throws IOException {
+        FraudRuleConfig config = fromSystemPropertiesOnly();
+        config.rulesFile = rulesFile;
+        config.reloadIntervalMillis = reloadIntervalMillis;
+        if (rulesFile != null) {
+            config.apply(readProperties(rulesFile), "");
+        }
+        config.validate();
+        return config;
+    }
+
+    private static FraudRuleConfig fromSystemPropertiesOnly() {
+        FraudRuleConfig config = new FraudRuleConfig();
+        config.apply(System.getProperties(), PREFIX);
+        return config;
+    }
+
+    private static Properties readProperties(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        return properties;
+    }
+
+    private void apply(Properties properties, String prefix) {
+        String ruleList = properties.getProperty(prefix + "rules");
+        if (ruleList != null) {
+            rules = new ArrayList<>();
+            for (String name : ruleList.split(",")) {
+                if (!name.trim().isEmpty() && !name.trim().equalsIgnoreCase("none")) {
+                    FraudRule rule = FraudRule.parse(name);
+                    if (!rules.contains(rule)) {
+                        rules.add(rule);
+                    }
+                }
+            }
+        }
+        velocityWindowMillis = getLong(properties, prefix + "velocity.windowMillis", velocityWindowMillis);
+        velocityLimit = (int) getLong(properties, prefix + "velocity.limit", velocityLimit);
+        String multiplier = properties.getProperty(prefix + "amountAnomaly.multiplier");
+        if (multiplier != null) {
+            amountMultiplier = new BigDecimal(multiplier.trim());
+        }
+        zScoreThreshold = Double.parseDouble(properties.getProperty(prefix + "zScore.threshold", String.valueOf(zScoreThreshold)).trim());
+        zScoreMinSamples = getLong(properties, prefix + "zScore.minSamples", zScoreMinSamples);
+        fanOutWindowMillis = getLong(properties, prefix + "fanOut.windowMillis", fanOutWindowMillis);
+        fanOutLimit = (int) getLong(properties, prefix + "fanOut.limit", fanOutLimit);
+        maxTrackedAccounts = (int) getLong(properties, prefix + "maxTrackedAccounts", maxTrackedAccounts);
+    }
+
+    private static long getLong(Properties properties, String key, long defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    /**
+     * @throws IllegalArgumentException if a threshold is out of range
+     */
+    public void validate() {
+        if (velocityWindowMillis <= 0 || velocityLimit < 1 || !isValidAmountMultiplier() || zScoreThreshold <= 0 || zScoreMinSamples < 2
+                || fanOutWindowMillis <= 0 || fanOutLimit < 1 || maxTrackedAccounts < 1) {
+            throw new IllegalArgumentException("Invalid fraud rule settings: " + this);
+        }
+    }
+
+    // At least 1, with no more decimals than AMOUNT_MULTIPLIER_SCALE, and small enough to scale into a long.
+    private boolean isValidAmountMultiplier() {
+        if (amountMultiplier == null || amountMultiplier.compareTo(BigDecimal.ONE) < 0
+                || amountMultiplier.stripTrailingZeros().scale() > AMOUNT_MULTIPLIER_SCALE) {
+            return false;
+        }
+        return amountMultiplier.movePointRight(AMOUNT_MULTIPLIER_SCALE).compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) <= 0;
+    }
+
+    // --- Getters and Setters ---
+    /** Rules to run, in evaluation order. */
+    public List<FraudRule> getRules() { return Collections.unmodifiableList(rules); }
+    public void setRules(List<FraudRule> rules) { this.rules = new ArrayList<>(rules); }
+    public long getVelocityWindowMillis() { return velocityWindowMillis; }
+    public void setVelocityWindowMillis(long velocityWindowMillis) { this.velocityWindowMillis = velocityWindowMillis; }
+    /** VELOCITY fires when the window already holds this many transactions. */
+    public int getVelocityLimit() { return velocityLimit; }
+    public void setVelocityLimit(int velocityLimit) { this.velocityLimit = velocityLimit; }
+    /** AMOUNT_ANOMALY fires above this multiple of the account's average amount, e.g. 2.5; up to four decimals. */
+    public BigDecimal getAmountMultiplier() { return amountMultiplier; }
+    public void setAmountMultiplier(BigDecimal amountMultiplier) { this.amountMultiplier = amountMultiplier; }
+    /** The multiplier in ten-thousandths, as the check compares it. */
+    long getScaledAmountMultiplier() { return amountMultiplier.movePointRight(AMOUNT_MULTIPLIER_SCALE).longValueExact(); }
+    /** Z_SCORE fires when the amount is more than this many standard deviations above the mean. */
+    public double getZScoreThreshold() { return zScoreThreshold; }
+    public void setZScoreThreshold(double zScoreThreshold) { this.zScoreThreshold = zScoreThreshold; }
+    /** Z_SCORE stays quiet until the account has this many unflagged transactions. */
+    public long getZScoreMinSamples() { return zScoreMinSamples; }
+    public void setZScoreMinSamples(long zScoreMinSamples) { this.zScoreMinSamples = zScoreMinSamples; }
+    public long getFanOutWindowMillis() { return fanOutWindowMillis; }
+    public void setFanOutWindowMillis(long fanOutWindowMillis) { this.fanOutWindowMillis = fanOutWindowMillis; }
+    /** FAN_OUT fires on a transfer to a new destination once this many destinations were paid in the window. */
+    public int getFanOutLimit() { return fanOutLimit; }
+    public void setFanOutLimit(int fanOutLimit) { this.fanOutLimit = fanOutLimit; }
+    /** Accounts whose velocity and fan-out windows are kept in memory. */
+    public int getMaxTrackedAccounts() { return maxTrackedAccounts; }
+    public void setMaxTrackedAccounts(int maxTrackedAccounts) { this.maxTrackedAccounts = maxTrackedAccounts; }
+    /** Properties file re-read on change, or null. */
+    public Path getRulesFile() { return rulesFile; }
+    public void setRulesFile(Path rulesFile) { this.rulesFile = rulesFile; }
+    public long getReloadIntervalMillis() { return reloadIntervalMillis; }
+    public void setReloadIntervalMillis(long reloadIntervalMillis) { this.reloadIntervalMillis = reloadIntervalMillis; }
+
+    @Override
+    public String toString() {
+        return "FraudRuleConfig{" + "rules=" + rules + ", velocityWindowMillis=" + velocityWindowMillis + ", velocityLimit=" + velocityLimit +
+                ", amountMultiplier=" + amountMultiplier + ", zScoreThreshold=" + zScoreThreshold + ", zScoreMinSamples=" + zScoreMinSamples +
+                ", fanOutWindowMillis=" + fanOutWindowMillis + ", fanOutLimit=" + fanOutLimit + ", maxTrackedAccounts=" + maxTrackedAccounts +
+                ", rulesFile=" + rulesFile + '}';
+    }
+}
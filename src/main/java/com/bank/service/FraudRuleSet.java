@@ -0,0 +1,122 @@
+package com.bank.service;
+
+import java.math.BigInteger;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A {@link FraudRuleConfig} compiled into an array of checks with their thresholds bound as
+ * constants. Immutable, so a reload swaps in a new set without coordinating with running checks.
+ */
+final class FraudRuleSet {
+
+    // The amount anomaly multiplier's denominator: 1 in ten-thousandths.
+    private static final long MULTIPLIER_UNIT = BigInteger.TEN.pow(FraudRuleConfig.AMOUNT_MULTIPLIER_SCALE).longValueExact();
+
+    /** Tests one rule against every row of a batch. */
+    interface Check {
+        void evaluate(FraudFeatures features, boolean[] hits);
+    }
+
+    private final FraudRuleConfig config;
+    private final FraudRule[] rules;
+    private final Check[] checks;
+    private final Set<FraudRule> enabled = EnumSet.noneOf(FraudRule.class);
+
+    private FraudRuleSet(FraudRuleConfig config) {
+        this.config = config;
+        List<FraudRule> configured = config.getRules();
+        this.rules = configured.toArray(new FraudRule[0]);
+        this.checks = new Check[rules.length];
+        for (int r = 0; r < rules.length; r++) {
+            checks[r] = compile(rules[r], config);
+            enabled.add(rules[r]);
+        }
+    }
+
+    static FraudRuleSet compile(FraudRuleConfig config) {
+        config.validate();
+        return new FraudRuleSet(config);
+    }
+
+    private static Check compile(FraudRule rule, FraudRuleConfig config) {
+        switch (rule) {
+            case VELOCITY: {
+                int limit = config.getVelocityLimit();
+                return (f, hits) -> {
+                    int[] recent = f.recentTransactions;
+                    for (int i = 0; i < f.size; i++) {
+                        hits[i] = recent[i] >= limit;
+                    }
+                };
+            }
+            case AMOUNT_ANOMALY: {
+                long multiplier = config.getScaledAmountMultiplier();
+                return (f, hits) -> {
+                    long[] amount = f.amountMinor;
+                    long[] average = f.averageMinor;
+                    for (int i = 0; i < f.size; i++) {
+                        hits[i] = average[i] > 0 && exceedsMultiple(amount[i], average[i], multiplier);
+                    }
+                };
+            }
+            case Z_SCORE: {
+                double threshold = config.getZScoreThreshold();
+                long minSamples = config.getZScoreMinSamples();
+                return (f, hits) -> {
+                    double[] amount = f.amount;
+                    double[] mean = f.mean;
+                    double[] stdDev = f.stdDev;
+                    long[] count = f.count;
+                    for (int i = 0; i < f.size; i++) {
+                        // Compared without dividing, so a zero deviation never fires.
+                        hits[i] = count[i] >= minSamples && amount[i] - mean[i] > threshold * stdDev[i] && stdDev[i] > 0;
+                    }
+                };
+            }
+            case FAN_OUT: {
+                int limit = config.getFanOutLimit();
+                return (f, hits) -> {
+                    int[] recent = f.recentCounterparties;
+                    boolean[] isNew = f.newCounterparty;
+                    for (int i = 0; i < f.size; i++) {
+                        hits[i] = isNew[i] && recent[i] >= limit;
+                    }
+                };
+            }
+            default:
+                throw new IllegalArgumentException("No check for fraud rule " + rule);
+        }
+    }
+
+    /**
+     * Whether {@code amount > average * scaledMultiplier / 10^scale}, compared exactly: both sides are
+     * multiplied out in whole numbers, falling back to BigInteger only when a product overflows.
+     */
+    static boolean exceedsMultiple(long amount, long average, long scaledMultiplier) {
+        try {
+            return Math.multiplyExact(amount, MULTIPLIER_UNIT) > Math.multiplyExact(average, scaledMultiplier);
+        } catch (ArithmeticException e) {
+            return BigInteger.valueOf(amount).multiply(BigInteger.valueOf(MULTIPLIER_UNIT))
+                    .compareTo(BigInteger.valueOf(average).multiply(BigInteger.valueOf(scaledMultiplier))) > 0;
+        }
+    }
+
+    FraudRuleConfig getConfig() {
+        return config;
+    }
+
+    /** The configured rules, in evaluation order. */
+    FraudRule[] getRules() {
+        return rules;
+    }
+
+    Check getCheck(int index) {
+        return checks[index];
+    }
+
+    boolean isEnabled(FraudRule rule) {
+        return enabled.contains(rule);
+    }
+}
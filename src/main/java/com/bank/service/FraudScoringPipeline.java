@@ -0,0 +1,449 @@
+package com.bank.service;
+
+import com.bank.dao.AccountRepository;
+import com.bank.model.Account;
+import com.bank.model.Transaction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+/**
+ * Scores transactions for fraud after they have been committed, so the caller does not wait for
+ * the deferred rules.
+ *
+ * <ul>
+ *   <li>{@link #screen} runs the blocking rules on the caller's thread before the commit; every
+ *       other rule is deferred.</li>
+ *   <li>{@link #submit} hands the committed transaction to a worker. Each worker owns a bounded
+ *       queue and the accounts that hash to it, so one account's transactions are scored in
+ *       commit order.</li>
+ *   <li>Workers drain their queue in micro-batches, and a batch's flags are written with one
+ *       {@link AccountRepository#flagTransactions} call. That call also takes the amounts back out
+ *       of the account averages, so those end up as if the transactions had been flagged inline.
+ *       A write that fails is kept and retried by the workers with exponential backoff, so the
+ *       verdict is not lost; {@link Stats#getPendingFlags} counts the flags still waiting.</li>
+ *   <li>Backpressure: a submitter whose worker's queue is full waits for room, for as long as it
+ *       takes or until {@link #close}. Scoring on the submitter's thread instead would let the
+ *       transaction overtake the account's earlier ones still in the queue.</li>
+ * </ul>
+ */
+public class FraudScoringPipeline implements AutoCloseable {
+
+    private static final long POLL_MILLIS = 100;
+    private static final long FLAG_RETRY_MIN_MILLIS = 100;
+    private static final long FLAG_RETRY_MAX_MILLIS = 30_000;
+
+    private final FraudDetectionService fraudDetectionService;
+    private final AccountRepository accountRepository;
+    private final IntConsumer onAccountChanged;
+    private final Set<FraudRule> blockingRules;
+    private final Set<FraudRule> deferredRules;
+    private final int maxBatchSize;
+    private final List<ArrayBlockingQueue<Entry>> queues = new ArrayList<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running = true;
+
+    // Flags whose write failed, in the order they failed; guarded by itself, as are the three fields below.
+    private final List<Transaction> pendingFlags = new ArrayList<>();
+    private boolean retryingFlags;
+    private long flagRetryDelayMillis = FLAG_RETRY_MIN_MILLIS;
+    private long nextFlagRetryMillis;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong scored = new AtomicLong();
+    private final AtomicLong flagged = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong blockedSubmits = new AtomicLong();
+    private final AtomicLong callerRuns = new AtomicLong();
+    private final AtomicLong failedWrites = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicLong totalLagNanos = new AtomicLong();
+    private final AtomicLong maxLagNanos = new AtomicLong();
+
+    /**
+     * @param onAccountChanged called with the id of every account whose aggregates were changed by
+     *                         a late flag, e.g. to invalidate a cache
+     */
+    public FraudScoringPipeline(FraudDetectionService fraudDetectionService, AccountRepository accountRepository, FraudPipelineConfig config, IntConsumer onAccountChanged) {
+        if (config.getWorkers() < 1 || config.getQueueCapacity() < config.getWorkers() || config.getMaxBatchSize() < 1) {
+            throw new IllegalArgumentException("Invalid fraud pipeline bounds: " + config);
+        }
+        this.fraudDetectionService = fraudDetectionService;
+        this.accountRepository = accountRepository;
+        this.onAccountChanged = onAccountChanged;
+        this.blockingRules = EnumSet.noneOf(FraudRule.class);
+        this.blockingRules.addAll(config.getBlockingRules());
+        this.deferredRules = EnumSet.allOf(FraudRule.class);
+        this.deferredRules.removeAll(blockingRules);
+        this.maxBatchSize = config.getMaxBatchSize();
+
+        int perWorker = config.getQueueCapacity() / config.getWorkers();
+        for (int i = 0; i < config.getWorkers(); i++) {
+            ArrayBlockingQueue<Entry> queue = new ArrayBlockingQueue<>(perWorker);
+            Thread worker = new Thread(() -> runWorker(queue), "fraud-scorer-" + i);
+            worker.setDaemon(true);
+            queues.add(queue);
+            workers.add(worker);
+        }
+        workers.forEach(Thread::start);
+    }
+
+    /**
+     * Runs the blocking rules against a transaction that is about to be committed. {@code account}
+     * is its state before the transaction; {@code counterpartyId} is the destination of a transfer,
+     * or {@link FraudDetectionService#NO_COUNTERPARTY}.
+     */
+    public Transaction screen(Account account, Transaction transaction, int counterpartyId) {
+        if (deferredRules.contains(FraudRule.VELOCITY)) {
+            // Seed the velocity window now: seeded after the commit, it would count this transaction twice.
+            fraudDetectionService.preloadVelocity(Collections.singletonList(account.getAccountId()));
+        }
+        return fraudDetectionService.checkForFraud(account, transaction, counterpartyId, blockingRules, System.currentTimeMillis());
+    }
+
+    /**
+     * Queues a committed transaction for the deferred rules.
+     *
+     * @param before the account as it was before the transaction; kept by the pipeline, so the
+     *               caller must not change it afterwards
+     * @param linked the other leg of a transfer, flagged together with {@code transaction}; or null
+     */
+    public void submit(Account before, Transaction transaction, Transaction linked) {
+        if (deferredRules.isEmpty()) {
+            return;
+        }
+        Entry entry = new Entry(before, new Transaction(transaction), linked == null ? null : new Transaction(linked));
+        submitted.incrementAndGet();
+        if (!running) {
+            callerRuns.incrementAndGet();
+            score(Collections.singletonList(entry));
+            return;
+        }
+        ArrayBlockingQueue<Entry> queue = queues.get(Math.floorMod(before.getAccountId(), queues.size()));
+        if (queue.offer(entry)) {
+            return;
+        }
+        blockedSubmits.incrementAndGet();
+        boolean interrupted = false;
+        try {
+            // The transaction is committed and must not be dropped: an interrupt is restored once it is queued.
+            while (running) {
+                try {
+                    if (queue.offer(entry, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Closed while waiting: the worker may be gone, so the queue is no longer a safe place.
+        callerRuns.incrementAndGet();
+        score(Collections.singletonList(entry));
+    }
+
+    private void runWorker(ArrayBlockingQueue<Entry> queue) {
+        List<Entry> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                retryPendingFlags(false);
+                Entry first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                score(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                System.err.println("Fraud scoring failed for a batch of " + batch.size() + ": " + e.getMessage());
+                e.printStackTrace();
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void score(List<Entry> batch) {
+        try {
+            // The whole micro-batch is scored in one call, rule by rule over all its rows.
+            int size = batch.size();
+            Account[] accounts = new Account[size];
+            Transaction[] verdicts = new Transaction[size];
+            int[] counterparties = new int[size];
+            long[] committedAt = new long[size];
+            for (int i = 0; i < size; i++) {
+                Entry entry = batch.get(i);
+                accounts[i] = entry.account;
+                // Score a copy: the velocity rule must still record a transaction the blocking rules flagged.
+                verdicts[i] = new Transaction(entry.transaction);
+                counterparties[i] = entry.linked == null ? FraudDetectionService.NO_COUNTERPARTY : entry.linked.getAccountId();
+                committedAt[i] = entry.committedAtMillis;
+            }
+            fraudDetectionService.score(accounts, verdicts, counterparties, committedAt, deferredRules);
+
+            List<Transaction> toFlag = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                Entry entry = batch.get(i);
+                Transaction verdict = verdicts[i];
+                if (!entry.transaction.isFlagged() && verdict.isFlagged()) {
+                    toFlag.add(verdict);
+                    if (entry.linked != null) {
+                        entry.linked.setFlagged(true);
+                        entry.linked.setReasonForFlag(verdict.getReasonForFlag());
+                        toFlag.add(entry.linked);
+                    }
+                }
+            }
+            if (!toFlag.isEmpty() && !writeFlags(toFlag)) {
+                System.err.println("Could not record " + toFlag.size() + " fraud flags; they will be retried.");
+                synchronized (pendingFlags) {
+                    pendingFlags.addAll(toFlag);
+                    backOffFlagRetry();
+                }
+            }
+        } catch (RuntimeException e) {
+            failedBatches.incrementAndGet();
+            throw e;
+        } finally {
+            // Counted even when scoring failed, so awaitScored() does not wait for a batch that is gone.
+            long now = System.nanoTime();
+            for (Entry entry : batch) {
+                long lag = now - entry.committedAtNanos;
+                totalLagNanos.addAndGet(lag);
+                maxLagNanos.accumulateAndGet(lag, Math::max);
+            }
+            batches.incrementAndGet();
+            scored.addAndGet(batch.size());
+        }
+    }
+
+    /** @return false if the write failed */
+    private boolean writeFlags(List<Transaction> toFlag) {
+        int written = accountRepository.flagTransactions(toFlag);
+        if (written < 0) {
+            failedWrites.incrementAndGet();
+            return false;
+        }
+        flagged.addAndGet(written);
+        Set<Integer> changedAccounts = new TreeSet<>();
+        for (Transaction transaction : toFlag) {
+            changedAccounts.add(transaction.getAccountId());
+        }
+        changedAccounts.forEach(onAccountChanged::accept);
+        return true;
+    }
+
+    /**
+     * Writes the pending flags again, once their backoff has passed. They stay pending until the
+     * write succeeds, and only one thread retries at a time. Flagging skips rows already flagged,
+     * so writing a flag again is safe.
+     */
+    private void retryPendingFlags(boolean ignoreBackoff) {
+        List<Transaction> retry;
+        synchronized (pendingFlags) {
+            if (retryingFlags || pendingFlags.isEmpty() || (!ignoreBackoff && System.currentTimeMillis() < nextFlagRetryMillis)) {
+                return;
+            }
+            retryingFlags = true;
+            retry = new ArrayList<>(pendingFlags);
+        }
+        boolean written = false;
+        try {
+            written = writeFlags(retry);
+        } finally {
+            synchronized (pendingFlags) {
+                retryingFlags = false;
+                if (written) {
+                    // Flags that failed meanwhile were appended after these.
+                    pendingFlags.subList(0, retry.size()).clear();
+                    flagRetryDelayMillis = FLAG_RETRY_MIN_MILLIS;
+                } else {
+                    backOffFlagRetry();
+                }
+            }
+        }
+    }
+
+    // Called holding pendingFlags: the next retry waits for the current delay, which then doubles.
+    private void backOffFlagRetry() {
+        nextFlagRetryMillis = System.currentTimeMillis() + flagRetryDelayMillis;
+        flagRetryDelayMillis = Math.min(flagRetryDelayMillis * 2, FLAG_RETRY_MAX_MILLIS);
+    }
+
+    /** Transactions submitted but not scored yet. */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (ArrayBlockingQueue<Entry> queue : queues) {
+            depth += queue.size();
+        }
+        return depth;
+    }
+
+    /**
+     * Waits until every transaction submitted so far has been scored.
+     *
+     * @return false if that did not happen within {@code timeoutMillis}
+     */
+    public boolean awaitScored(long timeoutMillis) throws InterruptedException {
+        long target = submitted.get();
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (scored.get() < target) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    /** Stops accepting work in the background, scores everything still queued and stops the workers. */
+    @Override
+    public void close() {
+        running = false;
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        // A submit that raced with close() may have queued after its worker exited.
+        List<Entry> leftover = new ArrayList<>();
+        for (ArrayBlockingQueue<Entry> queue : queues) {
+            queue.drainTo(leftover);
+        }
+        if (!leftover.isEmpty()) {
+            score(leftover);
+        }
+        retryPendingFlags(true);
+        List<Integer> unrecorded = getPendingFlagIds();
+        if (!unrecorded.isEmpty()) {
+            System.err.println("Fraud flags still not recorded at shutdown, transaction ids: " + unrecorded);
+        }
+    }
+
+    /** Ids of the transactions whose flag could not be written yet and is waiting to be retried. */
+    public List<Integer> getPendingFlagIds() {
+        List<Integer> ids = new ArrayList<>();
+        synchronized (pendingFlags) {
+            for (Transaction transaction : pendingFlags) {
+                ids.add(transaction.getTransactionId());
+            }
+        }
+        return ids;
+    }
+
+    public Stats getStats() {
+        long oldestNanos = Long.MAX_VALUE;
+        for (ArrayBlockingQueue<Entry> queue : queues) {
+            Entry head = queue.peek();
+            if (head != null) {
+                oldestNanos = Math.min(oldestNanos, head.committedAtNanos);
+            }
+        }
+        long currentLag = oldestNanos == Long.MAX_VALUE ? 0 : System.nanoTime() - oldestNanos;
+        int pending;
+        synchronized (pendingFlags) {
+            pending = pendingFlags.size();
+        }
+        return new Stats(getQueueDepth(), submitted.get(), scored.get(), flagged.get(), batches.get(), blockedSubmits.get(), callerRuns.get(), failedWrites.get(),
+                pending, failedBatches.get(),
+                TimeUnit.NANOSECONDS.toMillis(currentLag), totalLagNanos.get(), TimeUnit.NANOSECONDS.toMillis(maxLagNanos.get()));
+    }
+
+    private static final class Entry {
+        private final Account account;
+        private final Transaction transaction;
+        private final Transaction linked;
+        private final long committedAtMillis = System.currentTimeMillis();
+        private final long committedAtNanos = System.nanoTime();
+
+        private Entry(Account account, Transaction transaction, Transaction linked) {
+            this.account = account;
+            this.transaction = transaction;
+            this.linked = linked;
+        }
+    }
+
+    /** Point-in-time snapshot of the pipeline counters. */
+    public static final class Stats {
+        private final int queueDepth;
+        private final long submitted;
+        private final long scored;
+        private final long flagged;
+        private final long batches;
+        private final long blockedSubmits;
+        private final long callerRuns;
+        private final long failedWrites;
+        private final int pendingFlags;
+        private final long failedBatches;
+        private final long currentLagMillis;
+        private final long totalLagNanos;
+        private final long maxLagMillis;
+
+        private Stats(int queueDepth, long submitted, long scored, long flagged, long batches, long blockedSubmits, long callerRuns, long failedWrites,
+                      int pendingFlags, long failedBatches, long currentLagMillis, long totalLagNanos, long maxLagMillis) {
+            this.queueDepth = queueDepth;
+            this.submitted = submitted;
+            this.scored = scored;
+            this.flagged = flagged;
+            this.batches = batches;
+            this.blockedSubmits = blockedSubmits;
+            this.callerRuns = callerRuns;
+            this.failedWrites = failedWrites;
+            this.pendingFlags = pendingFlags;
+            this.failedBatches = failedBatches;
+            this.currentLagMillis = currentLagMillis;
+            this.totalLagNanos = totalLagNanos;
+            this.maxLagMillis = maxLagMillis;
+        }
+
+        // --- Getters ---
+        public int getQueueDepth() { return queueDepth; }
+        public long getSubmitted() { return submitted; }
+        /** Transactions whose scoring has finished, including those of failed batches. */
+        public long getScored() { return scored; }
+        /** Transactions flagged after their commit. */
+        public long getFlagged() { return flagged; }
+        public long getBatches() { return batches; }
+        /** Submits that found their queue full and had to wait. */
+        public long getBlockedSubmits() { return blockedSubmits; }
+        /** Submits made or still waiting for room when the pipeline was closed, scored on the caller's thread. */
+        public long getCallerRuns() { return callerRuns; }
+        /** Flag writes that failed, retries included. */
+        public long getFailedWrites() { return failedWrites; }
+        /** Flags whose write failed and that are waiting to be retried. */
+        public int getPendingFlags() { return pendingFlags; }
+        /** Batches whose scoring threw; their transactions were not scored by the deferred rules. */
+        public long getFailedBatches() { return failedBatches; }
+        /** Age of the oldest transaction still waiting to be scored. */
+        public long getCurrentLagMillis() { return currentLagMillis; }
+        public long getMaxLagMillis() { return maxLagMillis; }
+
+        /** Mean time from commit to scored, over everything scored so far. */
+        public double getMeanLagMillis() {
+            return scored == 0 ? 0.0 : totalLagNanos / 1_000_000.0 / scored;
+        }
+
+        @Override
+        public String toString() {
+            return "FraudPipelineStats{" + "queueDepth=" + queueDepth + ", submitted=" + submitted + ", scored=" + scored + ", flagged=" + flagged + ", batches=" + batches + ", blockedSubmits=" + blockedSubmits + ", callerRuns=" + callerRuns + ", failedWrites=" + failedWrites + ", pendingFlags=" + pendingFlags + ", failedBatches=" + failedBatches + ", currentLagMillis=" + currentLagMillis + ", meanLagMillis=" + String.format("%.3f", getMeanLagMillis()) + ", maxLagMillis=" + maxLagMillis + '}';
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.bank.dao;
+
+import com.bank.model.Account;
+import com.bank.model.Money;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** CLOCK eviction keeps accounts that were used, and concurrent hits and writes keep the cache bounded and versions monotonic. */
+class AccountCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void evictionSparesRecentlyUsedAccounts() {
+        AccountCache cache = new AccountCache(3, 60_000, this::load);
+        cache.get(1);
+        cache.get(2);
+        cache.get(3);
+        assertTrue(cache.get(1).isPresent());
+
+        // Over capacity: 1 was hit since it was added, so 2 goes.
+        cache.get(4);
+        assertEquals(3, cache.size());
+        assertTrue(cache.getIfPresent(1).isPresent());
+        assertFalse(cache.getIfPresent(2).isPresent());
+        assertTrue(cache.getIfPresent(3).isPresent());
+        assertTrue(cache.getIfPresent(4).isPresent());
+        assertEquals(1, cache.getStats().getEvictions());
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void olderVersionNeverReplacesNewer() {
+        AccountCache cache = new AccountCache(10, 60_000, this::load);
+        cache.put(account(7, 5, "50.00"));
+        cache.put(account(7, 4, "40.00"));
+        assertEquals(Money.parse("50.00"), cache.get(7).orElseThrow().getBalance());
+        cache.put(account(7, 6, "60.00"));
+        assertEquals(Money.parse("60.00"), cache.get(7).orElseThrow().getBalance());
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    void concurrentHitsAndWritesStayBoundedAndMonotonic() throws Exception {
+        int maxSize = 64;
+        int accounts = 256;
+        AccountCache cache = new AccountCache(maxSize, 60_000, this::load);
+        // Per account, the last version whose put() has returned. A read may not see less, unless the
+        // entry was evicted and loaded again as version 0.
+        AtomicInteger[] written = new AtomicInteger[accounts + 1];
+        for (int i = 1; i <= accounts; i++) {
+            written[i] = new AtomicInteger();
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 20_000; i++) {
+                    // Most traffic goes to a few hot accounts.
+                    int accountId = random.nextInt(4) == 0 ? 1 + random.nextInt(accounts) : 1 + random.nextInt(4);
+                    if (random.nextInt(10) == 0) {
+                        synchronized (written[accountId]) {
+                            int version = written[accountId].get() + 1;
+                            cache.put(account(accountId, version, "1.00"));
+                            written[accountId].set(version);
+                        }
+                    } else {
+                        int before = written[accountId].get();
+                        Account read = cache.get(accountId).orElseThrow();
+                        assertEquals(accountId, read.getAccountId());
+                        assertTrue(read.getVersion() >= before || read.getVersion() == 0,
+                                () -> "account " + accountId + " went back from version " + before + " to " + read.getVersion());
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        assertTrue(cache.size() <= maxSize, "size " + cache.size());
+        AccountCache.Stats stats = cache.getStats();
+        assertTrue(stats.getHits() > stats.getMisses(), stats::toString);
+        assertTrue(stats.getEvictions() > 0, stats::toString);
+    }
+
+    // Loads version 0, as a row read before any write in the test.
+    private Optional<Account> load(int accountId) {
+        loads.incrementAndGet();
+        return Optional.of(account(accountId, 0, "0.00"));
+    }
+
+    private static Account account(int accountId, int version, String balance) {
+        Account account = new Account("Cached " + accountId, "Checking", Money.parse(balance));
+        account.setAccountId(accountId);
+        account.setVersion(version);
+        return account;
+    }
+}
@@ -0,0 +1,198 @@
+package com.bank.dao;
+
+import com.bank.exception.InsufficientFundsException;
+import com.bank.model.Account;
+import com.bank.model.Money;
+import com.bank.model.Transaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Concurrent credits and debits against one account: the balance must end at the initial
+ * balance plus every delta that was applied, never go below zero, and the account's aggregates
+ * must agree with the ledger rows written alongside the deltas. Opposing transfers between two
+ * accounts must all go through, retrying after a lock timeout, and conserve the money.
+ */
+class AccountDAOConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 150;
+    private static final Money INITIAL_BALANCE = Money.parse("50.00");
+
+    private AccountDAO accountDAO;
+    private TransactionDAO transactionDAO;
+
+    @BeforeEach
+    void setUp() {
+        TestDatabase.start();
+        accountDAO = new AccountDAO();
+        transactionDAO = new TransactionDAO();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestDatabase.stop();
+    }
+
+    @Test
+    void concurrentCreditsAndDebitsKeepBalanceAndAggregatesConsistent() throws Exception {
+        int accountId = accountDAO.createAccount(new Account("Concurrent", "Checking", INITIAL_BALANCE));
+        assertTrue(accountId > 0);
+
+        AtomicLong appliedDelta = new AtomicLong();
+        AtomicLong appliedCount = new AtomicLong();
+        AtomicLong appliedSum = new AtomicLong();
+        AtomicLong rejectedDebits = new AtomicLong();
+        List<String> negativeBalances = new ArrayList<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            long seed = t;
+            futures.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    Money amount = Money.ofMinor(1 + random.nextInt(2_500));
+                    boolean debit = random.nextInt(100) < 55;
+                    Account account = new Account();
+                    account.setAccountId(accountId);
+                    Transaction transaction = new Transaction(accountId, debit ? "WITHDRAWAL" : "DEPOSIT", amount);
+                    Optional<Money> balance;
+                    try {
+                        balance = debit
+                                ? accountDAO.applyDebit(account, amount, transaction)
+                                : accountDAO.applyCredit(account, amount, transaction);
+                    } catch (InsufficientFundsException e) {
+                        rejectedDebits.incrementAndGet();
+                        continue;
+                    }
+                    if (balance.isEmpty()) {
+                        continue;
+                    }
+                    if (balance.get().signum() < 0) {
+                        synchronized (negativeBalances) {
+                            negativeBalances.add(transaction + " left " + balance.get());
+                        }
+                    }
+                    appliedDelta.addAndGet(debit ? -amount.getMinorUnits() : amount.getMinorUnits());
+                    appliedCount.incrementAndGet();
+                    appliedSum.addAndGet(amount.getMinorUnits());
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        assertTrue(negativeBalances.isEmpty(), () -> "Debits overdrew the account: " + negativeBalances);
+        assertTrue(rejectedDebits.get() > 0, "the workload should run the account dry at least once");
+        assertTrue(appliedCount.get() > THREADS * OPERATIONS_PER_THREAD / 2, "most operations should be applied");
+
+        Account row = accountDAO.findAccountById(accountId).orElseThrow();
+        assertEquals(INITIAL_BALANCE.plus(Money.ofMinor(appliedDelta.get())), row.getBalance());
+        assertTrue(row.getBalance().signum() >= 0);
+
+        List<Transaction> ledger = transactionDAO.findTransactionsByAccountId(accountId);
+        long ledgerSum = 0;
+        long ledgerDelta = 0;
+        for (Transaction transaction : ledger) {
+            ledgerSum += transaction.getAmount().getMinorUnits();
+            ledgerDelta += transaction.isDebit() ? -transaction.getAmount().getMinorUnits() : transaction.getAmount().getMinorUnits();
+        }
+        assertEquals(appliedCount.get(), ledger.size());
+        assertEquals(appliedDelta.get(), ledgerDelta);
+        assertEquals(ledger.size(), row.getTransactionCount());
+        assertEquals(Money.ofMinor(ledgerSum), row.getTransactionSum());
+        assertEquals(Money.ofMinor(appliedSum.get()), row.getTransactionSum());
+        assertEquals(Money.average(row.getTransactionSum(), row.getTransactionCount()), row.getAvgTransactionAmount());
+    }
+
+    @Test
+    void opposingTransfersRetryLockTimeoutsAndConserveMoney() throws Exception {
+        TestDatabase.stop();
+        TestDatabase.start(TestDatabase.poolConfig(TestDatabase.newUrl().replace("LOCK_TIMEOUT=10000", "LOCK_TIMEOUT=1000")));
+        Account a = createAccount("A");
+        Account b = createAccount("B");
+
+        // Hold B's row past one lock timeout: the first attempt times out and the retry goes through.
+        long retriesBefore = AccountDAO.getTransferRetryCount();
+        CompletableFuture<Optional<Money>> blocked;
+        try (Connection lock = DatabaseConnector.getConnection(b.getAccountId())) {
+            lock.setAutoCommit(false);
+            try (PreparedStatement pstmt = lock.prepareStatement("SELECT balance FROM Accounts WHERE accountId = ? FOR UPDATE")) {
+                pstmt.setInt(1, b.getAccountId());
+                pstmt.executeQuery().close();
+            }
+            blocked = CompletableFuture.supplyAsync(() -> transfer(a.getAccountId(), b.getAccountId()));
+            Thread.sleep(1_500);
+            assertFalse(blocked.isDone());
+            lock.rollback();
+        }
+        assertTrue(blocked.get(10, TimeUnit.SECONDS).isPresent());
+        assertTrue(AccountDAO.getTransferRetryCount() > retriesBefore, "the lock timeout should have been retried");
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Long>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            boolean aToB = t % 2 == 0;
+            futures.add(executor.submit(() -> {
+                long failed = 0;
+                for (int i = 0; i < OPERATIONS_PER_THREAD / 3; i++) {
+                    Optional<Money> balance = aToB ? transfer(a.getAccountId(), b.getAccountId()) : transfer(b.getAccountId(), a.getAccountId());
+                    if (balance.isEmpty()) {
+                        failed++;
+                    }
+                }
+                return failed;
+            }));
+        }
+        for (Future<Long> future : futures) {
+            assertEquals(0, future.get(2, TimeUnit.MINUTES), "every transfer should go through");
+        }
+        executor.shutdown();
+
+        Money total = accountDAO.findAccountById(a.getAccountId()).orElseThrow().getBalance()
+                .plus(accountDAO.findAccountById(b.getAccountId()).orElseThrow().getBalance());
+        assertEquals(INITIAL_BALANCE.times(2), total);
+    }
+
+    private Account createAccount(String name) {
+        Account account = new Account(name, "Checking", INITIAL_BALANCE);
+        account.setAccountId(accountDAO.createAccount(account));
+        return account;
+    }
+
+    // A small amount, so neither side runs dry; the accounts are re-read by the DAO under their locks.
+    private Optional<Money> transfer(int fromId, int toId) {
+        Money amount = Money.parse("0.01");
+        Account from = new Account();
+        from.setAccountId(fromId);
+        Account to = new Account();
+        to.setAccountId(toId);
+        try {
+            return accountDAO.transfer(from, to, amount, new Transaction(fromId, "TRANSFER_OUT", amount), new Transaction(toId, "TRANSFER_IN", amount));
+        } catch (InsufficientFundsException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.bank.dao;
+
+import com.bank.exception.InsufficientFundsException;
+import com.bank.model.Account;
+import com.bank.model.Money;
+import com.bank.model.Transaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Credits, debits, transfers in both directions and folds against a hot account, between one
+ * account with a lower and one with a higher id: nothing may deadlock or fail, the hot account
+ * must never be overdrawn, and once its slots are folded every balance and aggregate must match
+ * the ledger.
+ */
+class BalanceSlotConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 150;
+    private static final int SLOTS = 4;
+    private static final Money INITIAL_BALANCE = Money.parse("50.00");
+
+    private AccountDAO accountDAO;
+    private TransactionDAO transactionDAO;
+
+    @BeforeEach
+    void setUp() {
+        TestDatabase.start();
+        accountDAO = new AccountDAO();
+        transactionDAO = new TransactionDAO();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestDatabase.stop();
+    }
+
+    @Test
+    void concurrentOperationsOnHotAccountKeepLedgerAndLockOrder() throws Exception {
+        int lower = createAccount("Lower");
+        int hot = createAccount("Hot");
+        int higher = createAccount("Higher");
+        assertTrue(lower < hot && hot < higher);
+        assertTrue(accountDAO.setBalanceSlots(hot, SLOTS));
+        assertEquals(SLOTS, accountDAO.findAccountById(hot).orElseThrow().getBalanceSlots());
+
+        long deadlocksBefore = AccountDAO.getTransferDeadlockCount();
+        AtomicLong failed = new AtomicLong();
+        AtomicLong refused = new AtomicLong();
+        AtomicLong slotCredits = new AtomicLong();
+        AtomicLong externalDelta = new AtomicLong();
+        List<String> overdrafts = new ArrayList<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            long seed = t;
+            futures.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    Money amount = Money.ofMinor(1 + random.nextInt(1_500));
+                    int other = random.nextBoolean() ? lower : higher;
+                    Optional<Money> balance;
+                    try {
+                        switch (random.nextInt(10)) {
+                            case 0:
+                            case 1:
+                                balance = accountDAO.applyCredit(hotAccount(hot), amount, new Transaction(hot, "DEPOSIT", amount));
+                                balance.ifPresent(b -> externalDelta.addAndGet(amount.getMinorUnits()));
+                                break;
+                            case 2:
+                            case 3:
+                                balance = accountDAO.applyDebit(hotAccount(hot), amount, new Transaction(hot, "WITHDRAWAL", amount));
+                                balance.ifPresent(b -> externalDelta.addAndGet(-amount.getMinorUnits()));
+                                break;
+                            case 4:
+                            case 5:
+                            case 6:
+                                balance = transfer(account(other), hotAccount(hot), amount);
+                                slotCredits.incrementAndGet();
+                                break;
+                            case 7:
+                            case 8:
+                                balance = transfer(hotAccount(hot), account(other), amount);
+                                break;
+                            default:
+                                balance = Optional.of(Money.ZERO);
+                                assertTrue(accountDAO.compactBalanceSlots() >= 0);
+                        }
+                    } catch (InsufficientFundsException e) {
+                        refused.incrementAndGet();
+                        continue;
+                    }
+                    if (balance.isEmpty()) {
+                        failed.incrementAndGet();
+                    } else if (balance.get().signum() < 0) {
+                        synchronized (overdrafts) {
+                            overdrafts.add("balance " + balance.get());
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        assertEquals(0, failed.get(), "no operation should fail");
+        assertEquals(deadlocksBefore, AccountDAO.getTransferDeadlockCount(), "transfers should not deadlock");
+        assertTrue(overdrafts.isEmpty(), () -> "Overdrawn: " + overdrafts);
+        assertTrue(refused.get() > 0 && slotCredits.get() > 0, "the workload should both credit slots and run dry");
+
+        // Unfolded, the hot account's balance already counts its slots.
+        assertLedgerMatches(hot, false);
+        assertTrue(accountDAO.setBalanceSlots(hot, 0));
+        Account folded = accountDAO.findAccountById(hot).orElseThrow();
+        assertEquals(0, folded.getBalanceSlots());
+        for (int accountId : new int[]{lower, hot, higher}) {
+            assertLedgerMatches(accountId, true);
+        }
+        long total = 0;
+        for (int accountId : new int[]{lower, hot, higher}) {
+            Money balance = accountDAO.findAccountById(accountId).orElseThrow().getBalance();
+            assertTrue(balance.signum() >= 0);
+            total += balance.getMinorUnits();
+        }
+        assertEquals(INITIAL_BALANCE.times(3).getMinorUnits() + externalDelta.get(), total);
+    }
+
+    private int createAccount(String name) {
+        return accountDAO.createAccount(new Account(name, "Checking", INITIAL_BALANCE));
+    }
+
+    private static Account account(int accountId) {
+        Account account = new Account();
+        account.setAccountId(accountId);
+        return account;
+    }
+
+    // With its slot count, so credits to it go into a slot as they would from the service.
+    private static Account hotAccount(int accountId) {
+        Account account = account(accountId);
+        account.setBalanceSlots(SLOTS);
+        return account;
+    }
+
+    private Optional<Money> transfer(Account from, Account to, Money amount) throws InsufficientFundsException {
+        return accountDAO.transfer(from, to, amount,
+                new Transaction(from.getAccountId(), "TRANSFER_OUT", amount),
+                new Transaction(to.getAccountId(), "TRANSFER_IN", amount));
+    }
+
+    private void assertLedgerMatches(int accountId, boolean withAggregates) {
+        Account row = accountDAO.findAccountById(accountId).orElseThrow();
+        long delta = 0;
+        long sum = 0;
+        List<Transaction> ledger = transactionDAO.findTransactionsByAccountId(accountId);
+        for (Transaction transaction : ledger) {
+            delta += transaction.isDebit() ? -transaction.getAmount().getMinorUnits() : transaction.getAmount().getMinorUnits();
+            sum += transaction.getAmount().getMinorUnits();
+        }
+        assertEquals(INITIAL_BALANCE.plus(Money.ofMinor(delta)), row.getBalance(), "balance of account " + accountId);
+        if (withAggregates) {
+            assertEquals(ledger.size(), row.getTransactionCount(), "transaction count of account " + accountId);
+            assertEquals(Money.ofMinor(sum), row.getTransactionSum(), "transaction sum of account " + accountId);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.bank.dao;
+
+import com.bank.dao.shard.ShardConfig;
+import com.bank.model.Account;
+import com.bank.model.Money;
+import com.bank.model.Transaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The cross-shard transfer saga on two embedded shards: a transfer stuck after its debit is
+ * finished by recovery, a credit is never applied twice, and a refused credit refunds the source.
+ */
+class CrossShardTransferTest {
+
+    private static final Money INITIAL_BALANCE = Money.parse("100.00");
+    private static final Money AMOUNT = Money.parse("30.00");
+
+    private AccountDAO accountDAO;
+    private TransactionDAO transactionDAO;
+    private Account from;
+    private Account to;
+
+    @BeforeEach
+    void setUp() {
+        ShardConfig config = new ShardConfig();
+        // A short lock timeout lets a test make the credit step fail; recovery only runs when asked.
+        for (int shard = 0; shard < 2; shard++) {
+            config.addShard(TestDatabase.poolConfig(TestDatabase.newUrl().replace("LOCK_TIMEOUT=10000", "LOCK_TIMEOUT=500")));
+        }
+        config.setRecoveryIntervalMillis(0);
+        DatabaseConnector.configureShards(config);
+        DatabaseConnector.initializeDatabase();
+        accountDAO = new AccountDAO();
+        transactionDAO = new TransactionDAO();
+
+        from = createAccount("Source");
+        do {
+            to = createAccount("Destination");
+        } while (DatabaseConnector.shardOf(to.getAccountId()) == DatabaseConnector.shardOf(from.getAccountId()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestDatabase.stop();
+    }
+
+    @Test
+    void recoveryFinishesTransferLeftDebited() throws Exception {
+        // Hold the destination row so the credit step times out after the debit committed.
+        try (Connection lock = DatabaseConnector.getConnection(to.getAccountId())) {
+            lock.setAutoCommit(false);
+            try (PreparedStatement pstmt = lock.prepareStatement("SELECT balance FROM Accounts WHERE accountId = ? FOR UPDATE")) {
+                pstmt.setInt(1, to.getAccountId());
+                pstmt.executeQuery().close();
+            }
+            assertEquals(Optional.of(INITIAL_BALANCE.minus(AMOUNT)), transfer(from, to));
+            lock.rollback();
+        }
+
+        assertEquals("DEBITED", sagaState());
+        assertEquals(INITIAL_BALANCE.minus(AMOUNT), balanceOf(from));
+        assertEquals(INITIAL_BALANCE, balanceOf(to));
+        assertTrue(transactions(to, "TRANSFER_IN").isEmpty());
+
+        assertEquals(1, accountDAO.recoverTransfers(0));
+
+        assertEquals("COMPLETED", sagaState());
+        assertEquals(INITIAL_BALANCE.plus(AMOUNT), balanceOf(to));
+        assertLegsLinked();
+        assertEquals(0, accountDAO.recoverTransfers(0));
+        assertEquals(INITIAL_BALANCE.plus(AMOUNT), balanceOf(to));
+    }
+
+    @Test
+    void repeatedCreditIsNotAppliedTwice() throws Exception {
+        assertEquals(Optional.of(INITIAL_BALANCE.minus(AMOUNT)), transfer(from, to));
+        assertEquals("COMPLETED", sagaState());
+
+        // As if the process died after the credit committed but before the saga was finished.
+        try (Connection conn = DatabaseConnector.getConnection(from.getAccountId());
+             PreparedStatement pstmt = conn.prepareStatement("UPDATE TransferSagas SET state = 'DEBITED', creditTransactionId = NULL WHERE fromAccountId = ?")) {
+            pstmt.setInt(1, from.getAccountId());
+            assertEquals(1, pstmt.executeUpdate());
+        }
+
+        assertEquals(1, accountDAO.recoverTransfers(0));
+
+        assertEquals("COMPLETED", sagaState());
+        assertEquals(INITIAL_BALANCE.minus(AMOUNT), balanceOf(from));
+        assertEquals(INITIAL_BALANCE.plus(AMOUNT), balanceOf(to));
+        assertLegsLinked();
+    }
+
+    @Test
+    void refusedCreditRefundsSource() throws Exception {
+        Account missing = new Account("Missing", "Checking", Money.ZERO);
+        int missingId = to.getAccountId() + 10_000;
+        while (DatabaseConnector.shardOf(missingId) != DatabaseConnector.shardOf(to.getAccountId())) {
+            missingId++;
+        }
+        missing.setAccountId(missingId);
+
+        assertEquals(Optional.empty(), transfer(from, missing));
+
+        assertEquals("COMPENSATED", sagaState());
+        assertEquals(INITIAL_BALANCE, balanceOf(from));
+        Transaction debit = transactions(from, "TRANSFER_OUT").get(0);
+        List<Transaction> refunds = transactions(from, "TRANSFER_IN");
+        assertEquals(1, refunds.size());
+        assertEquals(AMOUNT, refunds.get(0).getAmount());
+        assertEquals(debit.getTransactionId(), refunds.get(0).getLinkedTransactionId());
+        assertEquals(0, accountDAO.recoverTransfers(0));
+        assertEquals(INITIAL_BALANCE, balanceOf(from));
+    }
+
+    private Account createAccount(String name) {
+        Account account = new Account(name, "Checking", INITIAL_BALANCE);
+        account.setAccountId(accountDAO.createAccount(account));
+        return account;
+    }
+
+    private Optional<Money> transfer(Account source, Account destination) throws Exception {
+        return accountDAO.transfer(source, destination, AMOUNT,
+                new Transaction(source.getAccountId(), "TRANSFER_OUT", AMOUNT),
+                new Transaction(destination.getAccountId(), "TRANSFER_IN", AMOUNT));
+    }
+
+    private Money balanceOf(Account account) {
+        return accountDAO.findAccountById(account.getAccountId()).orElseThrow().getBalance();
+    }
+
+    private List<Transaction> transactions(Account account, String type) {
+        return transactionDAO.findTransactionsByAccountId(account.getAccountId()).stream()
+                .filter(transaction -> transaction.getTransactionType().equals(type))
+                .collect(Collectors.toList());
+    }
+
+    // The one credit leg exists, and each leg names the other.
+    private void assertLegsLinked() {
+        List<Transaction> debits = transactions(from, "TRANSFER_OUT");
+        List<Transaction> credits = transactions(to, "TRANSFER_IN");
+        assertEquals(1, debits.size());
+        assertEquals(1, credits.size());
+        assertEquals(credits.get(0).getTransactionId(), debits.get(0).getLinkedTransactionId());
+        assertEquals(debits.get(0).getTransactionId(), credits.get(0).getLinkedTransactionId());
+    }
+
+    private String sagaState() throws Exception {
+        try (Connection conn = DatabaseConnector.getConnection(from.getAccountId());
+             PreparedStatement pstmt = conn.prepareStatement("SELECT state FROM TransferSagas WHERE fromAccountId = ?")) {
+            pstmt.setInt(1, from.getAccountId());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                assertTrue(rs.next());
+                String state = rs.getString(1);
+                assertTrue(!rs.next(), "one saga expected");
+                return state;
+            }
+        }
+    }
+}
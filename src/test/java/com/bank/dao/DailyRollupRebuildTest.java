@@ -0,0 +1,109 @@
+package com.bank.dao;
+
+import com.bank.dao.archive.TransactionArchive;
+import com.bank.dao.archive.TransactionArchiver;
+import com.bank.model.Account;
+import com.bank.model.DailyRollup;
+import com.bank.model.Money;
+import com.bank.model.Transaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Rebuilding the rollups after archiving keeps the rollups of the archived days. */
+class DailyRollupRebuildTest {
+
+    @TempDir
+    static Path archiveDirectory;
+
+    private AccountDAO accountDAO;
+
+    @BeforeEach
+    void setUp() {
+        // Read once, by the first TransactionArchive.getDefault() in this JVM.
+        System.setProperty("bank.archive.dir", archiveDirectory.toString());
+        System.setProperty("bank.archive.maxAgeDays", "5");
+        TestDatabase.start();
+        accountDAO = new AccountDAO();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestDatabase.stop();
+    }
+
+    @Test
+    void rebuildAfterArchivingKeepsArchivedDays() throws Exception {
+        LocalDate today = LocalDate.now();
+        LocalDate oldDay = today.minusDays(10);
+        Account account = new Account("Archived", "Checking", Money.ZERO);
+        int accountId = accountDAO.createAccount(account);
+        account.setAccountId(accountId);
+
+        credit(account, "100.00");
+        backdate(accountId, oldDay);
+        credit(account, "50.00");
+        List<DailyRollup> before = accountDAO.findDailyRollups(accountId, oldDay, today);
+        assertEquals(2, before.size());
+
+        TransactionArchive archive = TransactionArchive.getDefault();
+        assertEquals(1, new TransactionArchiver(archive).archive().getRows());
+        assertEquals(oldDay, archive.getNewestTime().toLocalDateTime().toLocalDate());
+
+        // Make the rollup of the day still in Transactions wrong, so the rebuild has to fix it.
+        try (Connection conn = DatabaseConnector.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("UPDATE DailyRollups SET depositCount = 7 WHERE rollupDate = ?")) {
+            pstmt.setDate(1, Date.valueOf(today));
+            assertEquals(1, pstmt.executeUpdate());
+        }
+        assertTrue(accountDAO.rebuildDailyRollups() >= 1);
+
+        List<DailyRollup> after = accountDAO.findDailyRollups(accountId, oldDay, today);
+        assertEquals(2, after.size());
+        DailyRollup archived = rollupOn(after, oldDay);
+        assertEquals(Money.ZERO, archived.getOpeningBalance());
+        assertEquals(Money.parse("100.00"), archived.getClosingBalance());
+        assertEquals(1, archived.getDepositCount());
+        DailyRollup current = rollupOn(after, today);
+        assertEquals(Money.parse("100.00"), current.getOpeningBalance());
+        assertEquals(Money.parse("150.00"), current.getClosingBalance());
+        assertEquals(1, current.getDepositCount());
+        assertEquals(Money.parse("50.00"), current.getDepositSum());
+    }
+
+    private void credit(Account account, String amount) {
+        Money money = Money.parse(amount);
+        assertTrue(accountDAO.applyCredit(account, money, new Transaction(account.getAccountId(), "DEPOSIT", money)).isPresent());
+    }
+
+    // Moves everything recorded so far to noon of an earlier day, rollups included.
+    private static void backdate(int accountId, LocalDate day) throws Exception {
+        try (Connection conn = DatabaseConnector.getConnection();
+             PreparedStatement transactions = conn.prepareStatement("UPDATE Transactions SET transactionTime = ? WHERE accountId = ?");
+             PreparedStatement rollups = conn.prepareStatement("UPDATE DailyRollups SET rollupDate = ? WHERE accountId = ?")) {
+            transactions.setTimestamp(1, Timestamp.valueOf(day.atTime(12, 0)));
+            transactions.setInt(2, accountId);
+            transactions.executeUpdate();
+            rollups.setDate(1, Date.valueOf(day));
+            rollups.setInt(2, accountId);
+            rollups.executeUpdate();
+        }
+    }
+
+    private static DailyRollup rollupOn(List<DailyRollup> rollups, LocalDate day) {
+        return rollups.stream().filter(rollup -> rollup.getDate().equals(day)).findFirst()
+                .orElseThrow(() -> new AssertionError("No rollup on " + day + " in " + rollups));
+    }
+}
@@ -0,0 +1,41 @@
+package com.bank.dao;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Points {@link DatabaseConnector} at a new, empty embedded H2 database in MySQL mode with the
+ * schema created. Every call gets a database of its own, so tests do not see each other's rows.
+ */
+public final class TestDatabase {
+    private static final AtomicInteger NEXT = new AtomicInteger();
+
+    private TestDatabase() {}
+
+    /** @return the JDBC url of the new database */
+    public static String start() {
+        return start(poolConfig(newUrl()));
+    }
+
+    public static String start(PoolConfig config) {
+        DatabaseConnector.configure(config);
+        DatabaseConnector.initializeDatabase();
+        return config.getUrl();
+    }
+
+    public static String newUrl() {
+        return "jdbc:h2:mem:test" + NEXT.incrementAndGet() + ";MODE=MySQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000";
+    }
+
+    public static PoolConfig poolConfig(String url) {
+        PoolConfig config = new PoolConfig();
+        config.setUrl(url);
+        config.setUser("sa");
+        config.setPassword("");
+        config.setMaxSize(16);
+        return config;
+    }
+
+    public static void stop() {
+        DatabaseConnector.shutdown();
+    }
+}
@@ -0,0 +1,89 @@
+package com.bank.dao.journal;
+
+import com.bank.dao.AccountDAO;
+import com.bank.dao.TestDatabase;
+import com.bank.dao.TransactionDAO;
+import com.bank.model.Account;
+import com.bank.model.Money;
+import com.bank.model.Transaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournaledTransactionRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    private LedgerJournal journal;
+    private JournaledTransactionRepository journaled;
+    private int accountId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        TestDatabase.start();
+        accountId = new AccountDAO().createAccount(new Account("Journal", "Checking", Money.ZERO));
+        journal = LedgerJournal.open(directory);
+        journaled = new JournaledTransactionRepository(journal, new TransactionDAO());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        journal.close();
+        TestDatabase.stop();
+    }
+
+    @Test
+    void createTransactionReturnsAndSetsTheInsertedId() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Transaction>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            futures.add(executor.submit(() -> {
+                Transaction transaction = new Transaction(accountId, "DEPOSIT", Money.parse("1.00"));
+                int transactionId = journaled.createTransaction(transaction);
+                assertTrue(transactionId > 0);
+                assertEquals(transactionId, transaction.getTransactionId());
+                return transaction;
+            }));
+        }
+        Set<Integer> ids = new HashSet<>();
+        for (Future<Transaction> future : futures) {
+            ids.add(future.get(1, TimeUnit.MINUTES).getTransactionId());
+        }
+        executor.shutdown();
+
+        Set<Integer> stored = new HashSet<>();
+        for (Transaction row : journaled.findTransactionsByAccountId(accountId)) {
+            stored.add(row.getTransactionId());
+        }
+        assertEquals(200, ids.size());
+        assertEquals(ids, stored);
+    }
+
+    @Test
+    void journalReturnsSequenceWithoutId() {
+        Transaction transaction = new Transaction(accountId, "DEPOSIT", Money.parse("1.00"));
+        assertTrue(journaled.journal(transaction) > 0);
+        assertEquals(0, transaction.getTransactionId());
+        assertEquals(1, journaled.findTransactionsByAccountId(accountId).size());
+    }
+
+    @Test
+    void createTransactionFailsForRowTheDatabaseRejects() {
+        assertEquals(-1, journaled.createTransaction(new Transaction(accountId + 1000, "DEPOSIT", Money.parse("1.00"))));
+    }
+}
@@ -0,0 +1,157 @@
+package com.bank.dao.memory;
+
+import com.bank.dao.AccountRepository;
+import com.bank.model.Account;
+import com.bank.model.Money;
+import com.bank.model.Transaction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reopening durable storage recovers exactly the balances, aggregates and histories it had: from
+ * the journal alone, from a journal whose last record was torn, and from a snapshot plus the
+ * journal written after it. A storage that is not closed stands for a process that died, so no
+ * final snapshot is taken.
+ */
+class InMemoryStorageDurabilityTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void journalAloneRestoresState() throws Exception {
+        InMemoryStorage storage = InMemoryStorage.open(directory, false);
+        writeLedger(storage);
+        List<String> written = state(storage);
+
+        InMemoryStorage reopened = InMemoryStorage.open(directory, false);
+        assertEquals(written, state(reopened));
+        assertTrue(Files.notExists(directory.resolve("snapshot.bin")));
+
+        // Ids carry on after the recovered ones.
+        Account account = new Account("After", "Savings", Money.ZERO);
+        assertEquals(4, reopened.accounts().createAccount(account));
+        Transaction deposit = deposit(reopened, account, "1.00");
+        assertEquals(lastTransactionId(written) + 1, deposit.getTransactionId());
+        reopened.close();
+    }
+
+    @Test
+    void tornJournalTailIsDroppedAndCutBack() throws Exception {
+        InMemoryStorage storage = InMemoryStorage.open(directory, false);
+        List<Account> accounts = writeLedger(storage);
+        List<String> beforeLastWrite = state(storage);
+        Path journal = directory.resolve("journal.log");
+        long intactLength = Files.size(journal);
+        deposit(storage, accounts.get(1), "7.00");
+        assertNotEquals(beforeLastWrite, state(storage));
+
+        // The last record loses its final bytes, as a crash in the middle of the write would leave it.
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        InMemoryStorage reopened = InMemoryStorage.open(directory, false);
+        assertEquals(beforeLastWrite, state(reopened));
+        assertEquals(intactLength, Files.size(journal));
+
+        // Appends continue after the last intact record and survive the next recovery.
+        Account account = reopened.accounts().findAccountById(accounts.get(1).getAccountId()).orElseThrow();
+        deposit(reopened, account, "8.00");
+        List<String> afterRepair = state(reopened);
+        assertEquals(afterRepair, state(InMemoryStorage.open(directory, false)));
+    }
+
+    @Test
+    void snapshotThenJournalReplay() throws Exception {
+        InMemoryStorage storage = InMemoryStorage.open(directory, false);
+        List<Account> accounts = writeLedger(storage);
+        storage.snapshot();
+        long emptyJournal = Files.size(directory.resolve("journal.log"));
+
+        // Written after the snapshot, so only the journal has them.
+        deposit(storage, accounts.get(0), "3.00");
+        transfer(storage, accounts.get(2), accounts.get(1), "2.25");
+        assertTrue(Files.size(directory.resolve("journal.log")) > emptyJournal);
+        List<String> written = state(storage);
+
+        InMemoryStorage reopened = InMemoryStorage.open(directory, false);
+        assertEquals(written, state(reopened));
+        reopened.close();
+
+        // close() snapshots and empties the journal; the snapshot alone gives the same state.
+        assertEquals(emptyJournal, Files.size(directory.resolve("journal.log")));
+        assertEquals(written, state(InMemoryStorage.open(directory, false)));
+    }
+
+    // Three accounts with deposits, a withdrawal, a transfer and a flagged transaction.
+    private static List<Account> writeLedger(InMemoryStorage storage) throws Exception {
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            Account account = new Account("Durable " + i, "Checking", Money.parse("100.00"));
+            assertEquals(i, storage.accounts().createAccount(account));
+            accounts.add(account);
+        }
+        deposit(storage, accounts.get(0), "25.00");
+        assertTrue(storage.accounts().applyDebit(accounts.get(1), Money.parse("10.00"),
+                new Transaction(accounts.get(1).getAccountId(), "WITHDRAWAL", Money.parse("10.00"))).isPresent());
+        transfer(storage, accounts.get(0), accounts.get(2), "5.50");
+        Transaction outlier = deposit(storage, accounts.get(2), "900.00");
+        outlier.setFlagged(true);
+        outlier.setReasonForFlag("Amount anomaly");
+        assertEquals(1, storage.accounts().flagTransactions(List.of(outlier)));
+        return accounts;
+    }
+
+    private static Transaction deposit(InMemoryStorage storage, Account account, String amount) {
+        Transaction deposit = new Transaction(account.getAccountId(), "DEPOSIT", Money.parse(amount));
+        assertTrue(storage.accounts().applyCredit(account, deposit.getAmount(), deposit).isPresent());
+        return deposit;
+    }
+
+    private static void transfer(InMemoryStorage storage, Account from, Account to, String amount) throws Exception {
+        Money money = Money.parse(amount);
+        assertTrue(storage.accounts().transfer(from, to, money,
+                new Transaction(from.getAccountId(), "TRANSFER_OUT", money),
+                new Transaction(to.getAccountId(), "TRANSFER_IN", money)).isPresent());
+    }
+
+    // Every field of every account and of its history, one line each.
+    private static List<String> state(InMemoryStorage storage) {
+        AccountRepository accounts = storage.accounts();
+        List<String> state = new ArrayList<>();
+        for (int accountId = 1; accountId <= storage.getAccountCount(); accountId++) {
+            Account account = accounts.findAccountById(accountId).orElseThrow();
+            state.add(account.getAccountId() + " " + account.getCustomerName() + " " + account.getAccountType() + " balance=" + account.getBalance()
+                    + " version=" + account.getVersion() + " count=" + account.getTransactionCount() + " sum=" + account.getTransactionSum()
+                    + " avg=" + account.getAvgTransactionAmount() + " m2=" + account.getAmountM2() + " createdAt=" + account.getCreatedAt());
+            for (Transaction transaction : storage.transactions().findTransactionsByAccountId(accountId)) {
+                state.add("  " + transaction.getTransactionId() + " " + transaction.getAccountId() + " " + transaction.getTransactionType()
+                        + " " + transaction.getAmount() + " flagged=" + transaction.isFlagged() + " reason=" + transaction.getReasonForFlag()
+                        + " linked=" + transaction.getLinkedTransactionId() + " at=" + transaction.getTransactionTime());
+            }
+        }
+        return state;
+    }
+
+    private static int lastTransactionId(List<String> state) {
+        int last = 0;
+        for (String line : state) {
+            if (line.startsWith("  ")) {
+                last = Math.max(last, Integer.parseInt(line.trim().split(" ")[0]));
+            }
+        }
+        return last;
+    }
+}
@@ -0,0 +1,99 @@
+package com.bank.dao.replica;
+
+import com.bank.dao.AccountDAO;
+import com.bank.dao.DatabaseConnector;
+import com.bank.dao.TestDatabase;
+import com.bank.dao.TransactionDAO;
+import com.bank.metrics.Counter;
+import com.bank.metrics.Metrics;
+import com.bank.model.Account;
+import com.bank.model.ConsistencyToken;
+import com.bank.model.Money;
+import com.bank.model.Transaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A read with the token of a write sees that write while the only replica, fed by a
+ * {@link SimulatedReplication}, is still behind: it falls back to the primary until the replica
+ * has caught up, and is served by the replica after that.
+ */
+class ReadYourWritesTest {
+
+    private static final long SIMULATED_LAG_MILLIS = 1_500;
+
+    private final Counter replicaReads = Metrics.counter("replica.reads");
+    private final Counter staleFallbacks = Metrics.counter("replica.fallback.stale");
+
+    private AccountDAO accountDAO;
+    private TransactionDAO transactionDAO;
+    private ReplicaSet replicas;
+
+    @BeforeEach
+    void setUp() {
+        TestDatabase.start();
+        ReplicaConfig config = new ReplicaConfig();
+        config.addReplica(TestDatabase.poolConfig(TestDatabase.newUrl()));
+        config.setSimulatedLagMillis(SIMULATED_LAG_MILLIS);
+        // Well above the simulated lag, so the lagging replica stays in rotation.
+        config.setMaxLagMillis(30_000);
+        config.setHeartbeatIntervalMillis(50);
+        DatabaseConnector.configureReplicas(0, config);
+        replicas = DatabaseConnector.getReplicaSet(0);
+        accountDAO = new AccountDAO();
+        transactionDAO = new TransactionDAO();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestDatabase.stop();
+    }
+
+    @Test
+    void tokenReadFallsBackToPrimaryWhileReplicaLags() throws Exception {
+        Account account = new Account("Session", "Checking", Money.parse("10.00"));
+        int accountId = accountDAO.createAccount(account);
+        account.setAccountId(accountId);
+        awaitReplicated(accountId, Money.parse("10.00"));
+
+        Money amount = Money.parse("5.00");
+        // Refreshes the account, version included, from the updated row.
+        assertTrue(accountDAO.applyCredit(account, amount, new Transaction(accountId, "DEPOSIT", amount)).isPresent());
+        ConsistencyToken token = ConsistencyToken.of(account);
+
+        // The replica has not applied the deposit yet: a read without the token still sees the old balance.
+        assertEquals(Money.parse("10.00"), accountDAO.findAccountById(accountId, ConsistencyToken.NONE).orElseThrow().getBalance());
+
+        long staleBefore = staleFallbacks.getValue();
+        Account read = accountDAO.findAccountById(accountId, token).orElseThrow();
+        assertEquals(Money.parse("15.00"), read.getBalance());
+        assertEquals(account.getVersion(), read.getVersion());
+        assertEquals(1, transactionDAO.findTransactionsByAccountId(accountId, token).size());
+        assertEquals(staleBefore + 2, staleFallbacks.getValue());
+
+        // Once the replica has caught up, the same token is served by it.
+        awaitReplicated(accountId, Money.parse("15.00"));
+        staleBefore = staleFallbacks.getValue();
+        long replicaReadsBefore = replicaReads.getValue();
+        assertEquals(Money.parse("15.00"), accountDAO.findAccountById(accountId, token).orElseThrow().getBalance());
+        assertEquals(staleBefore, staleFallbacks.getValue());
+        assertEquals(replicaReadsBefore + 1, replicaReads.getValue());
+    }
+
+    // Waits until the replica is in rotation and a read without a token, which it serves, sees the balance.
+    private void awaitReplicated(int accountId, Money balance) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10 * SIMULATED_LAG_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            if (replicas.getLagMillis(0) != Long.MAX_VALUE
+                    && accountDAO.findAccountById(accountId, ConsistencyToken.NONE).map(Account::getBalance).filter(balance::equals).isPresent()) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("Replica did not catch up with account " + accountId + ".");
+    }
+}
@@ -0,0 +1,138 @@
+package com.bank.export;
+
+import com.bank.dao.AccountDAO;
+import com.bank.dao.DatabaseConnector;
+import com.bank.dao.TestDatabase;
+import com.bank.dao.TransactionDAO;
+import com.bank.dao.archive.ArchiveConfig;
+import com.bank.dao.archive.TransactionArchive;
+import com.bank.dao.archive.TransactionArchiver;
+import com.bank.model.Account;
+import com.bank.model.Money;
+import com.bank.model.Transaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Exporting after some rows were archived still writes every row of the period, in order. */
+class StatementExporterArchiveTest {
+
+    private static final Comparator<Transaction> EXPORT_ORDER = Comparator.comparingInt(Transaction::getAccountId)
+            .thenComparing(Transaction::getTransactionTime)
+            .thenComparingInt(Transaction::getTransactionId);
+
+    @TempDir
+    Path archiveDirectory;
+    @TempDir
+    Path exportDirectory;
+
+    private final LocalDate oldDay = LocalDate.now().minusDays(10);
+    private final List<Transaction> written = new ArrayList<>();
+    private TransactionArchive archive;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        TestDatabase.start();
+        AccountDAO accountDAO = new AccountDAO();
+        for (int a = 0; a < 5; a++) {
+            Account account = new Account("Statement " + a, "Checking", Money.ZERO);
+            account.setAccountId(accountDAO.createAccount(account));
+            for (int i = 0; i < 6; i++) {
+                Money amount = Money.ofMinor(100 + i);
+                Transaction transaction = new Transaction(account.getAccountId(), "DEPOSIT", amount);
+                assertTrue(accountDAO.applyCredit(account, amount, transaction).isPresent());
+                // Every other row is old enough to be archived; one account keeps none in the table.
+                if (i % 2 == 0 || a == 2) {
+                    backdate(transaction, oldDay.atTime(9, i));
+                }
+            }
+            // As stored, with the times the database gave the rows.
+            written.addAll(new TransactionDAO().findTransactionsByAccountId(account.getAccountId()));
+        }
+        assertEquals(30, written.size());
+        ArchiveConfig config = new ArchiveConfig();
+        config.setDirectory(archiveDirectory.toString());
+        config.setMaxAgeDays(5);
+        archive = TransactionArchive.open(config);
+        assertEquals(18, new TransactionArchiver(archive).archive().getRows());
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestDatabase.stop();
+    }
+
+    @Test
+    void exportMergesArchivedRows() throws Exception {
+        List<Transaction> exported = export(null, null);
+        assertEquals(ids(sorted(written)), ids(exported));
+    }
+
+    @Test
+    void exportOfArchivedPeriodIsComplete() throws Exception {
+        Timestamp start = Timestamp.valueOf(oldDay.atStartOfDay());
+        Timestamp end = Timestamp.valueOf(oldDay.plusDays(1).atStartOfDay());
+        List<Transaction> expected = written.stream()
+                .filter(t -> !t.getTransactionTime().before(start) && t.getTransactionTime().before(end))
+                .collect(Collectors.toList());
+        assertEquals(18, expected.size());
+        assertEquals(ids(sorted(expected)), ids(export(start, end)));
+    }
+
+    // All part files in partition order; partitions cover ascending account ranges.
+    private List<Transaction> export(Timestamp periodStart, Timestamp periodEnd) throws Exception {
+        StatementExportConfig config = new StatementExportConfig();
+        config.setDirectory(exportDirectory);
+        config.setFormat(ExportFormat.BINARY);
+        config.setPartitions(2);
+        config.setWorkers(2);
+        config.setPeriodStart(periodStart);
+        config.setPeriodEnd(periodEnd);
+        new StatementExporter(config, archive).export();
+
+        List<Transaction> rows = new ArrayList<>();
+        try (Stream<Path> files = Files.list(exportDirectory)) {
+            for (Path part : files.filter(file -> file.getFileName().toString().endsWith(".bin")).sorted().collect(Collectors.toList())) {
+                BinaryStatementReader.read(part, rows::add);
+            }
+        }
+        return rows;
+    }
+
+    private static List<Transaction> sorted(List<Transaction> transactions) {
+        List<Transaction> sorted = new ArrayList<>(transactions);
+        sorted.sort(EXPORT_ORDER);
+        return sorted;
+    }
+
+    private static List<Integer> ids(List<Transaction> transactions) {
+        return transactions.stream().map(Transaction::getTransactionId).collect(Collectors.toList());
+    }
+
+    private static void backdate(Transaction transaction, LocalDateTime time) throws Exception {
+        Timestamp timestamp = Timestamp.valueOf(time);
+        try (Connection conn = DatabaseConnector.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("UPDATE Transactions SET transactionTime = ? WHERE transactionId = ?")) {
+            pstmt.setTimestamp(1, timestamp);
+            pstmt.setInt(2, transaction.getTransactionId());
+            assertEquals(1, pstmt.executeUpdate());
+        }
+    }
+}
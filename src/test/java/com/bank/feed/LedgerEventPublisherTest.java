@@ -0,0 +1,265 @@
+package com.bank.feed;
+
+import com.bank.dao.AccountDAO;
+import com.bank.dao.DatabaseConnector;
+import com.bank.dao.TestDatabase;
+import com.bank.dao.TransactionDAO;
+import com.bank.dao.archive.ArchiveConfig;
+import com.bank.dao.archive.TransactionArchive;
+import com.bank.dao.archive.TransactionArchiver;
+import com.bank.dao.memory.InMemoryStorage;
+import com.bank.model.Account;
+import com.bank.model.Money;
+import com.bank.model.Transaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LedgerEventPublisherTest {
+
+    private LedgerEventPublisher publisher;
+    private int nextTransactionId;
+
+    @BeforeEach
+    void setUp() {
+        ChangeFeedConfig config = new ChangeFeedConfig();
+        config.setBlockTimeoutMillis(10_000);
+        config.setCloseTimeoutMillis(1_000);
+        publisher = new LedgerEventPublisher(new InMemoryStorage().transactions(), config);
+    }
+
+    @AfterEach
+    void tearDown() {
+        publisher.close();
+    }
+
+    private Transaction row() {
+        Transaction transaction = new Transaction(1, "DEPOSIT", Money.parse("1.00"));
+        transaction.setTransactionId(++nextTransactionId);
+        return transaction;
+    }
+
+    @Test
+    void feedIsOffByDefault() {
+        assertFalse(new ChangeFeedConfig().isEnabled());
+        assertFalse(ChangeFeedConfig.fromSystemProperties().isEnabled());
+    }
+
+    @Test
+    void blockedWriterDoesNotHoldUpOtherWriters() throws Exception {
+        RecordingSubscriber slow = new RecordingSubscriber(1);
+        publisher.subscribe(slow, LedgerEventPublisher.FROM_NOW, 1, OverflowPolicy.BLOCK);
+        awaitAttached(slow);
+        publisher.publish(publisher.begin(), row());
+        slow.awaitSequence(1);
+
+        // Nothing requested any more: the second row fills the buffer, the third overfills it.
+        Transaction second = row();
+        Transaction third = row();
+        CompletableFuture<Void> blocked = CompletableFuture.runAsync(() -> publisher.publish(publisher.begin(), second, third));
+        Thread.sleep(200);
+        assertFalse(blocked.isDone(), "the writer should wait for the full subscriber");
+
+        // Another writer, a reader and a new subscriber all get through meanwhile.
+        CompletableFuture<Void> other = CompletableFuture.runAsync(() -> {
+            long write = publisher.begin();
+            publisher.abandon(write);
+            publisher.getLastSequence();
+            publisher.subscribe(new RecordingSubscriber(Long.MAX_VALUE));
+        });
+        other.get(2, TimeUnit.SECONDS);
+        assertFalse(blocked.isDone());
+
+        slow.subscription.request(Long.MAX_VALUE);
+        blocked.get(5, TimeUnit.SECONDS);
+        Transaction fourth = row();
+        publisher.publish(publisher.begin(), fourth);
+        slow.awaitSequence(fourth.getTransactionId());
+        assertEquals(List.of(1L, 2L, 3L, 4L), slow.sequences);
+    }
+
+    @Test
+    void blockedWriterDisconnectsSubscriberAfterTimeout() throws Exception {
+        ChangeFeedConfig config = new ChangeFeedConfig();
+        config.setBlockTimeoutMillis(100);
+        config.setCloseTimeoutMillis(1_000);
+        publisher.close();
+        publisher = new LedgerEventPublisher(new InMemoryStorage().transactions(), config);
+
+        RecordingSubscriber stalled = new RecordingSubscriber(1);
+        publisher.subscribe(stalled, LedgerEventPublisher.FROM_NOW, 1, OverflowPolicy.BLOCK);
+        awaitAttached(stalled);
+
+        long started = System.nanoTime();
+        publisher.publish(publisher.begin(), row(), row(), row());
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertTrue(waitedMillis >= 100 && waitedMillis < 5_000, "waited " + waitedMillis + " ms");
+        assertTrue(stalled.finished.await(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, stalled.error.get());
+        assertEquals(List.of(1L), stalled.sequences);
+        assertEquals(0, publisher.getSubscriberCount());
+    }
+
+    @Test
+    void concurrentWritersDeliverInSequenceOrderUnderBlock() throws Exception {
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(subscriber, LedgerEventPublisher.FROM_NOW, 4, OverflowPolicy.BLOCK);
+        awaitAttached(subscriber);
+
+        int writers = 8;
+        int writesPerWriter = 500;
+        Object ids = new Object();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[writers];
+        for (int w = 0; w < writers; w++) {
+            futures[w] = CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < writesPerWriter; i++) {
+                    long write = publisher.begin();
+                    Transaction transaction;
+                    synchronized (ids) {
+                        transaction = row();
+                    }
+                    publisher.publish(write, transaction);
+                }
+            });
+        }
+        CompletableFuture.allOf(futures).get(1, TimeUnit.MINUTES);
+        subscriber.awaitSequence(writers * writesPerWriter);
+
+        assertEquals(writers * writesPerWriter, subscriber.sequences.size());
+        for (int i = 0; i < subscriber.sequences.size(); i++) {
+            assertEquals(i + 1, subscriber.sequences.get(i));
+        }
+    }
+
+    @Test
+    void replayOverArchivedRowsFailsSubscription(@TempDir Path archiveDirectory) throws Exception {
+        TestDatabase.start();
+        try {
+            AccountDAO accountDAO = new AccountDAO();
+            Account account = new Account("Feed", "Checking", Money.ZERO);
+            account.setAccountId(accountDAO.createAccount(account));
+            long[] ids = new long[4];
+            for (int i = 0; i < ids.length; i++) {
+                Transaction deposit = new Transaction(account.getAccountId(), "DEPOSIT", Money.parse("1.00"));
+                assertTrue(accountDAO.applyCredit(account, deposit.getAmount(), deposit).isPresent());
+                ids[i] = deposit.getTransactionId();
+            }
+            // The first two are old enough to be archived.
+            try (Connection conn = DatabaseConnector.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement("UPDATE Transactions SET transactionTime = ? WHERE transactionId <= ?")) {
+                pstmt.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now().minusDays(10)));
+                pstmt.setLong(2, ids[1]);
+                assertEquals(2, pstmt.executeUpdate());
+            }
+            ArchiveConfig archiveConfig = new ArchiveConfig();
+            archiveConfig.setDirectory(archiveDirectory.toString());
+            archiveConfig.setMaxAgeDays(5);
+            TransactionArchive archive = TransactionArchive.open(archiveConfig);
+            assertEquals(2, new TransactionArchiver(archive).archive().getRows());
+
+            ChangeFeedConfig config = new ChangeFeedConfig();
+            config.setCloseTimeoutMillis(1_000);
+            publisher.close();
+            publisher = new LedgerEventPublisher(new TransactionDAO(archive), config);
+
+            RecordingSubscriber fromStart = new RecordingSubscriber(Long.MAX_VALUE);
+            publisher.subscribe(fromStart, 0, 16, OverflowPolicy.DISCONNECT);
+            assertTrue(fromStart.finished.await(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, fromStart.error.get());
+            assertTrue(fromStart.error.get().getMessage().contains("up to sequence " + ids[1]), fromStart.error.get().getMessage());
+            assertTrue(fromStart.sequences.isEmpty());
+
+            // After the archived rows, the rest of the table is replayed as usual.
+            RecordingSubscriber afterArchived = new RecordingSubscriber(Long.MAX_VALUE);
+            publisher.subscribe(afterArchived, ids[1], 16, OverflowPolicy.DISCONNECT);
+            afterArchived.awaitSequence(ids[3]);
+            assertEquals(List.of(ids[2], ids[3]), afterArchived.sequences);
+            assertNull(afterArchived.error.get());
+        } finally {
+            publisher.close();
+            TestDatabase.stop();
+        }
+    }
+
+    // Live events only reach a subscription once it has requested some and caught up.
+    private void awaitAttached(RecordingSubscriber subscriber) throws InterruptedException {
+        assertTrue(subscriber.subscribed.await(5, TimeUnit.SECONDS));
+        LedgerSubscription subscription = (LedgerSubscription) subscriber.subscription;
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < deadline) {
+            synchronized (publisher) {
+                if (subscription.attached) {
+                    return;
+                }
+            }
+            Thread.sleep(5);
+        }
+        throw new AssertionError("Subscription did not attach.");
+    }
+
+    private static final class RecordingSubscriber implements Flow.Subscriber<LedgerEvent> {
+        private final long initialRequest;
+        final List<Long> sequences = new CopyOnWriteArrayList<>();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final CountDownLatch subscribed = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(1);
+        volatile Flow.Subscription subscription;
+
+        RecordingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest > 0) {
+                subscription.request(initialRequest);
+            }
+            subscribed.countDown();
+        }
+
+        @Override
+        public void onNext(LedgerEvent event) {
+            sequences.add(event.getSequence());
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error.set(throwable);
+            finished.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            finished.countDown();
+        }
+
+        void awaitSequence(long sequence) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 10_000;
+            while ((sequences.isEmpty() || sequences.get(sequences.size() - 1) < sequence) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+        }
+    }
+}
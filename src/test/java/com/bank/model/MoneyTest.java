@@ -0,0 +1,134 @@
+package com.bank.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Money must give exactly what BigDecimal rounded HALF_UP to two decimals gives, which is also
+ * what a {@code DECIMAL(15, 2)} column stores.
+ */
+class MoneyTest {
+
+    private static BigDecimal cents(BigDecimal amount) {
+        return amount.setScale(Money.SCALE, RoundingMode.HALF_UP);
+    }
+
+    @Test
+    void ofRoundsHalfUpLikeBigDecimal() {
+        String[] amounts = {"0", "0.005", "0.004", "-0.005", "-0.004", "1.015", "-1.015", "2.675", "-2.675",
+                "10.125", "0.0049999", "-0.0050001", "999999999999.995", "1e2", "-1.5E-3", "123.45"};
+        for (String amount : amounts) {
+            BigDecimal value = new BigDecimal(amount);
+            assertEquals(cents(value), Money.of(value).toBigDecimal(), amount);
+            assertEquals(cents(value).toPlainString(), Money.parse(amount).toString(), amount);
+        }
+    }
+
+    @Test
+    void arithmeticMatchesBigDecimal() {
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            BigDecimal a = BigDecimal.valueOf(random.nextLong() % 1_000_000_000_000L, 3);
+            BigDecimal b = BigDecimal.valueOf(random.nextLong() % 1_000_000_000_000L, 3);
+            Money x = Money.of(a);
+            Money y = Money.of(b);
+            assertEquals(cents(a).add(cents(b)), x.plus(y).toBigDecimal(), a + " + " + b);
+            assertEquals(cents(a).subtract(cents(b)), x.minus(y).toBigDecimal(), a + " - " + b);
+            assertEquals(cents(a).negate(), x.negate().toBigDecimal(), "-" + a);
+            assertEquals(cents(a).compareTo(cents(b)), x.compareTo(y), a + " <=> " + b);
+        }
+    }
+
+    @Test
+    void averageMatchesBigDecimalDivision() {
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            long total = random.nextLong() % 10_000_000L;
+            long count = 1 + random.nextInt(1_000);
+            assertAverage(total, count);
+        }
+        for (long count = 1; count <= 200; count++) {
+            for (long total = -3 * count; total <= 3 * count; total++) {
+                assertAverage(total, count);
+            }
+        }
+    }
+
+    @Test
+    void averageRoundsTiesAwayFromZero() {
+        assertEquals(Money.parse("0.01"), Money.average(Money.ofMinor(1), 2));
+        assertEquals(Money.parse("-0.01"), Money.average(Money.ofMinor(-1), 2));
+        assertEquals(Money.parse("0.02"), Money.average(Money.ofMinor(3), 2));
+        assertEquals(Money.parse("-0.02"), Money.average(Money.ofMinor(-3), 2));
+        assertEquals(Money.parse("0.13"), Money.average(Money.ofMinor(25), 2));
+        assertEquals(Money.parse("-0.13"), Money.average(Money.ofMinor(-25), 2));
+        assertEquals(Money.parse("0.00"), Money.average(Money.ofMinor(1), 3));
+        assertEquals(Money.parse("0.00"), Money.average(Money.ofMinor(-1), 3));
+        assertEquals(Money.parse("0.01"), Money.average(Money.ofMinor(2), 3));
+        assertEquals(Money.parse("-0.01"), Money.average(Money.ofMinor(-2), 3));
+        assertEquals(Money.ofMinor(Long.MAX_VALUE / 2 + 1), Money.average(Money.ofMinor(Long.MAX_VALUE), 2));
+        assertEquals(Money.ofMinor(1), Money.average(Money.ofMinor(Long.MAX_VALUE / 2 + 1), Long.MAX_VALUE));
+        assertEquals(Money.ZERO, Money.average(Money.ofMinor(Long.MAX_VALUE / 2), Long.MAX_VALUE));
+        assertThrows(ArithmeticException.class, () -> Money.average(Money.ofMinor(1), 0));
+    }
+
+    private static void assertAverage(long total, long count) {
+        BigDecimal expected = BigDecimal.valueOf(total, Money.SCALE).divide(BigDecimal.valueOf(count), Money.SCALE, RoundingMode.HALF_UP);
+        assertEquals(expected, Money.average(Money.ofMinor(total), count).toBigDecimal(), total + " / " + count);
+    }
+
+    @Test
+    void overflowThrowsInsteadOfWrapping() {
+        Money max = Money.ofMinor(Long.MAX_VALUE);
+        Money min = Money.ofMinor(Long.MIN_VALUE);
+        assertThrows(ArithmeticException.class, () -> max.plus(Money.ofMinor(1)));
+        assertThrows(ArithmeticException.class, () -> min.minus(Money.ofMinor(1)));
+        assertThrows(ArithmeticException.class, () -> min.plus(Money.ofMinor(-1)));
+        assertThrows(ArithmeticException.class, () -> max.times(2));
+        assertThrows(ArithmeticException.class, min::negate);
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("92233720368547758.08")));
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("-92233720368547758.09")));
+        assertEquals(max, Money.of(new BigDecimal("92233720368547758.07")));
+        assertEquals("-92233720368547758.08", min.toString());
+    }
+
+    @Test
+    void roundTripsThroughDecimalColumn() throws Exception {
+        try (Connection conn = DriverManager.getConnection("jdbc:h2:mem:money;MODE=MySQL", "sa", "");
+             Statement statement = conn.createStatement()) {
+            statement.execute("CREATE TABLE Amounts (id INT PRIMARY KEY, amount DECIMAL(15, 2))");
+            String[] amounts = {"0.00", "0.01", "-0.01", "1000.00", "-1234.56", "9999999999999.99", "-9999999999999.99",
+                    "0.005", "-0.005", "2.675", "-2.675", "1.0049"};
+            try (PreparedStatement insert = conn.prepareStatement("INSERT INTO Amounts (id, amount) VALUES (?, ?)")) {
+                for (int i = 0; i < amounts.length; i++) {
+                    insert.setInt(1, i);
+                    insert.setBigDecimal(2, new BigDecimal(amounts[i]));
+                    insert.executeUpdate();
+                }
+            }
+            try (PreparedStatement select = conn.prepareStatement("SELECT amount, ROUND(amount / 3, 2) FROM Amounts WHERE id = ?")) {
+                for (int i = 0; i < amounts.length; i++) {
+                    select.setInt(1, i);
+                    try (ResultSet rs = select.executeQuery()) {
+                        rs.next();
+                        Money stored = Money.of(rs.getBigDecimal(1));
+                        assertEquals(Money.parse(amounts[i]), stored, amounts[i]);
+                        assertEquals(stored.toBigDecimal(), rs.getBigDecimal(1), amounts[i]);
+                        assertEquals(Money.of(rs.getBigDecimal(2)), Money.average(stored, 3), amounts[i] + " / 3");
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.bank.service;
+
+import com.bank.dao.memory.InMemoryStorage;
+import com.bank.exception.InsufficientFundsException;
+import com.bank.model.Account;
+import com.bank.model.Money;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Operations on an account run one at a time in the order they were called, a transfer waits for
+ * both of its accounts, a failed operation does not hold up the next one, and calls beyond
+ * {@code maxPending} are refused. Each operation is told apart by its amount in cents.
+ */
+class AsyncBankServiceTest {
+
+    private static final int ACCOUNTS = 4;
+    private static final Money INITIAL_BALANCE = Money.parse("10000.00");
+    // A deposit of this amount throws instead of running.
+    private static final Money FAILING_AMOUNT = Money.parse("13.13");
+
+    private final InMemoryStorage storage = new InMemoryStorage();
+    // Per account, the operations in the order they started.
+    private final Map<Integer, List<Long>> started = new ConcurrentHashMap<>();
+    private final Map<Integer, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+    private final List<String> overlaps = new CopyOnWriteArrayList<>();
+    // When set, every operation waits for it before running.
+    private volatile CountDownLatch gate;
+    private RecordingBankService bankService;
+    private AsyncBankService asyncService;
+    private final int[] ids = new int[ACCOUNTS];
+
+    @BeforeEach
+    void setUp() {
+        FraudRuleConfig rules = new FraudRuleConfig();
+        rules.setRules(List.of());
+        bankService = new RecordingBankService(new FraudDetectionService(storage.transactions(), rules));
+        for (int i = 0; i < ACCOUNTS; i++) {
+            ids[i] = bankService.createAccount("Async " + i, "Checking", INITIAL_BALANCE).getAccountId();
+            started.put(ids[i], new CopyOnWriteArrayList<>());
+            inFlight.put(ids[i], new AtomicInteger());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (gate != null) {
+            gate.countDown();
+        }
+        if (asyncService != null) {
+            asyncService.close();
+        }
+        bankService.shutdown();
+    }
+
+    @Test
+    void interleavedOperationsRunInCallOrderPerAccount() throws Exception {
+        asyncService = newService(4, 10_000);
+        Map<Integer, List<Long>> expected = new HashMap<>();
+        Map<Integer, Long> balances = new HashMap<>();
+        for (int id : ids) {
+            expected.put(id, new ArrayList<>());
+            balances.put(id, INITIAL_BALANCE.getMinorUnits());
+        }
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        Random random = new Random(42);
+        for (long cents = 1; cents <= 600; cents++) {
+            Money amount = Money.ofMinor(cents);
+            int account = ids[random.nextInt(ACCOUNTS)];
+            switch (random.nextInt(3)) {
+                case 0:
+                    futures.add(asyncService.deposit(account, amount));
+                    balances.merge(account, cents, Long::sum);
+                    break;
+                case 1:
+                    futures.add(asyncService.withdraw(account, amount));
+                    balances.merge(account, -cents, Long::sum);
+                    break;
+                default:
+                    int to = ids[(indexOf(account) + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS];
+                    futures.add(asyncService.transfer(account, to, amount));
+                    balances.merge(account, -cents, Long::sum);
+                    balances.merge(to, cents, Long::sum);
+                    expected.get(to).add(cents);
+                    break;
+            }
+            expected.get(account).add(cents);
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(1, TimeUnit.MINUTES);
+
+        assertEquals(List.of(), overlaps);
+        for (int id : ids) {
+            assertEquals(expected.get(id), started.get(id), "order of account " + id);
+            assertEquals(Money.ofMinor(balances.get(id)), storage.accounts().findAccountById(id).orElseThrow().getBalance());
+        }
+        awaitNoPending();
+    }
+
+    @Test
+    void failedOperationDoesNotBlockItsSuccessors() throws Exception {
+        asyncService = newService(4, 10_000);
+        gate = new CountDownLatch(1);
+        int a = ids[0];
+        int b = ids[1];
+        CompletableFuture<Optional<Account>> overdraw = asyncService.withdraw(a, Money.parse("20000.00"));
+        CompletableFuture<Optional<Account>> failing = asyncService.deposit(a, FAILING_AMOUNT);
+        CompletableFuture<Boolean> transfer = asyncService.transfer(a, b, Money.parse("0.50"));
+        CompletableFuture<Optional<Account>> deposit = asyncService.deposit(a, Money.parse("2.00"));
+        gate.countDown();
+
+        ExecutionException insufficient = assertThrows(ExecutionException.class, () -> overdraw.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(InsufficientFundsException.class, insufficient.getCause());
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> failing.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, thrown.getCause());
+        assertTrue(transfer.get(10, TimeUnit.SECONDS));
+        assertEquals(Money.parse("10001.50"), deposit.get(10, TimeUnit.SECONDS).orElseThrow().getBalance());
+
+        assertEquals(List.of(2000000L, 1313L, 50L, 200L), started.get(a));
+        assertEquals(List.of(50L), started.get(b));
+        assertEquals(List.of(), overlaps);
+        awaitNoPending();
+    }
+
+    @Test
+    void callsBeyondMaxPendingAreRejected() throws Exception {
+        asyncService = newService(2, 3);
+        gate = new CountDownLatch(1);
+        List<CompletableFuture<Optional<Account>>> accepted = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            accepted.add(asyncService.deposit(ids[i], Money.parse("1.00")));
+        }
+        assertEquals(3, asyncService.getPending());
+
+        CompletableFuture<Optional<Account>> refused = asyncService.deposit(ids[3], Money.parse("1.00"));
+        assertTrue(refused.isCompletedExceptionally());
+        ExecutionException rejection = assertThrows(ExecutionException.class, refused::get);
+        assertInstanceOf(RejectedExecutionException.class, rejection.getCause());
+        assertEquals(3, asyncService.getPending());
+
+        gate.countDown();
+        for (CompletableFuture<Optional<Account>> future : accepted) {
+            assertTrue(future.get(10, TimeUnit.SECONDS).isPresent());
+        }
+        awaitNoPending();
+        // Room again once the accepted ones are done; the refused one never ran.
+        assertTrue(asyncService.deposit(ids[3], Money.parse("1.00")).get(10, TimeUnit.SECONDS).isPresent());
+        assertEquals(List.of(100L), started.get(ids[3]));
+    }
+
+    private AsyncBankService newService(int maxConcurrency, int maxPending) {
+        AsyncServiceConfig config = new AsyncServiceConfig();
+        config.setMaxConcurrency(maxConcurrency);
+        config.setMaxPending(maxPending);
+        config.setCloseTimeoutMillis(10_000);
+        return new AsyncBankService(bankService, config);
+    }
+
+    private int indexOf(int accountId) {
+        for (int i = 0; i < ACCOUNTS; i++) {
+            if (ids[i] == accountId) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("No account " + accountId);
+    }
+
+    // The pending count drops just after each future completes.
+    private void awaitNoPending() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (asyncService.getPending() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(0, asyncService.getPending());
+    }
+
+    /** Records when each operation starts on its accounts and whether another one was still running there. */
+    private class RecordingBankService extends BankService {
+
+        RecordingBankService(FraudDetectionService fraudDetectionService) {
+            super(storage.accounts(), storage.transactions(), fraudDetectionService);
+        }
+
+        @Override
+        public Optional<Account> deposit(int accountId, Money amount) {
+            enter(amount, accountId);
+            try {
+                if (amount.equals(FAILING_AMOUNT)) {
+                    throw new IllegalStateException("Deposit of " + amount + " failed");
+                }
+                return super.deposit(accountId, amount);
+            } finally {
+                leave(accountId);
+            }
+        }
+
+        @Override
+        public Optional<Account> withdraw(int accountId, Money amount) throws InsufficientFundsException {
+            enter(amount, accountId);
+            try {
+                return super.withdraw(accountId, amount);
+            } finally {
+                leave(accountId);
+            }
+        }
+
+        @Override
+        public boolean transfer(int fromAccountId, int toAccountId, Money amount) throws InsufficientFundsException {
+            enter(amount, fromAccountId, toAccountId);
+            try {
+                return super.transfer(fromAccountId, toAccountId, amount);
+            } finally {
+                leave(fromAccountId, toAccountId);
+            }
+        }
+
+        private void enter(Money amount, int... accountIds) {
+            CountDownLatch current = gate;
+            if (current != null) {
+                try {
+                    current.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            for (int accountId : accountIds) {
+                if (inFlight.get(accountId).incrementAndGet() != 1) {
+                    overlaps.add(amount + " overlapped another operation on account " + accountId);
+                }
+                started.get(accountId).add(amount.getMinorUnits());
+            }
+            // Widens the window in which an unordered operation would overlap.
+            LockSupport.parkNanos(ThreadLocalRandom.current().nextInt(200_000));
+        }
+
+        private void leave(int... accountIds) {
+            for (int accountId : accountIds) {
+                inFlight.get(accountId).decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.bank.service;
+
+import com.bank.dao.AccountDAO;
+import com.bank.dao.TestDatabase;
+import com.bank.dao.TransactionDAO;
+import com.bank.exception.InsufficientFundsException;
+import com.bank.model.Account;
+import com.bank.model.Money;
+import com.bank.model.Transaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Deposits, withdrawals, transfers and reads through {@link BankService} from many threads: once
+ * they are done, every account the cache holds must match its database row, and the money in the
+ * system must be what was put in minus what was taken out.
+ */
+class BankServiceConcurrencyTest {
+
+    private static final int ACCOUNTS = 6;
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 100;
+    private static final Money INITIAL_BALANCE = Money.parse("100.00");
+
+    private AccountDAO accountDAO;
+    private BankService bankService;
+
+    @BeforeEach
+    void setUp() {
+        TestDatabase.start();
+        accountDAO = new AccountDAO();
+        bankService = new BankService(accountDAO, new TransactionDAO());
+    }
+
+    @AfterEach
+    void tearDown() {
+        bankService.shutdown();
+        TestDatabase.stop();
+    }
+
+    @Test
+    void concurrentOperationsKeepCacheInSyncAndConserveMoney() throws Exception {
+        int[] ids = new int[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            ids[i] = bankService.createAccount("Customer " + i, "Checking", INITIAL_BALANCE).getAccountId();
+        }
+
+        AtomicLong deposited = new AtomicLong();
+        AtomicLong withdrawn = new AtomicLong();
+        AtomicLong transfers = new AtomicLong();
+        AtomicLong refused = new AtomicLong();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            long seed = t;
+            futures.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    int from = ids[random.nextInt(ACCOUNTS)];
+                    int to = ids[random.nextInt(ACCOUNTS)];
+                    Money amount = Money.ofMinor(1 + random.nextInt(4_000));
+                    try {
+                        switch (random.nextInt(4)) {
+                            case 0:
+                                if (bankService.deposit(from, amount).isPresent()) {
+                                    deposited.addAndGet(amount.getMinorUnits());
+                                }
+                                break;
+                            case 1:
+                                if (bankService.withdraw(from, amount).isPresent()) {
+                                    withdrawn.addAndGet(amount.getMinorUnits());
+                                }
+                                break;
+                            case 2:
+                                if (from != to && bankService.transfer(from, to, amount)) {
+                                    transfers.incrementAndGet();
+                                }
+                                break;
+                            default:
+                                Account account = bankService.getAccount(from).orElseThrow();
+                                assertTrue(account.getBalance().signum() >= 0, () -> "Negative balance read: " + account);
+                        }
+                    } catch (InsufficientFundsException e) {
+                        refused.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        assertTrue(transfers.get() > 0 && refused.get() > 0, "the workload should both move money and run out of it");
+
+        long total = 0;
+        for (int id : ids) {
+            Account row = accountDAO.findAccountById(id).orElseThrow();
+            Account cached = bankService.getAccount(id).orElseThrow();
+            assertEquals(row.getBalance(), cached.getBalance(), "balance of account " + id);
+            assertEquals(row.getVersion(), cached.getVersion(), "version of account " + id);
+            assertTrue(row.getBalance().signum() >= 0);
+            total += row.getBalance().getMinorUnits();
+        }
+        assertEquals(INITIAL_BALANCE.times(ACCOUNTS).getMinorUnits() + deposited.get() - withdrawn.get(), total);
+    }
+
+    @Test
+    void debitReReadsStaleCachedBalanceBeforeRefusing() throws Exception {
+        int accountId = bankService.createAccount("Stale", "Checking", Money.parse("10.00")).getAccountId();
+        assertEquals(Money.parse("10.00"), bankService.getAccount(accountId).orElseThrow().getBalance());
+
+        // A write the service does not see: its cached balance is now too low for the withdrawal.
+        Account elsewhere = accountDAO.findAccountById(accountId).orElseThrow();
+        Money credit = Money.parse("90.00");
+        assertTrue(accountDAO.applyCredit(elsewhere, credit, new Transaction(accountId, "DEPOSIT", credit)).isPresent());
+        assertEquals(Money.parse("10.00"), bankService.getAccount(accountId).orElseThrow().getBalance());
+
+        long loadsBefore = bankService.getAccountCacheStats().getLoads();
+        Optional<Account> afterWithdrawal = bankService.withdraw(accountId, Money.parse("60.00"));
+
+        assertTrue(afterWithdrawal.isPresent());
+        assertEquals(Money.parse("40.00"), afterWithdrawal.get().getBalance());
+        assertEquals(loadsBefore + 1, bankService.getAccountCacheStats().getLoads());
+        Account row = accountDAO.findAccountById(accountId).orElseThrow();
+        Account cached = bankService.getAccount(accountId).orElseThrow();
+        assertEquals(row.getBalance(), cached.getBalance());
+        assertEquals(row.getVersion(), cached.getVersion());
+    }
+}
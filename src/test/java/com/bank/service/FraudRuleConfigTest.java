@@ -0,0 +1,76 @@
+package com.bank.service;
+
+import com.bank.dao.memory.InMemoryStorage;
+import com.bank.model.Account;
+import com.bank.model.Money;
+import com.bank.model.Transaction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** A fractional amount anomaly multiplier reloads from the rules file and is compared to the cent. */
+class FraudRuleConfigTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void fractionalMultiplierReloadsAndComparesExactly() throws Exception {
+        FraudRuleConfig config = reloadFrom("rules=amountAnomaly\namountAnomaly.multiplier=2.5\n");
+        assertEquals(0, new BigDecimal("2.5").compareTo(config.getAmountMultiplier()));
+
+        FraudDetectionService service = new FraudDetectionService(new InMemoryStorage().transactions(), new FraudRuleConfig());
+        service.reloadRules(config);
+        // 2.5 times an average of 100.00 is 250.00: only what is above it fires.
+        assertFalse(check(service, "100.00", "250.00").isFlagged());
+        assertTrue(check(service, "100.00", "250.01").isFlagged());
+        // 2.5 times 0.03 is 0.075, so 0.07 stays quiet and 0.08 fires.
+        assertFalse(check(service, "0.03", "0.07").isFlagged());
+        assertTrue(check(service, "0.03", "0.08").isFlagged());
+        service.close();
+    }
+
+    @Test
+    void largeAmountsCompareWithoutOverflow() {
+        long average = Long.MAX_VALUE / 3;
+        // Exactly three times the average: not above a multiplier of 3, but above 2.9999.
+        assertFalse(FraudRuleSet.exceedsMultiple(average * 3, average, 30_000));
+        assertTrue(FraudRuleSet.exceedsMultiple(average * 3, average, 29_999));
+        assertTrue(FraudRuleSet.exceedsMultiple(average * 3 + 1, average, 30_000));
+    }
+
+    @Test
+    void invalidMultiplierIsRejected() throws Exception {
+        assertThrows(IllegalArgumentException.class, () -> reloadFrom("amountAnomaly.multiplier=two\n"));
+        assertThrows(IllegalArgumentException.class, () -> reloadFrom("amountAnomaly.multiplier=0.5\n"));
+        assertThrows(IllegalArgumentException.class, () -> reloadFrom("amountAnomaly.multiplier=1.00001\n"));
+        assertEquals(0, new BigDecimal("3").compareTo(reloadFrom("amountAnomaly.multiplier=3.0000\n").getAmountMultiplier()));
+    }
+
+    private FraudRuleConfig reloadFrom(String contents) throws Exception {
+        Path file = directory.resolve("fraud-rules.properties");
+        Files.write(file, contents.getBytes(StandardCharsets.UTF_8));
+        FraudRuleConfig config = new FraudRuleConfig();
+        config.setRulesFile(file);
+        return config.reload();
+    }
+
+    private static Transaction check(FraudDetectionService service, String average, String amount) {
+        Account account = new Account("Anomaly", "Checking", Money.parse("1000.00"));
+        account.setAccountId(1);
+        account.setTransactionCount(10);
+        account.setAvgTransactionAmount(Money.parse(average));
+        Transaction transaction = new Transaction(1, "WITHDRAWAL", Money.parse(amount));
+        return service.checkForFraud(account, transaction, FraudDetectionService.NO_COUNTERPARTY, Set.of(FraudRule.AMOUNT_ANOMALY), 0);
+    }
+}
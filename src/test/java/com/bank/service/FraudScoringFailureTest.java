@@ -0,0 +1,156 @@
+package com.bank.service;
+
+import com.bank.dao.AccountRepository;
+import com.bank.dao.memory.InMemoryStorage;
+import com.bank.model.Account;
+import com.bank.model.Money;
+import com.bank.model.Transaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A verdict whose flag write fails stays pending and is retried until it is recorded, and a batch
+ * whose scoring throws still counts as scored, so awaitScored() returns.
+ */
+class FraudScoringFailureTest {
+
+    private final InMemoryStorage storage = new InMemoryStorage();
+    // flagTransactions() fails while this is positive, counting down.
+    private final AtomicInteger failingFlagWrites = new AtomicInteger();
+    private FraudScoringPipeline pipeline;
+    private Account account;
+
+    @BeforeEach
+    void setUp() {
+        account = new Account("Flagged", "Checking", Money.parse("100.00"));
+        assertTrue(storage.accounts().createAccount(account) > 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pipeline != null) {
+            pipeline.close();
+        }
+    }
+
+    @Test
+    void failedFlagWriteIsRetriedUntilRecorded() throws Exception {
+        // Flags every transaction.
+        pipeline = newPipeline(new FraudDetectionService() {
+            @Override
+            int score(Account[] accounts, Transaction[] transactions, int[] counterpartyIds, long[] atMillis, Set<FraudRule> rules) {
+                for (Transaction transaction : transactions) {
+                    transaction.setFlagged(true);
+                    transaction.setReasonForFlag("test");
+                }
+                return transactions.length;
+            }
+        });
+        failingFlagWrites.set(3);
+        Transaction deposit = deposit();
+        pipeline.submit(account, deposit, null);
+
+        assertTrue(pipeline.awaitScored(5_000));
+        assertEquals(List.of(deposit.getTransactionId()), pipeline.getPendingFlagIds());
+        assertEquals(1, pipeline.getStats().getPendingFlags());
+        assertFalse(storedDeposit(deposit).isFlagged());
+
+        // Backoff of 100, 200 and 400 ms before the write that succeeds.
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (pipeline.getStats().getPendingFlags() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        FraudScoringPipeline.Stats stats = pipeline.getStats();
+        assertEquals(0, stats.getPendingFlags());
+        assertEquals(3, stats.getFailedWrites());
+        assertEquals(1, stats.getFlagged());
+        assertTrue(storedDeposit(deposit).isFlagged());
+        assertEquals("test", storedDeposit(deposit).getReasonForFlag());
+    }
+
+    @Test
+    void flagsStillFailingAreRetriedOnClose() throws Exception {
+        pipeline = newPipeline(new FraudDetectionService() {
+            @Override
+            int score(Account[] accounts, Transaction[] transactions, int[] counterpartyIds, long[] atMillis, Set<FraudRule> rules) {
+                transactions[0].setFlagged(true);
+                transactions[0].setReasonForFlag("test");
+                return 1;
+            }
+        });
+        failingFlagWrites.set(Integer.MAX_VALUE);
+        Transaction deposit = deposit();
+        pipeline.submit(account, deposit, null);
+        assertTrue(pipeline.awaitScored(5_000));
+        assertEquals(1, pipeline.getStats().getPendingFlags());
+
+        failingFlagWrites.set(0);
+        pipeline.close();
+        assertEquals(0, pipeline.getStats().getPendingFlags());
+        assertTrue(storedDeposit(deposit).isFlagged());
+    }
+
+    @Test
+    void failedBatchDoesNotStallAwaitScored() throws Exception {
+        pipeline = newPipeline(new FraudDetectionService() {
+            @Override
+            int score(Account[] accounts, Transaction[] transactions, int[] counterpartyIds, long[] atMillis, Set<FraudRule> rules) {
+                throw new IllegalStateException("scoring failed");
+            }
+        });
+        pipeline.submit(account, deposit(), null);
+        pipeline.submit(account, deposit(), null);
+
+        assertTrue(pipeline.awaitScored(5_000));
+        FraudScoringPipeline.Stats stats = pipeline.getStats();
+        assertEquals(2, stats.getScored());
+        assertEquals(stats.getBatches(), stats.getFailedBatches());
+        assertTrue(stats.getFailedBatches() >= 1);
+    }
+
+    private FraudScoringPipeline newPipeline(FraudDetectionService scorer) {
+        FraudPipelineConfig config = new FraudPipelineConfig();
+        config.setAsynchronous(true);
+        config.setWorkers(1);
+        config.setBlockingRules(Set.of());
+        return new FraudScoringPipeline(scorer, failingFlags(storage.accounts()), config, accountId -> {});
+    }
+
+    private AccountRepository failingFlags(AccountRepository delegate) {
+        return (AccountRepository) Proxy.newProxyInstance(AccountRepository.class.getClassLoader(), new Class<?>[]{AccountRepository.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("flagTransactions") && failingFlagWrites.getAndUpdate(n -> Math.max(n - 1, 0)) > 0) {
+                        return -1;
+                    }
+                    try {
+                        return method.invoke(delegate, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private Transaction deposit() {
+        Money amount = Money.parse("1.00");
+        Transaction transaction = new Transaction(account.getAccountId(), "DEPOSIT", amount);
+        assertTrue(storage.accounts().applyCredit(account, amount, transaction).isPresent());
+        return transaction;
+    }
+
+    private Transaction storedDeposit(Transaction deposit) {
+        return storage.transactions().findTransactionsByAccountId(account.getAccountId()).stream()
+                .filter(t -> t.getTransactionId() == deposit.getTransactionId())
+                .findFirst().orElseThrow();
+    }
+}
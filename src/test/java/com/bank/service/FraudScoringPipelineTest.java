@@ -0,0 +1,114 @@
+package com.bank.service;
+
+import com.bank.dao.memory.InMemoryStorage;
+import com.bank.model.Account;
+import com.bank.model.Money;
+import com.bank.model.Transaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** A full queue makes the submitter wait, so one account's transactions are still scored in commit order. */
+class FraudScoringPipelineTest {
+
+    private final CountDownLatch gate = new CountDownLatch(1);
+    private final List<Integer> scoredIds = new CopyOnWriteArrayList<>();
+    private FraudScoringPipeline pipeline;
+    private Account account;
+
+    @BeforeEach
+    void setUp() {
+        // Scores nothing, but records the order it was asked in and holds every batch until the gate opens.
+        FraudDetectionService gated = new FraudDetectionService() {
+            @Override
+            int score(Account[] accounts, Transaction[] transactions, int[] counterpartyIds, long[] atMillis, Set<FraudRule> rules) {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (Transaction transaction : transactions) {
+                    scoredIds.add(transaction.getTransactionId());
+                }
+                return 0;
+            }
+        };
+        FraudPipelineConfig config = new FraudPipelineConfig();
+        config.setAsynchronous(true);
+        config.setWorkers(1);
+        config.setQueueCapacity(1);
+        config.setMaxBatchSize(1);
+        pipeline = new FraudScoringPipeline(gated, new InMemoryStorage().accounts(), config, accountId -> {});
+        account = new Account("Ordered", "Checking", Money.parse("100.00"));
+        account.setAccountId(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        gate.countDown();
+        pipeline.close();
+    }
+
+    @Test
+    void fullQueueBlocksSubmitterInsteadOfScoringOutOfOrder() throws Exception {
+        pipeline.submit(account, transaction(1), null);
+        awaitQueueDepth(0);
+        pipeline.submit(account, transaction(2), null);
+
+        CompletableFuture<Void> third = CompletableFuture.runAsync(() -> pipeline.submit(account, transaction(3), null));
+        Thread.sleep(1_500);
+        assertFalse(third.isDone(), "the submitter should wait for room in the queue");
+        assertEquals(1, pipeline.getStats().getBlockedSubmits());
+
+        gate.countDown();
+        third.get(5, TimeUnit.SECONDS);
+        assertTrue(pipeline.awaitScored(5_000));
+        assertEquals(List.of(1, 2, 3), scoredIds);
+        assertEquals(0, pipeline.getStats().getCallerRuns());
+    }
+
+    @Test
+    void closeReleasesWaitingSubmitter() throws Exception {
+        pipeline.submit(account, transaction(1), null);
+        awaitQueueDepth(0);
+        pipeline.submit(account, transaction(2), null);
+        CompletableFuture<Void> third = CompletableFuture.runAsync(() -> pipeline.submit(account, transaction(3), null));
+        Thread.sleep(200);
+        assertFalse(third.isDone());
+
+        CompletableFuture<Void> closed = CompletableFuture.runAsync(pipeline::close);
+        Thread.sleep(200);
+        gate.countDown();
+        closed.get(5, TimeUnit.SECONDS);
+        third.get(5, TimeUnit.SECONDS);
+
+        assertEquals(3, pipeline.getStats().getScored());
+        assertEquals(1, pipeline.getStats().getCallerRuns());
+    }
+
+    private static Transaction transaction(int transactionId) {
+        Transaction transaction = new Transaction(1, "DEPOSIT", Money.parse("1.00"));
+        transaction.setTransactionId(transactionId);
+        return transaction;
+    }
+
+    // The worker has taken everything queued so far.
+    private void awaitQueueDepth(int depth) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (pipeline.getQueueDepth() != depth && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(depth, pipeline.getQueueDepth());
+    }
+}